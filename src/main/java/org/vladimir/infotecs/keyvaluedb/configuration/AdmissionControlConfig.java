@@ -0,0 +1,70 @@
+package org.vladimir.infotecs.keyvaluedb.configuration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.vladimir.infotecs.keyvaluedb.controller.AdmissionControlInterceptor;
+import org.vladimir.infotecs.keyvaluedb.controller.AdmissionControlInterceptor.OperationClass;
+import org.vladimir.infotecs.keyvaluedb.service.AdaptiveConcurrencyLimiter;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Admission control: API requests are limited per operation class (read, write, bulk) by adaptive concurrency
+ * limits, requests over the limit get 503 at once. Limits are configured as
+ * admission.{read|write|bulk}.{initialLimit|maxLimit|latency}, latency is the threshold in ms above which
+ * the limit is decreased
+ */
+@ConditionalOnProperty(name = "admission.enable", havingValue = "true")
+@Configuration
+public class AdmissionControlConfig implements WebMvcConfigurer {
+
+    private final AdmissionControlInterceptor interceptor;
+
+    AdmissionControlConfig(Environment environment,
+                           @Value("${admission.minLimit:1}") Integer minLimit,
+                           @Value("${admission.backoffRatio:0.9}") Double backoffRatio,
+                           MeterRegistry meterRegistry) {
+        Map<OperationClass, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(OperationClass.class);
+        for (OperationClass operationClass : OperationClass.values()) {
+            String prefix = "admission." + operationClass.name().toLowerCase(Locale.ROOT) + ".";
+            int maxLimit = environment.getRequiredProperty(prefix + "maxLimit", Integer.class);
+            var limiter = new AdaptiveConcurrencyLimiter(
+                    environment.getProperty(prefix + "initialLimit", Integer.class, maxLimit),
+                    minLimit, maxLimit,
+                    environment.getRequiredProperty(prefix + "latency", Long.class),
+                    backoffRatio);
+            String tag = operationClass.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("Current concurrency limit")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            Gauge.builder("admission.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .description("Admitted requests in flight")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            FunctionCounter.builder("admission.rejected", limiter, AdaptiveConcurrencyLimiter::getRejected)
+                    .description("Requests rejected by the concurrency limit")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            limiters.put(operationClass, limiter);
+        }
+        this.interceptor = new AdmissionControlInterceptor(limiters);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // change streams are long-lived and don't use the storage
+        registry.addInterceptor(interceptor)
+                .addPathPatterns("/api/**")
+                .excludePathPatterns("/api/changes/**");
+    }
+}
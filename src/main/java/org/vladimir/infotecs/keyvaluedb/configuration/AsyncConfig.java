@@ -0,0 +1,45 @@
+package org.vladimir.infotecs.keyvaluedb.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.vladimir.infotecs.keyvaluedb.service.AsyncKeyValueService;
+import org.vladimir.infotecs.keyvaluedb.service.ExecutorAsyncKvService;
+import org.vladimir.infotecs.keyvaluedb.service.KeyValueService;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous API: {@link KeyValueService} calls are executed by a bounded pool of --async.threads threads
+ * with a queue of --async.queueCapacity operations, request threads are released while operations wait
+ */
+@ConditionalOnProperty(name = "async.enable", havingValue = "true")
+@Configuration
+public class AsyncConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService asyncKvExecutor(@Value("${async.threads:16}") Integer threads,
+                                           @Value("${async.queueCapacity:10000}") Integer queueCapacity,
+                                           MeterRegistry meterRegistry) {
+        var threadNumber = new AtomicInteger();
+        var executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            var thread = new Thread(runnable, "async-kv-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "asyncKv");
+    }
+
+    @Bean
+    public AsyncKeyValueService asyncKeyValueService(KeyValueService keyValueService, ExecutorService asyncKvExecutor) {
+        return new ExecutorAsyncKvService(keyValueService, asyncKvExecutor);
+    }
+}
@@ -0,0 +1,54 @@
+package org.vladimir.infotecs.keyvaluedb.configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.vladimir.infotecs.keyvaluedb.repository.ChangeFeed;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Change data capture: storage modifications are published to the {@link ChangeFeed},
+ * see {@link UseMapConfig} and {@link UseDbConfig}. Every stream subscriber takes a thread of a pool
+ * of --cdc.maxSubscribers threads, further subscribers are rejected
+ */
+@ConditionalOnProperty(name = "cdc.enable", havingValue = "true")
+@Configuration
+public class ChangeFeedConfig {
+
+    @Bean
+    public ChangeFeed changeFeed(@Value("${cdc.historyCapacity:100000}") Integer historyCapacity,
+                                 @Value("${cdc.subscriberBuffer:10000}") Integer subscriberBuffer,
+                                 MeterRegistry meterRegistry) {
+        var changeFeed = new ChangeFeed(historyCapacity, subscriberBuffer);
+        Gauge.builder("cdc.sequence", changeFeed, ChangeFeed::getLastSequence)
+                .description("Sequence of the last published change")
+                .register(meterRegistry);
+        Gauge.builder("cdc.subscribers", changeFeed, ChangeFeed::getSubscriberCount)
+                .description("Number of change stream subscribers")
+                .register(meterRegistry);
+        return changeFeed;
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService changeFeedSenders(@Value("${cdc.maxSubscribers:64}") Integer maxSubscribers,
+                                             MeterRegistry meterRegistry) {
+        var threadNumber = new AtomicInteger();
+        var executor = new ThreadPoolExecutor(maxSubscribers, maxSubscribers, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            var thread = new Thread(runnable, "change-feed-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "changeFeedSenders");
+    }
+}
@@ -0,0 +1,23 @@
+package org.vladimir.infotecs.keyvaluedb.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.vladimir.infotecs.keyvaluedb.repository.HotKeyTracker;
+
+/**
+ * Hot key detection: single key accesses are recorded to the {@link HotKeyTracker},
+ * see {@link UseMapConfig} and {@link UseDbConfig}. Nothing is recorded when disabled
+ */
+@ConditionalOnProperty(name = "hotKeys.enable", havingValue = "true")
+@Configuration
+public class HotKeysConfig {
+
+    @Bean
+    public HotKeyTracker hotKeyTracker(@Value("${hotKeys.window:60000}") Long windowMillis,
+                                       @Value("${hotKeys.width:4096}") Integer width,
+                                       @Value("${hotKeys.capacity:100}") Integer capacity) {
+        return new HotKeyTracker(windowMillis, width, capacity);
+    }
+}
@@ -0,0 +1,39 @@
+package org.vladimir.infotecs.keyvaluedb.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.vladimir.infotecs.keyvaluedb.service.NamespaceManager;
+
+import java.util.List;
+
+/**
+ * Isolated keyspaces, see {@link NamespaceManager}
+ */
+@ConditionalOnProperty(name = "namespace.enable", havingValue = "true")
+@Configuration
+public class NamespaceConfig {
+
+    @Bean(destroyMethod = "close")
+    public NamespaceManager namespaceManager(@Value("${defaultTTL:120}") Long defaultTtl,
+                                             @Value("${namespace.maxMemory:0}") Long maxMemory,
+                                             @Value("${namespace.expirationInterval:20000}") Long expirationInterval,
+                                             @Value("${namespace.names:}") List<String> names,
+                                             @Value("${sweeper.segments:16}") Integer segments,
+                                             @Value("${sweeper.batchSize:1000}") Integer batchSize,
+                                             @Value("${sweeper.minDelay:100}") Long minDelay,
+                                             @Value("${sweeper.targetRatio:0.25}") Double targetRatio,
+                                             @Value("${namespace.sweeperThreads:2}") Integer sweeperThreads,
+                                             @Value("${namespace.maxCount:100}") Integer maxCount,
+                                             @Value("${namespace.minExpirationInterval:1000}") Long minExpirationInterval,
+                                             MeterRegistry meterRegistry) {
+        var manager = new NamespaceManager(defaultTtl, maxMemory, expirationInterval, segments, batchSize,
+                minDelay, targetRatio, sweeperThreads, maxCount, minExpirationInterval, meterRegistry);
+        names.stream()
+                .filter(name -> !name.isBlank())
+                .forEach(name -> manager.create(name.strip(), 0, 0, 0));
+        return manager;
+    }
+}
@@ -0,0 +1,28 @@
+package org.vladimir.infotecs.keyvaluedb.configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.vladimir.infotecs.keyvaluedb.repository.ReplicationLog;
+
+/**
+ * Primary role: storage modifications are recorded to the {@link ReplicationLog},
+ * see {@link UseMapConfig} and {@link UseDbConfig}
+ */
+@ConditionalOnProperty(name = "replication.role", havingValue = "primary")
+@Configuration
+public class ReplicationPrimaryConfig {
+
+    @Bean
+    public ReplicationLog replicationLog(@Value("${replication.logCapacity:100000}") Integer capacity,
+                                         MeterRegistry meterRegistry) {
+        var replicationLog = new ReplicationLog(capacity);
+        Gauge.builder("replication.offset", replicationLog, ReplicationLog::getLastOffset)
+                .description("Offset of the last logged operation")
+                .register(meterRegistry);
+        return replicationLog;
+    }
+}
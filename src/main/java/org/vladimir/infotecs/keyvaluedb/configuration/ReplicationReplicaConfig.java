@@ -0,0 +1,44 @@
+package org.vladimir.infotecs.keyvaluedb.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.web.client.RestClient;
+import org.vladimir.infotecs.keyvaluedb.service.KeyValueService;
+import org.vladimir.infotecs.keyvaluedb.service.ReadOnlyReplicaKvService;
+import org.vladimir.infotecs.keyvaluedb.service.ReplicaSynchronizer;
+
+/**
+ * Replica role: the storage is read-only for clients and follows the primary from {@code replication.primaryUrl}
+ */
+@ConditionalOnProperty(name = "replication.role", havingValue = "replica")
+@Configuration
+@EnableScheduling
+public class ReplicationReplicaConfig {
+
+    private final KeyValueService storageKvService;
+
+    // The only other KeyValueService bean is the storage one (UseMapConfig or UseDbConfig)
+    ReplicationReplicaConfig(KeyValueService storageKvService) {
+        this.storageKvService = storageKvService;
+    }
+
+    @Primary
+    @Bean
+    public ReadOnlyReplicaKvService readOnlyReplicaKvService() {
+        return new ReadOnlyReplicaKvService(storageKvService);
+    }
+
+    @Bean
+    public ReplicaSynchronizer replicaSynchronizer(RestClient.Builder restClientBuilder,
+                                                   @Value("${replication.primaryUrl}") String primaryUrl,
+                                                   @Value("${replication.batchSize:1000}") Integer batchSize,
+                                                   MeterRegistry meterRegistry) {
+        return new ReplicaSynchronizer(restClientBuilder.baseUrl(primaryUrl).build(),
+                storageKvService, batchSize, meterRegistry);
+    }
+}
@@ -0,0 +1,34 @@
+package org.vladimir.infotecs.keyvaluedb.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.vladimir.infotecs.keyvaluedb.service.KeyValueService;
+import org.vladimir.infotecs.keyvaluedb.service.SnapshotManager;
+
+import java.nio.file.Path;
+
+/**
+ * Scheduled snapshots of the storage, see {@link org.vladimir.infotecs.keyvaluedb.service.SnapshotScheduler}
+ */
+@ConditionalOnProperty(name = "snapshot.enable", havingValue = "true")
+@Configuration
+public class SnapshotConfig {
+
+    @Bean
+    public SnapshotManager snapshotManager(KeyValueService keyValueService,
+                                           ObjectMapper objectMapper,
+                                           @Value("${snapshot.directory:./data/snapshots}") String directory,
+                                           @Value("${snapshot.retention:24}") Integer retention,
+                                           @Value("${snapshot.pageSize:10000}") Integer pageSize,
+                                           @Value("${snapshot.segmentPairs:100000}") Integer segmentPairs,
+                                           @Value("${snapshot.recoveryParallelism:0}") Integer recoveryParallelism,
+                                           MeterRegistry meterRegistry) {
+        int parallelism = recoveryParallelism > 0 ? recoveryParallelism : Runtime.getRuntime().availableProcessors();
+        return new SnapshotManager(keyValueService, objectMapper, Path.of(directory), retention, pageSize,
+                segmentPairs, parallelism, meterRegistry);
+    }
+}
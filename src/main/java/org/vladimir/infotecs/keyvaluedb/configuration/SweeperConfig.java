@@ -0,0 +1,32 @@
+package org.vladimir.infotecs.keyvaluedb.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.vladimir.infotecs.keyvaluedb.service.ExpirationSweeper;
+import org.vladimir.infotecs.keyvaluedb.service.KeyValueService;
+
+/**
+ * Incremental expiration with the adaptive delay, replaces the full sweep of
+ * {@link org.vladimir.infotecs.keyvaluedb.service.Scheduler}
+ */
+@ConditionalOnProperty(name = "sweeper.enable", havingValue = "true")
+@Configuration
+public class SweeperConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public ExpirationSweeper expirationSweeper(KeyValueService keyValueService,
+                                               @Value("${sweeper.parallelism:0}") Integer parallelism,
+                                               @Value("${sweeper.batchSize:1000}") Integer batchSize,
+                                               @Value("${sweeper.minDelay:100}") Long minDelay,
+                                               @Value("${sweeper.maxDelay:20000}") Long maxDelay,
+                                               @Value("${sweeper.targetRatio:0.25}") Double targetRatio,
+                                               MeterRegistry meterRegistry) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ExpirationSweeper(keyValueService, threads, batchSize, minDelay, maxDelay, targetRatio,
+                meterRegistry, Tags.empty());
+    }
+}
@@ -2,17 +2,27 @@ package org.vladimir.infotecs.keyvaluedb.configuration;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.h2.tools.Server;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.DependsOn;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.vladimir.infotecs.keyvaluedb.model.KvPair;
 import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.repository.ChangeFeed;
+import org.vladimir.infotecs.keyvaluedb.repository.ChangeFeedKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.CoalescingKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.CompressingKeyValueRepository;
 import org.vladimir.infotecs.keyvaluedb.repository.DbKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.HotKeyTracker;
+import org.vladimir.infotecs.keyvaluedb.repository.HotKeyTrackingKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.KeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.ReplicatingKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.ReplicationLog;
 import org.vladimir.infotecs.keyvaluedb.repository.mapper.KvPairRowMapper;
 import org.vladimir.infotecs.keyvaluedb.repository.mapper.ValueWithExpirationTimeRowMapper;
 import org.vladimir.infotecs.keyvaluedb.service.DbKVService;
@@ -20,29 +30,71 @@ import org.vladimir.infotecs.keyvaluedb.service.DbKVService;
 
 import javax.sql.DataSource;
 import java.sql.SQLException;
+import java.util.Locale;
 
 @ConditionalOnProperty(name = "useDb", havingValue = "true", matchIfMissing = false)
 @Configuration
 public class UseDbConfig {
 
+    private final String databaseMode;
+    private final String databaseUrl;
     private final Integer databasePort;
+    private final Integer poolSize;
+    private final Long connectionTimeout;
+    private final Integer queryCacheSize;
 
-    UseDbConfig(@Value("${database.port}") Integer databasePort) {
+    UseDbConfig(@Value("${database.mode:embedded}") String databaseMode,
+                @Value("${database.url:jdbc:h2:mem:kvdb}") String databaseUrl,
+                @Value("${database.port:9090}") Integer databasePort,
+                @Value("${database.poolSize:10}") Integer poolSize,
+                @Value("${database.connectionTimeout:30000}") Long connectionTimeout,
+                @Value("${database.queryCacheSize:64}") Integer queryCacheSize) {
+        if (!databaseMode.equals("embedded") && !databaseMode.equals("tcp")) {
+            throw new IllegalArgumentException("database.mode must be embedded or tcp");
+        }
+        this.databaseMode = databaseMode;
+        this.databaseUrl = databaseUrl;
         this.databasePort = databasePort;
+        this.poolSize = poolSize;
+        this.connectionTimeout = connectionTimeout;
+        this.queryCacheSize = queryCacheSize;
     }
 
+    /**
+     * TCP server for the in-memory database, started only with database.mode=tcp
+     * (e.g. to inspect the data with an external client)
+     */
+    @ConditionalOnProperty(name = "database.mode", havingValue = "tcp")
     @Bean(name = "h2ServerBean", initMethod = "start", destroyMethod = "stop")
     public Server inMemoryH2DatabaseServer() throws SQLException {
         return Server.createTcpServer("-tcp", "-ifNotExists", "-tcpPort", databasePort.toString());
     }
 
-    @DependsOn("h2ServerBean")
     @Bean("hikariDataSource")
-    public HikariDataSource dataSource() {
+    public HikariDataSource dataSource(ObjectProvider<Server> h2ServerProvider) {
         var hikariConfig = new HikariConfig();
-        hikariConfig.setJdbcUrl("jdbc:h2:tcp://localhost:9090/mem:test");
+        if (databaseMode.equals("tcp")) {
+            // the server must be started before the pool connects
+            h2ServerProvider.getObject();
+            hikariConfig.setJdbcUrl("jdbc:h2:tcp://localhost:" + databasePort + "/mem:test"
+                    + ";QUERY_CACHE_SIZE=" + queryCacheSize);
+        } else {
+            // in-process database, queries don't pass through the socket and serialization;
+            // the in-memory database must outlive the pool connections
+            String url = databaseUrl + ";QUERY_CACHE_SIZE=" + queryCacheSize;
+            if (!databaseUrl.toUpperCase(Locale.ROOT).contains("DB_CLOSE_DELAY")) {
+                url += ";DB_CLOSE_DELAY=-1";
+            }
+            hikariConfig.setJdbcUrl(url);
+        }
         hikariConfig.setUsername("sa");
         hikariConfig.setPassword("password");
+        hikariConfig.setPoolName("KeyValueDB");
+        // with virtual threads the pool, not the request thread count, bounds concurrent queries;
+        // a request waits for a connection at most database.connectionTimeout (Hikari's default 30 s)
+        hikariConfig.setMaximumPoolSize(poolSize);
+        hikariConfig.setMinimumIdle(poolSize);
+        hikariConfig.setConnectionTimeout(connectionTimeout);
         System.out.println(hikariConfig.getJdbcUrl());
         return new HikariDataSource(hikariConfig);
     }
@@ -53,8 +105,14 @@ public class UseDbConfig {
         String sql = "CREATE TABLE IF NOT EXISTS KEY_VALUE_TABLE (" +
                 "\"KEY\" TEXT PRIMARY KEY, " +
                 "\"VALUE\" TEXT NOT NULL, " +
-                "EXPIRATION_TIME TIMESTAMP NOT NULL)";
+                "EXPIRATION_TIME TIMESTAMP NOT NULL, " +
+                "SLIDING_TTL BIGINT, " +
+                "VERSION BIGINT)";
         jdbcTemplate.execute(sql);
+        // tables created before the versioning
+        jdbcTemplate.execute("ALTER TABLE KEY_VALUE_TABLE ADD COLUMN IF NOT EXISTS VERSION BIGINT");
+        // outdated pairs are found by the incremental expiration without a full scan
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS KEY_VALUE_EXPIRATION_TIME ON KEY_VALUE_TABLE (EXPIRATION_TIME)");
         return jdbcTemplate;
     }
 
@@ -76,7 +134,35 @@ public class UseDbConfig {
     }
 
     @Bean
-    public DbKVService dbKvService(DbKeyValueRepository kvRepository, @Value("${defaultTTL:200}") Long defaultTTL) {
-        return new DbKVService(kvRepository, defaultTTL);
+    public DbKVService dbKvService(DbKeyValueRepository kvRepository,
+                                   ObjectProvider<ReplicationLog> replicationLogProvider,
+                                   ObjectProvider<ChangeFeed> changeFeedProvider,
+                                   ObjectProvider<HotKeyTracker> hotKeyTrackerProvider,
+                                   @Value("${defaultTTL:200}") Long defaultTTL,
+                                   @Value("${coalescing.enable:true}") Boolean coalescingEnabled,
+                                   @Value("${compression.enable:false}") Boolean compressionEnabled,
+                                   @Value("${compression.threshold:4096}") Integer compressionThreshold,
+                                   @Value("${compression.level:1}") Integer compressionLevel,
+                                   MeterRegistry meterRegistry) {
+        KeyValueRepository repository = kvRepository;
+        if (coalescingEnabled) {
+            repository = new CoalescingKeyValueRepository(repository, meterRegistry);
+        }
+        if (compressionEnabled) {
+            repository = new CompressingKeyValueRepository(repository, compressionThreshold, compressionLevel, meterRegistry);
+        }
+        ReplicationLog replicationLog = replicationLogProvider.getIfAvailable();
+        if (replicationLog != null) {
+            repository = new ReplicatingKeyValueRepository(repository, replicationLog);
+        }
+        ChangeFeed changeFeed = changeFeedProvider.getIfAvailable();
+        if (changeFeed != null) {
+            repository = new ChangeFeedKeyValueRepository(repository, changeFeed);
+        }
+        HotKeyTracker hotKeyTracker = hotKeyTrackerProvider.getIfAvailable();
+        if (hotKeyTracker != null) {
+            repository = new HotKeyTrackingKeyValueRepository(repository, hotKeyTracker);
+        }
+        return new DbKVService(repository, defaultTTL);
     }
 }
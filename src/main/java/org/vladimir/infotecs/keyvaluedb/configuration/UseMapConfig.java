@@ -1,25 +1,138 @@
 package org.vladimir.infotecs.keyvaluedb.configuration;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.vladimir.infotecs.keyvaluedb.repository.ChangeFeed;
+import org.vladimir.infotecs.keyvaluedb.repository.ChangeFeedKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.CompressingKeyValueRepository;
 import org.vladimir.infotecs.keyvaluedb.repository.HashMapKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.HotKeyTracker;
+import org.vladimir.infotecs.keyvaluedb.repository.HotKeyTrackingKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.KeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.MvStoreKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.OrderedIndexKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.ReplicatingKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.ReplicationLog;
+import org.vladimir.infotecs.keyvaluedb.repository.TieredKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.lsm.LsmKeyValueRepository;
 import org.vladimir.infotecs.keyvaluedb.service.RWLSyncKvService;
 
+import java.nio.file.Path;
+
 @ConditionalOnProperty(name = "useDb", havingValue = "false", matchIfMissing = true)
 @Configuration
 public class UseMapConfig {
 
+    @ConditionalOnProperty(name = "storage.engine", havingValue = "hashmap", matchIfMissing = true)
     @Bean
-    public HashMapKeyValueRepository hashMapKeyValueRepository(){
-        return new HashMapKeyValueRepository();
+    public HashMapKeyValueRepository hashMapKeyValueRepository(@Value("${sweeper.segments:16}") Integer segments){
+        return new HashMapKeyValueRepository(segments);
+    }
+
+    /**
+     * Persistent storage in the H2 MVStore file, --mvstore.file (empty for an in-memory store)
+     */
+    @ConditionalOnProperty(name = "storage.engine", havingValue = "mvstore")
+    @Bean(destroyMethod = "close")
+    public MvStoreKeyValueRepository mvStoreKeyValueRepository(@Value("${mvstore.file:./data/kvdb.mv}") String fileName,
+                                                               @Value("${mvstore.commitDelay:1000}") Integer commitDelay,
+                                                               @Value("${mvstore.cacheSize:64}") Integer cacheSize) {
+        return new MvStoreKeyValueRepository(fileName.isEmpty() ? null : fileName, commitDelay, cacheSize);
+    }
+
+    /**
+     * Persistent LSM-tree storage in the directory --lsm.directory
+     */
+    @ConditionalOnProperty(name = "storage.engine", havingValue = "lsm")
+    @Bean(destroyMethod = "close")
+    public LsmKeyValueRepository lsmKeyValueRepository(@Value("${lsm.directory:./data/lsm}") String directory,
+                                                       @Value("${lsm.memtableSize:4194304}") Long memtableSize,
+                                                       @Value("${lsm.compactionThreshold:4}") Integer compactionThreshold,
+                                                       @Value("${lsm.walSync:false}") Boolean walSync,
+                                                       MeterRegistry meterRegistry) {
+        var repository = new LsmKeyValueRepository(Path.of(directory), memtableSize, compactionThreshold, walSync);
+        Gauge.builder("lsm.tables", repository, LsmKeyValueRepository::getTableCount)
+                .description("Number of SSTables")
+                .register(meterRegistry);
+        Gauge.builder("lsm.tables.size", repository, LsmKeyValueRepository::getTablesSize)
+                .description("Total size of the SSTables")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        return repository;
+    }
+
+    /**
+     * Recently used pairs in the heap, cold ones in a temporary memory-mapped file in --tiered.directory
+     */
+    @ConditionalOnProperty(name = "storage.engine", havingValue = "tiered")
+    @Bean(destroyMethod = "close")
+    public TieredKeyValueRepository tieredKeyValueRepository(@Value("${tiered.hotCapacity:100000}") Integer hotCapacity,
+                                                             @Value("${tiered.promoteAfterReads:2}") Integer promoteAfterReads,
+                                                             @Value("${tiered.directory:}") String directory,
+                                                             @Value("${tiered.segmentSize:67108864}") Integer segmentSize,
+                                                             MeterRegistry meterRegistry) {
+        var repository = new TieredKeyValueRepository(hotCapacity, promoteAfterReads,
+                directory.isEmpty() ? null : Path.of(directory), segmentSize);
+        Gauge.builder("tiered.hot.size", repository, TieredKeyValueRepository::getHotSize)
+                .description("Number of pairs in the heap")
+                .register(meterRegistry);
+        Gauge.builder("tiered.cold.size", repository, TieredKeyValueRepository::getColdSize)
+                .description("Number of pairs in the memory-mapped file")
+                .register(meterRegistry);
+        Gauge.builder("tiered.cold.bytes", repository, TieredKeyValueRepository::getColdBytes)
+                .description("Size of the live values in the memory-mapped file")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("tiered.file.bytes", repository, TieredKeyValueRepository::getFileSize)
+                .description("Mapped size of the cold file")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("tiered.spills", repository, TieredKeyValueRepository::getSpills)
+                .description("Number of pairs moved from the heap to the file")
+                .register(meterRegistry);
+        FunctionCounter.builder("tiered.promotions", repository, TieredKeyValueRepository::getPromotions)
+                .description("Number of pairs moved from the file back to the heap")
+                .register(meterRegistry);
+        return repository;
     }
 
     @Bean
-    public RWLSyncKvService rwlSyncKvDbService(HashMapKeyValueRepository hashMapKeyValueRepository,
-                                               @Value("${defaultTTL:200}") Long defaultTTL){
-        return new RWLSyncKvService(hashMapKeyValueRepository, defaultTTL);
+    public RWLSyncKvService rwlSyncKvDbService(KeyValueRepository storageRepository,
+                                               ObjectProvider<ReplicationLog> replicationLogProvider,
+                                               ObjectProvider<ChangeFeed> changeFeedProvider,
+                                               ObjectProvider<HotKeyTracker> hotKeyTrackerProvider,
+                                               @Value("${defaultTTL:200}") Long defaultTTL,
+                                               @Value("${orderedIndex.enable:true}") Boolean orderedIndexEnabled,
+                                               @Value("${compression.enable:false}") Boolean compressionEnabled,
+                                               @Value("${compression.threshold:4096}") Integer compressionThreshold,
+                                               @Value("${compression.level:1}") Integer compressionLevel,
+                                               MeterRegistry meterRegistry){
+        KeyValueRepository repository = storageRepository;
+        if (compressionEnabled) {
+            repository = new CompressingKeyValueRepository(repository, compressionThreshold, compressionLevel, meterRegistry);
+        }
+        if (orderedIndexEnabled && !repository.supportsOrderedScan()) {
+            repository = new OrderedIndexKeyValueRepository(repository);
+        }
+        ReplicationLog replicationLog = replicationLogProvider.getIfAvailable();
+        if (replicationLog != null) {
+            repository = new ReplicatingKeyValueRepository(repository, replicationLog);
+        }
+        ChangeFeed changeFeed = changeFeedProvider.getIfAvailable();
+        if (changeFeed != null) {
+            repository = new ChangeFeedKeyValueRepository(repository, changeFeed);
+        }
+        HotKeyTracker hotKeyTracker = hotKeyTrackerProvider.getIfAvailable();
+        if (hotKeyTracker != null) {
+            repository = new HotKeyTrackingKeyValueRepository(repository, hotKeyTracker);
+        }
+        return new RWLSyncKvService(repository, defaultTTL);
 
     }
 }
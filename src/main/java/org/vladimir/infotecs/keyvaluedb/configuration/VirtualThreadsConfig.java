@@ -0,0 +1,28 @@
+package org.vladimir.infotecs.keyvaluedb.configuration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Virtual thread mode: with spring.threads.virtual.enabled=true Spring Boot runs Tomcat request handling,
+ * scheduled tasks (Scheduler, replication) and the application task executor on virtual threads.
+ * Requires Java 21 at runtime, the property is ignored on older versions
+ */
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Configuration
+public class VirtualThreadsConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadsConfig.class);
+
+    VirtualThreadsConfig() {
+        if (JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            logger.info("Requests and scheduled tasks run on virtual threads");
+        } else {
+            logger.warn("Virtual threads require Java 21, running on Java {} with platform threads",
+                    Runtime.version().feature());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.vladimir.infotecs.keyvaluedb.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.vladimir.infotecs.keyvaluedb.exception.ServiceOverloaded;
+import org.vladimir.infotecs.keyvaluedb.service.AdaptiveConcurrencyLimiter;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Admits API requests through the concurrency limiter of their operation class, a request over the limit
+ * is rejected with {@link ServiceOverloaded} before it reaches the service. The permit is released when
+ * the response is completed, for async requests after the async dispatch
+ */
+public class AdmissionControlInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".permit";
+    private static final Pattern NAMESPACE_BULK_PATH = Pattern.compile("/api/namespaces/[^/]+/(dump|flush)");
+
+    public enum OperationClass {
+        /**
+         * Single key reads
+         */
+        READ,
+        /**
+         * Single key writes
+         */
+        WRITE,
+        /**
+         * Operations over the whole storage: dump, restore, key listing, scan, replication, local snapshots,
+         * dump, restore and flush of a namespace
+         */
+        BULK
+    }
+
+    private final Map<OperationClass, AdaptiveConcurrencyLimiter> limiters;
+
+    public AdmissionControlInterceptor(Map<OperationClass, AdaptiveConcurrencyLimiter> limiters) {
+        this.limiters = limiters;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            // async dispatch of an already admitted request
+            return true;
+        }
+        OperationClass operationClass = classify(request);
+        var permit = limiters.get(operationClass).tryAcquire()
+                .orElseThrow(() -> new ServiceOverloaded(operationClass + " concurrency limit is reached"));
+        request.setAttribute(PERMIT_ATTRIBUTE, permit);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof AdaptiveConcurrencyLimiter.Permit permit) {
+            permit.release();
+        }
+    }
+
+    static OperationClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.equals("/api/dump") || path.equals("/api/keys") || path.equals("/api/scan")
+                || path.equals("/api/replication/snapshot") || path.startsWith("/api/admin/snapshots")
+                || NAMESPACE_BULK_PATH.matcher(path).matches()) {
+            return OperationClass.BULK;
+        }
+        return HttpMethod.GET.matches(request.getMethod()) ? OperationClass.READ : OperationClass.WRITE;
+    }
+}
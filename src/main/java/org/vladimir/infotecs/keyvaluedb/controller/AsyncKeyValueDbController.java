@@ -0,0 +1,85 @@
+package org.vladimir.infotecs.keyvaluedb.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.vladimir.infotecs.keyvaluedb.dto.DeleteValueByKeyResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.GetValueByKeyResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.IncrementRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.IncrementResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.SetValueByKeyRequest;
+
+import java.util.concurrent.CompletableFuture;
+
+@Tag(name = "Async key value storage", description = "Same operations as /api/keys, served without holding " +
+        "a request thread while the operation waits. Available with async.enable=true")
+@RequestMapping("/api/async")
+public interface AsyncKeyValueDbController {
+
+    @Operation(summary = "Get value by key", description = "Retrieves the value associated with the specified key")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved value",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = GetValueByKeyResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Key not found",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "503", description = "Too many pending operations",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @GetMapping("keys/{key}")
+    CompletableFuture<ResponseEntity<byte[]>> getValueByKey(@PathVariable String key);
+
+    @Operation(summary = "Set value by key", description = "Sets the value for the specified key. Ttl (seconds) " +
+            "or ttlMillis must be positive or zero (use default server ttl). Sliding ttl is renewed on every read")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully set value"),
+            @ApiResponse(responseCode = "503", description = "Too many pending operations",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @PostMapping("keys/{key}")
+    CompletableFuture<ResponseEntity<Void>> setValueByKey(@PathVariable String key,
+                                                          @Valid @RequestBody(description = "Request body containing the value and ttl",
+                                                                  required = true,
+                                                                  content = @Content(schema = @Schema(implementation = SetValueByKeyRequest.class)))
+                                                          SetValueByKeyRequest setValueByKeyRequest);
+
+    @Operation(summary = "Increment value by key", description = "Atomically adds delta (default 1) to the integer value. " +
+            "Absent key is set to delta with the provided ttl, the ttl of an existing key is kept")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully incremented value",
+                    content = @Content(schema = @Schema(implementation = IncrementResponse.class))),
+            @ApiResponse(responseCode = "409", description = "Value is not an integer or out of range",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "503", description = "Too many pending operations",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @PostMapping("keys/{key}/incr")
+    CompletableFuture<ResponseEntity<IncrementResponse>> incrementValueByKey(@PathVariable String key,
+                                                                             @Valid @RequestBody(description = "Request body containing the delta and ttl",
+                                                                                     required = true,
+                                                                                     content = @Content(schema = @Schema(implementation = IncrementRequest.class)))
+                                                                             IncrementRequest incrementRequest);
+
+    @Operation(summary = "Delete value by key", description = "Deletes the value associated with the specified key")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully deleted value",
+                    content = @Content(schema = @Schema(implementation = DeleteValueByKeyResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Key not found",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "503", description = "Too many pending operations",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @DeleteMapping("keys/{key}")
+    CompletableFuture<ResponseEntity<DeleteValueByKeyResponse>> deleteValueByKey(@PathVariable String key);
+}
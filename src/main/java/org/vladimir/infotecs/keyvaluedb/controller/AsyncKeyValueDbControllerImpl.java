@@ -0,0 +1,62 @@
+package org.vladimir.infotecs.keyvaluedb.controller;
+
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.vladimir.infotecs.keyvaluedb.dto.DeleteValueByKeyResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.IncrementRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.IncrementResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.SetValueByKeyRequest;
+import org.vladimir.infotecs.keyvaluedb.exception.KeyNotFound;
+import org.vladimir.infotecs.keyvaluedb.service.AsyncKeyValueService;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.vladimir.infotecs.keyvaluedb.controller.KeyValueDbControllerImpl.ttlMillis;
+
+@RestController
+@ConditionalOnProperty(name = "async.enable", havingValue = "true")
+public class AsyncKeyValueDbControllerImpl implements AsyncKeyValueDbController {
+
+    private final AsyncKeyValueService asyncKeyValueService;
+
+    AsyncKeyValueDbControllerImpl(AsyncKeyValueService asyncKeyValueService) {
+        this.asyncKeyValueService = asyncKeyValueService;
+    }
+
+    public CompletableFuture<ResponseEntity<byte[]>> getValueByKey(@PathVariable String key) {
+        return asyncKeyValueService.getValueByKey(key)
+                .thenApply(value -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(PreEncodedJson.valueResponse(value.orElseThrow(KeyNotFound::new))));
+    }
+
+    public CompletableFuture<ResponseEntity<Void>> setValueByKey(@PathVariable String key,
+                                                                 @Valid @RequestBody SetValueByKeyRequest setValueByKeyRequest) {
+        long ttl = ttlMillis(setValueByKeyRequest.getTtl(), setValueByKeyRequest.getTtlMillis());
+        return asyncKeyValueService
+                .setValueByKey(key, setValueByKeyRequest.getValue(), ttl, setValueByKeyRequest.isSliding())
+                .thenApply(ignored -> ResponseEntity.ok().build());
+    }
+
+    public CompletableFuture<ResponseEntity<IncrementResponse>> incrementValueByKey(@PathVariable String key,
+                                                                                    @Valid @RequestBody IncrementRequest incrementRequest) {
+        return asyncKeyValueService
+                .incrementBy(key, incrementRequest.getDelta(),
+                        ttlMillis(incrementRequest.getTtl(), incrementRequest.getTtlMillis()))
+                .thenApply(value -> ResponseEntity.ok(new IncrementResponse(value)));
+    }
+
+    public CompletableFuture<ResponseEntity<DeleteValueByKeyResponse>> deleteValueByKey(@PathVariable String key) {
+        return asyncKeyValueService.deleteValueByKey(key)
+                .thenApply(value -> {
+                    DeleteValueByKeyResponse response = new DeleteValueByKeyResponse();
+                    response.setValue(value.orElseThrow(KeyNotFound::new));
+                    return ResponseEntity.ok(response);
+                });
+    }
+}
@@ -0,0 +1,65 @@
+package org.vladimir.infotecs.keyvaluedb.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.PositiveOrZero;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.vladimir.infotecs.keyvaluedb.model.ChangeEvent;
+
+@Tag(name = "Change feed", description = "Stream of storage changes, available with cdc.enable=true")
+@RequestMapping("/api/changes")
+public interface ChangeFeedController {
+
+    String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    @Operation(summary = "Stream changes as server-sent events", description = "Streams set, delete, expire " +
+            "and clear events. Event id is the sequence number, event name is the type. Pass the last received " +
+            "sequence in the Last-Event-ID header or the after parameter to resume. If the requested events are " +
+            "no longer available a single RESYNC event is sent. The stream is closed when the subscriber " +
+            "falls behind by more than cdc.subscriberBuffer events")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream of changes",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                            schema = @Schema(implementation = ChangeEvent.class))),
+            @ApiResponse(responseCode = "400", description = "Incorrect sequence",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "503", description = "cdc.maxSubscribers subscribers are connected",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @GetMapping(value = "sse", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter streamServerSentEvents(@Parameter(description = "Sequence of the last received event")
+                                      @RequestParam(required = false)
+                                      @PositiveOrZero(message = "after must not be negative")
+                                      Long after,
+                                      @RequestHeader(value = "Last-Event-ID", required = false)
+                                      @PositiveOrZero(message = "Last-Event-ID must not be negative")
+                                      Long lastEventId);
+
+    @Operation(summary = "Stream changes as newline delimited JSON", description = "Streams the same events " +
+            "as /sse, one JSON object per line. Empty lines are heartbeats")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream of changes",
+                    content = @Content(mediaType = APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = ChangeEvent.class))),
+            @ApiResponse(responseCode = "400", description = "Incorrect sequence",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "503", description = "cdc.maxSubscribers subscribers are connected",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @GetMapping(value = "ndjson", produces = APPLICATION_NDJSON_VALUE)
+    ResponseBodyEmitter streamNdjson(@Parameter(description = "Sequence of the last received event")
+                                     @RequestParam(required = false)
+                                     @PositiveOrZero(message = "after must not be negative")
+                                     Long after);
+}
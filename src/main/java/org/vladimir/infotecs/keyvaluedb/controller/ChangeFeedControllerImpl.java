@@ -0,0 +1,143 @@
+package org.vladimir.infotecs.keyvaluedb.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.vladimir.infotecs.keyvaluedb.exception.ServiceOverloaded;
+import org.vladimir.infotecs.keyvaluedb.model.ChangeEvent;
+import org.vladimir.infotecs.keyvaluedb.repository.ChangeFeed;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@ConditionalOnProperty(name = "cdc.enable", havingValue = "true")
+public class ChangeFeedControllerImpl implements ChangeFeedController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeedControllerImpl.class);
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+    private final ChangeFeed changeFeed;
+    private final ObjectMapper objectMapper;
+    private final long heartbeatMillis;
+    private final ExecutorService senders;
+
+    ChangeFeedControllerImpl(ChangeFeed changeFeed, ObjectMapper objectMapper,
+                             @Value("${cdc.heartbeat:15000}") Long heartbeatMillis,
+                             @Qualifier("changeFeedSenders") ExecutorService senders) {
+        this.changeFeed = changeFeed;
+        this.objectMapper = objectMapper;
+        this.heartbeatMillis = heartbeatMillis;
+        this.senders = senders;
+    }
+
+    public SseEmitter streamServerSentEvents(Long after, Long lastEventId) {
+        var emitter = new SseEmitter(0L);
+        stream(emitter, after != null ? after : lastEventId, new EventWriter() {
+            @Override
+            public void write(ChangeEvent event) throws IOException {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.getSequence()))
+                        .name(event.getType().name())
+                        .data(toJson(event), MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void heartbeat() throws IOException {
+                emitter.send(SseEmitter.event().comment(""));
+            }
+        });
+        return emitter;
+    }
+
+    public ResponseBodyEmitter streamNdjson(Long after) {
+        var emitter = new ResponseBodyEmitter(0L);
+        stream(emitter, after, new EventWriter() {
+            @Override
+            public void write(ChangeEvent event) throws IOException {
+                emitter.send(toJson(event) + "\n", APPLICATION_NDJSON);
+            }
+
+            @Override
+            public void heartbeat() throws IOException {
+                emitter.send("\n", APPLICATION_NDJSON);
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * Sends events from a thread of the sender pool until the client disconnects or the subscription overflows
+     *
+     * @throws ServiceOverloaded if all sender threads are taken by other subscribers
+     */
+    private void stream(ResponseBodyEmitter emitter, Long after, EventWriter writer) {
+        var subscription = changeFeed.subscribe(after);
+        if (subscription.isEmpty()) {
+            // sent before the response is committed, the emitter buffers it
+            try {
+                writer.write(new ChangeEvent(0, ChangeEvent.Type.RESYNC, null, null, null));
+                emitter.complete();
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+            return;
+        }
+        var events = subscription.get();
+        Future<?> sender;
+        try {
+            sender = senders.submit(() -> {
+                try (events) {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        ChangeEvent event = events.poll(heartbeatMillis);
+                        if (event != null) {
+                            writer.write(event);
+                        } else if (events.isOverflowed()) {
+                            logger.info("Change feed subscriber fell behind, the stream is closed");
+                            break;
+                        } else {
+                            writer.heartbeat();
+                        }
+                    }
+                    emitter.complete();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException | IllegalStateException e) {
+                    // the client has disconnected
+                    emitter.completeWithError(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            events.close();
+            throw new ServiceOverloaded("Change feed subscriber limit is reached", e);
+        }
+        emitter.onCompletion(() -> {
+            events.close();
+            sender.cancel(true);
+        });
+        emitter.onError(e -> {
+            events.close();
+            sender.cancel(true);
+        });
+    }
+
+    private String toJson(ChangeEvent event) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(event);
+    }
+
+    private interface EventWriter {
+        void write(ChangeEvent event) throws IOException;
+
+        void heartbeat() throws IOException;
+    }
+}
@@ -4,7 +4,10 @@ import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -12,9 +15,27 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 import org.vladimir.infotecs.keyvaluedb.dto.ErrorResponse;
+import org.vladimir.infotecs.keyvaluedb.exception.IncorrectCursor;
+import org.vladimir.infotecs.keyvaluedb.exception.IncorrectExpirationInterval;
+import org.vladimir.infotecs.keyvaluedb.exception.IncorrectTransaction;
+import org.vladimir.infotecs.keyvaluedb.exception.IncorrectValueEncoding;
+import org.vladimir.infotecs.keyvaluedb.exception.KeyAlreadyExists;
 import org.vladimir.infotecs.keyvaluedb.exception.KeyNotFound;
+import org.vladimir.infotecs.keyvaluedb.exception.MemoryLimitExceeded;
+import org.vladimir.infotecs.keyvaluedb.exception.NamespaceAlreadyExists;
+import org.vladimir.infotecs.keyvaluedb.exception.NamespaceLimitExceeded;
+import org.vladimir.infotecs.keyvaluedb.exception.NamespaceNotFound;
+import org.vladimir.infotecs.keyvaluedb.exception.NotAnInteger;
+import org.vladimir.infotecs.keyvaluedb.exception.OrderedScanNotSupported;
+import org.vladimir.infotecs.keyvaluedb.exception.PreconditionFailed;
+import org.vladimir.infotecs.keyvaluedb.exception.ReadOnlyReplica;
+import org.vladimir.infotecs.keyvaluedb.exception.ServiceOverloaded;
+import org.vladimir.infotecs.keyvaluedb.exception.SnapshotNotFound;
+import org.vladimir.infotecs.keyvaluedb.exception.ValueMismatch;
+import org.vladimir.infotecs.keyvaluedb.exception.ValueTooLarge;
 
 import java.util.List;
 
@@ -31,6 +52,148 @@ public class ControllerExceptionsHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(NotAnInteger.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<ErrorResponse> handleNotAnIntegerException(NotAnInteger ex, WebRequest request) {
+        logger.error("NotAnInteger Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Value is not an integer or out of range");
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(ValueMismatch.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<ErrorResponse> handleValueMismatchException(ValueMismatch ex, WebRequest request) {
+        logger.error("ValueMismatch Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Current value differs from the expected one");
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(PreconditionFailed.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ResponseEntity<ErrorResponse> handlePreconditionFailedException(PreconditionFailed ex, WebRequest request) {
+        logger.error("PreconditionFailed Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Current version doesn't match the precondition");
+        return new ResponseEntity<>(errorResponse, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(KeyAlreadyExists.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<ErrorResponse> handleKeyAlreadyExistsException(KeyAlreadyExists ex, WebRequest request) {
+        logger.error("KeyAlreadyExists Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Key already exists");
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(IncorrectCursor.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ResponseEntity<ErrorResponse> handleIncorrectCursorException(IncorrectCursor ex, WebRequest request) {
+        logger.error("IncorrectCursor Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Incorrect cursor");
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(IncorrectTransaction.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ResponseEntity<ErrorResponse> handleIncorrectTransactionException(IncorrectTransaction ex, WebRequest request) {
+        logger.error("IncorrectTransaction Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ReadOnlyReplica.class)
+    @ResponseStatus(HttpStatus.FORBIDDEN)
+    public ResponseEntity<ErrorResponse> handleReadOnlyReplicaException(ReadOnlyReplica ex, WebRequest request) {
+        logger.error("ReadOnlyReplica Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Replica is read-only, send writes to the primary");
+        return new ResponseEntity<>(errorResponse, HttpStatus.FORBIDDEN);
+    }
+
+    @ExceptionHandler(OrderedScanNotSupported.class)
+    @ResponseStatus(HttpStatus.NOT_IMPLEMENTED)
+    public ResponseEntity<ErrorResponse> handleOrderedScanNotSupportedException(OrderedScanNotSupported ex,
+                                                                                WebRequest request) {
+        logger.error("OrderedScanNotSupported Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Keys aren't ordered, enable the ordered index "
+                + "(orderedIndex.enable=true)");
+        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_IMPLEMENTED);
+    }
+
+    @ExceptionHandler(SnapshotNotFound.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ResponseEntity<ErrorResponse> handleSnapshotNotFoundException(SnapshotNotFound ex, WebRequest request) {
+        logger.error("SnapshotNotFound Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Snapshot not found");
+        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(NamespaceNotFound.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ResponseEntity<ErrorResponse> handleNamespaceNotFoundException(NamespaceNotFound ex, WebRequest request) {
+        logger.error("NamespaceNotFound Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Namespace not found");
+        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(NamespaceAlreadyExists.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<ErrorResponse> handleNamespaceAlreadyExistsException(NamespaceAlreadyExists ex, WebRequest request) {
+        logger.error("NamespaceAlreadyExists Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Namespace already exists");
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(NamespaceLimitExceeded.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<ErrorResponse> handleNamespaceLimitExceededException(NamespaceLimitExceeded ex, WebRequest request) {
+        logger.error("NamespaceLimitExceeded Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Max number of namespaces reached");
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(IncorrectExpirationInterval.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ResponseEntity<ErrorResponse> handleIncorrectExpirationIntervalException(IncorrectExpirationInterval ex,
+                                                                                   WebRequest request) {
+        logger.error("IncorrectExpirationInterval Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Expiration interval is too short");
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(IncorrectValueEncoding.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ResponseEntity<ErrorResponse> handleIncorrectValueEncodingException(IncorrectValueEncoding ex,
+                                                                               WebRequest request) {
+        logger.error("IncorrectValueEncoding Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Value must be UTF-8 text");
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ValueTooLarge.class)
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    public ResponseEntity<ErrorResponse> handleValueTooLargeException(ValueTooLarge ex, WebRequest request) {
+        logger.error("ValueTooLarge Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Value is too large");
+        return new ResponseEntity<>(errorResponse, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @ExceptionHandler(MemoryLimitExceeded.class)
+    @ResponseStatus(HttpStatus.INSUFFICIENT_STORAGE)
+    public ResponseEntity<ErrorResponse> handleMemoryLimitExceededException(MemoryLimitExceeded ex, WebRequest request) {
+        logger.error("MemoryLimitExceeded Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Memory limit of the namespace exceeded");
+        return new ResponseEntity<>(errorResponse, HttpStatus.INSUFFICIENT_STORAGE);
+    }
+
+    @ExceptionHandler(ServiceOverloaded.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<ErrorResponse> handleServiceOverloadedException(ServiceOverloaded ex, WebRequest request) {
+        logger.error("ServiceOverloaded Exception: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Server is overloaded, retry later");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResponse);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<ErrorResponse> handleMethodArgumentNotValidException(MethodArgumentNotValidException exception, WebRequest request) {
@@ -58,6 +221,27 @@ public class ControllerExceptionsHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ResponseEntity<ErrorResponse> handleHandlerMethodValidationException(HandlerMethodValidationException ex, WebRequest request) {
+        String firstErrorMessage = ex.getAllErrors().stream()
+                .findFirst()
+                .map(MessageSourceResolvable::getDefaultMessage)
+                .orElse("Unknown constraint violation error");
+
+        logger.error("HandlerMethodValidationException: {}", firstErrorMessage);
+        ErrorResponse errorResponse = new ErrorResponse(firstErrorMessage);
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(HttpMediaTypeNotSupportedException.class)
+    @ResponseStatus(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+    public ResponseEntity<ErrorResponse> handleHttpMediaTypeNotSupportedException(HttpMediaTypeNotSupportedException ex, WebRequest request) {
+        logger.error("HttpMediaTypeNotSupportedException: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Unsupported content type, supported: " + ex.getSupportedMediaTypes());
+        return new ResponseEntity<>(errorResponse, HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+    }
+
     @ExceptionHandler(NoResourceFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ResponseEntity<ErrorResponse> handleNoResourceFoundException(NoResourceFoundException ex, WebRequest request) {
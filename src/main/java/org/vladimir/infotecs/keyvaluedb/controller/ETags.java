@@ -0,0 +1,66 @@
+package org.vladimir.infotecs.keyvaluedb.controller;
+
+import org.vladimir.infotecs.keyvaluedb.model.VersionPrecondition;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Versions of the pairs as HTTP entity tags: version 5 is the strong tag {@code "5"}
+ */
+public final class ETags {
+
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETags() {
+    }
+
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @param ifMatch     If-Match header, null if absent. Uses the strong comparison, weak tags never match
+     * @param ifNoneMatch If-None-Match header, null if absent. Uses the weak comparison
+     */
+    public static VersionPrecondition precondition(String ifMatch, String ifNoneMatch) {
+        return new VersionPrecondition(
+                ifMatch != null && ifMatch.strip().equals(ANY),
+                ifMatch == null || ifMatch.strip().equals(ANY) ? null : versions(ifMatch, false),
+                ifNoneMatch != null && ifNoneMatch.strip().equals(ANY),
+                ifNoneMatch == null || ifNoneMatch.strip().equals(ANY) ? null : versions(ifNoneMatch, true));
+    }
+
+    /**
+     * @return true if a GET with the If-None-Match header may answer 304 Not Modified for the version
+     */
+    public static boolean isNotModified(String ifNoneMatch, long version) {
+        return ifNoneMatch != null && !precondition(null, ifNoneMatch).test(Optional.of(version));
+    }
+
+    /**
+     * Versions of the comma separated entity tags, tags that aren't versions of this server are skipped
+     */
+    private static Set<Long> versions(String header, boolean weak) {
+        Set<Long> versions = new HashSet<>();
+        for (String tag : header.split(",")) {
+            tag = tag.strip();
+            if (tag.startsWith(WEAK_PREFIX)) {
+                if (!weak) {
+                    continue;
+                }
+                tag = tag.substring(WEAK_PREFIX.length());
+            }
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(tag.substring(1, tag.length() - 1)));
+                } catch (NumberFormatException e) {
+                    // not a version, can't match
+                }
+            }
+        }
+        return versions;
+    }
+}
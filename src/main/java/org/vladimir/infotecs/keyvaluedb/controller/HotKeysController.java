@@ -0,0 +1,34 @@
+package org.vladimir.infotecs.keyvaluedb.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.vladimir.infotecs.keyvaluedb.dto.HotKeysResponse;
+
+@Tag(name = "Hot keys", description = "Access statistics, available with hotKeys.enable=true")
+@RequestMapping("/api")
+public interface HotKeysController {
+
+    @Operation(summary = "Get hot keys", description = "Retrieves the most read and the most written keys " +
+            "over the sliding window with estimated access counts. Counts may be overestimated")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved hot keys",
+                    content = @Content(schema = @Schema(implementation = HotKeysResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Incorrect limit",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @GetMapping("hotkeys")
+    ResponseEntity<HotKeysResponse> getHotKeys(@RequestParam(defaultValue = "10")
+                                               @Positive(message = "limit must be positive")
+                                               @Max(value = 1000, message = "limit must not be greater than 1000")
+                                               int limit);
+}
@@ -0,0 +1,23 @@
+package org.vladimir.infotecs.keyvaluedb.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+import org.vladimir.infotecs.keyvaluedb.dto.HotKeysResponse;
+import org.vladimir.infotecs.keyvaluedb.repository.HotKeyTracker;
+
+@RestController
+@ConditionalOnProperty(name = "hotKeys.enable", havingValue = "true")
+public class HotKeysControllerImpl implements HotKeysController {
+
+    private final HotKeyTracker hotKeyTracker;
+
+    HotKeysControllerImpl(HotKeyTracker hotKeyTracker) {
+        this.hotKeyTracker = hotKeyTracker;
+    }
+
+    public ResponseEntity<HotKeysResponse> getHotKeys(int limit) {
+        return ResponseEntity.ok(new HotKeysResponse(hotKeyTracker.getWindowMillis(),
+                hotKeyTracker.getHotReads(limit), hotKeyTracker.getHotWrites(limit)));
+    }
+}
@@ -8,16 +8,33 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import jdk.jfr.Description;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.vladimir.infotecs.keyvaluedb.dto.CompareAndSetRequest;
 import org.vladimir.infotecs.keyvaluedb.dto.DeleteValueByKeyResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.ExpireRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.GetAndSetResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.GetKeysResponse;
 import org.vladimir.infotecs.keyvaluedb.dto.GetValueByKeyResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.IncrementRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.IncrementResponse;
 import org.vladimir.infotecs.keyvaluedb.dto.LoadDumpRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.ScanResponse;
 import org.vladimir.infotecs.keyvaluedb.dto.SetValueByKeyRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.TransactionRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.TtlResponse;
 import org.vladimir.infotecs.keyvaluedb.exception.KeyNotFound;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionResult;
 import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 
 @Tag(name = "Key value storage")
@@ -25,36 +42,230 @@ import java.util.Map;
 @RequestMapping("/api")
 public interface KeyValueDbController {
 
-    @Operation(summary = "Get value by key", description = "Retrieves the value associated with the specified key")
+    @Operation(summary = "Get value by key", description = "Retrieves the value associated with the specified key. " +
+            "The ETag header holds the version of the pair, with a matching If-None-Match the value isn't sent")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved value",
-                    content = @Content(schema = @Schema(implementation = GetValueByKeyResponse.class))),
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = GetValueByKeyResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Version matches If-None-Match"),
             @ApiResponse(responseCode = "404", description = "Key not found",
                     content = @Content(schema = @Schema(implementation = Error.class)))
     })
     @GetMapping("keys/{key}")
-    ResponseEntity<GetValueByKeyResponse> getValueByKey(@PathVariable String key) throws KeyNotFound;
+    ResponseEntity<byte[]> getValueByKey(@PathVariable String key,
+                                         @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false)
+                                         String ifNoneMatch) throws KeyNotFound;
 
-    @Operation(summary = "Set value by key", description = "Sets the value for the specified key. Ttl must be positive or zero (use default server ttl)")
+    @Operation(summary = "Set value by key", description = "Sets the value for the specified key. Ttl (seconds) or ttlMillis must be positive " +
+            "or zero (use default server ttl). Sliding ttl is renewed on every read. If-Match and If-None-Match " +
+            "(ETags or *) are checked atomically with the write, the ETag header holds the new version")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully set value")
+            @ApiResponse(responseCode = "200", description = "Successfully set value"),
+            @ApiResponse(responseCode = "412", description = "Version doesn't match the precondition",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
     })
     @PostMapping("keys/{key}")
     ResponseEntity<Void> setValueByKey(@PathVariable String key,
+                                       @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                       @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false)
+                                       String ifNoneMatch,
                                        @Valid @RequestBody(description = "Request body containing the value and ttl",
                                                required = true,
                                                content = @Content(schema = @Schema(implementation = SetValueByKeyRequest.class)))
                                        SetValueByKeyRequest setValueByKeyRequest);
 
-    @Operation(summary = "Delete value by key", description = "Deletes the value associated with the specified key")
+    @Operation(summary = "Get raw value by key", description = "Retrieves the value as application/octet-stream " +
+            "(UTF-8 bytes) without a JSON envelope")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved value",
+                    content = @Content(mediaType = "application/octet-stream")),
+            @ApiResponse(responseCode = "404", description = "Key not found, the body is empty")
+    })
+    @GetMapping("keys/{key}/raw")
+    ResponseEntity<byte[]> getRawValueByKey(@PathVariable String key);
+
+    @Operation(summary = "Set raw value by key", description = "Sets the request body (UTF-8 text) as the value " +
+            "without a JSON envelope. Ttl is passed in the X-Ttl (seconds) or X-Ttl-Millis header, " +
+            "X-Sliding: true renews the ttl on every read")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully set value"),
+            @ApiResponse(responseCode = "400", description = "Incorrect ttl or the body isn't valid UTF-8",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "413", description = "Body is larger than raw.maxBodySize",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @PutMapping(value = "keys/{key}/raw", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    ResponseEntity<Void> setRawValueByKey(@PathVariable String key,
+                                          @RequestHeader(name = "X-Ttl", defaultValue = "0")
+                                          @PositiveOrZero(message = "ttl must be zero(use default server ttl value) or positive integer(long)")
+                                          long ttl,
+                                          @RequestHeader(name = "X-Ttl-Millis", defaultValue = "0")
+                                          @PositiveOrZero(message = "ttlMillis must be zero(use ttl) or positive integer(long)")
+                                          long ttlMillis,
+                                          @RequestHeader(name = "X-Sliding", defaultValue = "false") boolean sliding,
+                                          InputStream body) throws IOException;
+
+    @Operation(summary = "Get ttl by key", description = "Retrieves the remaining ttl in milliseconds, -1 if the key never expires")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved ttl",
+                    content = @Content(schema = @Schema(implementation = TtlResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Key not found",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @GetMapping("keys/{key}/ttl")
+    ResponseEntity<TtlResponse> getTtlByKey(@PathVariable String key) throws KeyNotFound;
+
+    @Operation(summary = "Expire key", description = "Sets a new ttl of an existing key, a sliding key stays sliding")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully set ttl"),
+            @ApiResponse(responseCode = "404", description = "Key not found",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @PostMapping("keys/{key}/expire")
+    ResponseEntity<Void> expireKey(@PathVariable String key,
+                                   @Valid @RequestBody(description = "Request body containing the ttl",
+                                           required = true,
+                                           content = @Content(schema = @Schema(implementation = ExpireRequest.class)))
+                                   ExpireRequest expireRequest) throws KeyNotFound;
+
+    @Operation(summary = "Persist key", description = "Removes the expiration of an existing key")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully removed expiration"),
+            @ApiResponse(responseCode = "404", description = "Key not found",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @PostMapping("keys/{key}/persist")
+    ResponseEntity<Void> persistKey(@PathVariable String key) throws KeyNotFound;
+
+    @Operation(summary = "Touch key", description = "Renews the ttl of a sliding key without reading the value")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully touched key"),
+            @ApiResponse(responseCode = "404", description = "Key not found",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @PostMapping("keys/{key}/touch")
+    ResponseEntity<Void> touchKey(@PathVariable String key) throws KeyNotFound;
+
+    @Operation(summary = "Increment value by key", description = "Atomically adds delta (default 1) to the integer value. " +
+            "Absent key is set to delta with the provided ttl, the ttl of an existing key is kept")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully incremented value",
+                    content = @Content(schema = @Schema(implementation = IncrementResponse.class))),
+            @ApiResponse(responseCode = "409", description = "Value is not an integer or out of range",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @PostMapping("keys/{key}/incr")
+    ResponseEntity<IncrementResponse> incrementValueByKey(@PathVariable String key,
+                                                          @Valid @RequestBody(description = "Request body containing the delta and ttl",
+                                                                  required = true,
+                                                                  content = @Content(schema = @Schema(implementation = IncrementRequest.class)))
+                                                          IncrementRequest incrementRequest);
+
+    @Operation(summary = "Decrement value by key", description = "Atomically subtracts delta (default 1) from the integer value. " +
+            "Absent key is set to -delta with the provided ttl, the ttl of an existing key is kept")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully decremented value",
+                    content = @Content(schema = @Schema(implementation = IncrementResponse.class))),
+            @ApiResponse(responseCode = "409", description = "Value is not an integer or out of range",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @PostMapping("keys/{key}/decr")
+    ResponseEntity<IncrementResponse> decrementValueByKey(@PathVariable String key,
+                                                          @Valid @RequestBody(description = "Request body containing the delta and ttl",
+                                                                  required = true,
+                                                                  content = @Content(schema = @Schema(implementation = IncrementRequest.class)))
+                                                          IncrementRequest incrementRequest);
+
+    @Operation(summary = "Compare and set value by key", description = "Atomically sets the value if the current value " +
+            "equals the expected one")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully set value"),
+            @ApiResponse(responseCode = "409", description = "Current value differs from the expected one or key not found",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @PostMapping("keys/{key}/cas")
+    ResponseEntity<Void> compareAndSetValueByKey(@PathVariable String key,
+                                                 @Valid @RequestBody(description = "Request body containing the expected value, new value and ttl",
+                                                         required = true,
+                                                         content = @Content(schema = @Schema(implementation = CompareAndSetRequest.class)))
+                                                 CompareAndSetRequest compareAndSetRequest);
+
+    @Operation(summary = "Get and set value by key", description = "Atomically sets the value and returns the previous one")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully set value",
+                    content = @Content(schema = @Schema(implementation = GetAndSetResponse.class)))
+    })
+    @PostMapping("keys/{key}/getset")
+    ResponseEntity<GetAndSetResponse> getAndSetValueByKey(@PathVariable String key,
+                                                          @Valid @RequestBody(description = "Request body containing the value and ttl",
+                                                                  required = true,
+                                                                  content = @Content(schema = @Schema(implementation = SetValueByKeyRequest.class)))
+                                                          SetValueByKeyRequest setValueByKeyRequest);
+
+    @Operation(summary = "Set value by key if absent", description = "Atomically sets the value if the key does not exist")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully set value"),
+            @ApiResponse(responseCode = "409", description = "Key already exists",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @PostMapping("keys/{key}/setnx")
+    ResponseEntity<Void> setValueByKeyIfAbsent(@PathVariable String key,
+                                               @Valid @RequestBody(description = "Request body containing the value and ttl",
+                                                       required = true,
+                                                       content = @Content(schema = @Schema(implementation = SetValueByKeyRequest.class)))
+                                               SetValueByKeyRequest setValueByKeyRequest);
+
+    @Operation(summary = "Delete value by key", description = "Deletes the value associated with the specified key. " +
+            "If-Match and If-None-Match (ETags or *) are checked atomically with the removal")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully deleted value",
                     content = @Content(schema = @Schema(implementation = DeleteValueByKeyResponse.class))),
             @ApiResponse(responseCode = "404", description = "Key not found",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "412", description = "Version doesn't match the precondition",
                     content = @Content(schema = @Schema(implementation = Error.class)))
     })
     @DeleteMapping("keys/{key}")
-    ResponseEntity<DeleteValueByKeyResponse> deleteValueByKey(@PathVariable String key) throws KeyNotFound;
+    ResponseEntity<DeleteValueByKeyResponse> deleteValueByKey(@PathVariable String key,
+                                                              @RequestHeader(name = HttpHeaders.IF_MATCH, required = false)
+                                                              String ifMatch,
+                                                              @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                              String ifNoneMatch) throws KeyNotFound;
+
+    @Operation(summary = "Get keys", description = "Retrieves keys in ascending order. If the prefix is provided " +
+            "keys starting with it are returned, otherwise keys in the range [from, to). Expired keys are skipped")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved keys",
+                    content = @Content(schema = @Schema(implementation = GetKeysResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Incorrect limit",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @GetMapping("keys")
+    ResponseEntity<GetKeysResponse> getKeys(@RequestParam(required = false) String prefix,
+                                            @RequestParam(required = false) String from,
+                                            @RequestParam(required = false) String to,
+                                            @RequestParam(defaultValue = "100")
+                                            @Positive(message = "limit must be positive")
+                                            @Max(value = 10000, message = "limit must not be greater than 10000")
+                                            int limit);
+
+    @Operation(summary = "Scan keys", description = "Incrementally iterates over the keys. Start with cursor 0 and " +
+            "pass the returned cursor to the next call until it is 0 again. Each call visits at most count keys and " +
+            "returns those matching the glob pattern (*, ?, [abc], \\ for escaping), so a page may be empty")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved keys",
+                    content = @Content(schema = @Schema(implementation = ScanResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Incorrect cursor or count",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @GetMapping("scan")
+    ResponseEntity<ScanResponse> scan(@RequestParam(defaultValue = "0") String cursor,
+                                      @RequestParam(defaultValue = "100")
+                                      @Positive(message = "count must be positive")
+                                      @Max(value = 10000, message = "count must not be greater than 10000")
+                                      int count,
+                                      @RequestParam(required = false) String match);
 
     @Operation(summary = "Get dump", description = "Retrieves storage dump")
     @ApiResponses(value = {
@@ -66,13 +277,33 @@ public interface KeyValueDbController {
 
     @Operation(summary = "Load dump", description = "Restore storage state  from the provided dump")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully loaded dump")
+            @ApiResponse(responseCode = "200", description = "Successfully loaded dump"),
+            @ApiResponse(responseCode = "400", description = "Expiration times of the dump aren't in milliseconds",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
     })
     @PostMapping("dump")
     ResponseEntity<Void> restoreFromDump(@Valid @RequestBody(description = "Request body containing the dump, " +
-            "expiration time in unix time (seconds from epoch utc)",
+            "expiration time in unix time (milliseconds from epoch utc)",
             required = true,
             content = @Content(schema = @Schema(implementation = LoadDumpRequest.class)))
                                          LoadDumpRequest requestBody);
-}
 
+    @Operation(summary = "Execute transaction", description = "Executes the operations atomically in one request. " +
+            "Conditions (CHECK_VALUE, CHECK_EXISTS, CHECK_ABSENT) are evaluated first, if one fails nothing is applied. " +
+            "Then GET, SET and DELETE run in the given order. Ttl (seconds) or ttlMillis of SET must be positive " +
+            "or zero (use default server ttl)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully executed transaction",
+                    content = @Content(schema = @Schema(implementation = TransactionResult.class))),
+            @ApiResponse(responseCode = "400", description = "Incorrect operation",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "409", description = "A condition failed, nothing is applied",
+                    content = @Content(schema = @Schema(implementation = TransactionResult.class)))
+    })
+    @PostMapping("transaction")
+    ResponseEntity<TransactionResult> executeTransaction(@Valid @RequestBody(description = "Request body containing " +
+            "the operations",
+            required = true,
+            content = @Content(schema = @Schema(implementation = TransactionRequest.class)))
+                                                         TransactionRequest transactionRequest);
+}
@@ -6,40 +6,173 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.vladimir.infotecs.keyvaluedb.dto.CompareAndSetRequest;
 import org.vladimir.infotecs.keyvaluedb.dto.DeleteValueByKeyResponse;
-import org.vladimir.infotecs.keyvaluedb.dto.GetValueByKeyResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.ExpireRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.GetAndSetResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.GetKeysResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.IncrementRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.IncrementResponse;
 import org.vladimir.infotecs.keyvaluedb.dto.LoadDumpRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.ScanResponse;
 import org.vladimir.infotecs.keyvaluedb.dto.SetValueByKeyRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.TransactionRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.TtlResponse;
+import org.vladimir.infotecs.keyvaluedb.exception.IncorrectValueEncoding;
+import org.vladimir.infotecs.keyvaluedb.exception.KeyAlreadyExists;
 import org.vladimir.infotecs.keyvaluedb.exception.KeyNotFound;
+import org.vladimir.infotecs.keyvaluedb.exception.ValueMismatch;
+import org.vladimir.infotecs.keyvaluedb.exception.ValueTooLarge;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionOperation;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionResult;
 import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.model.VersionedValue;
 import org.vladimir.infotecs.keyvaluedb.service.KeyValueService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 public class KeyValueDbControllerImpl implements KeyValueDbController {
 
     private final KeyValueService keyValueService;
+    private final int rawMaxBodySize;
 
-    KeyValueDbControllerImpl(@Autowired KeyValueService keyValueService) {
+    KeyValueDbControllerImpl(@Autowired KeyValueService keyValueService,
+                             @Value("${raw.maxBodySize:1048576}") int rawMaxBodySize) {
         this.keyValueService = keyValueService;
+        this.rawMaxBodySize = rawMaxBodySize;
     }
 
 
-    public ResponseEntity<GetValueByKeyResponse> getValueByKey(@PathVariable String key) {
-        String value = keyValueService.getValueByKey(key).orElseThrow(KeyNotFound::new);
-        return ResponseEntity.ok(new GetValueByKeyResponse(value));
+    public ResponseEntity<byte[]> getValueByKey(@PathVariable String key, String ifNoneMatch) {
+        VersionedValue value = keyValueService.getVersionedValue(key).orElseThrow(KeyNotFound::new);
+        if (ETags.isNotModified(ifNoneMatch, value.getVersion())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(value.getVersion())).build();
+        }
+        // written by the byte array converter, Jackson isn't involved on the hottest path
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(ETags.of(value.getVersion()))
+                .body(PreEncodedJson.valueResponse(value.getValue()));
     }
 
 
-    public ResponseEntity<Void> setValueByKey(@PathVariable String key, @Valid @RequestBody SetValueByKeyRequest setValueByKeyRequest) {
-        Long ttl = setValueByKeyRequest.getTtl();
+    public ResponseEntity<Void> setValueByKey(@PathVariable String key, String ifMatch, String ifNoneMatch,
+                                              @Valid @RequestBody SetValueByKeyRequest setValueByKeyRequest) {
+        long ttl = ttlMillis(setValueByKeyRequest.getTtl(), setValueByKeyRequest.getTtlMillis());
         String value = setValueByKeyRequest.getValue();
-        keyValueService.setValueByKey(key, value, ttl);
+        long version = keyValueService.setValueByKey(key, value, ttl, setValueByKeyRequest.isSliding(),
+                ETags.precondition(ifMatch, ifNoneMatch));
+        return ResponseEntity.ok().eTag(ETags.of(version)).build();
+    }
+
+    public ResponseEntity<byte[]> getRawValueByKey(@PathVariable String key) {
+        // no JSON error body, the client may accept only octet-stream
+        return keyValueService.getValueByKey(key)
+                .map(value -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .body(value.getBytes(StandardCharsets.UTF_8)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    public ResponseEntity<Void> setRawValueByKey(@PathVariable String key, long ttl, long ttlMillis, boolean sliding,
+                                                 InputStream body) throws IOException {
+        byte[] bytes = body.readNBytes(rawMaxBodySize + 1);
+        if (bytes.length > rawMaxBodySize) {
+            throw new ValueTooLarge("Body is larger than " + rawMaxBodySize + " bytes");
+        }
+        String value;
+        try {
+            // malformed input is rejected instead of being replaced with U+FFFD
+            value = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            throw new IncorrectValueEncoding("Body isn't valid UTF-8", e);
+        }
+        keyValueService.setValueByKey(key, value, ttlMillis(ttl, ttlMillis), sliding);
+        return ResponseEntity.ok().build();
+    }
+
+    public ResponseEntity<TtlResponse> getTtlByKey(@PathVariable String key) {
+        long ttl = keyValueService.getTtl(key).orElseThrow(KeyNotFound::new);
+        return ResponseEntity.ok(new TtlResponse(ttl));
+    }
+
+    public ResponseEntity<Void> expireKey(@PathVariable String key, @Valid @RequestBody ExpireRequest expireRequest) {
+        if (!keyValueService.expire(key, ttlMillis(expireRequest.getTtl(), expireRequest.getTtlMillis()))) {
+            throw new KeyNotFound();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    public ResponseEntity<Void> persistKey(@PathVariable String key) {
+        if (!keyValueService.persist(key)) {
+            throw new KeyNotFound();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    public ResponseEntity<Void> touchKey(@PathVariable String key) {
+        if (!keyValueService.touch(key)) {
+            throw new KeyNotFound();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+
+    public ResponseEntity<IncrementResponse> incrementValueByKey(@PathVariable String key, @Valid @RequestBody IncrementRequest incrementRequest) {
+        long value = keyValueService.incrementBy(key, incrementRequest.getDelta(),
+                ttlMillis(incrementRequest.getTtl(), incrementRequest.getTtlMillis()));
+        return ResponseEntity.ok(new IncrementResponse(value));
+    }
+
+    public ResponseEntity<IncrementResponse> decrementValueByKey(@PathVariable String key, @Valid @RequestBody IncrementRequest incrementRequest) {
+        long value = keyValueService.incrementBy(key, Math.negateExact(incrementRequest.getDelta()),
+                ttlMillis(incrementRequest.getTtl(), incrementRequest.getTtlMillis()));
+        return ResponseEntity.ok(new IncrementResponse(value));
+    }
+
+    public ResponseEntity<Void> compareAndSetValueByKey(@PathVariable String key, @Valid @RequestBody CompareAndSetRequest compareAndSetRequest) {
+        boolean swapped = keyValueService.compareAndSet(key,
+                compareAndSetRequest.getExpectedValue(),
+                compareAndSetRequest.getValue(),
+                ttlMillis(compareAndSetRequest.getTtl(), compareAndSetRequest.getTtlMillis()));
+        if (!swapped) {
+            throw new ValueMismatch();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    public ResponseEntity<GetAndSetResponse> getAndSetValueByKey(@PathVariable String key, @Valid @RequestBody SetValueByKeyRequest setValueByKeyRequest) {
+        String previousValue = keyValueService
+                .getAndSet(key, setValueByKeyRequest.getValue(),
+                        ttlMillis(setValueByKeyRequest.getTtl(), setValueByKeyRequest.getTtlMillis()))
+                .orElse(null);
+        return ResponseEntity.ok(new GetAndSetResponse(previousValue));
+    }
+
+    public ResponseEntity<Void> setValueByKeyIfAbsent(@PathVariable String key, @Valid @RequestBody SetValueByKeyRequest setValueByKeyRequest) {
+        if (!keyValueService.setIfAbsent(key, setValueByKeyRequest.getValue(),
+                ttlMillis(setValueByKeyRequest.getTtl(), setValueByKeyRequest.getTtlMillis()))) {
+            throw new KeyAlreadyExists();
+        }
         return ResponseEntity.ok().build();
     }
 
@@ -78,15 +211,30 @@ public class KeyValueDbControllerImpl implements KeyValueDbController {
     }
 
 
-    public ResponseEntity<DeleteValueByKeyResponse> deleteValueByKey(@PathVariable String key) {
+    public ResponseEntity<DeleteValueByKeyResponse> deleteValueByKey(@PathVariable String key, String ifMatch,
+                                                                     String ifNoneMatch) {
+        var precondition = ETags.precondition(ifMatch, ifNoneMatch);
         DeleteValueByKeyResponse response = new DeleteValueByKeyResponse();
         response.setValue(
-                keyValueService
-                        .deleteValueByKey(key)
+                (precondition.isNone()
+                        ? keyValueService.deleteValueByKey(key)
+                        : keyValueService.deleteValueByKey(key, precondition))
                         .orElseThrow(KeyNotFound::new));
         return ResponseEntity.ok(response);
     }
 
+    public ResponseEntity<GetKeysResponse> getKeys(String prefix, String from, String to, int limit) {
+        var keys = prefix != null
+                ? keyValueService.getKeysByPrefix(prefix, limit)
+                : keyValueService.getKeysInRange(from, to, limit);
+        return ResponseEntity.ok(new GetKeysResponse(keys));
+    }
+
+    public ResponseEntity<ScanResponse> scan(String cursor, int count, String match) {
+        var page = keyValueService.scan(cursor, count, match);
+        return ResponseEntity.ok(new ScanResponse(page.getCursor(), page.getKeys()));
+    }
+
     public ResponseEntity<Map<String, ValueWithExpirationTime>> getDump() {
         return ResponseEntity.ok(keyValueService.getDump());
     }
@@ -97,4 +245,23 @@ public class KeyValueDbControllerImpl implements KeyValueDbController {
         return ResponseEntity.ok().build();
     }
 
+    public ResponseEntity<TransactionResult> executeTransaction(@Valid @RequestBody TransactionRequest transactionRequest) {
+        List<TransactionOperation> operations = transactionRequest.getOperations().stream()
+                .map(operation -> new TransactionOperation(operation.getType(), operation.getKey(), operation.getValue(),
+                        ttlMillis(operation.getTtl(), operation.getTtlMillis())))
+                .toList();
+        TransactionResult result = keyValueService.executeTransaction(operations);
+        return ResponseEntity.status(result.isCommitted() ? HttpStatus.OK : HttpStatus.CONFLICT).body(result);
+    }
+
+    /**
+     * Requests take the ttl in seconds or in milliseconds, the service works with milliseconds
+     */
+    static long ttlMillis(long ttlSeconds, long ttlMillis) {
+        if (ttlMillis > 0) {
+            return ttlMillis;
+        }
+        return ttlSeconds >= Long.MAX_VALUE / 1000L ? Long.MAX_VALUE : ttlSeconds * 1000L;
+    }
+
 }
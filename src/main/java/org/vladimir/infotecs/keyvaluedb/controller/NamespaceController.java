@@ -0,0 +1,157 @@
+package org.vladimir.infotecs.keyvaluedb.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Pattern;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.vladimir.infotecs.keyvaluedb.dto.CreateNamespaceRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.DeleteValueByKeyResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.GetValueByKeyResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.LoadDumpRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.NamespacesResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.SetValueByKeyRequest;
+import org.vladimir.infotecs.keyvaluedb.model.NamespaceInfo;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+
+import java.util.Map;
+
+@Tag(name = "Namespaces", description = "Isolated in-memory keyspaces, available with namespace.enable=true")
+@RequestMapping("/api/namespaces")
+public interface NamespaceController {
+
+    String NAME_PATTERN = "[A-Za-z0-9_-]{1,64}";
+    String NAME_MESSAGE = "namespace must be 1 to 64 latin letters, digits, '_' or '-'";
+
+    @Operation(summary = "List namespaces", description = "Retrieves the namespaces with their settings and memory usage")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved namespaces",
+                    content = @Content(schema = @Schema(implementation = NamespacesResponse.class)))
+    })
+    @GetMapping
+    ResponseEntity<NamespacesResponse> getNamespaces();
+
+    @Operation(summary = "Get namespace", description = "Retrieves the settings and the memory usage of the namespace")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved namespace",
+                    content = @Content(schema = @Schema(implementation = NamespaceInfo.class))),
+            @ApiResponse(responseCode = "404", description = "Namespace not found",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @GetMapping("{namespace}")
+    ResponseEntity<NamespaceInfo> getNamespace(@PathVariable @Pattern(regexp = NAME_PATTERN, message = NAME_MESSAGE)
+                                               String namespace);
+
+    @Operation(summary = "Create namespace", description = "Creates an empty namespace. Zero defaultTtl (seconds), " +
+            "maxMemory (bytes) and expirationInterval (milliseconds) take the server defaults")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully created namespace",
+                    content = @Content(schema = @Schema(implementation = NamespaceInfo.class))),
+            @ApiResponse(responseCode = "400", description = "Expiration interval is too short",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "409", description = "Namespace already exists or max number of namespaces reached",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @PutMapping("{namespace}")
+    ResponseEntity<NamespaceInfo> createNamespace(@PathVariable @Pattern(regexp = NAME_PATTERN, message = NAME_MESSAGE)
+                                                  String namespace,
+                                                  @Valid @RequestBody(description = "Request body containing the settings",
+                                                          required = true,
+                                                          content = @Content(schema = @Schema(implementation = CreateNamespaceRequest.class)))
+                                                  CreateNamespaceRequest createNamespaceRequest);
+
+    @Operation(summary = "Drop namespace", description = "Removes the namespace with all its pairs")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully dropped namespace"),
+            @ApiResponse(responseCode = "404", description = "Namespace not found",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @DeleteMapping("{namespace}")
+    ResponseEntity<Void> dropNamespace(@PathVariable String namespace);
+
+    @Operation(summary = "Flush namespace", description = "Removes all the pairs of the namespace, other namespaces " +
+            "aren't locked")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully flushed namespace"),
+            @ApiResponse(responseCode = "404", description = "Namespace not found",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @PostMapping("{namespace}/flush")
+    ResponseEntity<Void> flushNamespace(@PathVariable String namespace);
+
+    @Operation(summary = "Get value by key", description = "Retrieves the value associated with the key in the namespace")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved value",
+                    content = @Content(schema = @Schema(implementation = GetValueByKeyResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Namespace or key not found",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @GetMapping("{namespace}/keys/{key}")
+    ResponseEntity<GetValueByKeyResponse> getValueByKey(@PathVariable String namespace, @PathVariable String key);
+
+    @Operation(summary = "Set value by key", description = "Sets the value for the key in the namespace. Ttl (seconds) " +
+            "or ttlMillis must be positive or zero (use default namespace ttl)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully set value"),
+            @ApiResponse(responseCode = "404", description = "Namespace not found",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "507", description = "Memory limit of the namespace exceeded",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @PostMapping("{namespace}/keys/{key}")
+    ResponseEntity<Void> setValueByKey(@PathVariable String namespace, @PathVariable String key,
+                                       @Valid @RequestBody(description = "Request body containing the value and ttl",
+                                               required = true,
+                                               content = @Content(schema = @Schema(implementation = SetValueByKeyRequest.class)))
+                                       SetValueByKeyRequest setValueByKeyRequest);
+
+    @Operation(summary = "Delete value by key", description = "Deletes the key from the namespace")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully deleted value",
+                    content = @Content(schema = @Schema(implementation = DeleteValueByKeyResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Namespace or key not found",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @DeleteMapping("{namespace}/keys/{key}")
+    ResponseEntity<DeleteValueByKeyResponse> deleteValueByKey(@PathVariable String namespace, @PathVariable String key);
+
+    @Operation(summary = "Get dump", description = "Retrieves the dump of the namespace")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved dump",
+                    content = @Content(schema = @Schema(implementation = Map.class))),
+            @ApiResponse(responseCode = "404", description = "Namespace not found",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @GetMapping("{namespace}/dump")
+    ResponseEntity<Map<String, ValueWithExpirationTime>> getDump(@PathVariable String namespace);
+
+    @Operation(summary = "Load dump", description = "Replaces the pairs of the namespace with the dump, " +
+            "other namespaces aren't touched")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully loaded dump"),
+            @ApiResponse(responseCode = "400", description = "Expiration times of the dump aren't in milliseconds",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "404", description = "Namespace not found",
+                    content = @Content(schema = @Schema(implementation = Error.class))),
+            @ApiResponse(responseCode = "507", description = "Dump doesn't fit the memory limit, the namespace is unchanged",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @PostMapping("{namespace}/dump")
+    ResponseEntity<Void> restoreFromDump(@PathVariable String namespace,
+                                         @Valid @RequestBody(description = "Request body containing the dump, " +
+                                                 "expiration time in unix time (milliseconds from epoch utc)",
+                                                 required = true,
+                                                 content = @Content(schema = @Schema(implementation = LoadDumpRequest.class)))
+                                         LoadDumpRequest requestBody);
+}
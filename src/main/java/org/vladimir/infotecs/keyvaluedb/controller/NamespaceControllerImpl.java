@@ -0,0 +1,95 @@
+package org.vladimir.infotecs.keyvaluedb.controller;
+
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.vladimir.infotecs.keyvaluedb.dto.CreateNamespaceRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.DeleteValueByKeyResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.GetValueByKeyResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.LoadDumpRequest;
+import org.vladimir.infotecs.keyvaluedb.dto.NamespacesResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.SetValueByKeyRequest;
+import org.vladimir.infotecs.keyvaluedb.exception.KeyNotFound;
+import org.vladimir.infotecs.keyvaluedb.model.NamespaceInfo;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.service.NamespaceManager;
+
+import java.util.Map;
+
+@RestController
+@ConditionalOnProperty(name = "namespace.enable", havingValue = "true")
+public class NamespaceControllerImpl implements NamespaceController {
+
+    private final NamespaceManager namespaceManager;
+
+    NamespaceControllerImpl(NamespaceManager namespaceManager) {
+        this.namespaceManager = namespaceManager;
+    }
+
+    @Override
+    public ResponseEntity<NamespacesResponse> getNamespaces() {
+        return ResponseEntity.ok(new NamespacesResponse(namespaceManager.list()));
+    }
+
+    @Override
+    public ResponseEntity<NamespaceInfo> getNamespace(String namespace) {
+        return ResponseEntity.ok(namespaceManager.getInfo(namespace));
+    }
+
+    @Override
+    public ResponseEntity<NamespaceInfo> createNamespace(String namespace,
+                                                         @RequestBody CreateNamespaceRequest createNamespaceRequest) {
+        return ResponseEntity.ok(namespaceManager.create(namespace, createNamespaceRequest.getDefaultTtl(),
+                createNamespaceRequest.getMaxMemory(), createNamespaceRequest.getExpirationInterval()));
+    }
+
+    @Override
+    public ResponseEntity<Void> dropNamespace(@PathVariable String namespace) {
+        namespaceManager.drop(namespace);
+        return ResponseEntity.ok().build();
+    }
+
+    @Override
+    public ResponseEntity<Void> flushNamespace(@PathVariable String namespace) {
+        namespaceManager.flush(namespace);
+        return ResponseEntity.ok().build();
+    }
+
+    @Override
+    public ResponseEntity<GetValueByKeyResponse> getValueByKey(@PathVariable String namespace, @PathVariable String key) {
+        String value = namespaceManager.getService(namespace).getValueByKey(key).orElseThrow(KeyNotFound::new);
+        return ResponseEntity.ok(new GetValueByKeyResponse(value));
+    }
+
+    @Override
+    public ResponseEntity<Void> setValueByKey(@PathVariable String namespace, @PathVariable String key,
+                                              @Valid @RequestBody SetValueByKeyRequest setValueByKeyRequest) {
+        long ttl = KeyValueDbControllerImpl.ttlMillis(setValueByKeyRequest.getTtl(), setValueByKeyRequest.getTtlMillis());
+        namespaceManager.getService(namespace).setValueByKey(key, setValueByKeyRequest.getValue(), ttl,
+                setValueByKeyRequest.isSliding());
+        return ResponseEntity.ok().build();
+    }
+
+    @Override
+    public ResponseEntity<DeleteValueByKeyResponse> deleteValueByKey(@PathVariable String namespace,
+                                                                     @PathVariable String key) {
+        DeleteValueByKeyResponse response = new DeleteValueByKeyResponse();
+        response.setValue(namespaceManager.getService(namespace).deleteValueByKey(key).orElseThrow(KeyNotFound::new));
+        return ResponseEntity.ok(response);
+    }
+
+    @Override
+    public ResponseEntity<Map<String, ValueWithExpirationTime>> getDump(@PathVariable String namespace) {
+        return ResponseEntity.ok(namespaceManager.getDump(namespace));
+    }
+
+    @Override
+    public ResponseEntity<Void> restoreFromDump(@PathVariable String namespace,
+                                                @Valid @RequestBody LoadDumpRequest requestBody) {
+        namespaceManager.restore(namespace, requestBody.getDump());
+        return ResponseEntity.ok().build();
+    }
+}
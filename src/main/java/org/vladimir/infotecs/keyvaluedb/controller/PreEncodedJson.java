@@ -0,0 +1,70 @@
+package org.vladimir.infotecs.keyvaluedb.controller;
+
+import org.vladimir.infotecs.keyvaluedb.dto.GetValueByKeyResponse;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Hand-written JSON encoding of hot responses, written by the byte array message converter
+ * instead of Jackson. The output is the same as Jackson's one for the corresponding DTO.
+ */
+public final class PreEncodedJson {
+
+    private static final byte[] VALUE_PREFIX = "{\"value\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VALUE_SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private PreEncodedJson() {
+    }
+
+    /**
+     * @return UTF-8 JSON of {@link GetValueByKeyResponse} with the value
+     */
+    public static byte[] valueResponse(String value) {
+        byte[] encoded = needsEscaping(value)
+                ? escape(value).getBytes(StandardCharsets.UTF_8)
+                : value.getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[VALUE_PREFIX.length + encoded.length + VALUE_SUFFIX.length];
+        System.arraycopy(VALUE_PREFIX, 0, result, 0, VALUE_PREFIX.length);
+        System.arraycopy(encoded, 0, result, VALUE_PREFIX.length, encoded.length);
+        System.arraycopy(VALUE_SUFFIX, 0, result, VALUE_PREFIX.length + encoded.length, VALUE_SUFFIX.length);
+        return result;
+    }
+
+    private static boolean needsEscaping(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\' || Character.isSurrogate(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String escape(String value) {
+        var builder = new StringBuilder(value.length() + 16);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                case '\b' -> builder.append("\\b");
+                case '\f' -> builder.append("\\f");
+                default -> {
+                    // surrogates are escaped as Jackson does, a lone one stays valid JSON
+                    if (c < 0x20 || Character.isSurrogate(c)) {
+                        builder.append("\\u")
+                                .append(HEX[c >> 12]).append(HEX[(c >> 8) & 0xF])
+                                .append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,37 @@
+package org.vladimir.infotecs.keyvaluedb.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.vladimir.infotecs.keyvaluedb.dto.ReplicationLogResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.ReplicationSnapshotResponse;
+
+@Tag(name = "Replication", description = "Endpoints of the primary used by replicas")
+@RequestMapping("/api/replication")
+public interface ReplicationController {
+
+    @Operation(summary = "Get snapshot", description = "Retrieves storage dump together with the replication log offset " +
+            "it includes. Replica continues from the log after this offset")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved snapshot",
+                    content = @Content(schema = @Schema(implementation = ReplicationSnapshotResponse.class)))
+    })
+    @GetMapping("snapshot")
+    ResponseEntity<ReplicationSnapshotResponse> getSnapshot();
+
+    @Operation(summary = "Get replication log", description = "Retrieves operations following the provided offset")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved operations",
+                    content = @Content(schema = @Schema(implementation = ReplicationLogResponse.class)))
+    })
+    @GetMapping("log")
+    ResponseEntity<ReplicationLogResponse> getLog(@RequestParam(defaultValue = "0") long after,
+                                                  @RequestParam(defaultValue = "1000") int limit);
+}
@@ -0,0 +1,42 @@
+package org.vladimir.infotecs.keyvaluedb.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+import org.vladimir.infotecs.keyvaluedb.dto.ReplicationLogResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.ReplicationSnapshotResponse;
+import org.vladimir.infotecs.keyvaluedb.repository.ReplicationLog;
+import org.vladimir.infotecs.keyvaluedb.service.KeyValueService;
+
+import java.util.List;
+
+@RestController
+@ConditionalOnProperty(name = "replication.role", havingValue = "primary")
+public class ReplicationControllerImpl implements ReplicationController {
+
+    private final KeyValueService keyValueService;
+    private final ReplicationLog replicationLog;
+
+    ReplicationControllerImpl(KeyValueService keyValueService, ReplicationLog replicationLog) {
+        this.keyValueService = keyValueService;
+        this.replicationLog = replicationLog;
+    }
+
+    public ResponseEntity<ReplicationSnapshotResponse> getSnapshot() {
+        // Offset is taken before the dump: operations logged in between are replayed by the replica,
+        // replaying is idempotent
+        long offset = replicationLog.getLastOffset();
+        var dump = keyValueService.getDump();
+        return ResponseEntity.ok(new ReplicationSnapshotResponse(replicationLog.getReplicationId(), offset, dump));
+    }
+
+    public ResponseEntity<ReplicationLogResponse> getLog(long after, int limit) {
+        long lastOffset = replicationLog.getLastOffset();
+        var response = replicationLog.readAfter(after, limit)
+                .map(operations -> new ReplicationLogResponse(replicationLog.getReplicationId(),
+                        Math.max(lastOffset, after + operations.size()), false, operations))
+                .orElseGet(() -> new ReplicationLogResponse(replicationLog.getReplicationId(),
+                        lastOffset, true, List.of()));
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,48 @@
+package org.vladimir.infotecs.keyvaluedb.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.vladimir.infotecs.keyvaluedb.dto.SnapshotsResponse;
+import org.vladimir.infotecs.keyvaluedb.model.SnapshotInfo;
+
+@Tag(name = "Snapshots", description = "Local storage snapshots, available with snapshot.enable=true")
+@RequestMapping("/api/admin/snapshots")
+public interface SnapshotController {
+
+    @Operation(summary = "List snapshots", description = "Retrieves the completed snapshots, the newest first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved snapshots",
+                    content = @Content(schema = @Schema(implementation = SnapshotsResponse.class)))
+    })
+    @GetMapping
+    ResponseEntity<SnapshotsResponse> getSnapshots();
+
+    @Operation(summary = "Take snapshot", description = "Takes a snapshot of the storage now and applies " +
+            "the retention policy. Writes aren't blocked, a pair changed during the snapshot may be saved in either state")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully taken snapshot",
+                    content = @Content(schema = @Schema(implementation = SnapshotInfo.class)))
+    })
+    @PostMapping
+    ResponseEntity<SnapshotInfo> takeSnapshot();
+
+    @Operation(summary = "Restore snapshot", description = "Replaces the storage content with the snapshot. " +
+            "Pairs expired since the snapshot are skipped")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully restored snapshot",
+                    content = @Content(schema = @Schema(implementation = SnapshotInfo.class))),
+            @ApiResponse(responseCode = "404", description = "Snapshot not found",
+                    content = @Content(schema = @Schema(implementation = Error.class)))
+    })
+    @PostMapping("{id}/restore")
+    ResponseEntity<SnapshotInfo> restoreSnapshot(@PathVariable String id);
+}
@@ -0,0 +1,35 @@
+package org.vladimir.infotecs.keyvaluedb.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.vladimir.infotecs.keyvaluedb.dto.SnapshotsResponse;
+import org.vladimir.infotecs.keyvaluedb.model.SnapshotInfo;
+import org.vladimir.infotecs.keyvaluedb.service.SnapshotManager;
+
+@RestController
+@ConditionalOnProperty(name = "snapshot.enable", havingValue = "true")
+public class SnapshotControllerImpl implements SnapshotController {
+
+    private final SnapshotManager snapshotManager;
+
+    SnapshotControllerImpl(SnapshotManager snapshotManager) {
+        this.snapshotManager = snapshotManager;
+    }
+
+    @Override
+    public ResponseEntity<SnapshotsResponse> getSnapshots() {
+        return ResponseEntity.ok(new SnapshotsResponse(snapshotManager.listSnapshots()));
+    }
+
+    @Override
+    public ResponseEntity<SnapshotInfo> takeSnapshot() {
+        return ResponseEntity.ok(snapshotManager.takeSnapshot());
+    }
+
+    @Override
+    public ResponseEntity<SnapshotInfo> restoreSnapshot(@PathVariable String id) {
+        return ResponseEntity.ok(snapshotManager.restore(id));
+    }
+}
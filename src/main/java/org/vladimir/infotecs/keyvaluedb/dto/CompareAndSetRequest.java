@@ -0,0 +1,23 @@
+package org.vladimir.infotecs.keyvaluedb.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+@Data
+public class CompareAndSetRequest {
+    @NotNull(message = "expectedValue must not be blank")
+    private String expectedValue;
+
+    @NotNull(message = "value must not be blank")
+    private String value;
+
+    @PositiveOrZero(message = "ttl must be zero(use default server ttl value) or positive integer(long)")
+    private long ttl;
+
+    /**
+     * Ttl in milliseconds, takes precedence over {@link #ttl} (seconds) when positive
+     */
+    @PositiveOrZero(message = "ttlMillis must be zero(use ttl) or positive integer(long)")
+    private long ttlMillis;
+}
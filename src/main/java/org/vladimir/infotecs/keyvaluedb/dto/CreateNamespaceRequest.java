@@ -0,0 +1,25 @@
+package org.vladimir.infotecs.keyvaluedb.dto;
+
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+@Data
+public class CreateNamespaceRequest {
+    /**
+     * Default ttl of the namespace in seconds
+     */
+    @PositiveOrZero(message = "defaultTtl must be zero(use default server ttl value) or positive integer(long)")
+    private long defaultTtl;
+
+    /**
+     * Max estimated size of the pairs in bytes
+     */
+    @PositiveOrZero(message = "maxMemory must be zero(unlimited) or positive integer(long)")
+    private long maxMemory;
+
+    /**
+     * Max delay between expiration sweeps in milliseconds
+     */
+    @PositiveOrZero(message = "expirationInterval must be zero(use default server interval) or positive integer(long)")
+    private long expirationInterval;
+}
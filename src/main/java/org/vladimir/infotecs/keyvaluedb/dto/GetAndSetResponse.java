@@ -0,0 +1,13 @@
+package org.vladimir.infotecs.keyvaluedb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class GetAndSetResponse {
+    /**
+     * Value before the update, null if the key did not exist
+     */
+    private String previousValue;
+}
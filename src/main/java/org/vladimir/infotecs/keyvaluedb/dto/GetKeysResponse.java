@@ -0,0 +1,14 @@
+package org.vladimir.infotecs.keyvaluedb.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class GetKeysResponse {
+    @NotNull
+    private List<String> keys;
+}
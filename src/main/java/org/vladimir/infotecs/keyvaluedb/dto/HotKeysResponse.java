@@ -0,0 +1,18 @@
+package org.vladimir.infotecs.keyvaluedb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.vladimir.infotecs.keyvaluedb.model.KeyAccessCount;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class HotKeysResponse {
+    /**
+     * Counts cover the last half to whole window
+     */
+    private long windowMillis;
+    private List<KeyAccessCount> reads;
+    private List<KeyAccessCount> writes;
+}
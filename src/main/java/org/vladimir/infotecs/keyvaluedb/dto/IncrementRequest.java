@@ -0,0 +1,20 @@
+package org.vladimir.infotecs.keyvaluedb.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+@Data
+public class IncrementRequest {
+    @Min(value = -Long.MAX_VALUE, message = "delta is out of range")
+    private long delta = 1;
+
+    @PositiveOrZero(message = "ttl must be zero(use default server ttl value) or positive integer(long)")
+    private long ttl;
+
+    /**
+     * Ttl in milliseconds, takes precedence over {@link #ttl} (seconds) when positive
+     */
+    @PositiveOrZero(message = "ttlMillis must be zero(use ttl) or positive integer(long)")
+    private long ttlMillis;
+}
@@ -0,0 +1,10 @@
+package org.vladimir.infotecs.keyvaluedb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class IncrementResponse {
+    private long value;
+}
@@ -3,6 +3,7 @@ package org.vladimir.infotecs.keyvaluedb.dto;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.validation.ExpirationTimesInMillis;
 import org.vladimir.infotecs.keyvaluedb.validation.NotNullKeyAndValueInMap;
 
 import java.util.Map;
@@ -11,6 +12,8 @@ import java.util.Map;
 public class LoadDumpRequest {
     @NotNull(message = "dump object must be presented")
     @NotNullKeyAndValueInMap(message = "Dump object must not have null keys or values")
+    @ExpirationTimesInMillis(message = "Expiration times of the dump must be in milliseconds since epoch, " +
+            "the dump looks like one with expiration times in seconds")
     private Map<String, ValueWithExpirationTime> dump;
 }
 
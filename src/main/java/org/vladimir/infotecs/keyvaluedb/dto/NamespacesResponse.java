@@ -0,0 +1,16 @@
+package org.vladimir.infotecs.keyvaluedb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.vladimir.infotecs.keyvaluedb.model.NamespaceInfo;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class NamespacesResponse {
+    /**
+     * Sorted by name
+     */
+    private List<NamespaceInfo> namespaces;
+}
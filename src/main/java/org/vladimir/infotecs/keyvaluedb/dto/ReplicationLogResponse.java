@@ -0,0 +1,21 @@
+package org.vladimir.infotecs.keyvaluedb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.vladimir.infotecs.keyvaluedb.model.ReplicationOperation;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicationLogResponse {
+    private String replicationId;
+    private long lastOffset;
+    /**
+     * True if the requested operations are no longer in the log and the replica must load a snapshot
+     */
+    private boolean fullResyncRequired;
+    private List<ReplicationOperation> operations;
+}
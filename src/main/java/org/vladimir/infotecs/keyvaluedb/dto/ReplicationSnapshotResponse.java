@@ -0,0 +1,20 @@
+package org.vladimir.infotecs.keyvaluedb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicationSnapshotResponse {
+    private String replicationId;
+    /**
+     * Offset of the last operation that is guaranteed to be included in the dump
+     */
+    private long offset;
+    private Map<String, ValueWithExpirationTime> dump;
+}
@@ -0,0 +1,16 @@
+package org.vladimir.infotecs.keyvaluedb.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ScanResponse {
+    @NotNull
+    private String cursor;
+    @NotNull
+    private List<String> keys;
+}
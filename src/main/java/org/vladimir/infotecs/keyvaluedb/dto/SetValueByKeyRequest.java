@@ -11,4 +11,15 @@ public class SetValueByKeyRequest {
 
     @PositiveOrZero(message = "ttl must be zero(use default server ttl value) or positive integer(long)")
     private long ttl;
+
+    /**
+     * Ttl in milliseconds, takes precedence over {@link #ttl} (seconds) when positive
+     */
+    @PositiveOrZero(message = "ttlMillis must be zero(use ttl) or positive integer(long)")
+    private long ttlMillis;
+
+    /**
+     * Renew the ttl on every read
+     */
+    private boolean sliding;
 }
@@ -0,0 +1,16 @@
+package org.vladimir.infotecs.keyvaluedb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.vladimir.infotecs.keyvaluedb.model.SnapshotInfo;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class SnapshotsResponse {
+    /**
+     * The newest snapshot first
+     */
+    private List<SnapshotInfo> snapshots;
+}
@@ -0,0 +1,41 @@
+package org.vladimir.infotecs.keyvaluedb.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionOperation;
+
+import java.util.List;
+
+@Data
+public class TransactionRequest {
+    @NotEmpty(message = "operations must not be empty")
+    @Size(max = 1000, message = "transaction must not have more than 1000 operations")
+    private List<@Valid @NotNull(message = "operation must not be null") Operation> operations;
+
+    @Data
+    public static class Operation {
+        @NotNull(message = "type must be presented")
+        private TransactionOperation.Type type;
+
+        @NotNull(message = "key must be presented")
+        private String key;
+
+        /**
+         * Value of SET and CHECK_VALUE
+         */
+        private String value;
+
+        @PositiveOrZero(message = "ttl must be zero(use default server ttl value) or positive integer(long)")
+        private long ttl;
+
+        /**
+         * Ttl in milliseconds, takes precedence over {@link #ttl} (seconds) when positive
+         */
+        @PositiveOrZero(message = "ttlMillis must be zero(use ttl) or positive integer(long)")
+        private long ttlMillis;
+    }
+}
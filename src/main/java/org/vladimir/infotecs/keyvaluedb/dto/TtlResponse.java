@@ -0,0 +1,13 @@
+package org.vladimir.infotecs.keyvaluedb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class TtlResponse {
+    /**
+     * Remaining ttl in milliseconds, -1 if the key never expires
+     */
+    private long ttlMillis;
+}
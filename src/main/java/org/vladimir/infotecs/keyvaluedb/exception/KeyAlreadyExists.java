@@ -0,0 +1,7 @@
+package org.vladimir.infotecs.keyvaluedb.exception;
+
+import lombok.experimental.StandardException;
+
+@StandardException
+public class KeyAlreadyExists extends RuntimeException{
+}
@@ -0,0 +1,49 @@
+package org.vladimir.infotecs.keyvaluedb.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Single storage change published to the change feed.
+ * Expiration time is presented in unix time (milliseconds since epoch in UTC)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEvent {
+    /**
+     * Consecutive number of the event starting from 1, 0 for {@link Type#RESYNC}
+     */
+    private long sequence;
+    private Type type;
+    private String key;
+    private String value;
+    private Long expirationTime;
+
+    public enum Type {
+        /**
+         * Key-value pair is put with the expiration time
+         */
+        SET,
+        /**
+         * Key-value pair is removed
+         */
+        DELETE,
+        /**
+         * Outdated key-value pair is removed by the expiration sweep
+         */
+        EXPIRE,
+        /**
+         * All key-value pairs are removed
+         */
+        CLEAR,
+        /**
+         * Events following the requested sequence are no longer available,
+         * the subscriber must reload the data (e.g. from the dump) and subscribe without a sequence
+         */
+        RESYNC
+    }
+}
@@ -0,0 +1,14 @@
+package org.vladimir.infotecs.keyvaluedb.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Estimated number of accesses to the key, may be overestimated but never underestimated
+ */
+@Data
+@AllArgsConstructor
+public class KeyAccessCount {
+    private String key;
+    private long count;
+}
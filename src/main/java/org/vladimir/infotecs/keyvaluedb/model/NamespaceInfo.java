@@ -0,0 +1,28 @@
+package org.vladimir.infotecs.keyvaluedb.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Isolated keyspace with its own storage, lock, default ttl, memory limit and expiration
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NamespaceInfo {
+    private String name;
+    /**
+     * Default ttl in seconds
+     */
+    private long defaultTtl;
+    /**
+     * Max estimated size of the pairs in bytes, 0 if unlimited
+     */
+    private long maxMemory;
+    private long usedMemory;
+    /**
+     * Max delay between expiration sweeps in milliseconds
+     */
+    private long expirationInterval;
+}
@@ -0,0 +1,23 @@
+package org.vladimir.infotecs.keyvaluedb.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Batch of outdated keys found by a single step of the incremental expiration
+ */
+@Data
+@AllArgsConstructor
+public class OutdatedKeys {
+    private List<String> keys;
+    /**
+     * Number of pairs visited to find the keys, or covered by the expiration index the keys are read from
+     */
+    private long scanned;
+    /**
+     * Position to continue the scan from, null if the segment is scanned to the end
+     */
+    private String cursor;
+}
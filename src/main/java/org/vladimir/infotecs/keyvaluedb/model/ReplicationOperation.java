@@ -0,0 +1,46 @@
+package org.vladimir.infotecs.keyvaluedb.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Single write operation of the primary, streamed to replicas.
+ * Expiration time is presented in unix time (milliseconds since epoch in UTC)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReplicationOperation {
+    private long offset;
+    private Type type;
+    private String key;
+    private String value;
+    private Long expirationTime;
+    /**
+     * Version of the pair put by SET, so a replica serves the same ETags as the primary.
+     * Null for pairs written without versioning
+     */
+    private Long version;
+
+    public enum Type {
+        /**
+         * Put key-value pair with the expiration time
+         */
+        SET,
+        /**
+         * Remove key-value pair
+         */
+        DELETE,
+        /**
+         * Remove all key-value pairs outdated at expiration time
+         */
+        EXPIRE,
+        /**
+         * Remove all key-value pairs
+         */
+        CLEAR
+    }
+}
@@ -0,0 +1,36 @@
+package org.vladimir.infotecs.keyvaluedb.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * State of the latest snapshot restore
+ */
+@Data
+@AllArgsConstructor
+public class RestoreProgress {
+
+    public enum State {
+        /**
+         * No restore is running, the storage is ready
+         */
+        IDLE,
+        /**
+         * A restore is scheduled on startup and hasn't started yet
+         */
+        PENDING,
+        RUNNING,
+        /**
+         * The latest restore failed. The storage is unchanged, unless the startup restore failed:
+         * then it may be partially restored
+         */
+        FAILED
+    }
+
+    private State state;
+    private String snapshotId;
+    private int segments;
+    private int loadedSegments;
+    private long loadedPairs;
+    private String error;
+}
@@ -0,0 +1,19 @@
+package org.vladimir.infotecs.keyvaluedb.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Batch of keys returned by a single scan call
+ */
+@Data
+@AllArgsConstructor
+public class ScanPage {
+    /**
+     * Cursor to continue the scan from, "0" if the scan is complete
+     */
+    private String cursor;
+    private List<String> keys;
+}
@@ -0,0 +1,23 @@
+package org.vladimir.infotecs.keyvaluedb.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Completed snapshot of the storage
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnapshotInfo {
+    private String id;
+    /**
+     * Start of the snapshot in unix time (milliseconds since epoch in UTC)
+     */
+    private long createdAt;
+    private long pairs;
+    private int segments;
+    private long bytes;
+    private long durationMillis;
+}
@@ -0,0 +1,60 @@
+package org.vladimir.infotecs.keyvaluedb.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Operation of a transaction, see {@link org.vladimir.infotecs.keyvaluedb.service.KeyValueService#executeTransaction}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionOperation {
+
+    public enum Type {
+        /**
+         * Returns the value, null if there is no such key
+         */
+        GET,
+        /**
+         * Sets the value with the ttl
+         */
+        SET,
+        /**
+         * Deletes the key and returns the deleted value, null if there was no such key
+         */
+        DELETE,
+        /**
+         * Condition: the key holds the value
+         */
+        CHECK_VALUE,
+        /**
+         * Condition: the key exists
+         */
+        CHECK_EXISTS,
+        /**
+         * Condition: the key doesn't exist
+         */
+        CHECK_ABSENT
+    }
+
+    private Type type;
+    private String key;
+    /**
+     * Value of {@link Type#SET} and {@link Type#CHECK_VALUE}
+     */
+    private String value;
+    /**
+     * Ttl of {@link Type#SET} in milliseconds, 0 for the default ttl
+     */
+    private long ttl;
+
+    public boolean isCheck() {
+        return type == Type.CHECK_VALUE || type == Type.CHECK_EXISTS || type == Type.CHECK_ABSENT;
+    }
+
+    public boolean isWrite() {
+        return type == Type.SET || type == Type.DELETE;
+    }
+}
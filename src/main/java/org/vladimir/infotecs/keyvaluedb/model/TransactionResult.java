@@ -0,0 +1,26 @@
+package org.vladimir.infotecs.keyvaluedb.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionResult {
+    /**
+     * False if a condition failed, then no operation was applied
+     */
+    private boolean committed;
+    /**
+     * Index of the first failed condition, null if committed
+     */
+    private Integer failedCheck;
+    /**
+     * Result of each operation in the request order: the value of GET and DELETE (null if there was no such key),
+     * null for the other operations. Empty if not committed
+     */
+    private List<String> results;
+}
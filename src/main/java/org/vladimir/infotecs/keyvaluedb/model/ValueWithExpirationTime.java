@@ -1,13 +1,59 @@
 package org.vladimir.infotecs.keyvaluedb.model;
 
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
 
+/**
+ * Expiration time is presented in unix time (milliseconds since epoch in UTC)
+ */
 @Data
+@NoArgsConstructor
+@RequiredArgsConstructor
+@AllArgsConstructor
 public class ValueWithExpirationTime {
+    /**
+     * Expiration time of a pair without TTL
+     */
+    public static final long NEVER_EXPIRES = Long.MAX_VALUE;
+
     @NonNull
     String value;
     @NonNull
     Long expirationTime;
-}
\ No newline at end of file
+    /**
+     * TTL in milliseconds the expiration time is renewed with on every read (sliding expiration),
+     * null if the expiration time is fixed
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    Long slidingTtl;
+    /**
+     * Version of the value, grows with every change of the value and never repeats for the key, also after
+     * the pair is deleted and created again. Null for pairs written without versioning, treated as 0
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    Long version;
+
+    public ValueWithExpirationTime(@NonNull String value, @NonNull Long expirationTime, Long slidingTtl) {
+        this(value, expirationTime, slidingTtl, null);
+    }
+
+    /**
+     * @return the version, 0 if the pair was written without versioning
+     */
+    public long currentVersion() {
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * Copy of the pair with the same value and version and another expiration, implementations may avoid
+     * decoding the value
+     */
+    public ValueWithExpirationTime withExpiration(long expirationTime, Long slidingTtl) {
+        return new ValueWithExpirationTime(getValue(), expirationTime, slidingTtl, version);
+    }
+}
@@ -0,0 +1,61 @@
+package org.vladimir.infotecs.keyvaluedb.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Condition on the version of a pair checked atomically with a write, as HTTP If-Match and If-None-Match
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersionPrecondition {
+
+    /**
+     * The pair must exist
+     */
+    private boolean ifMatchAny;
+    /**
+     * The pair must exist with one of the versions, null for no condition
+     */
+    private Set<Long> ifMatch;
+    /**
+     * The pair must not exist
+     */
+    private boolean ifNoneMatchAny;
+    /**
+     * The pair must not exist or have none of the versions, null for no condition
+     */
+    private Set<Long> ifNoneMatch;
+
+    /**
+     * @return a precondition met by any pair and by its absence
+     */
+    public static VersionPrecondition none() {
+        return new VersionPrecondition(false, null, false, null);
+    }
+
+    public boolean isNone() {
+        return !ifMatchAny && ifMatch == null && !ifNoneMatchAny && ifNoneMatch == null;
+    }
+
+    /**
+     * @param version the version of the current pair, empty if there is no such pair
+     */
+    public boolean test(Optional<Long> version) {
+        if ((ifMatchAny || ifMatch != null) && version.isEmpty()) {
+            return false;
+        }
+        if (ifMatch != null && !ifMatch.contains(version.get())) {
+            return false;
+        }
+        if (ifNoneMatchAny && version.isPresent()) {
+            return false;
+        }
+        return ifNoneMatch == null || version.isEmpty() || !ifNoneMatch.contains(version.get());
+    }
+}
@@ -0,0 +1,16 @@
+package org.vladimir.infotecs.keyvaluedb.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Value with the version of the pair, see {@link ValueWithExpirationTime#getVersion()}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersionedValue {
+    private String value;
+    private long version;
+}
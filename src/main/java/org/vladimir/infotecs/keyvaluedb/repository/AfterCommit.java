@@ -0,0 +1,67 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs the actions recording changes of the repository decorators (replication log appends, change events)
+ * in the order the changes are committed.
+ * <p>
+ * Outside a Spring transaction an action runs at once, the caller serializes the writes (e.g. the write lock
+ * of the service). Within a transaction the actions are buffered and run after the commit, or dropped on rollback.
+ * The commit of a transaction with actions and the actions themselves run under a single lock: a transaction
+ * changing a row after another one waits for its row lock, so it commits and runs its actions after the other
+ * one's actions have run.
+ * </p>
+ */
+final class AfterCommit {
+
+    private static final ReentrantLock commitLock = new ReentrantLock();
+
+    private AfterCommit() {
+    }
+
+    static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        var actions = (Actions) TransactionSynchronizationManager.getResource(Actions.class);
+        if (actions == null) {
+            actions = new Actions();
+            TransactionSynchronizationManager.bindResource(Actions.class, actions);
+            TransactionSynchronizationManager.registerSynchronization(actions);
+        }
+        actions.list.add(action);
+    }
+
+    private static final class Actions implements TransactionSynchronization {
+
+        private final List<Runnable> list = new ArrayList<>();
+        private boolean locked;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            commitLock.lock();
+            locked = true;
+        }
+
+        @Override
+        public void afterCommit() {
+            list.forEach(Runnable::run);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(Actions.class);
+            if (locked) {
+                locked = false;
+                commitLock.unlock();
+            }
+        }
+    }
+}
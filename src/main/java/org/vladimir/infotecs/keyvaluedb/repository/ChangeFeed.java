@@ -0,0 +1,122 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+import org.vladimir.infotecs.keyvaluedb.model.ChangeEvent;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes storage changes to subscribers.
+ * <p>
+ * Events get consecutive sequence numbers starting from 1. The last {@code historyCapacity} events are kept,
+ * so a subscriber can resume after the last sequence it has seen. Every subscription has a bounded buffer,
+ * publishing never blocks: a subscriber that doesn't keep up overflows and gets closed after it drains
+ * the buffer, then it can resume from its last sequence while the history still has it.
+ * </p>
+ */
+public class ChangeFeed {
+
+    private final ChangeEvent[] history;
+    private final int subscriberBufferSize;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private long lastSequence = 0;
+
+    public ChangeFeed(int historyCapacity, int subscriberBufferSize) {
+        if (historyCapacity <= 0 || subscriberBufferSize <= 0) {
+            throw new IllegalArgumentException("Change feed history capacity and subscriber buffer size must be positive");
+        }
+        this.history = new ChangeEvent[historyCapacity];
+        this.subscriberBufferSize = subscriberBufferSize;
+    }
+
+    public synchronized long publish(ChangeEvent.Type type, String key, String value, Long expirationTime) {
+        long sequence = ++lastSequence;
+        var event = new ChangeEvent(sequence, type, key, value, expirationTime);
+        history[(int) (sequence % history.length)] = event;
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+        return sequence;
+    }
+
+    /**
+     * Subscribe to the events following the provided sequence
+     *
+     * @param afterSequence sequence of the last event the subscriber already has, null to receive only new events
+     * @return the subscription, or an empty Optional if the requested events were already evicted from the history
+     * (or were never published)
+     */
+    public synchronized Optional<Subscription> subscribe(Long afterSequence) {
+        Deque<ChangeEvent> backlog = new ArrayDeque<>();
+        if (afterSequence != null) {
+            if (afterSequence > lastSequence || afterSequence < lastSequence - history.length) {
+                return Optional.empty();
+            }
+            for (long sequence = afterSequence + 1; sequence <= lastSequence; sequence++) {
+                backlog.add(history[(int) (sequence % history.length)]);
+            }
+        }
+        var subscription = new Subscription(backlog);
+        subscriptions.add(subscription);
+        return Optional.of(subscription);
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Events of a single subscriber, read by one thread
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private final Deque<ChangeEvent> backlog;
+        private final BlockingQueue<ChangeEvent> buffer = new ArrayBlockingQueue<>(subscriberBufferSize);
+        private volatile boolean overflowed;
+
+        private Subscription(Deque<ChangeEvent> backlog) {
+            this.backlog = backlog;
+        }
+
+        private void offer(ChangeEvent event) {
+            if (!buffer.offer(event)) {
+                overflowed = true;
+                subscriptions.remove(this);
+            }
+        }
+
+        /**
+         * @return the next event, or null if there is no event within the timeout
+         * or the subscription overflowed and all buffered events were read
+         */
+        public ChangeEvent poll(long timeoutMillis) throws InterruptedException {
+            ChangeEvent event = backlog.poll();
+            if (event != null) {
+                return event;
+            }
+            return overflowed ? buffer.poll() : buffer.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * @return true if events were dropped, the subscriber must resume from the last read sequence
+         */
+        public boolean isOverflowed() {
+            return overflowed;
+        }
+
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+import org.vladimir.infotecs.keyvaluedb.model.ChangeEvent;
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link KeyValueRepository} decorator that publishes every modification to the {@link ChangeFeed}
+ * after it is applied to the underlying repository. Expiration sweeps publish an event per removed key.
+ * <p>
+ * Outside a transaction events are published in the order the repository is called, so the caller is responsible
+ * for serializing writes (e.g. the write lock of the service). Within a Spring transaction they are published after
+ * the commit in the commit order and aren't published on rollback, see {@link AfterCommit}.
+ * </p>
+ */
+public class ChangeFeedKeyValueRepository implements KeyValueRepository {
+
+    private final KeyValueRepository repository;
+    private final ChangeFeed changeFeed;
+
+    public ChangeFeedKeyValueRepository(KeyValueRepository repository, ChangeFeed changeFeed) {
+        this.repository = repository;
+        this.changeFeed = changeFeed;
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> get(String key) {
+        return repository.get(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key) {
+        return repository.getIfNotOutdated(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key, long time) {
+        return repository.getIfNotOutdated(key, time);
+    }
+
+    @Override
+    public void put(String key, String value, long expirationTime) {
+        repository.put(key, value, expirationTime);
+        publish(ChangeEvent.Type.SET, key, value, expirationTime);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> compute(String key, long time,
+                                                     UnaryOperator<Optional<ValueWithExpirationTime>> remappingFunction) {
+        var changed = new boolean[1];
+        var result = repository.compute(key, time, current -> {
+            var value = remappingFunction.apply(current);
+            changed[0] = !value.equals(current);
+            return value;
+        });
+        if (changed[0]) {
+            if (result.isPresent()) {
+                publish(ChangeEvent.Type.SET, key, result.get().getValue(), result.get().getExpirationTime());
+            } else {
+                publish(ChangeEvent.Type.DELETE, key, null, null);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public ValueWithExpirationTime putVersioned(String key, ValueWithExpirationTime value) {
+        var result = repository.putVersioned(key, value);
+        publish(ChangeEvent.Type.SET, key, result.getValue(), result.getExpirationTime());
+        return result;
+    }
+
+    @Override
+    public boolean remove(String key) {
+        boolean removed = repository.remove(key);
+        if (removed) {
+            publish(ChangeEvent.Type.DELETE, key, null, null);
+        }
+        return removed;
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturn(String key) {
+        return publishDelete(key, repository.removeAndReturn(key));
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key) {
+        return publishDelete(key, repository.removeAndReturnIfNotOutdated(key));
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key, long time) {
+        return publishDelete(key, repository.removeAndReturnIfNotOutdated(key, time));
+    }
+
+    @Override
+    public Map<String, ValueWithExpirationTime> getAll() {
+        return repository.getAll();
+    }
+
+    @Override
+    public void addAll(Map<String, ValueWithExpirationTime> map) {
+        repository.addAll(map);
+        for (var entry : map.entrySet()) {
+            publish(ChangeEvent.Type.SET, entry.getKey(),
+                    entry.getValue().getValue(), entry.getValue().getExpirationTime());
+        }
+    }
+
+    @Override
+    public void removeAllOutdatedPairs() {
+        removeAllOutdatedPairs(System.currentTimeMillis());
+    }
+
+    @Override
+    public void removeAllOutdatedPairs(long time) {
+        removeAllOutdatedPairsAndReturnKeys(time);
+    }
+
+    @Override
+    public List<String> removeAllOutdatedPairsAndReturnKeys(long time) {
+        var keys = repository.removeAllOutdatedPairsAndReturnKeys(time);
+        for (String key : keys) {
+            publish(ChangeEvent.Type.EXPIRE, key, null, null);
+        }
+        return keys;
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return repository.getSegmentCount();
+    }
+
+    @Override
+    public OutdatedKeys findOutdatedKeys(int segment, String after, int limit, long time) {
+        return repository.findOutdatedKeys(segment, after, limit, time);
+    }
+
+    @Override
+    public List<String> removeOutdatedPairs(Collection<String> keys, long time) {
+        var removed = repository.removeOutdatedPairs(keys, time);
+        for (String key : removed) {
+            publish(ChangeEvent.Type.EXPIRE, key, null, null);
+        }
+        return removed;
+    }
+
+    @Override
+    public List<String> getKeysInRange(String from, String to, int limit, long time) {
+        return repository.getKeysInRange(from, to, limit, time);
+    }
+
+    @Override
+    public List<String> getKeysByPrefix(String prefix, int limit, long time) {
+        return repository.getKeysByPrefix(prefix, limit, time);
+    }
+
+    @Override
+    public void clear() {
+        repository.clear();
+        publish(ChangeEvent.Type.CLEAR, null, null, null);
+    }
+
+    @Override
+    public boolean supportsOrderedScan() {
+        return repository.supportsOrderedScan();
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return repository.contains(key);
+    }
+
+    // An outdated pair may be removed too, its expiration is already known to subscribers from the SET event
+    private Optional<ValueWithExpirationTime> publishDelete(String key, Optional<ValueWithExpirationTime> value) {
+        if (value.isPresent()) {
+            publish(ChangeEvent.Type.DELETE, key, null, null);
+        }
+        return value;
+    }
+
+    private void publish(ChangeEvent.Type type, String key, String value, Long expirationTime) {
+        AfterCommit.run(() -> changeFeed.publish(type, key, value, expirationTime));
+    }
+}
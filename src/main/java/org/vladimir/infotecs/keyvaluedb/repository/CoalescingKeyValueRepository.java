@@ -0,0 +1,268 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link KeyValueRepository} decorator that coalesces concurrent lookups of the same key (single flight):
+ * the first caller queries the underlying repository, callers arriving while the query is in flight wait for it
+ * and share its result. Every caller applies its own expiration check to the shared pair.
+ * <p>
+ * A write to a key detaches its in-flight lookup, so lookups started after the write never share a query
+ * started before it. Inside a transaction the key is detached again after the transaction completes, and
+ * lookups of a transaction that has written anything bypass coalescing to see its own writes.
+ * </p>
+ */
+public class CoalescingKeyValueRepository implements KeyValueRepository {
+
+    private final KeyValueRepository repository;
+    private final Map<String, CompletableFuture<Optional<ValueWithExpirationTime>>> flights = new ConcurrentHashMap<>();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public CoalescingKeyValueRepository(KeyValueRepository repository, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        FunctionCounter.builder("coalescing.queries", queries, AtomicLong::get)
+                .description("Key lookups sent to the underlying repository")
+                .register(meterRegistry);
+        FunctionCounter.builder("coalescing.saved", coalesced, AtomicLong::get)
+                .description("Key lookups served by a concurrent lookup of the same key")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> get(String key) {
+        return lookup(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key) {
+        return getIfNotOutdated(key, System.currentTimeMillis());
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key, long time) {
+        return lookup(key).filter(value -> value.getExpirationTime() >= time);
+    }
+
+    @Override
+    public void put(String key, String value, long expirationTime) {
+        repository.put(key, value, expirationTime);
+        written(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> compute(String key, long time,
+                                                     UnaryOperator<Optional<ValueWithExpirationTime>> remappingFunction) {
+        var result = repository.compute(key, time, remappingFunction);
+        written(key);
+        return result;
+    }
+
+    @Override
+    public ValueWithExpirationTime putVersioned(String key, ValueWithExpirationTime value) {
+        var result = repository.putVersioned(key, value);
+        written(key);
+        return result;
+    }
+
+    @Override
+    public boolean remove(String key) {
+        boolean removed = repository.remove(key);
+        written(key);
+        return removed;
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturn(String key) {
+        var result = repository.removeAndReturn(key);
+        written(key);
+        return result;
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key) {
+        var result = repository.removeAndReturnIfNotOutdated(key);
+        written(key);
+        return result;
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key, long time) {
+        var result = repository.removeAndReturnIfNotOutdated(key, time);
+        written(key);
+        return result;
+    }
+
+    @Override
+    public Map<String, ValueWithExpirationTime> getAll() {
+        return repository.getAll();
+    }
+
+    @Override
+    public void addAll(Map<String, ValueWithExpirationTime> map) {
+        repository.addAll(map);
+        written(null);
+    }
+
+    @Override
+    public void removeAllOutdatedPairs() {
+        repository.removeAllOutdatedPairs();
+    }
+
+    @Override
+    public void removeAllOutdatedPairs(long time) {
+        repository.removeAllOutdatedPairs(time);
+    }
+
+    @Override
+    public List<String> removeAllOutdatedPairsAndReturnKeys(long time) {
+        // removed pairs are outdated, lookups filter them out anyway
+        return repository.removeAllOutdatedPairsAndReturnKeys(time);
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return repository.getSegmentCount();
+    }
+
+    @Override
+    public OutdatedKeys findOutdatedKeys(int segment, String after, int limit, long time) {
+        return repository.findOutdatedKeys(segment, after, limit, time);
+    }
+
+    @Override
+    public List<String> removeOutdatedPairs(Collection<String> keys, long time) {
+        // removed pairs are outdated, lookups filter them out anyway
+        return repository.removeOutdatedPairs(keys, time);
+    }
+
+    @Override
+    public List<String> getKeysInRange(String from, String to, int limit, long time) {
+        return repository.getKeysInRange(from, to, limit, time);
+    }
+
+    @Override
+    public List<String> getKeysByPrefix(String prefix, int limit, long time) {
+        return repository.getKeysByPrefix(prefix, limit, time);
+    }
+
+    @Override
+    public void clear() {
+        repository.clear();
+        written(null);
+    }
+
+    @Override
+    public boolean supportsOrderedScan() {
+        return repository.supportsOrderedScan();
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return repository.contains(key);
+    }
+
+    public long getQueries() {
+        return queries.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    private Optional<ValueWithExpirationTime> lookup(String key) {
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            queries.incrementAndGet();
+            return repository.get(key);
+        }
+        var flight = new CompletableFuture<Optional<ValueWithExpirationTime>>();
+        var inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            coalesced.incrementAndGet();
+            return await(inFlight).map(this::copy);
+        }
+        queries.incrementAndGet();
+        try {
+            var result = repository.get(key);
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    private Optional<ValueWithExpirationTime> await(CompletableFuture<Optional<ValueWithExpirationTime>> flight) {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the key lookup", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // pairs are mutable, callers sharing a lookup get their own instances
+    private ValueWithExpirationTime copy(ValueWithExpirationTime value) {
+        return new ValueWithExpirationTime(value.getValue(), value.getExpirationTime(), value.getSlidingTtl(),
+                value.getVersion());
+    }
+
+    /**
+     * @param key written key, null if any key may be written
+     */
+    private void written(String key) {
+        detach(key);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        // keys written by the current transaction, null element if any key may be written
+        @SuppressWarnings("unchecked")
+        var writtenKeys = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (writtenKeys == null) {
+            Set<String> keys = new HashSet<>();
+            writtenKeys = keys;
+            TransactionSynchronizationManager.bindResource(this, keys);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CoalescingKeyValueRepository.this);
+                    // a lookup started before the commit may still see the previous value
+                    keys.forEach(CoalescingKeyValueRepository.this::detach);
+                }
+            });
+        }
+        writtenKeys.add(key);
+    }
+
+    private void detach(String key) {
+        if (key == null) {
+            flights.clear();
+        } else {
+            flights.remove(key);
+        }
+    }
+}
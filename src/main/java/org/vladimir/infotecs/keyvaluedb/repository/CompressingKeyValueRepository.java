@@ -0,0 +1,334 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * {@link KeyValueRepository} decorator that compresses values not shorter than the threshold before they reach
+ * the underlying repository.
+ * <p>
+ * Compressed values are stored as {@code "\0z"} followed by the deflated UTF-8 bytes, one char per byte
+ * (ISO-8859-1), so the underlying repository still stores strings. Stored values starting with {@code '\0'}
+ * are escaped as {@code "\0r"} + value, other values are stored as is, so existing data stays readable.
+ * Values are decompressed lazily: a compressed pair returned by the repository inflates its value
+ * on the first {@link ValueWithExpirationTime#getValue()} call, changing only the expiration keeps
+ * the compressed form. Must be synchronized the same way as the underlying repository.
+ * </p>
+ */
+public class CompressingKeyValueRepository implements KeyValueRepository {
+
+    private static final char MARKER = '\0';
+    private static final char COMPRESSED = 'z';
+    private static final char RAW = 'r';
+
+    private final KeyValueRepository repository;
+    private final int threshold;
+    private final int level;
+
+    private final AtomicLong compressedValues = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    /**
+     * @param threshold min length of a value to compress
+     * @param level     deflate level, 1 (fastest) to 9 (best compression)
+     */
+    public CompressingKeyValueRepository(KeyValueRepository repository, int threshold, int level,
+                                         MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.threshold = threshold;
+        this.level = level;
+        FunctionCounter.builder("compression.values", compressedValues, AtomicLong::get)
+                .description("Number of values stored compressed")
+                .register(meterRegistry);
+        FunctionCounter.builder("compression.raw", rawBytes, AtomicLong::get)
+                .description("Size of the compressed values before compression")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("compression.compressed", compressedBytes, AtomicLong::get)
+                .description("Size of the compressed values after compression")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("compression.ratio", this, CompressingKeyValueRepository::getCompressionRatio)
+                .description("Raw to compressed size ratio of the compressed values")
+                .register(meterRegistry);
+    }
+
+    public double getCompressionRatio() {
+        long compressed = compressedBytes.get();
+        return compressed == 0 ? 1.0 : (double) rawBytes.get() / compressed;
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> get(String key) {
+        return repository.get(key).map(this::decode);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key) {
+        return repository.getIfNotOutdated(key).map(this::decode);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key, long time) {
+        return repository.getIfNotOutdated(key, time).map(this::decode);
+    }
+
+    @Override
+    public void put(String key, String value, long expirationTime) {
+        repository.put(key, encode(value), expirationTime);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> compute(String key, long time,
+                                                     UnaryOperator<Optional<ValueWithExpirationTime>> remappingFunction) {
+        return repository.compute(key, time, current -> {
+            var decoded = current.map(this::decode);
+            var result = remappingFunction.apply(decoded);
+            // keep the stored instance, so the underlying repository sees an unchanged pair
+            return result.equals(decoded) ? current : result.map(this::encode);
+        }).map(this::decode);
+    }
+
+    @Override
+    public ValueWithExpirationTime putVersioned(String key, ValueWithExpirationTime value) {
+        return decode(repository.putVersioned(key, encode(value)));
+    }
+
+    @Override
+    public boolean remove(String key) {
+        return repository.remove(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturn(String key) {
+        return repository.removeAndReturn(key).map(this::decode);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key) {
+        return repository.removeAndReturnIfNotOutdated(key).map(this::decode);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key, long time) {
+        return repository.removeAndReturnIfNotOutdated(key, time).map(this::decode);
+    }
+
+    @Override
+    public Map<String, ValueWithExpirationTime> getAll() {
+        Map<String, ValueWithExpirationTime> result = new HashMap<>();
+        repository.getAll().forEach((key, value) -> result.put(key, decode(value)));
+        return result;
+    }
+
+    @Override
+    public void addAll(Map<String, ValueWithExpirationTime> map) {
+        Map<String, ValueWithExpirationTime> encoded = new HashMap<>();
+        map.forEach((key, value) -> encoded.put(key, encode(value)));
+        repository.addAll(encoded);
+    }
+
+    @Override
+    public void removeAllOutdatedPairs() {
+        repository.removeAllOutdatedPairs();
+    }
+
+    @Override
+    public void removeAllOutdatedPairs(long time) {
+        repository.removeAllOutdatedPairs(time);
+    }
+
+    @Override
+    public List<String> removeAllOutdatedPairsAndReturnKeys(long time) {
+        return repository.removeAllOutdatedPairsAndReturnKeys(time);
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return repository.getSegmentCount();
+    }
+
+    @Override
+    public OutdatedKeys findOutdatedKeys(int segment, String after, int limit, long time) {
+        return repository.findOutdatedKeys(segment, after, limit, time);
+    }
+
+    @Override
+    public List<String> removeOutdatedPairs(Collection<String> keys, long time) {
+        return repository.removeOutdatedPairs(keys, time);
+    }
+
+    @Override
+    public List<String> getKeysInRange(String from, String to, int limit, long time) {
+        return repository.getKeysInRange(from, to, limit, time);
+    }
+
+    @Override
+    public List<String> getKeysByPrefix(String prefix, int limit, long time) {
+        return repository.getKeysByPrefix(prefix, limit, time);
+    }
+
+    @Override
+    public void clear() {
+        repository.clear();
+    }
+
+    @Override
+    public boolean supportsConcurrentCompute() {
+        return repository.supportsConcurrentCompute();
+    }
+
+    @Override
+    public boolean supportsOrderedScan() {
+        return repository.supportsOrderedScan();
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return repository.contains(key);
+    }
+
+    private ValueWithExpirationTime encode(ValueWithExpirationTime value) {
+        if (value instanceof CompressedValue compressedValue) {
+            return new ValueWithExpirationTime(compressedValue.stored,
+                    value.getExpirationTime(), value.getSlidingTtl(), value.getVersion());
+        }
+        return new ValueWithExpirationTime(encode(value.getValue()), value.getExpirationTime(), value.getSlidingTtl(),
+                value.getVersion());
+    }
+
+    private String encode(String value) {
+        if (value.length() >= threshold) {
+            byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+            byte[] compressed = deflate(raw);
+            if (compressed.length + 2 < raw.length) {
+                compressedValues.incrementAndGet();
+                rawBytes.addAndGet(raw.length);
+                compressedBytes.addAndGet(compressed.length);
+                return MARKER + String.valueOf(COMPRESSED) + new String(compressed, StandardCharsets.ISO_8859_1);
+            }
+        }
+        if (!value.isEmpty() && value.charAt(0) == MARKER) {
+            return MARKER + String.valueOf(RAW) + value;
+        }
+        return value;
+    }
+
+    private ValueWithExpirationTime decode(ValueWithExpirationTime stored) {
+        String value = stored.getValue();
+        if (value.length() < 2 || value.charAt(0) != MARKER) {
+            return stored;
+        }
+        if (value.charAt(1) == COMPRESSED) {
+            return new CompressedValue(value, stored.getExpirationTime(), stored.getSlidingTtl(), stored.getVersion());
+        }
+        return new ValueWithExpirationTime(value.substring(2), stored.getExpirationTime(), stored.getSlidingTtl(),
+                stored.getVersion());
+    }
+
+    private byte[] deflate(byte[] raw) {
+        var deflater = new Deflater(level);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            var out = new ByteArrayOutputStream(raw.length / 4 + 16);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String inflate(String stored) {
+        byte[] compressed = stored.substring(2).getBytes(StandardCharsets.ISO_8859_1);
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            var out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed value");
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted compressed value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Pair with a compressed value that is inflated on the first read
+     */
+    private static final class CompressedValue extends ValueWithExpirationTime {
+
+        private final String stored;
+        private volatile String value;
+
+        CompressedValue(String stored, Long expirationTime, Long slidingTtl, Long version) {
+            super(stored, expirationTime, slidingTtl, version);
+            this.stored = stored;
+        }
+
+        @Override
+        public String getValue() {
+            String result = value;
+            if (result == null) {
+                result = inflate(stored);
+                value = result;
+            }
+            return result;
+        }
+
+        @Override
+        public void setValue(String value) {
+            throw new UnsupportedOperationException("Compressed value is immutable");
+        }
+
+        @Override
+        public ValueWithExpirationTime withExpiration(long expirationTime, Long slidingTtl) {
+            return new CompressedValue(stored, expirationTime, slidingTtl, getVersion());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof CompressedValue other) {
+                return stored.equals(other.stored)
+                        && getExpirationTime().equals(other.getExpirationTime())
+                        && Objects.equals(getSlidingTtl(), other.getSlidingTtl())
+                        && Objects.equals(getVersion(), other.getVersion());
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return super.hashCode();
+        }
+    }
+}
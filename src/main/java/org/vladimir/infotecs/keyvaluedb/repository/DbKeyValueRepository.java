@@ -1,15 +1,21 @@
 package org.vladimir.infotecs.keyvaluedb.repository;
 
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.vladimir.infotecs.keyvaluedb.model.KvPair;
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
 import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
 
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
 public class DbKeyValueRepository implements KeyValueRepository {
 
@@ -53,20 +59,91 @@ public class DbKeyValueRepository implements KeyValueRepository {
         var sql = """
                 SELECT * FROM "KEY_VALUE_TABLE" WHERE "KEY" = ? AND "EXPIRATION_TIME" >= ?
                 """;
-        var timestamp = new Timestamp(time * 1000L);
+        var timestamp = new Timestamp(time);
         var result = jdbcTemplate.query(sql, new Object[]{key, timestamp}, valueWithExpTimeRowMapper);
         return result.isEmpty() ? Optional.empty() : Optional.of(result.get(0));
     }
 
     @Override
     public void put(String key, String value, long expirationTime) {
+        merge(key, new ValueWithExpirationTime(value, expirationTime));
+    }
+
+    private void merge(String key, ValueWithExpirationTime value) {
         var sql = """
-                MERGE INTO "KEY_VALUE_TABLE" ("KEY", "VALUE", "EXPIRATION_TIME")
+                MERGE INTO "KEY_VALUE_TABLE" ("KEY", "VALUE", "EXPIRATION_TIME", "SLIDING_TTL", "VERSION")
                 KEY ("KEY")
-                VALUES (?, ?, ?)
+                VALUES (?, ?, ?, ?, ?)
+                """;
+        var timestamp = new Timestamp(value.getExpirationTime());
+        jdbcTemplate.update(sql, key, value.getValue(), timestamp, value.getSlidingTtl(), value.getVersion());
+    }
+
+    /**
+     * Must be called within a transaction: the row is locked with SELECT ... FOR UPDATE until the transaction ends.
+     * If the row is absent and a concurrent transaction inserts it first, the computation is repeated once
+     * over the inserted row.
+     */
+    @Override
+    public Optional<ValueWithExpirationTime> compute(String key, long time,
+                                                     UnaryOperator<Optional<ValueWithExpirationTime>> remappingFunction) {
+        return compute(key, time, remappingFunction, false);
+    }
+
+    private Optional<ValueWithExpirationTime> compute(String key, long time,
+                                                      UnaryOperator<Optional<ValueWithExpirationTime>> remappingFunction,
+                                                      boolean retried) {
+        var sql = """
+                SELECT * FROM "KEY_VALUE_TABLE" WHERE "KEY" = ? FOR UPDATE
                 """;
-        var timestamp = new Timestamp(expirationTime * 1000L);
-        jdbcTemplate.update(sql, key, value, timestamp);
+        var rows = jdbcTemplate.query(sql, valueWithExpTimeRowMapper, key);
+        var stored = rows.isEmpty() ? Optional.<ValueWithExpirationTime>empty() : Optional.of(rows.get(0));
+        var current = stored.filter(v -> v.getExpirationTime() >= time);
+        var result = remappingFunction.apply(current);
+        if (result.equals(current)) {
+            return result;
+        }
+        if (result.isEmpty()) {
+            remove(key);
+        } else if (stored.isPresent()) {
+            merge(key, result.get());
+        } else {
+            var insertSql = """
+                    INSERT INTO "KEY_VALUE_TABLE" ("KEY", "VALUE", "EXPIRATION_TIME", "SLIDING_TTL", "VERSION")
+                    VALUES (?, ?, ?, ?, ?)
+                    """;
+            try {
+                jdbcTemplate.update(insertSql, key, result.get().getValue(),
+                        new Timestamp(result.get().getExpirationTime()), result.get().getSlidingTtl(),
+                        result.get().getVersion());
+            } catch (DuplicateKeyException e) {
+                // the inserted row is locked by the retry, so a second conflict isn't expected
+                if (retried) {
+                    throw e;
+                }
+                return compute(key, time, remappingFunction, true);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A single MERGE, the version is compared with the stored one within the statement. Unlike {@link #compute}
+     * the row isn't selected and locked first
+     */
+    @Override
+    public ValueWithExpirationTime putVersioned(String key, ValueWithExpirationTime value) {
+        var sql = """
+                SELECT "VERSION" FROM FINAL TABLE (
+                    MERGE INTO "KEY_VALUE_TABLE" ("KEY", "VALUE", "EXPIRATION_TIME", "SLIDING_TTL", "VERSION")
+                    KEY ("KEY")
+                    VALUES (?, ?, ?, ?, GREATEST(?,
+                        COALESCE((SELECT "VERSION" + 1 FROM "KEY_VALUE_TABLE" WHERE "KEY" = ?), 0))))
+                """;
+        var timestamp = new Timestamp(value.getExpirationTime());
+        Long version = jdbcTemplate.queryForObject(sql, Long.class, key, value.getValue(), timestamp,
+                value.getSlidingTtl(), value.currentVersion(), key);
+        return new ValueWithExpirationTime(value.getValue(), value.getExpirationTime(), value.getSlidingTtl(), version);
     }
 
     @Override
@@ -113,14 +190,8 @@ public class DbKeyValueRepository implements KeyValueRepository {
 
     @Override
     public void addAll(Map<String, ValueWithExpirationTime> map) {
-        var sql = """
-                MERGE INTO "KEY_VALUE_TABLE" ("KEY", "VALUE", "EXPIRATION_TIME")
-                KEY ("KEY")
-                VALUES (?, ?, ?)
-                """;
         for (var entry : map.entrySet()) {
-            var timestamp = new Timestamp(entry.getValue().getExpirationTime() * 1000L);
-            jdbcTemplate.update(sql, entry.getKey(), entry.getValue().getValue(), timestamp);
+            merge(entry.getKey(), entry.getValue());
         }
     }
 
@@ -142,6 +213,87 @@ public class DbKeyValueRepository implements KeyValueRepository {
         jdbcTemplate.update(sql, timestamp);
     }
 
+    @Override
+    public List<String> removeAllOutdatedPairsAndReturnKeys(long time) {
+        var sql = """
+                SELECT "KEY" FROM OLD TABLE (DELETE FROM "KEY_VALUE_TABLE" WHERE "EXPIRATION_TIME" < ?)
+                """;
+        return jdbcTemplate.queryForList(sql, String.class, new Timestamp(time));
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return 1;
+    }
+
+    /**
+     * Reads the expiration time index, only outdated pairs are visited and the cursor is ignored.
+     * The index covers the whole table, so the first step of a sweep reports the number of rows as scanned
+     */
+    @Override
+    public OutdatedKeys findOutdatedKeys(int segment, String after, int limit, long time) {
+        var sql = """
+                SELECT "KEY" FROM "KEY_VALUE_TABLE" WHERE "EXPIRATION_TIME" < ? FETCH FIRST ? ROWS ONLY
+                """;
+        var keys = jdbcTemplate.queryForList(sql, String.class, new Timestamp(time), limit);
+        long scanned = after == null
+                ? jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"KEY_VALUE_TABLE\"", Long.class)
+                : 0;
+        return new OutdatedKeys(keys, scanned, keys.size() == limit ? keys.get(keys.size() - 1) : null);
+    }
+
+    @Override
+    public List<String> removeOutdatedPairs(Collection<String> keys, long time) {
+        var sql = "DELETE FROM \"KEY_VALUE_TABLE\" WHERE \"KEY\" = ? AND \"EXPIRATION_TIME\" < ?";
+        var timestamp = new Timestamp(time);
+        List<String> orderedKeys = new ArrayList<>(keys);
+        List<Object[]> args = new ArrayList<>(orderedKeys.size());
+        for (String key : orderedKeys) {
+            args.add(new Object[]{key, timestamp});
+        }
+        int[] rowsAffected = jdbcTemplate.batchUpdate(sql, args);
+        List<String> removed = new ArrayList<>();
+        for (int i = 0; i < rowsAffected.length; i++) {
+            if (rowsAffected[i] > 0) {
+                removed.add(orderedKeys.get(i));
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public List<String> getKeysInRange(String from, String to, int limit, long time) {
+        var sql = new StringBuilder("SELECT \"KEY\" FROM \"KEY_VALUE_TABLE\" WHERE \"EXPIRATION_TIME\" >= ?");
+        List<Object> args = new ArrayList<>();
+        args.add(new Timestamp(time));
+        if (from != null) {
+            sql.append(" AND \"KEY\" >= ?");
+            args.add(from);
+        }
+        if (to != null) {
+            sql.append(" AND \"KEY\" < ?");
+            args.add(to);
+        }
+        sql.append(" ORDER BY \"KEY\" LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.queryForList(sql.toString(), String.class, args.toArray());
+    }
+
+    @Override
+    public List<String> getKeysByPrefix(String prefix, int limit, long time) {
+        var sql = """
+                SELECT "KEY" FROM "KEY_VALUE_TABLE" WHERE "KEY" LIKE ? ESCAPE '\\' AND "EXPIRATION_TIME" >= ?
+                ORDER BY "KEY" LIMIT ?
+                """;
+        var pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return jdbcTemplate.queryForList(sql, String.class, pattern, new Timestamp(time), limit);
+    }
+
+    @Override
+    public boolean supportsOrderedScan() {
+        return true;
+    }
+
     @Override
     public boolean contains(String key) {
         var sql = "SELECT COUNT(*) FROM \"KEY_VALUE_TABLE\" WHERE \"KEY\" = ?";
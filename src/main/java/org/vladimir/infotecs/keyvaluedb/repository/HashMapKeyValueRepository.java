@@ -1,38 +1,62 @@
 package org.vladimir.infotecs.keyvaluedb.repository;
 
 
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
 import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
- * A repository implementation that stores key-value pairs in an in-memory {@link HashMap}.
- * This class is NOT THREAD SAFE.
+ * A repository implementation that stores key-value pairs in in-memory {@link ConcurrentHashMap}s, one per segment.
+ * Pairs are divided into the segments by the key hash, so the incremental expiration scans one segment at a time.
+ * Reads and {@link #compute} calls are safe to run concurrently, other modifications must be exclusive.
  * </p>
  */
 
 public class HashMapKeyValueRepository implements KeyValueRepository {
-    private final Map<String, ValueWithExpirationTime> storage;
+    private final List<Map<String, ValueWithExpirationTime>> segments;
+    private final SweepPositions<Map.Entry<String, ValueWithExpirationTime>> sweepPositions;
 
     public HashMapKeyValueRepository() {
-        storage = new HashMap<>();
+        this(1);
+    }
+
+    /**
+     * @param segmentCount number of segments for the incremental expiration
+     */
+    public HashMapKeyValueRepository(int segmentCount) {
+        segments = new ArrayList<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments.add(new ConcurrentHashMap<>());
+        }
+        sweepPositions = new SweepPositions<>(segmentCount, Map.Entry::getKey,
+                entry -> entry.getValue().getExpirationTime());
     }
 
     @Override
     public Optional<ValueWithExpirationTime> get(String key) {
-        return Optional.ofNullable(storage.get(key));
+        return Optional.ofNullable(storage(key).get(key));
     }
 
     @Override
     public Optional<ValueWithExpirationTime> getIfNotOutdated(String key) {
-        return getIfNotOutdated(key, currentTimeInSeconds());
+        return getIfNotOutdated(key, currentTimeMillis());
     }
 
     @Override
     public Optional<ValueWithExpirationTime> getIfNotOutdated(String key, long time) {
-        ValueWithExpirationTime value = storage.get(key);
+        ValueWithExpirationTime value = storage(key).get(key);
         if (value != null && value.getExpirationTime() >= time) {
             return Optional.of(value);
         }
@@ -41,32 +65,49 @@ public class HashMapKeyValueRepository implements KeyValueRepository {
 
     @Override
     public void put(String key, String value, long expirationTime) {
-        storage.put(key, new ValueWithExpirationTime(value, expirationTime));
+        storage(key).put(key, new ValueWithExpirationTime(value, expirationTime));
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> compute(String key, long time,
+                                                     UnaryOperator<Optional<ValueWithExpirationTime>> remappingFunction) {
+        var result = new AtomicReference<Optional<ValueWithExpirationTime>>();
+        storage(key).compute(key, (k, stored) -> {
+            var current = Optional.ofNullable(stored).filter(v -> v.getExpirationTime() >= time);
+            result.set(remappingFunction.apply(current));
+            return result.get().equals(current) ? stored : result.get().orElse(null);
+        });
+        return result.get();
+    }
+
+    @Override
+    public boolean supportsConcurrentCompute() {
+        return true;
     }
 
     @Override
     public boolean contains(String key) {
-        return storage.containsKey(key);
+        return storage(key).containsKey(key);
     }
 
     @Override
     public boolean remove(String key) {
-        return null != storage.remove(key);
+        return null != storage(key).remove(key);
     }
 
     @Override
     public Optional<ValueWithExpirationTime> removeAndReturn(String key) {
-        return Optional.ofNullable(storage.remove(key));
+        return Optional.ofNullable(storage(key).remove(key));
     }
 
     @Override
     public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key) {
-        return removeAndReturnIfNotOutdated(key, currentTimeInSeconds());
+        return removeAndReturnIfNotOutdated(key, currentTimeMillis());
     }
 
     @Override
     public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key, long time) {
-        var value = storage.remove(key);
+        var value = storage(key).remove(key);
         if (value != null && value.getExpirationTime() >= time) {
             return Optional.of(value);
         } else {
@@ -76,30 +117,136 @@ public class HashMapKeyValueRepository implements KeyValueRepository {
 
     @Override
     public Map<String, ValueWithExpirationTime> getAll() {
-        return new HashMap<>(storage);
+        if (segments.size() == 1) {
+            return new HashMap<>(segments.get(0));
+        }
+        Map<String, ValueWithExpirationTime> result = new HashMap<>();
+        segments.forEach(result::putAll);
+        return result;
     }
 
     @Override
     public void addAll(Map<String, ValueWithExpirationTime> map) {
-        storage.putAll(map);
+        if (segments.size() == 1) {
+            segments.get(0).putAll(map);
+        } else {
+            map.forEach((key, value) -> storage(key).put(key, value));
+        }
     }
 
     @Override
     public void clear() {
-        storage.clear();
+        segments.forEach(Map::clear);
     }
 
     public void removeAllOutdatedPairs() {
-        removeAllOutdatedPairs(currentTimeInSeconds());
+        removeAllOutdatedPairs(currentTimeMillis());
     }
 
     @Override
     public void removeAllOutdatedPairs(long time) {
-        storage.entrySet().removeIf(e -> e.getValue().getExpirationTime() < time);
+        for (var storage : segments) {
+            storage.entrySet().removeIf(e -> e.getValue().getExpirationTime() < time);
+        }
+    }
+
+    @Override
+    public List<String> removeAllOutdatedPairsAndReturnKeys(long time) {
+        List<String> keys = new ArrayList<>();
+        for (var storage : segments) {
+            var iterator = storage.entrySet().iterator();
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                if (entry.getValue().getExpirationTime() < time) {
+                    keys.add(entry.getKey());
+                    iterator.remove();
+                }
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Continues the iteration over the segment map of the previous call and visits at most {@code limit} pairs.
+     * The iterator of a {@link ConcurrentHashMap} tolerates concurrent modifications and resizes, pairs added
+     * during the sweep may be skipped till the next one
+     */
+    @Override
+    public OutdatedKeys findOutdatedKeys(int segment, String after, int limit, long time) {
+        return sweepPositions.next(segment, after, limit, time, () -> segments.get(segment).entrySet().iterator());
+    }
+
+    @Override
+    public List<String> removeOutdatedPairs(Collection<String> keys, long time) {
+        List<String> removed = new ArrayList<>();
+        for (String key : keys) {
+            var storage = storage(key);
+            var value = storage.get(key);
+            if (value != null && value.getExpirationTime() < time) {
+                storage.remove(key);
+                removed.add(key);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Full scan of the storage, O(n log k) time and O(k) memory.
+     * Use {@link OrderedIndexKeyValueRepository} for large storages
+     */
+    @Override
+    public List<String> getKeysInRange(String from, String to, int limit, long time) {
+        return smallestKeys(key -> (from == null || key.compareTo(from) >= 0) && (to == null || key.compareTo(to) < 0),
+                limit, time);
+    }
+
+    /**
+     * Full scan of the storage, O(n log k) time and O(k) memory.
+     * Use {@link OrderedIndexKeyValueRepository} for large storages
+     */
+    @Override
+    public List<String> getKeysByPrefix(String prefix, int limit, long time) {
+        return smallestKeys(key -> key.startsWith(prefix), limit, time);
+    }
+
+    private List<String> smallestKeys(Predicate<String> filter, int limit, long time) {
+        // Max-heap keeps the smallest keys seen so far, so the storage isn't copied
+        PriorityQueue<String> heap = new PriorityQueue<>(Comparator.reverseOrder());
+        for (var storage : segments) {
+            for (var entry : storage.entrySet()) {
+                String key = entry.getKey();
+                if (entry.getValue().getExpirationTime() < time || !filter.test(key)) {
+                    continue;
+                }
+                if (heap.size() < limit) {
+                    heap.add(key);
+                } else if (key.compareTo(heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(key);
+                }
+            }
+        }
+        List<String> keys = new ArrayList<>(heap);
+        keys.sort(null);
+        return keys;
+    }
+
+    private Map<String, ValueWithExpirationTime> storage(String key) {
+        if (segments.size() == 1) {
+            return segments.get(0);
+        }
+        // high bits of the mixed hash, so the low bits used by HashMap stay distributed within a segment
+        long mixed = (key.hashCode() * 0x9E3779B9L) & 0xFFFFFFFFL;
+        return segments.get((int) ((mixed * segments.size()) >>> 32));
     }
 
-    private long currentTimeInSeconds() {
-        return System.currentTimeMillis() / 1000L;
+    private long currentTimeMillis() {
+        return System.currentTimeMillis();
     }
 
 }
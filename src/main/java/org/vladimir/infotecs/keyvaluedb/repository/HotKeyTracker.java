@@ -0,0 +1,185 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+import org.vladimir.infotecs.keyvaluedb.model.KeyAccessCount;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Approximate read and write counts per key over a sliding window, used to find hot keys.
+ * <p>
+ * Counts are kept in count-min sketches, so recording an access is a few atomic increments without allocation
+ * or locking. Each sketch consists of two generations of half a window each, the older one is dropped on rotation,
+ * so estimates cover the last half to whole window. Keys whose estimate exceeds the coldest of the top
+ * {@code capacity} candidates replace it, the lock is taken only then. All methods are thread-safe.
+ * </p>
+ */
+public class HotKeyTracker {
+
+    private final long windowMillis;
+    private final Sketch reads;
+    private final Sketch writes;
+
+    /**
+     * @param windowMillis length of the sliding window
+     * @param width        number of counters in a sketch row, rounded up to a power of two
+     * @param capacity     number of tracked hot key candidates per access kind
+     */
+    public HotKeyTracker(long windowMillis, int width, int capacity) {
+        this(windowMillis, width, capacity, System::currentTimeMillis);
+    }
+
+    public HotKeyTracker(long windowMillis, int width, int capacity, LongSupplier clock) {
+        if (windowMillis < 2 || width <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Hot key window, width and capacity must be positive");
+        }
+        this.windowMillis = windowMillis;
+        this.reads = new Sketch(windowMillis / 2, width, capacity, clock);
+        this.writes = new Sketch(windowMillis / 2, width, capacity, clock);
+    }
+
+    public void recordRead(String key) {
+        reads.record(key);
+    }
+
+    public void recordWrite(String key) {
+        writes.record(key);
+    }
+
+    /**
+     * @return at most {@code limit} most read keys in descending order of the estimated count
+     */
+    public List<KeyAccessCount> getHotReads(int limit) {
+        return reads.top(limit);
+    }
+
+    /**
+     * @return at most {@code limit} most written keys in descending order of the estimated count
+     */
+    public List<KeyAccessCount> getHotWrites(int limit) {
+        return writes.top(limit);
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    private static final class Sketch {
+
+        private static final int DEPTH = 4;
+
+        private final long generationMillis;
+        private final int width;
+        private final int mask;
+        private final int capacity;
+        private final LongSupplier clock;
+        private final Set<String> candidates = ConcurrentHashMap.newKeySet();
+
+        private volatile AtomicLongArray current;
+        private volatile AtomicLongArray previous;
+        private volatile long rotationTime;
+        private volatile long admissionThreshold;
+
+        Sketch(long generationMillis, int width, int capacity, LongSupplier clock) {
+            this.generationMillis = generationMillis;
+            this.width = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+            this.mask = this.width - 1;
+            this.capacity = capacity;
+            this.clock = clock;
+            this.current = new AtomicLongArray(DEPTH * this.width);
+            this.previous = new AtomicLongArray(DEPTH * this.width);
+            this.rotationTime = clock.getAsLong() + generationMillis;
+        }
+
+        void record(String key) {
+            rotateIfNeeded();
+            AtomicLongArray currentCounters = current;
+            AtomicLongArray previousCounters = previous;
+            long hash = KeyHash.of(key);
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = index(hash, row);
+                estimate = Math.min(estimate, currentCounters.incrementAndGet(index) + previousCounters.get(index));
+            }
+            if (estimate > admissionThreshold && !candidates.contains(key)) {
+                admit(key, estimate);
+            }
+        }
+
+        List<KeyAccessCount> top(int limit) {
+            rotateIfNeeded();
+            return candidates.stream()
+                    .map(key -> new KeyAccessCount(key, estimate(key)))
+                    .filter(count -> count.getCount() > 0)
+                    .sorted(Comparator.comparingLong(KeyAccessCount::getCount).reversed()
+                            .thenComparing(KeyAccessCount::getKey))
+                    .limit(limit)
+                    .toList();
+        }
+
+        private synchronized void admit(String key, long estimate) {
+            if (candidates.contains(key)) {
+                return;
+            }
+            if (candidates.size() < capacity) {
+                candidates.add(key);
+                return;
+            }
+            String coldest = null;
+            long coldestEstimate = Long.MAX_VALUE;
+            for (String candidate : candidates) {
+                long candidateEstimate = estimate(candidate);
+                if (candidateEstimate < coldestEstimate) {
+                    coldest = candidate;
+                    coldestEstimate = candidateEstimate;
+                }
+            }
+            if (estimate > coldestEstimate) {
+                candidates.remove(coldest);
+                candidates.add(key);
+            }
+            admissionThreshold = coldestEstimate;
+        }
+
+        private long estimate(String key) {
+            AtomicLongArray currentCounters = current;
+            AtomicLongArray previousCounters = previous;
+            long hash = KeyHash.of(key);
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = index(hash, row);
+                estimate = Math.min(estimate, currentCounters.get(index) + previousCounters.get(index));
+            }
+            return estimate;
+        }
+
+        private void rotateIfNeeded() {
+            if (clock.getAsLong() >= rotationTime) {
+                rotate();
+            }
+        }
+
+        private synchronized void rotate() {
+            long now = clock.getAsLong();
+            if (now < rotationTime) {
+                return;
+            }
+            // after a whole idle window both generations are outdated
+            previous = now >= rotationTime + generationMillis ? new AtomicLongArray(DEPTH * width) : current;
+            current = new AtomicLongArray(DEPTH * width);
+            rotationTime = now + generationMillis;
+            admissionThreshold = 0;
+        }
+
+        // double hashing: row-th hash is h1 + row * h2
+        private int index(long hash, int row) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            return row * width + ((h1 + row * h2) & mask);
+        }
+    }
+}
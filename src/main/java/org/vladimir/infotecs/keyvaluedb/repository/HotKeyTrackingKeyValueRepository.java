@@ -0,0 +1,157 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link KeyValueRepository} decorator that records single key accesses to the {@link HotKeyTracker}:
+ * lookups as reads, modifications (including read-modify-write and renewals of sliding TTLs) as writes.
+ * Bulk operations aren't recorded. Must be synchronized the same way as the underlying repository.
+ */
+public class HotKeyTrackingKeyValueRepository implements KeyValueRepository {
+
+    private final KeyValueRepository repository;
+    private final HotKeyTracker hotKeyTracker;
+
+    public HotKeyTrackingKeyValueRepository(KeyValueRepository repository, HotKeyTracker hotKeyTracker) {
+        this.repository = repository;
+        this.hotKeyTracker = hotKeyTracker;
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> get(String key) {
+        hotKeyTracker.recordRead(key);
+        return repository.get(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key) {
+        hotKeyTracker.recordRead(key);
+        return repository.getIfNotOutdated(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key, long time) {
+        hotKeyTracker.recordRead(key);
+        return repository.getIfNotOutdated(key, time);
+    }
+
+    @Override
+    public void put(String key, String value, long expirationTime) {
+        hotKeyTracker.recordWrite(key);
+        repository.put(key, value, expirationTime);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> compute(String key, long time,
+                                                     UnaryOperator<Optional<ValueWithExpirationTime>> remappingFunction) {
+        hotKeyTracker.recordWrite(key);
+        return repository.compute(key, time, remappingFunction);
+    }
+
+    @Override
+    public ValueWithExpirationTime putVersioned(String key, ValueWithExpirationTime value) {
+        hotKeyTracker.recordWrite(key);
+        return repository.putVersioned(key, value);
+    }
+
+    @Override
+    public boolean remove(String key) {
+        hotKeyTracker.recordWrite(key);
+        return repository.remove(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturn(String key) {
+        hotKeyTracker.recordWrite(key);
+        return repository.removeAndReturn(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key) {
+        hotKeyTracker.recordWrite(key);
+        return repository.removeAndReturnIfNotOutdated(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key, long time) {
+        hotKeyTracker.recordWrite(key);
+        return repository.removeAndReturnIfNotOutdated(key, time);
+    }
+
+    @Override
+    public Map<String, ValueWithExpirationTime> getAll() {
+        return repository.getAll();
+    }
+
+    @Override
+    public void addAll(Map<String, ValueWithExpirationTime> map) {
+        repository.addAll(map);
+    }
+
+    @Override
+    public void removeAllOutdatedPairs() {
+        repository.removeAllOutdatedPairs();
+    }
+
+    @Override
+    public void removeAllOutdatedPairs(long time) {
+        repository.removeAllOutdatedPairs(time);
+    }
+
+    @Override
+    public List<String> removeAllOutdatedPairsAndReturnKeys(long time) {
+        return repository.removeAllOutdatedPairsAndReturnKeys(time);
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return repository.getSegmentCount();
+    }
+
+    @Override
+    public OutdatedKeys findOutdatedKeys(int segment, String after, int limit, long time) {
+        return repository.findOutdatedKeys(segment, after, limit, time);
+    }
+
+    @Override
+    public List<String> removeOutdatedPairs(Collection<String> keys, long time) {
+        return repository.removeOutdatedPairs(keys, time);
+    }
+
+    @Override
+    public List<String> getKeysInRange(String from, String to, int limit, long time) {
+        return repository.getKeysInRange(from, to, limit, time);
+    }
+
+    @Override
+    public List<String> getKeysByPrefix(String prefix, int limit, long time) {
+        return repository.getKeysByPrefix(prefix, limit, time);
+    }
+
+    @Override
+    public void clear() {
+        repository.clear();
+    }
+
+    @Override
+    public boolean supportsConcurrentCompute() {
+        return repository.supportsConcurrentCompute();
+    }
+
+    @Override
+    public boolean supportsOrderedScan() {
+        return repository.supportsOrderedScan();
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return repository.contains(key);
+    }
+}
@@ -0,0 +1,26 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+/**
+ * 64-bit hash of the key characters for probabilistic structures (bloom filters, count-min sketches).
+ * Unlike {@link String#hashCode()} both halves are independent enough for double hashing, and keys
+ * colliding in 32 bits (e.g. "Aa" and "BB") get different hashes
+ */
+public final class KeyHash {
+
+    private KeyHash() {
+    }
+
+    /**
+     * FNV-like multiply-xor over the characters, finished with the murmur3 64-bit mixer.
+     * Persisted bloom filters depend on it, the result must not change
+     */
+    public static long of(String key) {
+        long hash = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0xFF51AFD7ED558CCDL;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -1,14 +1,18 @@
 package org.vladimir.infotecs.keyvaluedb.repository;
 
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
 import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
 /**
  * An interface for a key-value repository.Key and not value are not null
  * Outdated key-value pairs auto removing isn't guaranteed, see implementation details
- * Expiration time is presented in unix time(long) (seconds since epoch in UTC)
+ * Expiration time is presented in unix time(long) (milliseconds since epoch in UTC)
  *
  */
 public interface KeyValueRepository {
@@ -24,7 +28,7 @@ public interface KeyValueRepository {
      * Get value if provided time  isn't greater than expiration time
      *
      * @param key  Key of a pair
-     * @param time current time in unix time (seconds since epoch in UTC)
+     * @param time current time in unix time (milliseconds since epoch in UTC)
      */
     Optional<ValueWithExpirationTime> getIfNotOutdated(String key, long time);
 
@@ -32,11 +36,61 @@ public interface KeyValueRepository {
      * Put value by key
      *
      * @param key            Key of a pair
-     * @param expirationTime in unix time (seconds since epoch in UTC)
+     * @param expirationTime in unix time (milliseconds since epoch in UTC)
      */
     void put(String key, String value, long expirationTime);
 
 
+    /**
+     * Atomically compute a new value for the key from the current one.
+     * Other modifications of the same key can't interleave (see implementation details)
+     *
+     * @param key               Key of a pair
+     * @param time              current time in unix time (milliseconds since epoch in UTC)
+     * @param remappingFunction gets the current not outdated value (empty if there is no such value) and returns
+     *                          the new value, empty to remove the pair or the current value to leave it unchanged
+     * @return the new value
+     */
+    Optional<ValueWithExpirationTime> compute(String key, long time,
+                                              UnaryOperator<Optional<ValueWithExpirationTime>> remappingFunction);
+
+    /**
+     * Put the pair unconditionally. The pair gets its own version or, if the version of the stored pair (outdated
+     * too) isn't less, the next one after the stored version, so the version of the key never goes back.
+     * Unlike {@link #compute} the stored pair isn't passed to the caller, implementations may put the pair
+     * in a single update without reading and locking it first
+     *
+     * @param key   Key of a pair
+     * @param value the pair with the version to put
+     * @return the put pair with its version
+     */
+    default ValueWithExpirationTime putVersioned(String key, ValueWithExpirationTime value) {
+        return compute(key, Long.MIN_VALUE, stored -> Optional.of(
+                stored.isEmpty() || stored.get().currentVersion() < value.currentVersion() ? value
+                        : new ValueWithExpirationTime(value.getValue(), value.getExpirationTime(),
+                        value.getSlidingTtl(), stored.get().currentVersion() + 1))).orElseThrow();
+    }
+
+    /**
+     * Decorators forward the flag of the underlying repository if their own state stays consistent
+     * under concurrent computes. Decorators recording the order of modifications (replication, change feed)
+     * return false
+     *
+     * @return true if {@link #compute} calls may run concurrently with each other and with reads,
+     * being atomic per key, so the caller synchronizes them only against the other modifications
+     */
+    default boolean supportsConcurrentCompute() {
+        return false;
+    }
+
+    /**
+     * @return true if {@link #getKeysInRange} seeks to the lower bound of the range instead of scanning all pairs,
+     * so iterating over all keys page by page costs the same as a single scan
+     */
+    default boolean supportsOrderedScan() {
+        return false;
+    }
+
     /**
      * Remove a value by key
      *
@@ -60,7 +114,7 @@ public interface KeyValueRepository {
      * (i.e., if the current time is greater than the provided time)
      *
      * @param key  Key of a pair
-     * @param time current time in unix time (seconds since epoch in UTC)
+     * @param time current time in unix time (milliseconds since epoch in UTC)
      */
     Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key, long time);
 
@@ -87,10 +141,65 @@ public interface KeyValueRepository {
      * Remove  outdated key-value pairs
      * (i.e., if the presented time is greater than the expiration time; see implementation details)
      *
-     * @param time current time in unix time (seconds since epoch in UTC)
+     * @param time current time in unix time (milliseconds since epoch in UTC)
      */
     void removeAllOutdatedPairs(long time);
 
+    /**
+     * Remove  outdated key-value pairs and return their keys
+     * (i.e., if the presented time is greater than the expiration time)
+     *
+     * @param time current time in unix time (milliseconds since epoch in UTC)
+     * @return keys of the removed pairs
+     */
+    List<String> removeAllOutdatedPairsAndReturnKeys(long time);
+
+    /**
+     * Number of segments the keys are divided into for the incremental expiration.
+     * Different segments may be scanned by {@link #findOutdatedKeys} concurrently
+     */
+    int getSegmentCount();
+
+    /**
+     * Find at most {@code limit} outdated key-value pairs of the segment without removing them.
+     * The scan continues from the cursor of the previous call, the found pairs must be removed before it.
+     * Scanning implementations visit at most {@code limit} pairs per call (see implementation details)
+     *
+     * @param segment segment number from 0 to {@link #getSegmentCount()} - 1
+     * @param after   cursor returned by the previous call, null to start from the beginning of the segment
+     * @param limit   max number of keys to return
+     * @param time    current time in unix time (milliseconds since epoch in UTC)
+     */
+    OutdatedKeys findOutdatedKeys(int segment, String after, int limit, long time);
+
+    /**
+     * Remove the pairs that are still outdated, pairs changed after {@link #findOutdatedKeys} are kept
+     *
+     * @param keys keys of the pairs
+     * @param time current time in unix time (milliseconds since epoch in UTC)
+     * @return keys of the removed pairs
+     */
+    List<String> removeOutdatedPairs(Collection<String> keys, long time);
+
+    /**
+     * Get keys that are greater than or equal to {@code from} and less than {@code to} in ascending order.
+     * Outdated key-value pairs are skipped
+     *
+     * @param from  inclusive lower bound, null for unbounded
+     * @param to    exclusive upper bound, null for unbounded
+     * @param limit max number of keys to return
+     * @param time  current time in unix time (milliseconds since epoch in UTC)
+     */
+    List<String> getKeysInRange(String from, String to, int limit, long time);
+
+    /**
+     * Get keys starting with the prefix in ascending order. Outdated key-value pairs are skipped
+     *
+     * @param limit max number of keys to return
+     * @param time  current time in unix time (milliseconds since epoch in UTC)
+     */
+    List<String> getKeysByPrefix(String prefix, int limit, long time);
+
     /**
      * Clear repository
      */
@@ -0,0 +1,82 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only temporary file of byte records, mapped into memory by segments.
+ * <p>
+ * A record is addressed by the segment number in the high 32 bits and the offset in the segment in the low ones.
+ * Records don't cross segments, a record larger than the segment size gets a segment of its own.
+ * The pages are cached by the OS, not in the heap. The file is deleted on {@link #close()}. Not thread safe.
+ * </p>
+ */
+final class MappedColdStore implements Closeable {
+
+    private final Path path;
+    private final int segmentSize;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long fileSize;
+
+    /**
+     * @param directory directory of the file, null for the default temporary directory
+     */
+    MappedColdStore(Path directory, int segmentSize) throws IOException {
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        this.path = directory == null
+                ? Files.createTempFile("kv-cold", ".dat")
+                : Files.createTempFile(directory, "kv-cold", ".dat");
+        this.segmentSize = segmentSize;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    /**
+     * @return address of the record
+     */
+    long append(byte[] record) throws IOException {
+        MappedByteBuffer segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.remaining() < record.length) {
+            int size = Math.max(segmentSize, record.length);
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, fileSize, size);
+            segments.add(segment);
+            fileSize += size;
+        }
+        int offset = segment.position();
+        segment.put(record);
+        return ((long) (segments.size() - 1) << 32) | offset;
+    }
+
+    byte[] read(long address, int length) {
+        byte[] record = new byte[length];
+        segments.get((int) (address >>> 32)).get((int) address, record);
+        return record;
+    }
+
+    /**
+     * @return mapped size of the file in bytes
+     */
+    long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Closes and deletes the file, the segments are unmapped when they are garbage collected
+     */
+    @Override
+    public void close() throws IOException {
+        segments.clear();
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+}
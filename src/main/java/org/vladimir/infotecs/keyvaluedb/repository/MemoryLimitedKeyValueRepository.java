@@ -0,0 +1,253 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+import org.vladimir.infotecs.keyvaluedb.exception.MemoryLimitExceeded;
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link KeyValueRepository} decorator that accounts the estimated heap size of the stored pairs and rejects
+ * writes growing it over the limit with {@link MemoryLimitExceeded}. Removals are always allowed.
+ * <p>
+ * A pair is estimated as two bytes per char of the key and the value plus {@link #PAIR_OVERHEAD} bytes of the map
+ * entry and the objects. The stored pair is read before every change, must be synchronized the same way as
+ * the underlying repository.
+ * </p>
+ */
+public class MemoryLimitedKeyValueRepository implements KeyValueRepository {
+
+    /**
+     * Map entry, {@link ValueWithExpirationTime}, two strings and the boxed expiration time
+     */
+    public static final long PAIR_OVERHEAD = 128;
+
+    private final KeyValueRepository repository;
+    private final long limit;
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    /**
+     * @param limit max estimated size of the pairs in bytes, 0 for unlimited
+     */
+    public MemoryLimitedKeyValueRepository(KeyValueRepository repository, long limit) {
+        this.repository = repository;
+        this.limit = limit;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> get(String key) {
+        return repository.get(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key) {
+        return repository.getIfNotOutdated(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key, long time) {
+        return repository.getIfNotOutdated(key, time);
+    }
+
+    @Override
+    public void put(String key, String value, long expirationTime) {
+        reserve(size(key, value) - size(key, repository.get(key)));
+        repository.put(key, value, expirationTime);
+    }
+
+    /**
+     * The stored pair is read and the size is reserved within the per-key update of the underlying repository,
+     * so concurrent computes are accounted correctly if the underlying repository supports them
+     */
+    @Override
+    public Optional<ValueWithExpirationTime> compute(String key, long time,
+                                                     UnaryOperator<Optional<ValueWithExpirationTime>> remappingFunction) {
+        long[] reserved = new long[1];
+        var changed = new boolean[1];
+        Optional<ValueWithExpirationTime> result;
+        try {
+            // all stored pairs are passed to account the size of an outdated one the function doesn't see
+            result = repository.compute(key, Long.MIN_VALUE, stored -> {
+                // the function may be called again, then only the last result is stored
+                usedBytes.addAndGet(-reserved[0]);
+                reserved[0] = 0;
+                var current = stored.filter(v -> v.getExpirationTime() >= time);
+                var value = remappingFunction.apply(current);
+                changed[0] = !value.equals(current);
+                if (!changed[0]) {
+                    return stored;
+                }
+                reserved[0] = reserve(size(key, value) - size(key, stored));
+                return value;
+            });
+        } catch (RuntimeException e) {
+            usedBytes.addAndGet(-reserved[0]);
+            throw e;
+        }
+        return changed[0] ? result : result.filter(v -> v.getExpirationTime() >= time);
+    }
+
+    @Override
+    public boolean remove(String key) {
+        return removeAndReturn(key).isPresent();
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturn(String key) {
+        var value = repository.removeAndReturn(key);
+        usedBytes.addAndGet(-size(key, value));
+        return value;
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key) {
+        return removeAndReturnIfNotOutdated(key, System.currentTimeMillis());
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key, long time) {
+        return removeAndReturn(key).filter(value -> value.getExpirationTime() >= time);
+    }
+
+    @Override
+    public Map<String, ValueWithExpirationTime> getAll() {
+        return repository.getAll();
+    }
+
+    @Override
+    public void addAll(Map<String, ValueWithExpirationTime> map) {
+        long delta = 0;
+        for (var entry : map.entrySet()) {
+            delta += size(entry.getKey(), Optional.of(entry.getValue())) - size(entry.getKey(), repository.get(entry.getKey()));
+        }
+        reserve(delta);
+        repository.addAll(map);
+    }
+
+    @Override
+    public void removeAllOutdatedPairs() {
+        removeAllOutdatedPairs(System.currentTimeMillis());
+    }
+
+    @Override
+    public void removeAllOutdatedPairs(long time) {
+        removeAllOutdatedPairsAndReturnKeys(time);
+    }
+
+    /**
+     * Finds the outdated pairs segment by segment to account their sizes before the removal
+     */
+    @Override
+    public List<String> removeAllOutdatedPairsAndReturnKeys(long time) {
+        List<String> keys = new ArrayList<>();
+        for (int segment = 0; segment < repository.getSegmentCount(); segment++) {
+            String cursor = null;
+            do {
+                var found = repository.findOutdatedKeys(segment, cursor, Integer.MAX_VALUE, time);
+                keys.addAll(removeOutdatedPairs(found.getKeys(), time));
+                cursor = found.getCursor();
+            } while (cursor != null);
+        }
+        return keys;
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return repository.getSegmentCount();
+    }
+
+    @Override
+    public OutdatedKeys findOutdatedKeys(int segment, String after, int limit, long time) {
+        return repository.findOutdatedKeys(segment, after, limit, time);
+    }
+
+    @Override
+    public List<String> removeOutdatedPairs(Collection<String> keys, long time) {
+        Map<String, Long> sizes = new HashMap<>();
+        for (String key : keys) {
+            sizes.put(key, size(key, repository.get(key)));
+        }
+        var removed = repository.removeOutdatedPairs(keys, time);
+        for (String key : removed) {
+            usedBytes.addAndGet(-sizes.get(key));
+        }
+        return removed;
+    }
+
+    @Override
+    public List<String> getKeysInRange(String from, String to, int limit, long time) {
+        return repository.getKeysInRange(from, to, limit, time);
+    }
+
+    @Override
+    public List<String> getKeysByPrefix(String prefix, int limit, long time) {
+        return repository.getKeysByPrefix(prefix, limit, time);
+    }
+
+    @Override
+    public void clear() {
+        repository.clear();
+        usedBytes.set(0);
+    }
+
+    @Override
+    public boolean supportsConcurrentCompute() {
+        return repository.supportsConcurrentCompute();
+    }
+
+    @Override
+    public boolean supportsOrderedScan() {
+        return repository.supportsOrderedScan();
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return repository.contains(key);
+    }
+
+    /**
+     * Estimated size of the pairs in bytes, as they would be accounted after {@link #addAll(Map)} to an empty repository
+     */
+    public static long estimateSize(Map<String, ValueWithExpirationTime> map) {
+        return map.entrySet().stream()
+                .mapToLong(entry -> size(entry.getKey(), entry.getValue().getValue()))
+                .sum();
+    }
+
+    /**
+     * Add the delta to the used bytes, a growth over the limit is rolled back and rejected
+     *
+     * @return the delta
+     */
+    private long reserve(long delta) {
+        long used = usedBytes.addAndGet(delta);
+        if (limit > 0 && delta > 0 && used > limit) {
+            usedBytes.addAndGet(-delta);
+            throw new MemoryLimitExceeded("Writing " + delta + " bytes exceeds the limit of " + limit + " bytes");
+        }
+        return delta;
+    }
+
+    private static long size(String key, Optional<ValueWithExpirationTime> value) {
+        return value.map(v -> size(key, v.getValue())).orElse(0L);
+    }
+
+    private static long size(String key, String value) {
+        return 2L * (key.length() + value.length()) + PAIR_OVERHEAD;
+    }
+}
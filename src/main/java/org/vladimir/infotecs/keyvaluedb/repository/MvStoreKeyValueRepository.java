@@ -0,0 +1,324 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.BasicDataType;
+import org.h2.mvstore.type.StringDataType;
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A repository implementation that stores key-value pairs in the H2 {@link MVStore} maps directly, without SQL.
+ * <p>
+ * Pairs are stored in the sorted {@code values} map, so key ranges are read without a full scan. The
+ * {@code expirations} map indexes pairs with a finite expiration time by {@code expiration time + key},
+ * outdated pairs are removed without scanning the live ones. Changes are committed to the file in the background
+ * every {@code commitDelay} ms and on {@link #close()}, changes of the last delay may be lost on a crash.
+ * Single operations are thread safe, operations changing both maps must be synchronized by the caller.
+ * </p>
+ */
+public class MvStoreKeyValueRepository implements KeyValueRepository, AutoCloseable {
+
+    private static final int TIME_DIGITS = 19;
+    private static final String INDEXED = "";
+
+    private final MVStore store;
+    private final MVMap<String, ValueWithExpirationTime> values;
+    private final MVMap<String, String> expirations;
+
+    /**
+     * @param fileName    file of the store, null for an in-memory store
+     * @param commitDelay max delay of the background commit in ms
+     * @param cacheSizeMb page cache size in MB
+     */
+    public MvStoreKeyValueRepository(String fileName, int commitDelay, int cacheSizeMb) {
+        var builder = new MVStore.Builder().cacheSize(cacheSizeMb);
+        if (fileName != null) {
+            createParentDirectories(fileName);
+            builder.fileName(fileName);
+        }
+        this.store = builder.open();
+        this.store.setAutoCommitDelay(commitDelay);
+        this.values = store.openMap("values", new MVMap.Builder<String, ValueWithExpirationTime>()
+                .keyType(StringDataType.INSTANCE)
+                .valueType(new ValueDataType()));
+        this.expirations = store.openMap("expirations", new MVMap.Builder<String, String>()
+                .keyType(StringDataType.INSTANCE)
+                .valueType(StringDataType.INSTANCE));
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> get(String key) {
+        return Optional.ofNullable(values.get(key));
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key) {
+        return getIfNotOutdated(key, currentTimeMillis());
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key, long time) {
+        return get(key).filter(value -> value.getExpirationTime() >= time);
+    }
+
+    @Override
+    public void put(String key, String value, long expirationTime) {
+        put(key, new ValueWithExpirationTime(value, expirationTime));
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> compute(String key, long time,
+                                                     UnaryOperator<Optional<ValueWithExpirationTime>> remappingFunction) {
+        var current = getIfNotOutdated(key, time);
+        var result = remappingFunction.apply(current);
+        if (!result.equals(current)) {
+            if (result.isPresent()) {
+                put(key, result.get());
+            } else {
+                removeAndReturn(key);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean remove(String key) {
+        return removeAndReturn(key).isPresent();
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturn(String key) {
+        var removed = values.remove(key);
+        unindex(key, removed);
+        return Optional.ofNullable(removed);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key) {
+        return removeAndReturnIfNotOutdated(key, currentTimeMillis());
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key, long time) {
+        return removeAndReturn(key).filter(value -> value.getExpirationTime() >= time);
+    }
+
+    @Override
+    public Map<String, ValueWithExpirationTime> getAll() {
+        return new HashMap<>(values);
+    }
+
+    @Override
+    public void addAll(Map<String, ValueWithExpirationTime> map) {
+        map.forEach(this::put);
+    }
+
+    @Override
+    public void removeAllOutdatedPairs() {
+        removeAllOutdatedPairs(currentTimeMillis());
+    }
+
+    @Override
+    public void removeAllOutdatedPairs(long time) {
+        removeAllOutdatedPairsAndReturnKeys(time);
+    }
+
+    @Override
+    public List<String> removeAllOutdatedPairsAndReturnKeys(long time) {
+        List<String> keys = new ArrayList<>();
+        List<String> indexKeys = new ArrayList<>();
+        var iterator = expirations.keyIterator(null);
+        while (iterator.hasNext()) {
+            String indexKey = iterator.next();
+            if (Long.parseLong(indexKey, 0, TIME_DIGITS, 10) >= time) {
+                break;
+            }
+            indexKeys.add(indexKey);
+            keys.add(indexKey.substring(TIME_DIGITS));
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            values.remove(keys.get(i));
+            expirations.remove(indexKeys.get(i));
+        }
+        return keys;
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return 1;
+    }
+
+    /**
+     * Reads the expirations index from the beginning, only outdated pairs are visited and the cursor is ignored.
+     * The index covers all the pairs, so the first step of a sweep reports their number as scanned
+     */
+    @Override
+    public OutdatedKeys findOutdatedKeys(int segment, String after, int limit, long time) {
+        long scanned = after == null ? values.sizeAsLong() : 0;
+        List<String> keys = new ArrayList<>();
+        var iterator = expirations.keyIterator(null);
+        while (iterator.hasNext()) {
+            String indexKey = iterator.next();
+            if (Long.parseLong(indexKey, 0, TIME_DIGITS, 10) >= time) {
+                break;
+            }
+            String key = indexKey.substring(TIME_DIGITS);
+            keys.add(key);
+            if (keys.size() == limit) {
+                return new OutdatedKeys(keys, scanned, key);
+            }
+        }
+        return new OutdatedKeys(keys, scanned, null);
+    }
+
+    @Override
+    public List<String> removeOutdatedPairs(Collection<String> keys, long time) {
+        List<String> removed = new ArrayList<>();
+        for (String key : keys) {
+            var value = values.get(key);
+            if (value != null && value.getExpirationTime() < time) {
+                removeAndReturn(key);
+                removed.add(key);
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public List<String> getKeysInRange(String from, String to, int limit, long time) {
+        return keysFrom(from, key -> to == null || key.compareTo(to) < 0, limit, time);
+    }
+
+    @Override
+    public List<String> getKeysByPrefix(String prefix, int limit, long time) {
+        return keysFrom(prefix, key -> key.startsWith(prefix), limit, time);
+    }
+
+    @Override
+    public void clear() {
+        values.clear();
+        expirations.clear();
+    }
+
+    @Override
+    public boolean supportsOrderedScan() {
+        return true;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * Commits pending changes and closes the store
+     */
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    private void put(String key, ValueWithExpirationTime value) {
+        unindex(key, values.put(key, value));
+        if (value.getExpirationTime() != ValueWithExpirationTime.NEVER_EXPIRES) {
+            expirations.put(indexKey(key, value.getExpirationTime()), INDEXED);
+        }
+    }
+
+    private void unindex(String key, ValueWithExpirationTime value) {
+        if (value != null && value.getExpirationTime() != ValueWithExpirationTime.NEVER_EXPIRES) {
+            expirations.remove(indexKey(key, value.getExpirationTime()));
+        }
+    }
+
+    private List<String> keysFrom(String from, Predicate<String> inRange, int limit, long time) {
+        List<String> keys = new ArrayList<>();
+        var cursor = values.cursor(from);
+        while (keys.size() < limit && cursor.hasNext()) {
+            String key = cursor.next();
+            if (!inRange.test(key)) {
+                break;
+            }
+            if (cursor.getValue().getExpirationTime() >= time) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private static void createParentDirectories(String fileName) {
+        Path parent = Path.of(fileName).toAbsolutePath().getParent();
+        try {
+            Files.createDirectories(parent);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't create the store directory " + parent, e);
+        }
+    }
+
+    // zero padded, so the index is sorted by the expiration time
+    private static String indexKey(String key, long expirationTime) {
+        String time = Long.toString(Math.max(0, expirationTime));
+        return "0".repeat(TIME_DIGITS - time.length()) + time + key;
+    }
+
+    private long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Serializes pairs as the value string, the expiration time, the optional sliding ttl and the optional version.
+     * The expiration time of a versioned pair is written inverted, so pairs written before the versioning,
+     * whose expiration time is never negative, are read as well
+     */
+    private static final class ValueDataType extends BasicDataType<ValueWithExpirationTime> {
+
+        @Override
+        public int getMemory(ValueWithExpirationTime value) {
+            return 64 + 2 * value.getValue().length();
+        }
+
+        @Override
+        public void write(WriteBuffer buffer, ValueWithExpirationTime value) {
+            StringDataType.INSTANCE.write(buffer, value.getValue());
+            Long version = value.getVersion();
+            buffer.putLong(version == null ? value.getExpirationTime() : ~value.getExpirationTime());
+            Long slidingTtl = value.getSlidingTtl();
+            buffer.putVarLong(slidingTtl == null ? 0 : slidingTtl + 1);
+            if (version != null) {
+                buffer.putVarLong(version);
+            }
+        }
+
+        @Override
+        public ValueWithExpirationTime read(ByteBuffer buffer) {
+            String value = StringDataType.INSTANCE.read(buffer);
+            long expirationTime = buffer.getLong();
+            long slidingTtl = DataUtils.readVarLong(buffer);
+            Long version = expirationTime < 0 ? DataUtils.readVarLong(buffer) : null;
+            return new ValueWithExpirationTime(value, expirationTime < 0 ? ~expirationTime : expirationTime,
+                    slidingTtl == 0 ? null : slidingTtl - 1, version);
+        }
+
+        @Override
+        public ValueWithExpirationTime[] createStorage(int size) {
+            return new ValueWithExpirationTime[size];
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link KeyValueRepository} decorator that maintains an ordered index of keys (key to expiration time)
+ * in a {@link ConcurrentSkipListMap} alongside the underlying repository.
+ * <p>
+ * Prefix and range queries are served from the index in O(log n + k), where k is the number of visited keys,
+ * instead of a full scan of the underlying repository. Index reads don't need external synchronization,
+ * modifications must be synchronized the same way as for the underlying repository.
+ * </p>
+ */
+public class OrderedIndexKeyValueRepository implements KeyValueRepository {
+
+    private final KeyValueRepository repository;
+    private final ConcurrentSkipListMap<String, Long> index = new ConcurrentSkipListMap<>();
+
+    public OrderedIndexKeyValueRepository(KeyValueRepository repository) {
+        this.repository = repository;
+        repository.getAll().forEach((key, value) -> index.put(key, value.getExpirationTime()));
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> get(String key) {
+        return repository.get(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key) {
+        return repository.getIfNotOutdated(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key, long time) {
+        return repository.getIfNotOutdated(key, time);
+    }
+
+    @Override
+    public void put(String key, String value, long expirationTime) {
+        repository.put(key, value, expirationTime);
+        index.put(key, expirationTime);
+    }
+
+    /**
+     * The index is updated within the per-key update of the underlying repository, so concurrent computes of the
+     * same key leave the index entry of the last one
+     */
+    @Override
+    public Optional<ValueWithExpirationTime> compute(String key, long time,
+                                                     UnaryOperator<Optional<ValueWithExpirationTime>> remappingFunction) {
+        return repository.compute(key, time, current -> {
+            var result = remappingFunction.apply(current);
+            if (result.isPresent()) {
+                index.put(key, result.get().getExpirationTime());
+            } else {
+                index.remove(key);
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public boolean supportsConcurrentCompute() {
+        return repository.supportsConcurrentCompute();
+    }
+
+    @Override
+    public boolean remove(String key) {
+        index.remove(key);
+        return repository.remove(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturn(String key) {
+        index.remove(key);
+        return repository.removeAndReturn(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key) {
+        index.remove(key);
+        return repository.removeAndReturnIfNotOutdated(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key, long time) {
+        index.remove(key);
+        return repository.removeAndReturnIfNotOutdated(key, time);
+    }
+
+    @Override
+    public Map<String, ValueWithExpirationTime> getAll() {
+        return repository.getAll();
+    }
+
+    @Override
+    public void addAll(Map<String, ValueWithExpirationTime> map) {
+        repository.addAll(map);
+        map.forEach((key, value) -> index.put(key, value.getExpirationTime()));
+    }
+
+    @Override
+    public void removeAllOutdatedPairs() {
+        removeAllOutdatedPairs(System.currentTimeMillis());
+    }
+
+    @Override
+    public void removeAllOutdatedPairs(long time) {
+        repository.removeAllOutdatedPairs(time);
+        index.values().removeIf(expirationTime -> expirationTime < time);
+    }
+
+    @Override
+    public List<String> removeAllOutdatedPairsAndReturnKeys(long time) {
+        var keys = repository.removeAllOutdatedPairsAndReturnKeys(time);
+        keys.forEach(index::remove);
+        return keys;
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return repository.getSegmentCount();
+    }
+
+    @Override
+    public OutdatedKeys findOutdatedKeys(int segment, String after, int limit, long time) {
+        return repository.findOutdatedKeys(segment, after, limit, time);
+    }
+
+    @Override
+    public List<String> removeOutdatedPairs(Collection<String> keys, long time) {
+        var removed = repository.removeOutdatedPairs(keys, time);
+        removed.forEach(index::remove);
+        return removed;
+    }
+
+    @Override
+    public List<String> getKeysInRange(String from, String to, int limit, long time) {
+        NavigableMap<String, Long> range;
+        if (from != null && to != null) {
+            if (from.compareTo(to) >= 0) {
+                return List.of();
+            }
+            range = index.subMap(from, true, to, false);
+        } else if (from != null) {
+            range = index.tailMap(from, true);
+        } else if (to != null) {
+            range = index.headMap(to, false);
+        } else {
+            range = index;
+        }
+        List<String> keys = new ArrayList<>(Math.min(limit, 64));
+        for (var entry : range.entrySet()) {
+            if (keys.size() >= limit) {
+                break;
+            }
+            if (entry.getValue() >= time) {
+                keys.add(entry.getKey());
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public List<String> getKeysByPrefix(String prefix, int limit, long time) {
+        List<String> keys = new ArrayList<>(Math.min(limit, 64));
+        for (var entry : index.tailMap(prefix, true).entrySet()) {
+            if (keys.size() >= limit || !entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            if (entry.getValue() >= time) {
+                keys.add(entry.getKey());
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public void clear() {
+        repository.clear();
+        index.clear();
+    }
+
+    @Override
+    public boolean supportsOrderedScan() {
+        return true;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return repository.contains(key);
+    }
+}
@@ -0,0 +1,218 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+import org.vladimir.infotecs.keyvaluedb.model.ReplicationOperation;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link KeyValueRepository} decorator that records every modification to the {@link ReplicationLog}
+ * after it is applied to the underlying repository.
+ * <p>
+ * Outside a transaction operations are logged in the order the repository is called, so the caller is responsible
+ * for serializing writes (e.g. the write lock of the service). Within a Spring transaction they are logged after
+ * the commit in the commit order and aren't logged on rollback, see {@link AfterCommit}.
+ * </p>
+ */
+public class ReplicatingKeyValueRepository implements KeyValueRepository {
+
+    private final KeyValueRepository repository;
+    private final ReplicationLog replicationLog;
+
+    public ReplicatingKeyValueRepository(KeyValueRepository repository, ReplicationLog replicationLog) {
+        this.repository = repository;
+        this.replicationLog = replicationLog;
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> get(String key) {
+        return repository.get(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key) {
+        return repository.getIfNotOutdated(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key, long time) {
+        return repository.getIfNotOutdated(key, time);
+    }
+
+    @Override
+    public void put(String key, String value, long expirationTime) {
+        repository.put(key, value, expirationTime);
+        append(ReplicationOperation.Type.SET, key, value, expirationTime, null);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> compute(String key, long time,
+                                                     UnaryOperator<Optional<ValueWithExpirationTime>> remappingFunction) {
+        var changed = new boolean[1];
+        var result = repository.compute(key, time, current -> {
+            var value = remappingFunction.apply(current);
+            changed[0] = !value.equals(current) && !isCoalescedTouch(current, value);
+            return value;
+        });
+        if (changed[0]) {
+            if (result.isPresent()) {
+                append(ReplicationOperation.Type.SET, key,
+                        result.get().getValue(), result.get().getExpirationTime(), result.get().getVersion());
+            } else {
+                append(ReplicationOperation.Type.DELETE, key, null, null, null);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public ValueWithExpirationTime putVersioned(String key, ValueWithExpirationTime value) {
+        var result = repository.putVersioned(key, value);
+        append(ReplicationOperation.Type.SET, key, result.getValue(), result.getExpirationTime(), result.getVersion());
+        return result;
+    }
+
+    @Override
+    public boolean remove(String key) {
+        boolean removed = repository.remove(key);
+        if (removed) {
+            append(ReplicationOperation.Type.DELETE, key, null, null, null);
+        }
+        return removed;
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturn(String key) {
+        var value = repository.removeAndReturn(key);
+        if (value.isPresent()) {
+            append(ReplicationOperation.Type.DELETE, key, null, null, null);
+        }
+        return value;
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key) {
+        return removeAndReturnIfNotOutdated(key, System.currentTimeMillis());
+    }
+
+    /**
+     * An outdated pair is removed too, the delete is logged only if a pair was removed
+     */
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key, long time) {
+        return removeAndReturn(key).filter(value -> value.getExpirationTime() >= time);
+    }
+
+    @Override
+    public Map<String, ValueWithExpirationTime> getAll() {
+        return repository.getAll();
+    }
+
+    @Override
+    public List<String> getKeysInRange(String from, String to, int limit, long time) {
+        return repository.getKeysInRange(from, to, limit, time);
+    }
+
+    @Override
+    public List<String> getKeysByPrefix(String prefix, int limit, long time) {
+        return repository.getKeysByPrefix(prefix, limit, time);
+    }
+
+    @Override
+    public void addAll(Map<String, ValueWithExpirationTime> map) {
+        repository.addAll(map);
+        for (var entry : map.entrySet()) {
+            var value = entry.getValue();
+            append(ReplicationOperation.Type.SET, entry.getKey(), value.getValue(), value.getExpirationTime(),
+                    value.getVersion());
+        }
+    }
+
+    @Override
+    public void removeAllOutdatedPairs() {
+        removeAllOutdatedPairs(System.currentTimeMillis());
+    }
+
+    @Override
+    public void removeAllOutdatedPairs(long time) {
+        repository.removeAllOutdatedPairs(time);
+        append(ReplicationOperation.Type.EXPIRE, null, null, time, null);
+    }
+
+    @Override
+    public List<String> removeAllOutdatedPairsAndReturnKeys(long time) {
+        var keys = repository.removeAllOutdatedPairsAndReturnKeys(time);
+        append(ReplicationOperation.Type.EXPIRE, null, null, time, null);
+        return keys;
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return repository.getSegmentCount();
+    }
+
+    @Override
+    public OutdatedKeys findOutdatedKeys(int segment, String after, int limit, long time) {
+        return repository.findOutdatedKeys(segment, after, limit, time);
+    }
+
+    /**
+     * Removed keys are logged as deletes, so a replica doesn't scan its storage for every batch
+     */
+    @Override
+    public List<String> removeOutdatedPairs(Collection<String> keys, long time) {
+        var removed = repository.removeOutdatedPairs(keys, time);
+        for (String key : removed) {
+            append(ReplicationOperation.Type.DELETE, key, null, null, null);
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        repository.clear();
+        append(ReplicationOperation.Type.CLEAR, null, null, null, null);
+    }
+
+    @Override
+    public boolean supportsOrderedScan() {
+        return repository.supportsOrderedScan();
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return repository.contains(key);
+    }
+
+    /**
+     * Every read of a sliding pair renews its expiration time. Such renewals are logged only when the expiration
+     * time moves to the next half of the sliding TTL interval, so a pair read in a loop adds two operations per TTL
+     * instead of one per read. The expiration time known to replicas stays at least half of the TTL ahead of the
+     * last read, a replica may expire an unread pair up to half of the TTL earlier than the primary
+     */
+    private static boolean isCoalescedTouch(Optional<ValueWithExpirationTime> current,
+                                            Optional<ValueWithExpirationTime> value) {
+        if (current.isEmpty() || value.isEmpty() || value.get().getSlidingTtl() == null) {
+            return false;
+        }
+        var before = current.get();
+        var after = value.get();
+        if (!after.getSlidingTtl().equals(before.getSlidingTtl()) || !Objects.equals(after.getVersion(), before.getVersion())
+                || !after.getValue().equals(before.getValue())) {
+            return false;
+        }
+        long interval = Math.max(1, after.getSlidingTtl() / 2);
+        return before.getExpirationTime() / interval == after.getExpirationTime() / interval;
+    }
+
+    private void append(ReplicationOperation.Type type, String key, String value, Long expirationTime,
+                        Long version) {
+        AfterCommit.run(() -> replicationLog.append(type, key, value, expirationTime, version));
+    }
+}
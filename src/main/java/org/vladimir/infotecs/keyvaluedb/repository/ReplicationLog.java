@@ -0,0 +1,90 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+import org.vladimir.infotecs.keyvaluedb.model.ReplicationOperation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bounded in-memory log of the primary's write operations.
+ * <p>
+ * Operations get consecutive offsets starting from 1. Only the last {@code capacity} operations are kept,
+ * a replica that falls further behind must bootstrap again from a snapshot.
+ * The replication id changes on every restart of the primary, so replicas can detect that offsets were reset.
+ * </p>
+ */
+public class ReplicationLog {
+
+    private final String replicationId = UUID.randomUUID().toString();
+    private final ReplicationOperation[] ring;
+    private long lastOffset = 0;
+    private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
+    private final Lock readLock = rwl.readLock();
+    private final Lock writeLock = rwl.writeLock();
+
+    public ReplicationLog(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Replication log capacity must be positive");
+        }
+        this.ring = new ReplicationOperation[capacity];
+    }
+
+    public long append(ReplicationOperation.Type type, String key, String value, Long expirationTime,
+                       Long version) {
+        writeLock.lock();
+        try {
+            long offset = ++lastOffset;
+            ring[(int) (offset % ring.length)] = new ReplicationOperation(offset, type, key, value, expirationTime,
+                    version);
+            return offset;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Read operations following the provided offset
+     *
+     * @param afterOffset offset of the last operation the reader already has, 0 to read from the beginning
+     * @param limit       max number of operations to return
+     * @return operations in offset order, or an empty Optional if the requested operations were already evicted
+     * from the log (or were never written) and the reader must bootstrap from a snapshot
+     */
+    public Optional<List<ReplicationOperation>> readAfter(long afterOffset, int limit) {
+        readLock.lock();
+        try {
+            if (afterOffset > lastOffset || afterOffset < lastOffset - ring.length) {
+                return Optional.empty();
+            }
+            long toOffset = Math.min(lastOffset, afterOffset + limit);
+            List<ReplicationOperation> operations = new ArrayList<>((int) (toOffset - afterOffset));
+            for (long offset = afterOffset + 1; offset <= toOffset; offset++) {
+                operations.add(ring[(int) (offset % ring.length)]);
+            }
+            return Optional.of(operations);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public long getLastOffset() {
+        readLock.lock();
+        try {
+            return lastOffset;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public String getReplicationId() {
+        return replicationId;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+}
@@ -0,0 +1,72 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Resumable positions of the incremental expiration scans of unordered repositories, one per segment.
+ * <p>
+ * A scan keeps the iterator over the segment between the steps and returns a token of it as the cursor, so a step
+ * continues where the previous one stopped and a sweep visits every pair once. A step visits at most
+ * {@code limit} pairs. A new scan of the segment replaces the previous one, a step with the token of a replaced scan
+ * finds nothing and ends the segment, the next sweep starts it over.
+ * </p>
+ *
+ * @param <E> entries of the segment
+ */
+final class SweepPositions<E> {
+
+    private final AtomicLong tokens = new AtomicLong();
+    private final AtomicReferenceArray<Position<E>> positions;
+    private final Function<E, String> key;
+    private final ToLongFunction<E> expirationTime;
+
+    SweepPositions(int segmentCount, Function<E, String> key, ToLongFunction<E> expirationTime) {
+        this.positions = new AtomicReferenceArray<>(segmentCount);
+        this.key = key;
+        this.expirationTime = expirationTime;
+    }
+
+    /**
+     * @param start iterator over the segment, called when a new scan starts
+     */
+    OutdatedKeys next(int segment, String after, int limit, long time, Supplier<Iterator<E>> start) {
+        Iterator<E> iterator;
+        if (after == null) {
+            iterator = start.get();
+        } else {
+            Position<E> position = positions.get(segment);
+            if (position == null || !position.token.equals(after)) {
+                return new OutdatedKeys(new ArrayList<>(), 0, null);
+            }
+            iterator = position.iterator;
+        }
+        List<String> keys = new ArrayList<>();
+        long scanned = 0;
+        while (scanned < limit && iterator.hasNext()) {
+            E entry = iterator.next();
+            scanned++;
+            if (expirationTime.applyAsLong(entry) < time) {
+                keys.add(key.apply(entry));
+            }
+        }
+        if (!iterator.hasNext()) {
+            positions.set(segment, null);
+            return new OutdatedKeys(keys, scanned, null);
+        }
+        String token = String.valueOf(tokens.incrementAndGet());
+        positions.set(segment, new Position<>(token, iterator));
+        return new OutdatedKeys(keys, scanned, token);
+    }
+
+    private record Position<E>(String token, Iterator<E> iterator) {
+    }
+}
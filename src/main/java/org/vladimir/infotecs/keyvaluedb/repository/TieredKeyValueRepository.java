@@ -0,0 +1,460 @@
+package org.vladimir.infotecs.keyvaluedb.repository;
+
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A repository implementation that keeps recently accessed pairs in the heap and spills cold ones to a memory-mapped
+ * file.
+ * <p>
+ * The hot tier is an access ordered {@link LinkedHashMap} of at most {@code hotCapacity} pairs. Writes go to the hot
+ * tier, the least recently used pair is appended to the {@link MappedColdStore} file when the tier is full, only its
+ * offset, length and expiration stay in the heap. A cold pair is promoted back to the hot tier on the
+ * {@code promoteAfterReads}-th {@code getIfNotOutdated} call, other reads leave it in the file. Expiration sweeps
+ * and key scans use the in-heap expiration of cold pairs and don't read the file. Space of removed and promoted
+ * cold pairs is reclaimed by rewriting the live ones to a new file when it's larger than the live space and
+ * a segment.
+ * The file is temporary, the pairs aren't persisted across restarts.
+ * Thread safe, reads are serialized too as they change the access order.
+ * </p>
+ */
+public class TieredKeyValueRepository implements KeyValueRepository, AutoCloseable {
+
+    private final int hotCapacity;
+    private final int promoteAfterReads;
+    private final Path directory;
+    private final int segmentSize;
+
+    private final LinkedHashMap<String, ValueWithExpirationTime> hot;
+    private final Map<String, ColdPair> cold = new HashMap<>();
+    private final SweepPositions<Map.Entry<String, ?>> sweepPositions =
+            new SweepPositions<>(1, Map.Entry::getKey, entry -> entry.getValue() instanceof ColdPair pair
+                    ? pair.expirationTime
+                    : ((ValueWithExpirationTime) entry.getValue()).getExpirationTime());
+    private MappedColdStore store;
+    private long liveBytes;
+    private long deadBytes;
+    private long spills;
+    private long promotions;
+
+    /**
+     * @param hotCapacity       max number of pairs in the heap
+     * @param promoteAfterReads number of reads of a cold pair to move it back to the heap, 1 to promote on every read
+     * @param directory         directory of the cold file, null for the default temporary directory
+     * @param segmentSize       size of the file regions mapped at once, in bytes
+     */
+    public TieredKeyValueRepository(int hotCapacity, int promoteAfterReads, Path directory, int segmentSize) {
+        if (hotCapacity < 1 || promoteAfterReads < 1) {
+            throw new IllegalArgumentException("Hot capacity and promotion reads must be positive");
+        }
+        this.hotCapacity = hotCapacity;
+        this.promoteAfterReads = promoteAfterReads;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.hot = new LinkedHashMap<>(16, 0.75f, true);
+        this.store = openStore();
+    }
+
+    public synchronized int getHotSize() {
+        return hot.size();
+    }
+
+    public synchronized int getColdSize() {
+        return cold.size();
+    }
+
+    /**
+     * @return size of the cold values in bytes, without the space of removed ones
+     */
+    public synchronized long getColdBytes() {
+        return liveBytes;
+    }
+
+    public synchronized long getFileSize() {
+        return store.getFileSize();
+    }
+
+    public synchronized long getSpills() {
+        return spills;
+    }
+
+    public synchronized long getPromotions() {
+        return promotions;
+    }
+
+    /**
+     * Doesn't count as a read for the promotion, so full copies of the storage don't promote cold pairs
+     */
+    @Override
+    public synchronized Optional<ValueWithExpirationTime> get(String key) {
+        return peek(key);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key) {
+        return getIfNotOutdated(key, currentTimeMillis());
+    }
+
+    @Override
+    public synchronized Optional<ValueWithExpirationTime> getIfNotOutdated(String key, long time) {
+        return read(key, time);
+    }
+
+    @Override
+    public synchronized void put(String key, String value, long expirationTime) {
+        putHot(key, new ValueWithExpirationTime(value, expirationTime));
+    }
+
+    @Override
+    public synchronized Optional<ValueWithExpirationTime> compute(String key, long time,
+                                                                  UnaryOperator<Optional<ValueWithExpirationTime>> remappingFunction) {
+        var current = peek(key).filter(value -> value.getExpirationTime() >= time);
+        var result = remappingFunction.apply(current);
+        if (!result.equals(current)) {
+            if (result.isPresent()) {
+                putHot(key, result.get());
+            } else {
+                removeAndReturn(key);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized boolean remove(String key) {
+        if (hot.remove(key) != null) {
+            return true;
+        }
+        ColdPair pair = cold.remove(key);
+        if (pair == null) {
+            return false;
+        }
+        release(pair);
+        return true;
+    }
+
+    @Override
+    public synchronized Optional<ValueWithExpirationTime> removeAndReturn(String key) {
+        var value = hot.remove(key);
+        if (value != null) {
+            return Optional.of(value);
+        }
+        ColdPair pair = cold.remove(key);
+        if (pair == null) {
+            return Optional.empty();
+        }
+        value = load(pair);
+        release(pair);
+        return Optional.of(value);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key) {
+        return removeAndReturnIfNotOutdated(key, currentTimeMillis());
+    }
+
+    @Override
+    public synchronized Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key, long time) {
+        return removeAndReturn(key).filter(value -> value.getExpirationTime() >= time);
+    }
+
+    @Override
+    public synchronized Map<String, ValueWithExpirationTime> getAll() {
+        Map<String, ValueWithExpirationTime> result = new HashMap<>(hot);
+        cold.forEach((key, pair) -> result.put(key, load(pair)));
+        return result;
+    }
+
+    @Override
+    public synchronized void addAll(Map<String, ValueWithExpirationTime> map) {
+        map.forEach(this::putHot);
+    }
+
+    @Override
+    public void removeAllOutdatedPairs() {
+        removeAllOutdatedPairs(currentTimeMillis());
+    }
+
+    @Override
+    public void removeAllOutdatedPairs(long time) {
+        removeAllOutdatedPairsAndReturnKeys(time);
+    }
+
+    @Override
+    public synchronized List<String> removeAllOutdatedPairsAndReturnKeys(long time) {
+        List<String> keys = new ArrayList<>();
+        var hotIterator = hot.entrySet().iterator();
+        while (hotIterator.hasNext()) {
+            var entry = hotIterator.next();
+            if (entry.getValue().getExpirationTime() < time) {
+                keys.add(entry.getKey());
+                hotIterator.remove();
+            }
+        }
+        var coldIterator = cold.entrySet().iterator();
+        while (coldIterator.hasNext()) {
+            var entry = coldIterator.next();
+            if (entry.getValue().expirationTime < time) {
+                keys.add(entry.getKey());
+                coldIterator.remove();
+                deadBytes += entry.getValue().length;
+                liveBytes -= entry.getValue().length;
+            }
+        }
+        compactIfNeeded();
+        return keys;
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return 1;
+    }
+
+    /**
+     * A sweep iterates over a copy of the entries of both tiers taken by its first step, as the access order of
+     * the hot tier changes on reads. A step visits at most {@code limit} pairs, the entries of pairs changed after
+     * the copy may be stale, {@link #removeOutdatedPairs} checks the pairs again
+     */
+    @Override
+    public synchronized OutdatedKeys findOutdatedKeys(int segment, String after, int limit, long time) {
+        return sweepPositions.next(segment, after, limit, time, () -> {
+            List<Map.Entry<String, ?>> entries = new ArrayList<>(hot.size() + cold.size());
+            entries.addAll(hot.entrySet());
+            entries.addAll(cold.entrySet());
+            return entries.iterator();
+        });
+    }
+
+    @Override
+    public synchronized List<String> removeOutdatedPairs(Collection<String> keys, long time) {
+        List<String> removed = new ArrayList<>();
+        for (String key : keys) {
+            var value = hot.get(key);
+            if (value != null) {
+                if (value.getExpirationTime() < time) {
+                    hot.remove(key);
+                    removed.add(key);
+                }
+                continue;
+            }
+            ColdPair pair = cold.get(key);
+            if (pair != null && pair.expirationTime < time) {
+                cold.remove(key);
+                release(pair);
+                removed.add(key);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Full scan of both tiers, O(n log k) time and O(k) memory
+     */
+    @Override
+    public synchronized List<String> getKeysInRange(String from, String to, int limit, long time) {
+        return smallestKeys(key -> (from == null || key.compareTo(from) >= 0) && (to == null || key.compareTo(to) < 0),
+                limit, time);
+    }
+
+    /**
+     * Full scan of both tiers, O(n log k) time and O(k) memory
+     */
+    @Override
+    public synchronized List<String> getKeysByPrefix(String prefix, int limit, long time) {
+        return smallestKeys(key -> key.startsWith(prefix), limit, time);
+    }
+
+    @Override
+    public synchronized void clear() {
+        hot.clear();
+        cold.clear();
+        replaceStore(openStore());
+        liveBytes = 0;
+        deadBytes = 0;
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return hot.containsKey(key) || cold.containsKey(key);
+    }
+
+    /**
+     * Deletes the cold file
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            store.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't delete the cold storage file", e);
+        }
+    }
+
+    private Optional<ValueWithExpirationTime> read(String key, long time) {
+        var value = hot.get(key);
+        if (value != null) {
+            return value.getExpirationTime() >= time ? Optional.of(value) : Optional.empty();
+        }
+        ColdPair pair = cold.get(key);
+        if (pair == null || pair.expirationTime < time) {
+            return Optional.empty();
+        }
+        value = load(pair);
+        if (++pair.reads >= promoteAfterReads) {
+            cold.remove(key);
+            release(pair);
+            promotions++;
+            putHot(key, value);
+        }
+        return Optional.of(value);
+    }
+
+    /**
+     * Reads the pair without counting the read for the promotion
+     */
+    private Optional<ValueWithExpirationTime> peek(String key) {
+        var value = hot.get(key);
+        if (value != null) {
+            return Optional.of(value);
+        }
+        return Optional.ofNullable(cold.get(key)).map(this::load);
+    }
+
+    private void putHot(String key, ValueWithExpirationTime value) {
+        ColdPair pair = cold.remove(key);
+        if (pair != null) {
+            release(pair);
+        }
+        hot.put(key, value);
+        if (hot.size() > hotCapacity) {
+            var eldest = hot.entrySet().iterator();
+            var entry = eldest.next();
+            eldest.remove();
+            spill(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void spill(String key, ValueWithExpirationTime value) {
+        byte[] bytes = value.getValue().getBytes(StandardCharsets.UTF_8);
+        try {
+            cold.put(key, new ColdPair(store.append(bytes), bytes.length, value.getExpirationTime(),
+                    value.getSlidingTtl(), value.getVersion()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't write the cold storage file", e);
+        }
+        liveBytes += bytes.length;
+        spills++;
+    }
+
+    private ValueWithExpirationTime load(ColdPair pair) {
+        String value = new String(store.read(pair.address, pair.length), StandardCharsets.UTF_8);
+        return new ValueWithExpirationTime(value, pair.expirationTime, pair.slidingTtl, pair.version);
+    }
+
+    private void release(ColdPair pair) {
+        liveBytes -= pair.length;
+        deadBytes += pair.length;
+        compactIfNeeded();
+    }
+
+    /**
+     * Rewrites the live cold pairs to a new file when most of the file is garbage
+     */
+    private void compactIfNeeded() {
+        if (deadBytes < segmentSize || deadBytes < liveBytes) {
+            return;
+        }
+        var compacted = openStore();
+        try {
+            for (ColdPair pair : cold.values()) {
+                pair.address = compacted.append(store.read(pair.address, pair.length));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't write the cold storage file", e);
+        }
+        replaceStore(compacted);
+        deadBytes = 0;
+    }
+
+    private MappedColdStore openStore() {
+        try {
+            return new MappedColdStore(directory, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't create the cold storage file", e);
+        }
+    }
+
+    private void replaceStore(MappedColdStore newStore) {
+        var oldStore = store;
+        store = newStore;
+        try {
+            oldStore.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't delete the cold storage file", e);
+        }
+    }
+
+    private List<String> smallestKeys(Predicate<String> filter, int limit, long time) {
+        // Max-heap keeps the smallest keys seen so far
+        PriorityQueue<String> heap = new PriorityQueue<>(Comparator.reverseOrder());
+        hot.forEach((key, value) -> offer(heap, key, value.getExpirationTime(), filter, limit, time));
+        cold.forEach((key, pair) -> offer(heap, key, pair.expirationTime, filter, limit, time));
+        List<String> keys = new ArrayList<>(heap);
+        keys.sort(null);
+        return keys;
+    }
+
+    private static void offer(PriorityQueue<String> heap, String key, long expirationTime, Predicate<String> filter,
+                              int limit, long time) {
+        if (expirationTime < time || !filter.test(key)) {
+            return;
+        }
+        if (heap.size() < limit) {
+            heap.add(key);
+        } else if (limit > 0 && key.compareTo(heap.peek()) < 0) {
+            heap.poll();
+            heap.add(key);
+        }
+    }
+
+    private long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Location, expiration and version of a pair in the cold file
+     */
+    private static final class ColdPair {
+
+        private long address;
+        private final int length;
+        private final long expirationTime;
+        private final Long slidingTtl;
+        private final Long version;
+        private int reads;
+
+        ColdPair(long address, int length, long expirationTime, Long slidingTtl, Long version) {
+            this.address = address;
+            this.length = length;
+            this.expirationTime = expirationTime;
+            this.slidingTtl = slidingTtl;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.vladimir.infotecs.keyvaluedb.repository.lsm;
+
+import org.vladimir.infotecs.keyvaluedb.repository.KeyHash;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Bloom filter of the SSTable keys, about 1% false positives with 10 bits per key
+ */
+final class BloomFilter {
+
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASHES = 7;
+
+    private final long[] bits;
+    private final long bitCount;
+
+    private BloomFilter(long[] bits) {
+        this.bits = bits;
+        this.bitCount = (long) bits.length * Long.SIZE;
+    }
+
+    static BloomFilter create(int keyCount) {
+        return new BloomFilter(new long[(int) Math.max(1, ((long) keyCount * BITS_PER_KEY + 63) / 64)]);
+    }
+
+    void add(String key) {
+        long hash = KeyHash.of(key);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = bit(hash, i);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(String key) {
+        long hash = KeyHash.of(key);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = bit(hash, i);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(bits.length);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+    }
+
+    static BloomFilter read(DataInput in) throws IOException {
+        long[] bits = new long[in.readInt()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = in.readLong();
+        }
+        return new BloomFilter(bits);
+    }
+
+    // double hashing: the i-th hash is h1 + i * h2
+    private long bit(long hash, int i) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return Math.floorMod(h1 + (long) i * h2, bitCount);
+    }
+}
@@ -0,0 +1,96 @@
+package org.vladimir.infotecs.keyvaluedb.repository.lsm;
+
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Latest known state of a key: a pair or a tombstone of a removed pair
+ *
+ * @param value null for a tombstone
+ */
+record LsmEntry(String value, long expirationTime, Long slidingTtl, Long version) {
+
+    static final LsmEntry TOMBSTONE = new LsmEntry(null, 0, null, null);
+
+    private static final int TOMBSTONE_FLAG = 1;
+    private static final int SLIDING_FLAG = 2;
+    private static final int VERSION_FLAG = 4;
+
+    static LsmEntry of(ValueWithExpirationTime value) {
+        return new LsmEntry(value.getValue(), value.getExpirationTime(), value.getSlidingTtl(), value.getVersion());
+    }
+
+    boolean isTombstone() {
+        return value == null;
+    }
+
+    boolean isOutdated(long time) {
+        return value != null && expirationTime < time;
+    }
+
+    ValueWithExpirationTime toValue() {
+        return new ValueWithExpirationTime(value, expirationTime, slidingTtl, version);
+    }
+
+    /**
+     * Approximate heap size of the entry with its key
+     */
+    long estimatedSize(String key) {
+        return 96 + 2L * key.length() + (value == null ? 0 : 2L * value.length());
+    }
+
+    /**
+     * Record format: key length, UTF-8 key, flags, then for a pair the expiration time,
+     * the sliding ttl if present, the version if present, value length and UTF-8 value
+     */
+    static void write(DataOutput out, String key, LsmEntry entry) throws IOException {
+        writeBytes(out, key.getBytes(StandardCharsets.UTF_8));
+        int flags = (entry.isTombstone() ? TOMBSTONE_FLAG : 0) | (entry.slidingTtl() != null ? SLIDING_FLAG : 0)
+                | (entry.version() != null ? VERSION_FLAG : 0);
+        out.writeByte(flags);
+        if (entry.isTombstone()) {
+            return;
+        }
+        out.writeLong(entry.expirationTime());
+        if (entry.slidingTtl() != null) {
+            out.writeLong(entry.slidingTtl());
+        }
+        if (entry.version() != null) {
+            out.writeLong(entry.version());
+        }
+        writeBytes(out, entry.value().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String readKey(DataInput in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the rest of the record after {@link #readKey(DataInput)}
+     */
+    static LsmEntry readEntry(DataInput in) throws IOException {
+        int flags = in.readByte();
+        if ((flags & TOMBSTONE_FLAG) != 0) {
+            return TOMBSTONE;
+        }
+        long expirationTime = in.readLong();
+        Long slidingTtl = (flags & SLIDING_FLAG) != 0 ? in.readLong() : null;
+        Long version = (flags & VERSION_FLAG) != 0 ? in.readLong() : null;
+        return new LsmEntry(new String(readBytes(in), StandardCharsets.UTF_8), expirationTime, slidingTtl, version);
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,849 @@
+package org.vladimir.infotecs.keyvaluedb.repository.lsm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.repository.KeyValueRepository;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A repository implementation based on a log-structured merge tree in the directory.
+ * <p>
+ * Writes go to the write-ahead log and the in-memory sorted memtable. A memtable larger than {@code memtableSize}
+ * bytes becomes immutable and is flushed in the background to an immutable SSTable file with a bloom filter and
+ * a sparse index, a write waits only if the previous memtable is still being flushed. Removals are written as
+ * tombstones. Reads check the memtables, then the tables from the newest one. When there are
+ * {@code compactionThreshold} tables, the newest ones (with the older tables not larger than them together)
+ * are merged in the background into one table; outdated pairs and tombstones are dropped when the merge
+ * includes the oldest table, otherwise outdated pairs are replaced with tombstones.
+ * </p>
+ * <p>
+ * The {@code MANIFEST} file lists the live tables and is replaced atomically. On open, logs of the memtables
+ * that weren't flushed are replayed into a new table, files not in the manifest are deleted.
+ * Single operations are thread safe, {@link #compute} is atomic against other writes of this repository.
+ * {@link #removeAllOutdatedPairsAndReturnKeys(long)} scans all the pairs, outdated pairs are not indexed.
+ * </p>
+ */
+public class LsmKeyValueRepository implements KeyValueRepository, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LsmKeyValueRepository.class);
+
+    private static final String MANIFEST = "MANIFEST";
+    private static final String TABLE_SUFFIX = ".sst";
+    private static final String LOG_SUFFIX = ".wal";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long FLUSH_RETRY_DELAY = 1000;
+
+    private final Path directory;
+    private final long memtableSize;
+    private final int compactionThreshold;
+    private final boolean syncLog;
+
+    // orders writes and memtable rotations
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // guards state changes and the manifest, never held while waiting for a flush
+    private final ReentrantLock stateLock = new ReentrantLock();
+    // held by reads of the tables, the write lock is taken to close replaced tables
+    private final ReentrantReadWriteLock tablesLock = new ReentrantReadWriteLock();
+    private final Semaphore flushPermit = new Semaphore(1);
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final AtomicLong nextId = new AtomicLong();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(daemonThreads("lsm-flush"));
+    private final ExecutorService compactionExecutor =
+            Executors.newSingleThreadExecutor(daemonThreads("lsm-compaction"));
+
+    private volatile State state;
+    // incremented by clear, flushes and compactions started before it discard their results
+    private volatile long generation;
+    private volatile boolean closed;
+
+    /**
+     * @param memtableSize        approximate memtable size in bytes to flush it to a table
+     * @param compactionThreshold number of tables to start a compaction, at least 2
+     * @param syncLog             sync the write-ahead log to the disk on every write, otherwise the OS
+     *                            writes it later and the last writes may be lost on a power failure
+     */
+    public LsmKeyValueRepository(Path directory, long memtableSize, int compactionThreshold, boolean syncLog) {
+        if (compactionThreshold < 2) {
+            throw new IllegalArgumentException("Compaction threshold must be at least 2");
+        }
+        this.directory = directory;
+        this.memtableSize = memtableSize;
+        this.compactionThreshold = compactionThreshold;
+        this.syncLog = syncLog;
+        try {
+            this.state = recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't open the LSM storage in " + directory, e);
+        }
+        scheduleCompaction();
+    }
+
+    public int getTableCount() {
+        return state.tables.size();
+    }
+
+    /**
+     * @return total size of the tables in bytes
+     */
+    public long getTablesSize() {
+        return state.tables.stream().mapToLong(SSTable::getSize).sum();
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> get(String key) {
+        return Optional.ofNullable(find(key)).filter(entry -> !entry.isTombstone()).map(LsmEntry::toValue);
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key) {
+        return getIfNotOutdated(key, currentTimeMillis());
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> getIfNotOutdated(String key, long time) {
+        return get(key).filter(value -> value.getExpirationTime() >= time);
+    }
+
+    @Override
+    public void put(String key, String value, long expirationTime) {
+        write(key, new LsmEntry(value, expirationTime, null, null));
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> compute(String key, long time,
+                                                     UnaryOperator<Optional<ValueWithExpirationTime>> remappingFunction) {
+        writeLock.lock();
+        try {
+            var current = getIfNotOutdated(key, time);
+            var result = remappingFunction.apply(current);
+            if (!result.equals(current)) {
+                write(key, result.map(LsmEntry::of).orElse(LsmEntry.TOMBSTONE));
+            }
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(String key) {
+        return removeAndReturn(key).isPresent();
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturn(String key) {
+        writeLock.lock();
+        try {
+            var removed = get(key);
+            if (removed.isPresent()) {
+                write(key, LsmEntry.TOMBSTONE);
+            }
+            return removed;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key) {
+        return removeAndReturnIfNotOutdated(key, currentTimeMillis());
+    }
+
+    @Override
+    public Optional<ValueWithExpirationTime> removeAndReturnIfNotOutdated(String key, long time) {
+        return removeAndReturn(key).filter(value -> value.getExpirationTime() >= time);
+    }
+
+    @Override
+    public Map<String, ValueWithExpirationTime> getAll() {
+        Map<String, ValueWithExpirationTime> result = new HashMap<>();
+        scan(null, entry -> {
+            if (!entry.getValue().isTombstone()) {
+                result.put(entry.getKey(), entry.getValue().toValue());
+            }
+            return true;
+        });
+        return result;
+    }
+
+    @Override
+    public void addAll(Map<String, ValueWithExpirationTime> map) {
+        writeLock.lock();
+        try {
+            map.forEach((key, value) -> write(key, LsmEntry.of(value)));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeAllOutdatedPairs() {
+        removeAllOutdatedPairs(currentTimeMillis());
+    }
+
+    @Override
+    public void removeAllOutdatedPairs(long time) {
+        removeAllOutdatedPairsAndReturnKeys(time);
+    }
+
+    @Override
+    public List<String> removeAllOutdatedPairsAndReturnKeys(long time) {
+        List<String> outdated = new ArrayList<>();
+        scan(null, entry -> {
+            if (entry.getValue().isOutdated(time)) {
+                outdated.add(entry.getKey());
+            }
+            return true;
+        });
+        return removeOutdatedPairs(outdated, time);
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return 1;
+    }
+
+    /**
+     * Seeks to the key after the cursor and visits at most {@code limit} pairs
+     */
+    @Override
+    public OutdatedKeys findOutdatedKeys(int segment, String after, int limit, long time) {
+        List<String> keys = new ArrayList<>();
+        long[] scanned = new long[1];
+        String[] last = new String[1];
+        String[] cursor = new String[1];
+        scan(after, entry -> {
+            if (entry.getKey().equals(after)) {
+                return true;
+            }
+            if (scanned[0] == limit) {
+                cursor[0] = last[0];
+                return false;
+            }
+            scanned[0]++;
+            last[0] = entry.getKey();
+            if (entry.getValue().isOutdated(time)) {
+                keys.add(entry.getKey());
+            }
+            return true;
+        });
+        return new OutdatedKeys(keys, scanned[0], cursor[0]);
+    }
+
+    @Override
+    public List<String> removeOutdatedPairs(Collection<String> keys, long time) {
+        List<String> removed = new ArrayList<>(keys.size());
+        writeLock.lock();
+        try {
+            for (String key : keys) {
+                // the pair may have been changed after the scan
+                LsmEntry entry = find(key);
+                if (entry != null && entry.isOutdated(time)) {
+                    write(key, LsmEntry.TOMBSTONE);
+                    removed.add(key);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return removed;
+    }
+
+    @Override
+    public List<String> getKeysInRange(String from, String to, int limit, long time) {
+        return keysFrom(from, key -> to == null || key.compareTo(to) < 0, limit, time);
+    }
+
+    @Override
+    public List<String> getKeysByPrefix(String prefix, int limit, long time) {
+        return keysFrom(prefix, key -> key.startsWith(prefix), limit, time);
+    }
+
+    @Override
+    public void clear() {
+        List<SSTable> tables;
+        List<Memtable> memtables = new ArrayList<>();
+        writeLock.lock();
+        stateLock.lock();
+        try {
+            generation++;
+            var current = state;
+            tables = current.tables;
+            memtables.add(current.active);
+            if (current.immutable != null) {
+                memtables.add(current.immutable);
+            }
+            state = new State(newMemtable(), null, List.of());
+            writeManifest(List.of());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't clear the LSM storage in " + directory, e);
+        } finally {
+            stateLock.unlock();
+            writeLock.unlock();
+        }
+        for (Memtable memtable : memtables) {
+            memtable.closeLog(true);
+        }
+        closeTables(tables, true);
+    }
+
+    @Override
+    public boolean supportsOrderedScan() {
+        return true;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return get(key).isPresent();
+    }
+
+    /**
+     * Waits for the background flush and compaction and closes the files. The memtable isn't flushed,
+     * it's restored from the write-ahead log on the next open.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        shutdown(flushExecutor);
+        shutdown(compactionExecutor);
+        writeLock.lock();
+        try {
+            state.active.closeLog(false);
+            if (state.immutable != null) {
+                state.immutable.closeLog(false);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        closeTables(state.tables, false);
+    }
+
+    /**
+     * Flushes the memtable to a table and waits for the flush
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            if (!state.active.entries.isEmpty()) {
+                rotate();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        // the permit is released when the flush is done
+        flushPermit.acquireUninterruptibly();
+        flushPermit.release();
+    }
+
+    /**
+     * Runs the compactions needed for the current tables and waits for them
+     */
+    public void compact() {
+        try {
+            compactionExecutor.submit(this::runCompactions).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Compaction failed", e.getCause());
+        }
+    }
+
+    private LsmEntry find(String key) {
+        var current = state;
+        LsmEntry entry = current.active.entries.get(key);
+        if (entry == null && current.immutable != null) {
+            entry = current.immutable.entries.get(key);
+        }
+        if (entry != null) {
+            return entry;
+        }
+        tablesLock.readLock().lock();
+        try {
+            // the tables of the current state aren't closed until the lock is released
+            for (SSTable table : state.tables) {
+                entry = table.get(key);
+                if (entry != null) {
+                    return entry;
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't read the LSM storage in " + directory, e);
+        } finally {
+            tablesLock.readLock().unlock();
+        }
+    }
+
+    private void write(String key, LsmEntry entry) {
+        writeLock.lock();
+        try {
+            var active = state.active;
+            active.log.append(key, entry);
+            LsmEntry previous = active.entries.put(key, entry);
+            long size = active.size.addAndGet(entry.estimatedSize(key)
+                    - (previous == null ? 0 : previous.estimatedSize(key)));
+            if (size >= memtableSize) {
+                rotate();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't write the LSM storage log in " + directory, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Makes the active memtable immutable and starts its flush, waits for the previous flush
+     */
+    private void rotate() {
+        flushPermit.acquireUninterruptibly();
+        stateLock.lock();
+        try {
+            var current = state;
+            var memtable = current.active;
+            state = new State(newMemtable(), memtable, current.tables);
+            long flushGeneration = generation;
+            flushExecutor.execute(() -> flush(memtable, flushGeneration));
+        } catch (IOException e) {
+            flushPermit.release();
+            throw new UncheckedIOException("Can't create the LSM storage log in " + directory, e);
+        } catch (RuntimeException e) {
+            flushPermit.release();
+            throw e;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    private void flush(Memtable memtable, long flushGeneration) {
+        try {
+            SSTable table;
+            while (true) {
+                if (flushGeneration != generation) {
+                    return;
+                }
+                try {
+                    table = SSTable.write(memtable.id, tablePath(memtable.id), memtable.entries.entrySet().iterator(),
+                            memtable.entries.size());
+                    break;
+                } catch (IOException e) {
+                    if (closed) {
+                        // the memtable is restored from its log on the next open
+                        logger.error("Can't flush the memtable {}", memtable.id, e);
+                        return;
+                    }
+                    logger.error("Can't flush the memtable {}, retrying", memtable.id, e);
+                    sleep(FLUSH_RETRY_DELAY);
+                }
+            }
+            stateLock.lock();
+            try {
+                if (flushGeneration != generation) {
+                    discard(table);
+                    return;
+                }
+                List<SSTable> tables = new ArrayList<>(state.tables.size() + 1);
+                tables.add(table);
+                tables.addAll(state.tables);
+                writeManifest(tables);
+                state = new State(state.active, null, List.copyOf(tables));
+            } catch (IOException e) {
+                // the memtable is restored from its log on the next open
+                logger.error("Can't update the manifest in {}", directory, e);
+                discard(table);
+                return;
+            } finally {
+                stateLock.unlock();
+            }
+            memtable.closeLog(true);
+            scheduleCompaction();
+        } finally {
+            flushPermit.release();
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (state.tables.size() >= compactionThreshold && compactionScheduled.compareAndSet(false, true)) {
+            compactionExecutor.execute(this::runCompactions);
+        }
+    }
+
+    private void runCompactions() {
+        compactionScheduled.set(false);
+        try {
+            while (!closed && state.tables.size() >= compactionThreshold) {
+                compactOnce();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Compaction in {} failed", directory, e);
+        }
+    }
+
+    private void compactOnce() throws IOException {
+        long compactionGeneration = generation;
+        List<SSTable> tables = state.tables;
+        List<SSTable> merged = selectForCompaction(tables);
+        boolean includesOldest = merged.size() == tables.size();
+        long time = currentTimeMillis();
+        long id = nextId.getAndIncrement();
+        SSTable output;
+        tablesLock.readLock().lock();
+        try {
+            if (compactionGeneration != generation) {
+                return;
+            }
+            List<Iterator<Map.Entry<String, LsmEntry>>> sources = new ArrayList<>(merged.size());
+            merged.forEach(table -> sources.add(table.iterator(null)));
+            var entries = compacted(new MergingIterator(sources), includesOldest, time);
+            // overwritten and dropped entries make the sum an upper bound
+            long expectedEntries = merged.stream().mapToLong(SSTable::getEntryCount).sum();
+            output = SSTable.write(id, tablePath(id), entries, expectedEntries);
+        } finally {
+            tablesLock.readLock().unlock();
+        }
+        stateLock.lock();
+        try {
+            if (compactionGeneration != generation) {
+                discard(output);
+                return;
+            }
+            // tables flushed during the compaction are newer than the merged ones
+            Set<SSTable> mergedSet = new HashSet<>(merged);
+            List<SSTable> result = new ArrayList<>();
+            boolean replaced = false;
+            for (SSTable table : state.tables) {
+                if (!mergedSet.contains(table)) {
+                    result.add(table);
+                } else if (!replaced) {
+                    replaced = true;
+                    if (output.getEntryCount() > 0) {
+                        result.add(output);
+                    }
+                }
+            }
+            writeManifest(result);
+            state = new State(state.active, state.immutable, List.copyOf(result));
+        } catch (IOException e) {
+            discard(output);
+            throw e;
+        } finally {
+            stateLock.unlock();
+        }
+        if (output.getEntryCount() == 0) {
+            discard(output);
+        }
+        closeTables(merged, true);
+        logger.debug("Compacted {} tables into {} with {} entries", merged.size(), id, output.getEntryCount());
+    }
+
+    /**
+     * @param tables the newest table first
+     * @return the newest {@code compactionThreshold} tables and the older ones not larger than the selected together
+     */
+    private List<SSTable> selectForCompaction(List<SSTable> tables) {
+        List<SSTable> selected = new ArrayList<>(tables.subList(0, compactionThreshold));
+        long size = selected.stream().mapToLong(SSTable::getSize).sum();
+        for (int i = compactionThreshold; i < tables.size() && tables.get(i).getSize() <= size; i++) {
+            selected.add(tables.get(i));
+            size += tables.get(i).getSize();
+        }
+        return selected;
+    }
+
+    private static Iterator<Map.Entry<String, LsmEntry>> compacted(Iterator<Map.Entry<String, LsmEntry>> entries,
+                                                                    boolean includesOldest, long time) {
+        return new Iterator<>() {
+            private Map.Entry<String, LsmEntry> next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Map.Entry<String, LsmEntry> next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                var result = next;
+                next = advance();
+                return result;
+            }
+
+            private Map.Entry<String, LsmEntry> advance() {
+                while (entries.hasNext()) {
+                    var entry = entries.next();
+                    boolean removed = entry.getValue().isTombstone() || entry.getValue().isOutdated(time);
+                    if (!removed) {
+                        return entry;
+                    }
+                    // an older table may still contain the key, the tombstone hides it
+                    if (!includesOldest) {
+                        return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), LsmEntry.TOMBSTONE);
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    private List<String> keysFrom(String from, Predicate<String> inRange, int limit, long time) {
+        List<String> keys = new ArrayList<>();
+        if (limit <= 0) {
+            return keys;
+        }
+        scan(from, entry -> {
+            if (!inRange.test(entry.getKey())) {
+                return false;
+            }
+            LsmEntry value = entry.getValue();
+            if (!value.isTombstone() && value.expirationTime() >= time) {
+                keys.add(entry.getKey());
+            }
+            return keys.size() < limit;
+        });
+        return keys;
+    }
+
+    /**
+     * Passes the merged entries with keys not less than {@code from} to the consumer while it returns true
+     */
+    private void scan(String from, Predicate<Map.Entry<String, LsmEntry>> consumer) {
+        tablesLock.readLock().lock();
+        try {
+            var current = state;
+            List<Iterator<Map.Entry<String, LsmEntry>>> sources = new ArrayList<>(current.tables.size() + 2);
+            sources.add(tail(current.active.entries, from));
+            if (current.immutable != null) {
+                sources.add(tail(current.immutable.entries, from));
+            }
+            current.tables.forEach(table -> sources.add(table.iterator(from)));
+            var iterator = new MergingIterator(sources);
+            while (iterator.hasNext()) {
+                if (!consumer.test(iterator.next())) {
+                    return;
+                }
+            }
+        } finally {
+            tablesLock.readLock().unlock();
+        }
+    }
+
+    private static Iterator<Map.Entry<String, LsmEntry>> tail(NavigableMap<String, LsmEntry> entries, String from) {
+        return (from == null ? entries : entries.tailMap(from, true)).entrySet().iterator();
+    }
+
+    /**
+     * Opens the tables of the manifest, deletes other files and flushes the logs of the lost memtables
+     */
+    private State recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Long> tableIds = readManifest();
+        Set<Long> live = new HashSet<>(tableIds);
+        TreeMap<Long, Path> logs = new TreeMap<>();
+        long maxId = tableIds.stream().mapToLong(Long::longValue).max().orElse(-1);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    Files.delete(file);
+                } else if (name.endsWith(TABLE_SUFFIX) || name.endsWith(LOG_SUFFIX)) {
+                    long id = Long.parseLong(name.substring(0, name.indexOf('.')));
+                    maxId = Math.max(maxId, id);
+                    if (name.endsWith(LOG_SUFFIX) && !live.contains(id)) {
+                        logs.put(id, file);
+                    } else if (!live.contains(id) || name.endsWith(LOG_SUFFIX)) {
+                        // a table of an unfinished flush or compaction, or the log of a flushed memtable
+                        Files.delete(file);
+                    }
+                }
+            }
+        }
+        nextId.set(maxId + 1);
+        List<SSTable> tables = new ArrayList<>(tableIds.size());
+        for (long id : tableIds) {
+            tables.add(SSTable.open(id, tablePath(id)));
+        }
+        if (!logs.isEmpty()) {
+            // the older memtable is replayed first, so the newer one overwrites it
+            var entries = new ConcurrentSkipListMap<String, LsmEntry>();
+            for (Path log : logs.values()) {
+                int records = WriteAheadLog.replay(log, entries::put);
+                if (records > 0) {
+                    logger.info("Replayed {} records from {}", records, log);
+                }
+            }
+            if (!entries.isEmpty()) {
+                long id = nextId.getAndIncrement();
+                tables.add(0, SSTable.write(id, tablePath(id), entries.entrySet().iterator(), entries.size()));
+                writeManifest(tables);
+            }
+            for (Path log : logs.values()) {
+                Files.delete(log);
+            }
+        }
+        return new State(newMemtable(), null, List.copyOf(tables));
+    }
+
+    private List<Long> readManifest() throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                ids.add(Long.parseLong(line.trim()));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Replaces the manifest with the table ids, the newest table first
+     */
+    private void writeManifest(List<SSTable> tables) throws IOException {
+        Path temp = directory.resolve(MANIFEST + TEMP_SUFFIX);
+        var content = new StringBuilder();
+        tables.forEach(table -> content.append(table.getId()).append('\n'));
+        try (var out = new FileOutputStream(temp.toFile())) {
+            out.write(content.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        Files.move(temp, directory.resolve(MANIFEST),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Memtable newMemtable() throws IOException {
+        long id = nextId.getAndIncrement();
+        return new Memtable(id, new WriteAheadLog(directory.resolve(id + LOG_SUFFIX), syncLog));
+    }
+
+    private Path tablePath(long id) {
+        return directory.resolve(id + TABLE_SUFFIX);
+    }
+
+    /**
+     * Closes the tables after the reads using them, optionally deleting the files
+     */
+    private void closeTables(List<SSTable> tables, boolean delete) {
+        tablesLock.writeLock().lock();
+        try {
+            tables.forEach(table -> closeTable(table, delete));
+        } finally {
+            tablesLock.writeLock().unlock();
+        }
+    }
+
+    private void discard(SSTable table) {
+        closeTable(table, true);
+    }
+
+    private void closeTable(SSTable table, boolean delete) {
+        try {
+            table.close();
+            if (delete) {
+                Files.deleteIfExists(table.getPath());
+            }
+        } catch (IOException e) {
+            logger.warn("Can't close the table {}", table.getPath(), e);
+        }
+    }
+
+    private static void shutdown(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warn("LSM background tasks didn't finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            var thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Memtables and tables visible to reads, the tables are listed from the newest one
+     */
+    private record State(Memtable active, Memtable immutable, List<SSTable> tables) {
+    }
+
+    private static final class Memtable {
+
+        private final long id;
+        private final WriteAheadLog log;
+        private final ConcurrentSkipListMap<String, LsmEntry> entries = new ConcurrentSkipListMap<>();
+        private final AtomicLong size = new AtomicLong();
+
+        Memtable(long id, WriteAheadLog log) {
+            this.id = id;
+            this.log = log;
+        }
+
+        void closeLog(boolean delete) {
+            try {
+                log.close();
+                if (delete) {
+                    Files.deleteIfExists(log.getPath());
+                }
+            } catch (IOException e) {
+                logger.warn("Can't close the log {}", log.getPath(), e);
+            }
+        }
+    }
+}
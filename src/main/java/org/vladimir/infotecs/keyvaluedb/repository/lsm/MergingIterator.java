@@ -0,0 +1,77 @@
+package org.vladimir.infotecs.keyvaluedb.repository.lsm;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Merges sorted sources into one sorted sequence with a single entry per key, taken from the newest source
+ * containing the key. Tombstones are returned as is.
+ */
+final class MergingIterator implements Iterator<Map.Entry<String, LsmEntry>> {
+
+    private final PriorityQueue<Source> queue = new PriorityQueue<>();
+
+    /**
+     * @param sources iterators sorted by key, the newest source first
+     */
+    MergingIterator(List<Iterator<Map.Entry<String, LsmEntry>>> sources) {
+        for (int i = 0; i < sources.size(); i++) {
+            var source = new Source(sources.get(i), i);
+            if (source.advance()) {
+                queue.add(source);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !queue.isEmpty();
+    }
+
+    @Override
+    public Map.Entry<String, LsmEntry> next() {
+        var source = queue.poll();
+        if (source == null) {
+            throw new NoSuchElementException();
+        }
+        var result = source.current;
+        requeue(source);
+        // skip older versions of the key
+        while (!queue.isEmpty() && queue.peek().current.getKey().equals(result.getKey())) {
+            requeue(queue.poll());
+        }
+        return result;
+    }
+
+    private void requeue(Source source) {
+        if (source.advance()) {
+            queue.add(source);
+        }
+    }
+
+    private static final class Source implements Comparable<Source> {
+
+        private final Iterator<Map.Entry<String, LsmEntry>> iterator;
+        private final int age;
+        private Map.Entry<String, LsmEntry> current;
+
+        Source(Iterator<Map.Entry<String, LsmEntry>> iterator, int age) {
+            this.iterator = iterator;
+            this.age = age;
+        }
+
+        boolean advance() {
+            current = iterator.hasNext() ? iterator.next() : null;
+            return current != null;
+        }
+
+        @Override
+        public int compareTo(Source other) {
+            int comparison = current.getKey().compareTo(other.current.getKey());
+            return comparison != 0 ? comparison : Integer.compare(age, other.age);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package org.vladimir.infotecs.keyvaluedb.repository.lsm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable sorted file of entries.
+ * <p>
+ * Layout: records sorted by key (see {@link LsmEntry#write}), the sparse index (every {@value #INDEX_INTERVAL}th
+ * key with its record offset), the bloom filter and the footer with the index and bloom filter offsets.
+ * The index and the bloom filter are kept in memory, a lookup reads at most one block of
+ * {@value #INDEX_INTERVAL} records. Thread safe.
+ * </p>
+ */
+final class SSTable implements Closeable {
+
+    static final int INDEX_INTERVAL = 16;
+    private static final long MAGIC = 0x4B56_4C53_4D54_0001L;
+    private static final int FOOTER_SIZE = 4 * Long.BYTES;
+
+    private final long id;
+    private final Path path;
+    private final FileChannel channel;
+    private final String[] indexKeys;
+    private final long[] indexOffsets;
+    private final long indexOffset;
+    private final long entryCount;
+    private final BloomFilter bloomFilter;
+
+    private SSTable(long id, Path path, FileChannel channel, String[] indexKeys, long[] indexOffsets,
+                    long indexOffset, long entryCount, BloomFilter bloomFilter) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.indexKeys = indexKeys;
+        this.indexOffsets = indexOffsets;
+        this.indexOffset = indexOffset;
+        this.entryCount = entryCount;
+        this.bloomFilter = bloomFilter;
+    }
+
+    /**
+     * Writes the entries sorted by key to the file and syncs it
+     *
+     * @param expectedEntries upper bound of the number of entries the bloom filter is sized for
+     */
+    static SSTable write(long id, Path path, Iterator<Map.Entry<String, LsmEntry>> entries, long expectedEntries)
+            throws IOException {
+        List<String> indexKeys = new ArrayList<>();
+        List<Long> indexOffsets = new ArrayList<>();
+        var bloomFilter = BloomFilter.create((int) Math.min(Integer.MAX_VALUE, expectedEntries));
+        long entryCount = 0;
+        try (var file = new FileOutputStream(path.toFile())) {
+            var counter = new CountingOutputStream(new BufferedOutputStream(file, 64 * 1024));
+            var out = new DataOutputStream(counter);
+            while (entries.hasNext()) {
+                var entry = entries.next();
+                if (entryCount % INDEX_INTERVAL == 0) {
+                    indexKeys.add(entry.getKey());
+                    indexOffsets.add(counter.count);
+                }
+                entryCount++;
+                bloomFilter.add(entry.getKey());
+                LsmEntry.write(out, entry.getKey(), entry.getValue());
+            }
+            long indexOffset = counter.count;
+            out.writeInt(indexKeys.size());
+            for (int i = 0; i < indexKeys.size(); i++) {
+                LsmEntry.write(out, indexKeys.get(i), LsmEntry.TOMBSTONE);
+                out.writeLong(indexOffsets.get(i));
+            }
+            long bloomOffset = counter.count;
+            bloomFilter.write(out);
+            out.writeLong(indexOffset);
+            out.writeLong(bloomOffset);
+            out.writeLong(entryCount);
+            out.writeLong(MAGIC);
+            out.flush();
+            file.getFD().sync();
+        }
+        return open(id, path);
+    }
+
+    static SSTable open(long id, Path path) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < FOOTER_SIZE) {
+                throw new IOException("Not an SSTable: " + path);
+            }
+            var footer = read(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+            long indexOffset = footer.getLong();
+            footer.getLong();
+            long entryCount = footer.getLong();
+            if (footer.getLong() != MAGIC) {
+                throw new IOException("Not an SSTable: " + path);
+            }
+            var in = new DataInputStream(new ByteArrayInputStream(
+                    read(channel, indexOffset, (int) (size - FOOTER_SIZE - indexOffset)).array()));
+            int indexSize = in.readInt();
+            String[] indexKeys = new String[indexSize];
+            long[] indexOffsets = new long[indexSize];
+            for (int i = 0; i < indexSize; i++) {
+                indexKeys[i] = LsmEntry.readKey(in);
+                LsmEntry.readEntry(in);
+                indexOffsets[i] = in.readLong();
+            }
+            var bloomFilter = BloomFilter.read(in);
+            return new SSTable(id, path, channel, indexKeys, indexOffsets, indexOffset, entryCount, bloomFilter);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    long getId() {
+        return id;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getEntryCount() {
+        return entryCount;
+    }
+
+    long getSize() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the entry of the key, null if the table has no entry for the key
+     */
+    LsmEntry get(String key) throws IOException {
+        if (!bloomFilter.mightContain(key)) {
+            return null;
+        }
+        int block = floorBlock(key);
+        if (block < 0) {
+            return null;
+        }
+        long end = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : indexOffset;
+        var in = new DataInputStream(new ByteArrayInputStream(
+                read(channel, indexOffsets[block], (int) (end - indexOffsets[block])).array()));
+        while (in.available() > 0) {
+            String recordKey = LsmEntry.readKey(in);
+            LsmEntry entry = LsmEntry.readEntry(in);
+            int comparison = recordKey.compareTo(key);
+            if (comparison == 0) {
+                return entry;
+            }
+            if (comparison > 0) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param from the first key, null to iterate from the beginning
+     * @return entries with keys not less than {@code from} in ascending key order, reads the file lazily
+     */
+    Iterator<Map.Entry<String, LsmEntry>> iterator(String from) {
+        int block = from == null ? 0 : Math.max(0, floorBlock(from));
+        long start = indexOffsets.length == 0 ? indexOffset : indexOffsets[block];
+        var in = new DataInputStream(new BufferedInputStream(new ChannelInputStream(channel, start, indexOffset),
+                64 * 1024));
+        return new Iterator<>() {
+            private Map.Entry<String, LsmEntry> next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Map.Entry<String, LsmEntry> next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                var result = next;
+                next = advance();
+                return result;
+            }
+
+            private Map.Entry<String, LsmEntry> advance() {
+                try {
+                    while (true) {
+                        String key;
+                        try {
+                            key = LsmEntry.readKey(in);
+                        } catch (EOFException e) {
+                            return null;
+                        }
+                        LsmEntry entry = LsmEntry.readEntry(in);
+                        if (from == null || key.compareTo(from) >= 0) {
+                            return new AbstractMap.SimpleImmutableEntry<>(key, entry);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Can't read " + path, e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int floorBlock(String key) {
+        int index = Arrays.binarySearch(indexKeys, key);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * Positional reads of a file range, independent of other readers of the channel
+     */
+    private static final class ChannelInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        ChannelInputStream(FileChannel channel, long position, long end) {
+            this.channel = channel;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int length = (int) Math.min(len, end - position);
+            int read = channel.read(ByteBuffer.wrap(b, off, length), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+    }
+}
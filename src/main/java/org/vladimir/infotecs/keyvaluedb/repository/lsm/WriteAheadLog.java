@@ -0,0 +1,114 @@
+package org.vladimir.infotecs.keyvaluedb.repository.lsm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append only log of the memtable changes, replayed into the memtable after a restart.
+ * <p>
+ * Record format: payload length, CRC32 of the payload, payload (see {@link LsmEntry#write}).
+ * Every record is written to the OS on append and synced to the disk if {@code sync} is set.
+ * Replay stops at the first truncated or corrupted record, that is a write torn by a crash.
+ * Appends must be synchronized by the caller.
+ * </p>
+ */
+final class WriteAheadLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private final Path path;
+    private final FileOutputStream file;
+    private final boolean sync;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    private final DataOutputStream bufferOut = new DataOutputStream(buffer);
+    private final CRC32 crc = new CRC32();
+
+    WriteAheadLog(Path path, boolean sync) throws IOException {
+        this.path = path;
+        this.file = new FileOutputStream(path.toFile(), true);
+        this.sync = sync;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    void append(String key, LsmEntry entry) throws IOException {
+        buffer.reset();
+        bufferOut.writeLong(0);
+        LsmEntry.write(bufferOut, key, entry);
+        byte[] record = buffer.toByteArray();
+        int payloadLength = record.length - Long.BYTES;
+        crc.reset();
+        crc.update(record, Long.BYTES, payloadLength);
+        writeInt(record, 0, payloadLength);
+        writeInt(record, Integer.BYTES, (int) crc.getValue());
+        file.write(record);
+        if (sync) {
+            file.getFD().sync();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Passes the logged changes to the consumer in the order they were appended
+     *
+     * @return the number of replayed records
+     */
+    static int replay(Path path, BiConsumer<String, LsmEntry> consumer) throws IOException {
+        int records = 0;
+        try (var in = new DataInputStream(new BufferedInputStream(new FileInputStream(path.toFile()), 64 * 1024))) {
+            var crc = new CRC32();
+            while (true) {
+                byte[] payload;
+                int checksum;
+                try {
+                    int length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    logger.warn("Corrupted record in {} after {} records, the rest of the log is ignored", path, records);
+                    break;
+                }
+                var payloadIn = new DataInputStream(new ByteArrayInputStream(payload));
+                consumer.accept(LsmEntry.readKey(payloadIn), LsmEntry.readEntry(payloadIn));
+                records++;
+            }
+        }
+        return records;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+}
@@ -13,6 +13,8 @@ public class KvPairRowMapper implements RowMapper<KvPair> {
         return new KvPair(rs.getString("KEY"),
                 new ValueWithExpirationTime(
                         rs.getString("VALUE"),
-                        rs.getTimestamp("EXPIRATION_TIME").getTime()));
+                        rs.getTimestamp("EXPIRATION_TIME").getTime(),
+                        rs.getObject("SLIDING_TTL", Long.class),
+                        rs.getObject("VERSION", Long.class)));
     }
 }
@@ -10,7 +10,9 @@ public class ValueWithExpirationTimeRowMapper implements RowMapper<ValueWithExpi
     @Override
     public ValueWithExpirationTime mapRow(ResultSet rs, int rowNum) throws SQLException {
         String value = rs.getString("VALUE");
-        Long expirationTime = rs.getTimestamp("EXPIRATION_TIME").getTime() / 1000; // преобразуем миллисекунды в секунды
-        return new ValueWithExpirationTime(value, expirationTime);
+        Long expirationTime = rs.getTimestamp("EXPIRATION_TIME").getTime();
+        Long slidingTtl = rs.getObject("SLIDING_TTL", Long.class);
+        Long version = rs.getObject("VERSION", Long.class);
+        return new ValueWithExpirationTime(value, expirationTime, slidingTtl, version);
     }
 }
\ No newline at end of file
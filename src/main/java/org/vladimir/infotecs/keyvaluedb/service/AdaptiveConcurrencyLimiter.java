@@ -0,0 +1,110 @@
+package org.vladimir.infotecs.keyvaluedb.service;
+
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit adjusted by the observed latency (AIMD).
+ * <p>
+ * A request is admitted while the number of requests in flight is below the limit, otherwise it is rejected
+ * at once instead of queueing. A request slower than the latency threshold multiplies the limit by the backoff
+ * ratio, at most once per request lifetime: requests started before the last decrease observed the old
+ * concurrency and don't decrease it again. A fast request increases the limit by {@code 1 / limit}
+ * (about one per limit requests) while the limit is actually used, i.e. at least half of it is in flight.
+ * </p>
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final LongSupplier nanoClock;
+
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+    private long rejected;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdMillis,
+                                      double backoffRatio) {
+        this(initialLimit, minLimit, maxLimit, latencyThresholdMillis, backoffRatio, System::nanoTime);
+    }
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdMillis,
+                                      double backoffRatio, LongSupplier nanoClock) {
+        if (minLimit <= 0 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 0 < minLimit <= maxLimit");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdMillis * 1_000_000L;
+        this.backoffRatio = backoffRatio;
+        this.nanoClock = nanoClock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecreaseNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * @return the permit to release when the request completes, or an empty Optional if the limit is reached
+     */
+    public synchronized Optional<Permit> tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejected++;
+            return Optional.empty();
+        }
+        inFlight++;
+        return Optional.of(new Permit(nanoClock.getAsLong()));
+    }
+
+    private synchronized void release(long startNanos) {
+        long now = nanoClock.getAsLong();
+        int used = inFlight--;
+        if (now - startNanos > latencyThresholdNanos) {
+            if (startNanos - lastDecreaseNanos >= 0) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastDecreaseNanos = now;
+            }
+        } else if (used * 2 >= (int) limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Admission of a single request, released once
+     */
+    public final class Permit {
+
+        private final long startNanos;
+        private boolean released;
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        public void release() {
+            synchronized (AdaptiveConcurrencyLimiter.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            AdaptiveConcurrencyLimiter.this.release(startNanos);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.vladimir.infotecs.keyvaluedb.service;
+
+import org.vladimir.infotecs.keyvaluedb.exception.ServiceOverloaded;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous variant of the main {@link KeyValueService} operations. Futures complete exceptionally
+ * with the exceptions of the corresponding {@link KeyValueService} methods, or with {@link ServiceOverloaded}
+ * if the operation can't be queued.
+ */
+public interface AsyncKeyValueService {
+
+    /**
+     * @see KeyValueService#getValueByKey(String)
+     */
+    CompletableFuture<Optional<String>> getValueByKey(String key);
+
+    /**
+     * @see KeyValueService#setValueByKey(String, String, long, boolean)
+     */
+    CompletableFuture<Void> setValueByKey(String key, String value, long ttl, boolean slidingExpiration);
+
+    /**
+     * @see KeyValueService#incrementBy(String, long, long)
+     */
+    CompletableFuture<Long> incrementBy(String key, long delta, long ttl);
+
+    /**
+     * @see KeyValueService#deleteValueByKey(String)
+     */
+    CompletableFuture<Optional<String>> deleteValueByKey(String key);
+}
@@ -0,0 +1,194 @@
+package org.vladimir.infotecs.keyvaluedb.service;
+
+import org.vladimir.infotecs.keyvaluedb.exception.NotAnInteger;
+import org.vladimir.infotecs.keyvaluedb.exception.PreconditionFailed;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.model.VersionPrecondition;
+import org.vladimir.infotecs.keyvaluedb.repository.KeyValueRepository;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Read-modify-write operations built on {@link KeyValueRepository#compute}, so each of them is a single
+ * per-key atomic update of the repository. The caller provides the synchronization the repository requires.
+ * Remapping functions may be called more than once, results are taken from the last call.
+ * Operations changing the value give the pair a new version, see {@link #nextVersion()}.
+ */
+final class AtomicUpdates {
+
+    private static final AtomicLong lastVersion = new AtomicLong();
+
+    private AtomicUpdates() {
+    }
+
+    /**
+     * Add delta to the integer value. The expiration time of an existing pair is kept,
+     * an absent pair is created with the delta as its value
+     *
+     * @throws NotAnInteger if the value isn't an integer or the result overflows
+     */
+    static long increment(KeyValueRepository repository, String key, long delta, long expirationTime, long time) {
+        var result = repository.compute(key, time, current -> {
+            if (current.isEmpty()) {
+                return Optional.of(new ValueWithExpirationTime(Long.toString(delta), expirationTime, null,
+                        nextVersion(current)));
+            }
+            try {
+                long value = Math.addExact(Long.parseLong(current.get().getValue()), delta);
+                return Optional.of(new ValueWithExpirationTime(Long.toString(value),
+                        current.get().getExpirationTime(), current.get().getSlidingTtl(), nextVersion(current)));
+            } catch (NumberFormatException | ArithmeticException e) {
+                throw new NotAnInteger(e);
+            }
+        });
+        return Long.parseLong(result.orElseThrow().getValue());
+    }
+
+    static boolean compareAndSet(KeyValueRepository repository, String key, String expectedValue, String value,
+                                 long expirationTime, long time) {
+        var swapped = new AtomicBoolean();
+        repository.compute(key, time, current -> {
+            swapped.set(current.isPresent() && current.get().getValue().equals(expectedValue));
+            return swapped.get()
+                    ? Optional.of(new ValueWithExpirationTime(value, expirationTime, null, nextVersion(current)))
+                    : current;
+        });
+        return swapped.get();
+    }
+
+    static Optional<String> getAndSet(KeyValueRepository repository, String key, String value,
+                                      long expirationTime, long time) {
+        var previous = new AtomicReference<Optional<String>>();
+        repository.compute(key, time, current -> {
+            previous.set(current.map(ValueWithExpirationTime::getValue));
+            return Optional.of(new ValueWithExpirationTime(value, expirationTime, null, nextVersion(current)));
+        });
+        return previous.get();
+    }
+
+    static boolean setIfAbsent(KeyValueRepository repository, String key, String value,
+                               long expirationTime, long time) {
+        var set = new AtomicBoolean();
+        repository.compute(key, time, current -> {
+            set.set(current.isEmpty());
+            return set.get()
+                    ? Optional.of(new ValueWithExpirationTime(value, expirationTime, null, nextVersion(current)))
+                    : current;
+        });
+        return set.get();
+    }
+
+    /**
+     * Put the pair, for a sliding pair the ttl is kept and every read moves the expiration time forward
+     *
+     * @return the version of the pair
+     */
+    static long set(KeyValueRepository repository, String key, String value, long ttl, boolean sliding, long time) {
+        return set(repository, key, value, ttl, sliding, VersionPrecondition.none(), time);
+    }
+
+    /**
+     * Put the pair if the version of the current one meets the precondition, the check and the put are atomic.
+     * Without a precondition the current pair isn't needed and the pair is put by
+     * {@link KeyValueRepository#putVersioned}, which may skip reading it
+     *
+     * @return the version of the pair
+     * @throws PreconditionFailed if the precondition isn't met, the pair is left unchanged
+     */
+    static long set(KeyValueRepository repository, String key, String value, long ttl, boolean sliding,
+                    VersionPrecondition precondition, long time) {
+        long expirationTime = expirationTime(time, ttl);
+        if (precondition.isNone()) {
+            return repository.putVersioned(key,
+                    new ValueWithExpirationTime(value, expirationTime, sliding ? ttl : null, nextVersion())).getVersion();
+        }
+        return repository.compute(key, time, current -> {
+            check(precondition, current);
+            return Optional.of(new ValueWithExpirationTime(value, expirationTime, sliding ? ttl : null,
+                    nextVersion(current)));
+        }).orElseThrow().getVersion();
+    }
+
+    /**
+     * Remove the pair if the version of the current one meets the precondition, the check and the removal are atomic
+     *
+     * @return the removed pair, empty if there was no such pair
+     * @throws PreconditionFailed if the precondition isn't met, the pair is left unchanged
+     */
+    static Optional<ValueWithExpirationTime> remove(KeyValueRepository repository, String key,
+                                                    VersionPrecondition precondition, long time) {
+        var removed = new AtomicReference<Optional<ValueWithExpirationTime>>();
+        repository.compute(key, time, current -> {
+            check(precondition, current);
+            removed.set(current);
+            return Optional.empty();
+        });
+        return removed.get();
+    }
+
+    /**
+     * Set a new ttl of an existing pair, a sliding pair stays sliding with the new ttl
+     *
+     * @return false if there is no such pair
+     */
+    static boolean expire(KeyValueRepository repository, String key, long ttl, long time) {
+        return repository.compute(key, time, current -> current.map(v ->
+                v.withExpiration(expirationTime(time, ttl), v.getSlidingTtl() == null ? null : ttl))).isPresent();
+    }
+
+    /**
+     * Remove the expiration of an existing pair
+     *
+     * @return false if there is no such pair
+     */
+    static boolean persist(KeyValueRepository repository, String key, long time) {
+        return repository.compute(key, time, current -> current.map(v ->
+                v.withExpiration(ValueWithExpirationTime.NEVER_EXPIRES, null))).isPresent();
+    }
+
+    /**
+     * Move the expiration time of a sliding pair forward by its ttl, other pairs are returned unchanged
+     *
+     * @return the pair after the renewal or empty if there is no such pair
+     */
+    static Optional<ValueWithExpirationTime> touch(KeyValueRepository repository, String key, long time) {
+        return repository.compute(key, time, current -> current.map(v -> v.getSlidingTtl() == null ? v
+                : v.withExpiration(expirationTime(time, v.getSlidingTtl()), v.getSlidingTtl())));
+    }
+
+    /**
+     * Versions are shared by all the pairs of the process and only grow: every version is greater than the ones
+     * given before, also by the previous runs of the server, as the versions start from the current time in
+     * microseconds. A deleted or expired pair created again doesn't get a version it had before, so a stale
+     * If-Match can't match the new pair
+     */
+    private static long nextVersion() {
+        long floor = System.currentTimeMillis() * 1000;
+        return lastVersion.updateAndGet(last -> Math.max(last + 1, floor));
+    }
+
+    /**
+     * @return a new version greater than the version of the current pair, which may come from a dump or a primary
+     */
+    private static long nextVersion(Optional<ValueWithExpirationTime> current) {
+        long version = nextVersion();
+        return current.map(v -> Math.max(version, v.currentVersion() + 1)).orElse(version);
+    }
+
+    private static void check(VersionPrecondition precondition, Optional<ValueWithExpirationTime> current) {
+        if (!precondition.test(current.map(ValueWithExpirationTime::currentVersion))) {
+            throw new PreconditionFailed("Version of the pair is " + current.map(ValueWithExpirationTime::currentVersion)
+                    .map(String::valueOf).orElse("absent"));
+        }
+    }
+
+    /**
+     * @return time + ttl, saturated to {@link ValueWithExpirationTime#NEVER_EXPIRES}
+     */
+    static long expirationTime(long time, long ttl) {
+        return ttl >= ValueWithExpirationTime.NEVER_EXPIRES - time ? ValueWithExpirationTime.NEVER_EXPIRES : time + ttl;
+    }
+}
@@ -3,40 +3,99 @@ package org.vladimir.infotecs.keyvaluedb.service;
 import lombok.NonNull;
 import org.springframework.transaction.annotation.Transactional;
 import org.vladimir.infotecs.keyvaluedb.exception.IncorrectTtlValue;
+import org.vladimir.infotecs.keyvaluedb.model.KvPair;
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+import org.vladimir.infotecs.keyvaluedb.model.ScanPage;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionOperation;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionResult;
 import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
-import org.vladimir.infotecs.keyvaluedb.repository.DbKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.model.VersionPrecondition;
+import org.vladimir.infotecs.keyvaluedb.model.VersionedValue;
+import org.vladimir.infotecs.keyvaluedb.repository.KeyValueRepository;
 
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 public class DbKVService implements KeyValueService {
 
-    private final DbKeyValueRepository repository;
-    private final long defaultTTL;
+    private final KeyValueRepository repository;
+    private final long defaultTtlMillis;
 
 
-    public DbKVService(DbKeyValueRepository keyValueRepository, long defaultTTL) {
+    public DbKVService(KeyValueRepository keyValueRepository, long defaultTTL) {
         this.repository = keyValueRepository;
-        this.defaultTTL = defaultTTL;
+        this.defaultTtlMillis = defaultTTL * 1000L;
     }
 
     @Override
     @Transactional
-    public void setValueByKey(@NonNull String key, @NonNull String value, long ttl) {
-        if (ttl < 0) {
-            throw new IncorrectTtlValue();
-        }
-        ttl = ttl == 0 ? defaultTTL : ttl;
-        repository.put(key, value, currentTime() + ttl);
+    public void setValueByKey(@NonNull String key, @NonNull String value, long ttl, boolean slidingExpiration) {
+        AtomicUpdates.set(repository, key, value, resolveTtl(ttl), slidingExpiration, currentTime());
+    }
+
+    @Override
+    @Transactional
+    public Optional<Long> getTtl(@NonNull String key) {
+        long time = currentTime();
+        return repository.getIfNotOutdated(key, time).map(v ->
+                v.getExpirationTime() == ValueWithExpirationTime.NEVER_EXPIRES ? -1L : v.getExpirationTime() - time);
+    }
+
+    @Override
+    @Transactional
+    public boolean expire(@NonNull String key, long ttl) {
+        return AtomicUpdates.expire(repository, key, resolveTtl(ttl), currentTime());
+    }
+
+    @Override
+    @Transactional
+    public boolean persist(@NonNull String key) {
+        return AtomicUpdates.persist(repository, key, currentTime());
+    }
+
+    @Override
+    @Transactional
+    public boolean touch(@NonNull String key) {
+        return AtomicUpdates.touch(repository, key, currentTime()).isPresent();
+    }
+
+    @Override
+    @Transactional
+    public long incrementBy(@NonNull String key, long delta, long ttl) {
+        return AtomicUpdates.increment(repository, key, delta, expirationTime(ttl), currentTime());
+    }
+
+    @Override
+    @Transactional
+    public boolean compareAndSet(@NonNull String key, @NonNull String expectedValue, @NonNull String value, long ttl) {
+        return AtomicUpdates.compareAndSet(repository, key, expectedValue, value, expirationTime(ttl), currentTime());
+    }
+
+    @Override
+    @Transactional
+    public Optional<String> getAndSet(@NonNull String key, @NonNull String value, long ttl) {
+        return AtomicUpdates.getAndSet(repository, key, value, expirationTime(ttl), currentTime());
+    }
+
+    @Override
+    @Transactional
+    public boolean setIfAbsent(@NonNull String key, @NonNull String value, long ttl) {
+        return AtomicUpdates.setIfAbsent(repository, key, value, expirationTime(ttl), currentTime());
     }
 
     @Override
     @Transactional
     public Optional<String> getValueByKey(@NonNull String key) {
-        return repository.getIfNotOutdated(key, currentTime())
-                .map(ValueWithExpirationTime::getValue);
+        return getPair(key).map(ValueWithExpirationTime::getValue);
+    }
+
+    @Override
+    @Transactional
+    public Optional<VersionedValue> getVersionedValue(@NonNull String key) {
+        return getPair(key).map(v -> new VersionedValue(v.getValue(), v.currentVersion()));
     }
 
     @Override
@@ -46,6 +105,62 @@ public class DbKVService implements KeyValueService {
                 .map(ValueWithExpirationTime::getValue);
     }
 
+    /**
+     * The row of the pair is locked until the commit, other rows stay available
+     */
+    @Override
+    @Transactional
+    public long setValueByKey(@NonNull String key, @NonNull String value, long ttl, boolean slidingExpiration,
+                              @NonNull VersionPrecondition precondition) {
+        return AtomicUpdates.set(repository, key, value, resolveTtl(ttl), slidingExpiration, precondition,
+                currentTime());
+    }
+
+    @Override
+    @Transactional
+    public Optional<String> deleteValueByKey(@NonNull String key, @NonNull VersionPrecondition precondition) {
+        return AtomicUpdates.remove(repository, key, precondition, currentTime())
+                .map(ValueWithExpirationTime::getValue);
+    }
+
+    private Optional<ValueWithExpirationTime> getPair(String key) {
+        Optional<ValueWithExpirationTime> optionalValue = repository.getIfNotOutdated(key, currentTime());
+        if (optionalValue.isPresent() && optionalValue.get().getSlidingTtl() != null) {
+            optionalValue = AtomicUpdates.touch(repository, key, currentTime());
+        }
+        return optionalValue;
+    }
+
+    @Override
+    @Transactional
+    public List<String> getKeysByPrefix(@NonNull String prefix, int limit) {
+        return repository.getKeysByPrefix(prefix, limit, currentTime());
+    }
+
+    @Override
+    @Transactional
+    public List<String> getKeysInRange(String from, String to, int limit) {
+        return repository.getKeysInRange(from, to, limit, currentTime());
+    }
+
+    @Override
+    @Transactional
+    public ScanPage scan(@NonNull String cursor, int count, String pattern) {
+        return KeyScanner.scan(cursor, count, pattern,
+                (from, to, limit) -> repository.getKeysInRange(from, to, limit, currentTime()));
+    }
+
+    @Override
+    @Transactional
+    public List<KvPair> getPairsAfter(String after, int limit) {
+        return KeyScanner.pairsAfter(repository, after, limit, currentTime());
+    }
+
+    @Override
+    public boolean supportsOrderedScan() {
+        return repository.supportsOrderedScan();
+    }
+
     @Override
     @Transactional
     public Map<String, ValueWithExpirationTime> getDump() {
@@ -64,13 +179,56 @@ public class DbKVService implements KeyValueService {
         repository.addAll(filteredMap);
     }
 
+    @Override
+    @Transactional
+    public void loadPairs(Map<String, ValueWithExpirationTime> map) {
+        long time = currentTime();
+        repository.addAll(map.entrySet().stream()
+                .filter(e -> e.getValue().getExpirationTime() >= time)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+    }
+
     @Override
     @Transactional
     public void deleteAllOutdatedPairs() {
         repository.removeAllOutdatedPairs(currentTime());
     }
 
+    @Override
+    public int getExpirationSegmentCount() {
+        return repository.getSegmentCount();
+    }
+
+    @Override
+    @Transactional
+    public OutdatedKeys deleteOutdatedPairs(int segment, String cursor, int limit) {
+        long time = currentTime();
+        var found = repository.findOutdatedKeys(segment, cursor, limit, time);
+        if (!found.getKeys().isEmpty()) {
+            found.setKeys(repository.removeOutdatedPairs(found.getKeys(), time));
+        }
+        return found;
+    }
+
+    @Override
+    @Transactional
+    public TransactionResult executeTransaction(List<TransactionOperation> operations) {
+        Transactions.validate(operations);
+        return Transactions.execute(repository, operations, this::expirationTime, currentTime());
+    }
+
+    private long expirationTime(long ttl) {
+        return AtomicUpdates.expirationTime(currentTime(), resolveTtl(ttl));
+    }
+
+    private long resolveTtl(long ttl) {
+        if (ttl < 0) {
+            throw new IncorrectTtlValue();
+        }
+        return ttl == 0 ? defaultTtlMillis : ttl;
+    }
+
     private long currentTime() {
-        return System.currentTimeMillis() / 1000L;
+        return System.currentTimeMillis();
     }
 }
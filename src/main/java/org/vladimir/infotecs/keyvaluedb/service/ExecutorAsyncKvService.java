@@ -0,0 +1,56 @@
+package org.vladimir.infotecs.keyvaluedb.service;
+
+import org.vladimir.infotecs.keyvaluedb.exception.ServiceOverloaded;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * {@link AsyncKeyValueService} running the blocking {@link KeyValueService} calls (lock waits, JDBC)
+ * on a bounded executor, so request threads are not held while an operation waits.
+ * Operations rejected by the executor complete with {@link ServiceOverloaded}.
+ */
+public class ExecutorAsyncKvService implements AsyncKeyValueService {
+
+    private final KeyValueService keyValueService;
+    private final Executor executor;
+
+    public ExecutorAsyncKvService(KeyValueService keyValueService, Executor executor) {
+        this.keyValueService = keyValueService;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Optional<String>> getValueByKey(String key) {
+        return supply(() -> keyValueService.getValueByKey(key));
+    }
+
+    @Override
+    public CompletableFuture<Void> setValueByKey(String key, String value, long ttl, boolean slidingExpiration) {
+        return supply(() -> {
+            keyValueService.setValueByKey(key, value, ttl, slidingExpiration);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Long> incrementBy(String key, long delta, long ttl) {
+        return supply(() -> keyValueService.incrementBy(key, delta, ttl));
+    }
+
+    @Override
+    public CompletableFuture<Optional<String>> deleteValueByKey(String key) {
+        return supply(() -> keyValueService.deleteValueByKey(key));
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> operation) {
+        try {
+            return CompletableFuture.supplyAsync(operation, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new ServiceOverloaded("Async executor queue is full", e));
+        }
+    }
+}
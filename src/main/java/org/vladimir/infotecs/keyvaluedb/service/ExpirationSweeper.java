@@ -0,0 +1,256 @@
+package org.vladimir.infotecs.keyvaluedb.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Incremental removal of the expired pairs.
+ * <p>
+ * The keys are divided into segments (see {@link KeyValueService#getExpirationSegmentCount()}), a sweep passes
+ * the segments to {@code parallelism} threads. A segment is swept in steps of at most {@code batchSize} pairs and
+ * the thread yields between the steps, so the storage is never locked for a full scan.
+ * </p>
+ * <p>
+ * The delay between sweeps adapts to the share of expired pairs among the scanned ones: above
+ * {@code targetRatio} the delay is shortened, below it is lengthened, at most twice per sweep and within
+ * [{@code minDelay}, {@code maxDelay}] ms. Memory of expired pairs is reclaimed soon when many pairs expire,
+ * while a storage without them is rarely scanned.
+ * </p>
+ * <p>
+ * Sweepers of many small storages may share a scheduler, each sweep then runs on a thread of the scheduler and
+ * sweeps the segments one by one.
+ * </p>
+ */
+public class ExpirationSweeper implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpirationSweeper.class);
+
+    private final KeyValueService keyValueService;
+    private final int parallelism;
+    private final int batchSize;
+    private final long minDelay;
+    private final long maxDelay;
+    private final double targetRatio;
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+    private final boolean ownsThreads;
+
+    private final MeterRegistry meterRegistry;
+    private final List<Meter> meters = new ArrayList<>();
+    private final Counter removedCounter;
+    private final Counter scannedCounter;
+    private final Timer sweepTimer;
+
+    private volatile long delay;
+    private volatile double ratio;
+    private volatile boolean closed;
+    private ScheduledFuture<?> nextSweep;
+
+    /**
+     * @param parallelism number of threads sweeping the segments
+     * @param batchSize   max number of pairs removed by a single step
+     * @param minDelay    min delay between sweeps in ms
+     * @param maxDelay    max delay between sweeps in ms
+     * @param targetRatio share of expired pairs among the scanned ones that keeps the delay unchanged
+     * @param tags        tags of the sweeper's meters, the meters are removed on {@link #close()}
+     */
+    public ExpirationSweeper(KeyValueService keyValueService, int parallelism, int batchSize, long minDelay,
+                             long maxDelay, double targetRatio, MeterRegistry meterRegistry, Tags tags) {
+        this(keyValueService, Executors.newSingleThreadScheduledExecutor(daemonThreads("expiration-sweeper")),
+                Executors.newFixedThreadPool(parallelism, daemonThreads("expiration-sweeper-worker")), parallelism,
+                true, batchSize, minDelay, maxDelay, targetRatio, meterRegistry, tags);
+    }
+
+    /**
+     * Sweeper running on the shared scheduler, the scheduler isn't shut down on {@link #close()}
+     *
+     * @param scheduler threads running the sweeps
+     */
+    public ExpirationSweeper(KeyValueService keyValueService, ScheduledExecutorService scheduler, int batchSize,
+                             long minDelay, long maxDelay, double targetRatio, MeterRegistry meterRegistry,
+                             Tags tags) {
+        this(keyValueService, scheduler, null, 1, false, batchSize, minDelay, maxDelay, targetRatio,
+                meterRegistry, tags);
+    }
+
+    private ExpirationSweeper(KeyValueService keyValueService, ScheduledExecutorService scheduler,
+                              ExecutorService workers, int parallelism, boolean ownsThreads, int batchSize,
+                              long minDelay, long maxDelay, double targetRatio, MeterRegistry meterRegistry,
+                              Tags tags) {
+        this.keyValueService = keyValueService;
+        this.scheduler = scheduler;
+        this.workers = workers;
+        this.parallelism = parallelism;
+        this.ownsThreads = ownsThreads;
+        this.batchSize = batchSize;
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay;
+        this.targetRatio = targetRatio;
+        this.delay = minDelay;
+        this.meterRegistry = meterRegistry;
+        this.removedCounter = Counter.builder("sweeper.removed")
+                .description("Expired pairs removed by the sweeper")
+                .tags(tags)
+                .register(meterRegistry);
+        this.scannedCounter = Counter.builder("sweeper.scanned")
+                .description("Pairs scanned by the sweeper")
+                .tags(tags)
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("sweeper.duration")
+                .description("Duration of a sweep of all the segments")
+                .tags(tags)
+                .register(meterRegistry);
+        meters.add(removedCounter);
+        meters.add(scannedCounter);
+        meters.add(sweepTimer);
+        meters.add(Gauge.builder("sweeper.delay", this, ExpirationSweeper::getDelay)
+                .description("Current delay between sweeps")
+                .baseUnit("milliseconds")
+                .tags(tags)
+                .register(meterRegistry));
+        meters.add(Gauge.builder("sweeper.ratio", this, ExpirationSweeper::getRatio)
+                .description("Share of expired pairs among the pairs scanned by the last sweep")
+                .tags(tags)
+                .register(meterRegistry));
+    }
+
+    public long getDelay() {
+        return delay;
+    }
+
+    public double getRatio() {
+        return ratio;
+    }
+
+    /**
+     * Schedules the first sweep, the next ones are scheduled with the adapted delay
+     */
+    public void start() {
+        scheduleNext();
+    }
+
+    /**
+     * Sweeps all the segments once and adapts the delay
+     *
+     * @return share of expired pairs among the scanned ones
+     */
+    public double sweep() {
+        long start = System.nanoTime();
+        int segmentCount = keyValueService.getExpirationSegmentCount();
+        var nextSegment = new AtomicInteger();
+        var removed = new AtomicLong();
+        var scanned = new AtomicLong();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, segmentCount); i++) {
+            tasks.add(() -> {
+                int segment;
+                while (!closed && (segment = nextSegment.getAndIncrement()) < segmentCount) {
+                    sweepSegment(segment, removed, scanned);
+                }
+                return null;
+            });
+        }
+        try {
+            if (workers == null) {
+                tasks.get(0).call();
+            } else {
+                for (Future<Void> future : workers.invokeAll(tasks)) {
+                    future.get();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Expiration sweep failed", e.getCause());
+        } catch (Exception e) {
+            throw new IllegalStateException("Expiration sweep failed", e);
+        } finally {
+            removedCounter.increment(removed.get());
+            scannedCounter.increment(scanned.get());
+            sweepTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        ratio = scanned.get() == 0 ? 0 : (double) removed.get() / scanned.get();
+        delay = adaptDelay(delay, ratio);
+        logger.debug("Removed {} of {} scanned pairs in {} segments, next sweep in {} ms",
+                removed.get(), scanned.get(), segmentCount, delay);
+        return ratio;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            if (nextSweep != null) {
+                nextSweep.cancel(false);
+            }
+        }
+        if (ownsThreads) {
+            scheduler.shutdownNow();
+            workers.shutdownNow();
+        }
+        meters.forEach(meterRegistry::remove);
+    }
+
+    private void run() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            logger.error("Expiration sweep failed", e);
+        } finally {
+            scheduleNext();
+        }
+    }
+
+    private synchronized void scheduleNext() {
+        if (!closed) {
+            nextSweep = scheduler.schedule(this::run, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sweepSegment(int segment, AtomicLong removed, AtomicLong scanned) {
+        String cursor = null;
+        do {
+            var step = keyValueService.deleteOutdatedPairs(segment, cursor, batchSize);
+            removed.addAndGet(step.getKeys().size());
+            scanned.addAndGet(step.getScanned());
+            cursor = step.getCursor();
+            // writers waiting for the lock and other segments run between the steps
+            Thread.yield();
+        } while (cursor != null && !closed);
+    }
+
+    private long adaptDelay(long current, double observedRatio) {
+        double factor = Math.max(0.5, Math.min(2, observedRatio / targetRatio));
+        return Math.max(minDelay, Math.min(maxDelay, Math.round(current / factor)));
+    }
+
+    static ThreadFactory daemonThreads(String name) {
+        var counter = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
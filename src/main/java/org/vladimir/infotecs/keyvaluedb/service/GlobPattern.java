@@ -0,0 +1,102 @@
+package org.vladimir.infotecs.keyvaluedb.service;
+
+import java.util.regex.Pattern;
+
+/**
+ * Glob-style key pattern: {@code *} matches any sequence of characters, {@code ?} matches any single character,
+ * {@code [abc]}, {@code [a-z]} and {@code [^a]} match character classes, {@code \} escapes the next character.
+ * <p>
+ * The literal prefix of the pattern (characters before the first wildcard) lets ordered scans skip
+ * keys that can't match.
+ * </p>
+ */
+public final class GlobPattern {
+
+    private final Pattern pattern;
+    private final String literalPrefix;
+
+    private GlobPattern(Pattern pattern, String literalPrefix) {
+        this.pattern = pattern;
+        this.literalPrefix = literalPrefix;
+    }
+
+    public static GlobPattern compile(String glob) {
+        StringBuilder regex = new StringBuilder(glob.length() + 8);
+        StringBuilder literalPrefix = new StringBuilder();
+        boolean inPrefix = true;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '\\' && i + 1 < glob.length()) {
+                c = glob.charAt(++i);
+                appendLiteral(regex, c);
+                if (inPrefix) {
+                    literalPrefix.append(c);
+                }
+            } else if (c == '*') {
+                regex.append(".*");
+                inPrefix = false;
+            } else if (c == '?') {
+                regex.append('.');
+                inPrefix = false;
+            } else if (c == '[' && glob.indexOf(']', i + 2) > 0) {
+                int end = glob.indexOf(']', i + 2);
+                regex.append('[');
+                int j = i + 1;
+                if (glob.charAt(j) == '^' || glob.charAt(j) == '!') {
+                    regex.append('^');
+                    j++;
+                }
+                for (; j < end; j++) {
+                    char classChar = glob.charAt(j);
+                    if (classChar == '-') {
+                        regex.append('-');
+                    } else {
+                        appendLiteral(regex, classChar);
+                    }
+                }
+                regex.append(']');
+                i = end;
+                inPrefix = false;
+            } else {
+                appendLiteral(regex, c);
+                if (inPrefix) {
+                    literalPrefix.append(c);
+                }
+            }
+        }
+        return new GlobPattern(Pattern.compile(regex.toString(), Pattern.DOTALL), literalPrefix.toString());
+    }
+
+    private static void appendLiteral(StringBuilder regex, char c) {
+        if (!Character.isLetterOrDigit(c)) {
+            regex.append('\\');
+        }
+        regex.append(c);
+    }
+
+    public boolean matches(String key) {
+        return pattern.matcher(key).matches();
+    }
+
+    /**
+     * @return characters every matching key starts with, may be empty
+     */
+    public String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
+    /**
+     * Get the smallest string that is greater than every string starting with the prefix
+     *
+     * @return exclusive upper bound or null if there is no such string
+     */
+    public static String prefixUpperBound(String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            char c = prefix.charAt(i);
+            if (c != Character.MAX_VALUE) {
+                return prefix.substring(0, i) + (char) (c + 1);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,88 @@
+package org.vladimir.infotecs.keyvaluedb.service;
+
+import org.vladimir.infotecs.keyvaluedb.exception.IncorrectCursor;
+import org.vladimir.infotecs.keyvaluedb.model.KvPair;
+import org.vladimir.infotecs.keyvaluedb.model.ScanPage;
+import org.vladimir.infotecs.keyvaluedb.repository.KeyValueRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Cursor-based iteration over the keyspace in ascending key order.
+ * <p>
+ * The cursor is the last visited key encoded with URL-safe base64, so no state is kept on the server
+ * between calls and each call only runs a single bounded range query. Keys added or removed during the scan
+ * may or may not be returned, keys present for the whole scan are returned exactly once.
+ * </p>
+ */
+final class KeyScanner {
+
+    static final String START_CURSOR = "0";
+
+    @FunctionalInterface
+    interface KeyRangeQuery {
+        /**
+         * @see org.vladimir.infotecs.keyvaluedb.repository.KeyValueRepository#getKeysInRange
+         */
+        List<String> getKeysInRange(String from, String to, int limit);
+    }
+
+    private KeyScanner() {
+    }
+
+    /**
+     * Visit at most {@code count} live keys following the cursor and return those matching the pattern.
+     * A page may be empty while the scan isn't complete.
+     *
+     * @param pattern glob pattern (see {@link GlobPattern}), null to return all keys
+     */
+    static ScanPage scan(String cursor, int count, String pattern, KeyRangeQuery query) {
+        String from = START_CURSOR.equals(cursor) ? null : decode(cursor) + '\u0000';
+        String to = null;
+        GlobPattern glob = pattern == null ? null : GlobPattern.compile(pattern);
+        if (glob != null && !glob.getLiteralPrefix().isEmpty()) {
+            String prefix = glob.getLiteralPrefix();
+            if (from == null || from.compareTo(prefix) < 0) {
+                from = prefix;
+            }
+            to = GlobPattern.prefixUpperBound(prefix);
+        }
+
+        List<String> visited = query.getKeysInRange(from, to, count);
+        List<String> keys = glob == null ? visited : visited.stream().filter(glob::matches).toList();
+        String nextCursor = visited.size() < count ? START_CURSOR : encode(visited.get(visited.size() - 1));
+        return new ScanPage(nextCursor, keys);
+    }
+
+    /**
+     * Read a page of pairs following the key with {@link KeyValueRepository#get}, which doesn't renew
+     * sliding expiration. The caller provides the synchronization the repository requires.
+     *
+     * @param after exclusive lower bound, null to start from the first key
+     */
+    static List<KvPair> pairsAfter(KeyValueRepository repository, String after, int limit, long time) {
+        List<String> keys = repository.getKeysInRange(after == null ? null : after + '\u0000', null, limit, time);
+        List<KvPair> pairs = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            repository.get(key)
+                    .filter(value -> value.getExpirationTime() >= time)
+                    .ifPresent(value -> pairs.add(new KvPair(key, value)));
+        }
+        return pairs;
+    }
+
+    private static String encode(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IncorrectCursor(e);
+        }
+    }
+}
@@ -1,8 +1,16 @@
 package org.vladimir.infotecs.keyvaluedb.service;
 
+import org.vladimir.infotecs.keyvaluedb.model.KvPair;
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+import org.vladimir.infotecs.keyvaluedb.model.ScanPage;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionOperation;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionResult;
 import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
 import org.vladimir.infotecs.keyvaluedb.model.ValueWithTtl;
+import org.vladimir.infotecs.keyvaluedb.model.VersionPrecondition;
+import org.vladimir.infotecs.keyvaluedb.model.VersionedValue;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -20,9 +28,24 @@ public interface KeyValueService {
      *
      * @param key the key with which the specified value is to be associated
      * @param value the value to be associated with the key
-     * @param ttl the time-to-live in seconds; if {@code null} or {@code 0}, the value will not expire
+     * @param ttl the time-to-live in milliseconds; if {@code 0}, the default TTL is used
      */
-    void setValueByKey(String key, String value, long ttl);
+    default void setValueByKey(String key, String value, long ttl) {
+        setValueByKey(key, value, ttl, false);
+    }
+
+    /**
+     * Sets the value associated with the specified key with fixed or sliding expiration.
+     * <p>
+     * The expiration time of a sliding pair is moved forward by its TTL on every read.
+     * </p>
+     *
+     * @param key the key with which the specified value is to be associated
+     * @param value the value to be associated with the key
+     * @param ttl the time-to-live in milliseconds; if {@code 0}, the default TTL is used
+     * @param slidingExpiration {@code true} to renew the TTL on every read
+     */
+    void setValueByKey(String key, String value, long ttl, boolean slidingExpiration);
 
     /**
      * Retrieves the value associated with the specified key.
@@ -32,6 +55,95 @@ public interface KeyValueService {
      */
     Optional<String> getValueByKey(String key);
 
+    /**
+     * Returns the value with the version of the pair, see {@link #getValueByKey(String)}.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return an {@link Optional} containing the value and its version, or an empty {@link Optional} if the key
+     * does not exist or the value has expired
+     */
+    Optional<VersionedValue> getVersionedValue(String key);
+
+    /**
+     * Returns the remaining time-to-live of the pair without renewing a sliding TTL.
+     *
+     * @param key the key of the pair
+     * @return an {@link Optional} containing the remaining TTL in milliseconds or {@code -1} if the pair never expires,
+     * or an empty {@link Optional} if the key does not exist or the value has expired
+     */
+    Optional<Long> getTtl(String key);
+
+    /**
+     * Sets a new time-to-live of an existing pair. A sliding pair stays sliding with the new TTL.
+     *
+     * @param key the key of the pair
+     * @param ttl the time-to-live in milliseconds; if {@code 0}, the default TTL is used
+     * @return {@code true} if the TTL was set, {@code false} if the key does not exist
+     */
+    boolean expire(String key, long ttl);
+
+    /**
+     * Removes the expiration of an existing pair.
+     *
+     * @param key the key of the pair
+     * @return {@code true} if the expiration was removed, {@code false} if the key does not exist
+     */
+    boolean persist(String key);
+
+    /**
+     * Renews the TTL of a sliding pair without reading the value. Other pairs are not changed.
+     *
+     * @param key the key of the pair
+     * @return {@code true} if the key exists, {@code false} otherwise
+     */
+    boolean touch(String key);
+
+    /**
+     * Atomically adds delta to the integer value associated with the specified key.
+     * <p>
+     * If the key does not exist or the value has expired, the value is set to delta with the specified TTL,
+     * otherwise the TTL of the existing pair is kept.
+     * </p>
+     *
+     * @param key the key whose associated value is to be incremented
+     * @param delta the value to add, negative to decrement
+     * @param ttl the time-to-live in milliseconds of a new pair; if {@code 0}, the default TTL is used
+     * @return the value after the increment
+     * @throws org.vladimir.infotecs.keyvaluedb.exception.NotAnInteger if the value is not an integer or the result overflows
+     */
+    long incrementBy(String key, long delta, long ttl);
+
+    /**
+     * Atomically sets the value if the current value equals the expected one.
+     *
+     * @param key the key with which the specified value is to be associated
+     * @param expectedValue the value that must be currently associated with the key
+     * @param value the value to be associated with the key
+     * @param ttl the time-to-live in milliseconds; if {@code 0}, the default TTL is used
+     * @return {@code true} if the value was set, {@code false} if the current value differs or does not exist
+     */
+    boolean compareAndSet(String key, String expectedValue, String value, long ttl);
+
+    /**
+     * Atomically sets the value and returns the previous one.
+     *
+     * @param key the key with which the specified value is to be associated
+     * @param value the value to be associated with the key
+     * @param ttl the time-to-live in milliseconds; if {@code 0}, the default TTL is used
+     * @return an {@link Optional} containing the previous value, or an empty {@link Optional} if the key did not exist or the value has expired
+     */
+    Optional<String> getAndSet(String key, String value, long ttl);
+
+    /**
+     * Atomically sets the value if the key does not exist or the value has expired.
+     *
+     * @param key the key with which the specified value is to be associated
+     * @param value the value to be associated with the key
+     * @param ttl the time-to-live in milliseconds; if {@code 0}, the default TTL is used
+     * @return {@code true} if the value was set, {@code false} if the key already exists
+     */
+    boolean setIfAbsent(String key, String value, long ttl);
+
     /**
      * Deletes the value associated with the specified key.
      *
@@ -40,6 +152,79 @@ public interface KeyValueService {
      */
     Optional<String> deleteValueByKey(String key);
 
+    /**
+     * Sets the value if the version of the current pair meets the precondition. The check and the write are
+     * a single atomic update of the pair, writes of other keys aren't blocked where the repository allows it
+     * (see {@link org.vladimir.infotecs.keyvaluedb.repository.KeyValueRepository#supportsConcurrentCompute()}).
+     *
+     * @param ttl the time-to-live in milliseconds, 0 for the default TTL
+     * @return the version of the written pair
+     * @throws org.vladimir.infotecs.keyvaluedb.exception.PreconditionFailed if the precondition isn't met
+     */
+    long setValueByKey(String key, String value, long ttl, boolean slidingExpiration, VersionPrecondition precondition);
+
+    /**
+     * Deletes the pair if its version meets the precondition, atomically as
+     * {@link #setValueByKey(String, String, long, boolean, VersionPrecondition)}.
+     *
+     * @return an {@link Optional} containing the removed value, or an empty {@link Optional} if the key did not exist
+     * @throws org.vladimir.infotecs.keyvaluedb.exception.PreconditionFailed if the precondition isn't met
+     */
+    Optional<String> deleteValueByKey(String key, VersionPrecondition precondition);
+
+    /**
+     * Returns keys starting with the specified prefix in ascending order. Expired pairs are skipped.
+     *
+     * @param prefix the prefix of the keys
+     * @param limit max number of keys to return
+     * @return a {@link List} of at most {@code limit} keys
+     */
+    List<String> getKeysByPrefix(String prefix, int limit);
+
+    /**
+     * Returns keys in the range [{@code from}, {@code to}) in ascending order. Expired pairs are skipped.
+     *
+     * @param from inclusive lower bound, {@code null} for unbounded
+     * @param to exclusive upper bound, {@code null} for unbounded
+     * @param limit max number of keys to return
+     * @return a {@link List} of at most {@code limit} keys
+     */
+    List<String> getKeysInRange(String from, String to, int limit);
+
+    /**
+     * Incrementally iterates over the keys in ascending order.
+     * <p>
+     * Each call visits at most {@code count} non-expired keys following the cursor and returns those matching
+     * the pattern, so a page may be empty while the iteration isn't complete. No lock is held between calls.
+     * </p>
+     *
+     * @param cursor "0" to start the iteration, otherwise the cursor returned by the previous call
+     * @param count max number of keys to visit
+     * @param pattern glob pattern of the keys (see {@link GlobPattern}), {@code null} to return all keys
+     * @return a {@link ScanPage} with the keys and the next cursor, "0" when the iteration is complete
+     */
+    ScanPage scan(String cursor, int count, String pattern);
+
+    /**
+     * Returns non-expired pairs with keys greater than {@code after} in ascending key order.
+     * <p>
+     * Sliding expiration isn't renewed. No lock is held between calls, so the storage read page by page
+     * is a fuzzy copy: a pair changed during the iteration may be seen in either state.
+     * </p>
+     *
+     * @param after exclusive lower bound, {@code null} to start from the first key
+     * @param limit max number of pairs to return
+     * @return a {@link List} of at most {@code limit} pairs
+     */
+    List<KvPair> getPairsAfter(String after, int limit);
+
+    /**
+     * @return true if the keys are ordered, so {@link #scan} and {@link #getPairsAfter} seek to the cursor instead
+     * of passing over all pairs on every call. Otherwise they throw
+     * {@link org.vladimir.infotecs.keyvaluedb.exception.OrderedScanNotSupported}
+     */
+    boolean supportsOrderedScan();
+
     /**
      * Returns a map of all key-value pairs in the database.
      * <p>
@@ -60,6 +245,16 @@ public interface KeyValueService {
      */
     void restoreFromDump(Map<String, ValueWithExpirationTime> map);
 
+    /**
+     * Adds the key-value pairs to the database, other pairs are kept.
+     * <p>
+     * Expired pairs are skipped. Used to load a restored dump in parts, the parts may be loaded concurrently.
+     * </p>
+     *
+     * @param map a {@link Map} containing key-value pairs to be added
+     */
+    void loadPairs(Map<String, ValueWithExpirationTime> map);
+
     /**
      * Removes all key-value pairs where the TTL has expired.
      * <p>
@@ -67,5 +262,38 @@ public interface KeyValueService {
      * </p>
      */
     void deleteAllOutdatedPairs();
-}
 
+    /**
+     * Returns the number of segments the keys are divided into for the incremental expiration.
+     *
+     * @return the number of segments, different segments may be swept concurrently
+     */
+    int getExpirationSegmentCount();
+
+    /**
+     * Removes at most {@code limit} expired pairs of the segment, a single step of the incremental expiration.
+     * <p>
+     * Expired pairs are found without blocking reads, the lock is held for writes only to remove the found pairs.
+     * </p>
+     *
+     * @param segment the segment number from {@code 0} to {@link #getExpirationSegmentCount()} - 1
+     * @param cursor the cursor returned by the previous step of the segment, {@code null} to start from its beginning
+     * @param limit max number of pairs to remove
+     * @return an {@link OutdatedKeys} with the removed keys, the number of scanned pairs and the next cursor,
+     * {@code null} when the segment is swept to the end
+     */
+    OutdatedKeys deleteOutdatedPairs(int segment, String cursor, int limit);
+
+    /**
+     * Executes the operations atomically: in a single acquisition of the write lock or in a single database transaction.
+     * <p>
+     * The conditions ({@code CHECK_*} operations) are evaluated first against the state before the transaction,
+     * if one of them fails no operation is applied. Otherwise the other operations run in the given order.
+     * </p>
+     *
+     * @param operations the operations, SET ttl in milliseconds, zero for the default ttl
+     * @return a {@link TransactionResult} with the results of the operations or the index of the failed condition
+     * @throws org.vladimir.infotecs.keyvaluedb.exception.IncorrectTransaction if an operation misses its key or value
+     */
+    TransactionResult executeTransaction(List<TransactionOperation> operations);
+}
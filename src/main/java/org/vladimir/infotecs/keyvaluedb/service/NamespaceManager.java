@@ -0,0 +1,216 @@
+package org.vladimir.infotecs.keyvaluedb.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vladimir.infotecs.keyvaluedb.exception.IncorrectExpirationInterval;
+import org.vladimir.infotecs.keyvaluedb.exception.MemoryLimitExceeded;
+import org.vladimir.infotecs.keyvaluedb.exception.NamespaceAlreadyExists;
+import org.vladimir.infotecs.keyvaluedb.exception.NamespaceLimitExceeded;
+import org.vladimir.infotecs.keyvaluedb.exception.NamespaceNotFound;
+import org.vladimir.infotecs.keyvaluedb.model.NamespaceInfo;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.repository.HashMapKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.MemoryLimitedKeyValueRepository;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+
+/**
+ * Named keyspaces isolated from each other and from the default storage.
+ * <p>
+ * Each namespace has its own {@link HashMapKeyValueRepository} limited by {@link MemoryLimitedKeyValueRepository},
+ * its own {@link RWLSyncKvService} (so a write or a flush of one namespace never waits for the lock of another)
+ * with its own default ttl, and its own {@link ExpirationSweeper} with its own max delay. The sweepers share
+ * a fixed pool of threads, so the number of threads doesn't grow with the number of namespaces.
+ * </p>
+ */
+public class NamespaceManager implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(NamespaceManager.class);
+
+    private final long defaultTtl;
+    private final long defaultMaxMemory;
+    private final long defaultExpirationInterval;
+    private final int segments;
+    private final int sweeperBatchSize;
+    private final long sweeperMinDelay;
+    private final double sweeperTargetRatio;
+    private final int maxCount;
+    private final long minExpirationInterval;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService sweeperThreads;
+
+    private final Map<String, Namespace> namespaces = new ConcurrentHashMap<>();
+
+    private record Namespace(NamespaceInfo settings, MemoryLimitedKeyValueRepository repository,
+                             KeyValueService service, ExpirationSweeper sweeper, Gauge memoryGauge) {
+
+        NamespaceInfo info() {
+            return new NamespaceInfo(settings.getName(), settings.getDefaultTtl(), settings.getMaxMemory(),
+                    repository.getUsedBytes(), settings.getExpirationInterval());
+        }
+    }
+
+    /**
+     * @param defaultTtl                default ttl of the namespaces created without it in seconds
+     * @param defaultMaxMemory          memory limit of the namespaces created without it in bytes, 0 for unlimited
+     * @param defaultExpirationInterval max delay between sweeps of the namespaces created without it in ms
+     * @param segments                  number of the expiration segments of a namespace
+     * @param sweeperThreads            number of threads sweeping all the namespaces
+     * @param maxCount                  max number of namespaces
+     * @param minExpirationInterval     min delay between sweeps a namespace may be created with in ms
+     */
+    public NamespaceManager(long defaultTtl, long defaultMaxMemory, long defaultExpirationInterval, int segments,
+                            int sweeperBatchSize, long sweeperMinDelay, double sweeperTargetRatio,
+                            int sweeperThreads, int maxCount, long minExpirationInterval,
+                            MeterRegistry meterRegistry) {
+        this.defaultTtl = defaultTtl;
+        this.defaultMaxMemory = defaultMaxMemory;
+        this.defaultExpirationInterval = defaultExpirationInterval;
+        this.segments = segments;
+        this.sweeperBatchSize = sweeperBatchSize;
+        this.sweeperMinDelay = sweeperMinDelay;
+        this.sweeperTargetRatio = sweeperTargetRatio;
+        this.maxCount = maxCount;
+        this.minExpirationInterval = minExpirationInterval;
+        this.meterRegistry = meterRegistry;
+        this.sweeperThreads = Executors.newScheduledThreadPool(sweeperThreads,
+                ExpirationSweeper.daemonThreads("namespace-sweeper"));
+    }
+
+    /**
+     * Creates a namespace, zero settings are replaced with the server defaults
+     *
+     * @throws NamespaceAlreadyExists       if the namespace exists
+     * @throws NamespaceLimitExceeded       if there are {@code maxCount} namespaces
+     * @throws IncorrectExpirationInterval if the expiration interval is less than {@code minExpirationInterval}
+     */
+    public synchronized NamespaceInfo create(String name, long ttl, long maxMemory, long expirationInterval) {
+        if (namespaces.containsKey(name)) {
+            throw new NamespaceAlreadyExists("Namespace " + name + " already exists");
+        }
+        if (expirationInterval > 0 && expirationInterval < minExpirationInterval) {
+            throw new IncorrectExpirationInterval("Expiration interval " + expirationInterval
+                    + " ms is less than " + minExpirationInterval + " ms");
+        }
+        if (namespaces.size() >= maxCount) {
+            throw new NamespaceLimitExceeded("There are already " + maxCount + " namespaces");
+        }
+        var settings = new NamespaceInfo(name,
+                ttl > 0 ? ttl : defaultTtl,
+                maxMemory > 0 ? maxMemory : defaultMaxMemory,
+                0,
+                expirationInterval > 0 ? expirationInterval : defaultExpirationInterval);
+        var repository = new MemoryLimitedKeyValueRepository(new HashMapKeyValueRepository(segments),
+                settings.getMaxMemory());
+        var service = new RWLSyncKvService(repository, settings.getDefaultTtl());
+        var tags = Tags.of("namespace", name);
+        var sweeper = new ExpirationSweeper(service, sweeperThreads, sweeperBatchSize,
+                Math.min(sweeperMinDelay, settings.getExpirationInterval()), settings.getExpirationInterval(),
+                sweeperTargetRatio, meterRegistry, tags);
+        var memoryGauge = Gauge.builder("namespace.memory", repository, MemoryLimitedKeyValueRepository::getUsedBytes)
+                .description("Estimated size of the pairs of the namespace")
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(meterRegistry);
+        var namespace = new Namespace(settings, repository, service, sweeper, memoryGauge);
+        namespaces.put(name, namespace);
+        sweeper.start();
+        logger.info("Created namespace {}", settings);
+        return namespace.info();
+    }
+
+    /**
+     * Drops the namespace with all its pairs
+     *
+     * @throws NamespaceNotFound if there is no such namespace
+     */
+    public synchronized void drop(String name) {
+        var namespace = namespaces.remove(name);
+        if (namespace == null) {
+            throw new NamespaceNotFound("Namespace " + name + " not found");
+        }
+        close(namespace);
+        logger.info("Dropped namespace {}", name);
+    }
+
+    public List<NamespaceInfo> list() {
+        return namespaces.values().stream()
+                .map(Namespace::info)
+                .sorted(Comparator.comparing(NamespaceInfo::getName))
+                .toList();
+    }
+
+    /**
+     * @throws NamespaceNotFound if there is no such namespace
+     */
+    public NamespaceInfo getInfo(String name) {
+        return get(name).info();
+    }
+
+    /**
+     * Service of the namespace's pairs, operations on it don't affect other namespaces
+     *
+     * @throws NamespaceNotFound if there is no such namespace
+     */
+    public KeyValueService getService(String name) {
+        return get(name).service();
+    }
+
+    /**
+     * Removes all the pairs of the namespace, the settings stay
+     */
+    public void flush(String name) {
+        get(name).service().restoreFromDump(Map.of());
+    }
+
+    public Map<String, ValueWithExpirationTime> getDump(String name) {
+        return get(name).service().getDump();
+    }
+
+    /**
+     * Replaces the pairs of the namespace with the dump, outdated pairs are skipped
+     *
+     * @throws MemoryLimitExceeded if the dump doesn't fit the memory limit, the namespace is left unchanged
+     */
+    public void restore(String name, Map<String, ValueWithExpirationTime> dump) {
+        var namespace = get(name);
+        long time = System.currentTimeMillis();
+        long size = MemoryLimitedKeyValueRepository.estimateSize(dump.entrySet().stream()
+                .filter(e -> e.getValue().getExpirationTime() >= time)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+        long limit = namespace.repository().getLimit();
+        if (limit > 0 && size > limit) {
+            throw new MemoryLimitExceeded("Dump of " + size + " bytes exceeds the limit of " + limit + " bytes");
+        }
+        namespace.service().restoreFromDump(dump);
+    }
+
+    @Override
+    public synchronized void close() {
+        namespaces.values().forEach(this::close);
+        namespaces.clear();
+        sweeperThreads.shutdownNow();
+    }
+
+    private Namespace get(String name) {
+        var namespace = namespaces.get(name);
+        if (namespace == null) {
+            throw new NamespaceNotFound("Namespace " + name + " not found");
+        }
+        return namespace;
+    }
+
+    private void close(Namespace namespace) {
+        namespace.sweeper().close();
+        meterRegistry.remove(namespace.memoryGauge());
+    }
+}
@@ -4,9 +4,18 @@ import lombok.NonNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.vladimir.infotecs.keyvaluedb.exception.IncorrectTtlValue;
+import org.vladimir.infotecs.keyvaluedb.exception.OrderedScanNotSupported;
+import org.vladimir.infotecs.keyvaluedb.model.KvPair;
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+import org.vladimir.infotecs.keyvaluedb.model.ScanPage;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionOperation;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionResult;
 import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.model.VersionPrecondition;
+import org.vladimir.infotecs.keyvaluedb.model.VersionedValue;
 import org.vladimir.infotecs.keyvaluedb.repository.KeyValueRepository;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.locks.Lock;
@@ -28,23 +37,107 @@ public class RWLSyncKvService implements KeyValueService {
     private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
     private final Lock readLock = rwl.readLock();
     private final Lock writeLock = rwl.writeLock();
-    private final long defaultTTL;
+    private final long defaultTtlMillis;
 
     @Autowired
     public RWLSyncKvService(KeyValueRepository keyValueRepository, @Value("${defaultTTL:120}") long defaultTTL) {
         this.repository = keyValueRepository;
-        this.defaultTTL = defaultTTL;
+        this.defaultTtlMillis = defaultTTL * 1000L;
     }
 
     @Override
-    public void setValueByKey(@NonNull String key, @NonNull String value, long ttl) {
-        if (ttl < 0) {
-            throw new IncorrectTtlValue();
+    public void setValueByKey(@NonNull String key, @NonNull String value, long ttl, boolean slidingExpiration) {
+        long resolvedTtl = resolveTtl(ttl);
+        writeLock.lock();
+        try {
+            AtomicUpdates.set(repository, key, value, resolvedTtl, slidingExpiration, currentTime());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Long> getTtl(@NonNull String key) {
+        readLock.lock();
+        try {
+            long time = currentTime();
+            return repository.getIfNotOutdated(key, time).map(v ->
+                    v.getExpirationTime() == ValueWithExpirationTime.NEVER_EXPIRES ? -1L : v.getExpirationTime() - time);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean expire(@NonNull String key, long ttl) {
+        long resolvedTtl = resolveTtl(ttl);
+        writeLock.lock();
+        try {
+            return AtomicUpdates.expire(repository, key, resolvedTtl, currentTime());
+        } finally {
+            writeLock.unlock();
         }
-        ttl = ttl == 0 ? defaultTTL : ttl;
+    }
+
+    @Override
+    public boolean persist(@NonNull String key) {
         writeLock.lock();
         try {
-            repository.put(key, value, currentTime() + ttl);
+            return AtomicUpdates.persist(repository, key, currentTime());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean touch(@NonNull String key) {
+        writeLock.lock();
+        try {
+            return AtomicUpdates.touch(repository, key, currentTime()).isPresent();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public long incrementBy(@NonNull String key, long delta, long ttl) {
+        long expirationTime = expirationTime(ttl);
+        writeLock.lock();
+        try {
+            return AtomicUpdates.increment(repository, key, delta, expirationTime, currentTime());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndSet(@NonNull String key, @NonNull String expectedValue, @NonNull String value, long ttl) {
+        long expirationTime = expirationTime(ttl);
+        writeLock.lock();
+        try {
+            return AtomicUpdates.compareAndSet(repository, key, expectedValue, value, expirationTime, currentTime());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<String> getAndSet(@NonNull String key, @NonNull String value, long ttl) {
+        long expirationTime = expirationTime(ttl);
+        writeLock.lock();
+        try {
+            return AtomicUpdates.getAndSet(repository, key, value, expirationTime, currentTime());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean setIfAbsent(@NonNull String key, @NonNull String value, long ttl) {
+        long expirationTime = expirationTime(ttl);
+        writeLock.lock();
+        try {
+            return AtomicUpdates.setIfAbsent(repository, key, value, expirationTime, currentTime());
         } finally {
             writeLock.unlock();
         }
@@ -52,21 +145,65 @@ public class RWLSyncKvService implements KeyValueService {
 
     @Override
     public Optional<String> getValueByKey(@NonNull String key) {
-        Optional<String> result;
+        return getPair(key).map(ValueWithExpirationTime::getValue);
+    }
+
+    @Override
+    public Optional<VersionedValue> getVersionedValue(@NonNull String key) {
+        return getPair(key).map(v -> new VersionedValue(v.getValue(), v.currentVersion()));
+    }
+
+    @Override
+    public long setValueByKey(@NonNull String key, @NonNull String value, long ttl, boolean slidingExpiration,
+                              @NonNull VersionPrecondition precondition) {
+        long resolvedTtl = resolveTtl(ttl);
+        Lock lock = pairUpdateLock();
+        lock.lock();
+        try {
+            return AtomicUpdates.set(repository, key, value, resolvedTtl, slidingExpiration, precondition, currentTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<String> deleteValueByKey(@NonNull String key, @NonNull VersionPrecondition precondition) {
+        Lock lock = pairUpdateLock();
+        lock.lock();
+        try {
+            return AtomicUpdates.remove(repository, key, precondition, currentTime())
+                    .map(ValueWithExpirationTime::getValue);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Optional<ValueWithExpirationTime> getPair(String key) {
         Optional<ValueWithExpirationTime> optionalValue;
         readLock.lock();
         try {
             optionalValue = repository.getIfNotOutdated(key, currentTime());
-            if (optionalValue.isPresent()) {
-                ValueWithExpirationTime value = optionalValue.get();
-                result = Optional.of(value.getValue());
-            } else {
-                result = Optional.empty();
-            }
         } finally {
             readLock.unlock();
         }
-        return result;
+        if (optionalValue.isPresent() && optionalValue.get().getSlidingTtl() != null) {
+            // only sliding pairs pay for the write lock
+            writeLock.lock();
+            try {
+                optionalValue = AtomicUpdates.touch(repository, key, currentTime());
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return optionalValue;
+    }
+
+    /**
+     * Lock of a single atomic update of a pair. If the repository updates pairs atomically on its own, the read
+     * lock is enough to exclude the other modifications and writers of different keys don't wait for each other
+     */
+    private Lock pairUpdateLock() {
+        return repository.supportsConcurrentCompute() ? readLock : writeLock;
     }
 
     @Override
@@ -81,6 +218,68 @@ public class RWLSyncKvService implements KeyValueService {
         }
     }
 
+    @Override
+    public List<String> getKeysByPrefix(@NonNull String prefix, int limit) {
+        readLock.lock();
+        try {
+            return repository.getKeysByPrefix(prefix, limit, currentTime());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> getKeysInRange(String from, String to, int limit) {
+        readLock.lock();
+        try {
+            return repository.getKeysInRange(from, to, limit, currentTime());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Every page seeks to the cursor key, so the repository must support ordered scans: otherwise each page
+     * would be a full pass over the pairs and the whole iteration would be quadratic
+     *
+     * @throws OrderedScanNotSupported if the keys of the repository aren't ordered
+     */
+    @Override
+    public ScanPage scan(@NonNull String cursor, int count, String pattern) {
+        if (!supportsOrderedScan()) {
+            throw new OrderedScanNotSupported("SCAN requires an ordered repository");
+        }
+        return KeyScanner.scan(cursor, count, pattern, (from, to, limit) -> {
+            readLock.lock();
+            try {
+                return repository.getKeysInRange(from, to, limit, currentTime());
+            } finally {
+                readLock.unlock();
+            }
+        });
+    }
+
+    /**
+     * @throws OrderedScanNotSupported if the keys of the repository aren't ordered, see {@link #scan}
+     */
+    @Override
+    public List<KvPair> getPairsAfter(String after, int limit) {
+        if (!supportsOrderedScan()) {
+            throw new OrderedScanNotSupported("Paging requires an ordered repository");
+        }
+        readLock.lock();
+        try {
+            return KeyScanner.pairsAfter(repository, after, limit, currentTime());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean supportsOrderedScan() {
+        return repository.supportsOrderedScan();
+    }
+
     @Override
     public Map<String, ValueWithExpirationTime> getDump() {
         Map<String, ValueWithExpirationTime> tempMap;
@@ -112,6 +311,21 @@ public class RWLSyncKvService implements KeyValueService {
         }
     }
 
+    @Override
+    public void loadPairs(Map<String, ValueWithExpirationTime> map) {
+        long time = currentTime();
+        Map<String, ValueWithExpirationTime> repoMap = map.entrySet()
+                .stream()
+                .filter(e -> e.getValue().getExpirationTime() >= time)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        writeLock.lock();
+        try {
+            repository.addAll(repoMap);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
     @Override
     public void deleteAllOutdatedPairs() {
         writeLock.lock();
@@ -122,7 +336,57 @@ public class RWLSyncKvService implements KeyValueService {
         }
     }
 
+    @Override
+    public int getExpirationSegmentCount() {
+        return repository.getSegmentCount();
+    }
+
+    @Override
+    public OutdatedKeys deleteOutdatedPairs(int segment, String cursor, int limit) {
+        long time = currentTime();
+        OutdatedKeys found;
+        // segments are scanned concurrently under the read lock, only the removal blocks readers
+        readLock.lock();
+        try {
+            found = repository.findOutdatedKeys(segment, cursor, limit, time);
+        } finally {
+            readLock.unlock();
+        }
+        if (found.getKeys().isEmpty()) {
+            return found;
+        }
+        writeLock.lock();
+        try {
+            found.setKeys(repository.removeOutdatedPairs(found.getKeys(), time));
+        } finally {
+            writeLock.unlock();
+        }
+        return found;
+    }
+
+    @Override
+    public TransactionResult executeTransaction(List<TransactionOperation> operations) {
+        Transactions.validate(operations);
+        writeLock.lock();
+        try {
+            return Transactions.execute(repository, operations, this::expirationTime, currentTime());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private long expirationTime(long ttl) {
+        return AtomicUpdates.expirationTime(currentTime(), resolveTtl(ttl));
+    }
+
+    private long resolveTtl(long ttl) {
+        if (ttl < 0) {
+            throw new IncorrectTtlValue();
+        }
+        return ttl == 0 ? defaultTtlMillis : ttl;
+    }
+
     private long currentTime() {
-        return System.currentTimeMillis() / 1000L;
+        return System.currentTimeMillis();
     }
 }
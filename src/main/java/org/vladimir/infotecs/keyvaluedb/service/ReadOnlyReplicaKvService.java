@@ -0,0 +1,170 @@
+package org.vladimir.infotecs.keyvaluedb.service;
+
+import org.vladimir.infotecs.keyvaluedb.exception.ReadOnlyReplica;
+import org.vladimir.infotecs.keyvaluedb.model.KvPair;
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+import org.vladimir.infotecs.keyvaluedb.model.ScanPage;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionOperation;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionResult;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.model.VersionPrecondition;
+import org.vladimir.infotecs.keyvaluedb.model.VersionedValue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link KeyValueService} decorator for the replica role.
+ * <p>
+ * Reads are served from the local storage, client writes are rejected with {@link ReadOnlyReplica},
+ * because the storage is only modified by the {@link ReplicaSynchronizer}. Removing outdated pairs is allowed,
+ * expiration times are absolute, so the local sweep gives the same result as the primary's one.
+ * </p>
+ */
+public class ReadOnlyReplicaKvService implements KeyValueService {
+
+    private final KeyValueService keyValueService;
+
+    public ReadOnlyReplicaKvService(KeyValueService keyValueService) {
+        this.keyValueService = keyValueService;
+    }
+
+    @Override
+    public void setValueByKey(String key, String value, long ttl, boolean slidingExpiration) {
+        throw new ReadOnlyReplica();
+    }
+
+    @Override
+    public Optional<String> getValueByKey(String key) {
+        return keyValueService.getValueByKey(key);
+    }
+
+    @Override
+    public Optional<VersionedValue> getVersionedValue(String key) {
+        return keyValueService.getVersionedValue(key);
+    }
+
+    @Override
+    public Optional<Long> getTtl(String key) {
+        return keyValueService.getTtl(key);
+    }
+
+    @Override
+    public boolean expire(String key, long ttl) {
+        throw new ReadOnlyReplica();
+    }
+
+    @Override
+    public boolean persist(String key) {
+        throw new ReadOnlyReplica();
+    }
+
+    @Override
+    public boolean touch(String key) {
+        throw new ReadOnlyReplica();
+    }
+
+    @Override
+    public long incrementBy(String key, long delta, long ttl) {
+        throw new ReadOnlyReplica();
+    }
+
+    @Override
+    public boolean compareAndSet(String key, String expectedValue, String value, long ttl) {
+        throw new ReadOnlyReplica();
+    }
+
+    @Override
+    public Optional<String> getAndSet(String key, String value, long ttl) {
+        throw new ReadOnlyReplica();
+    }
+
+    @Override
+    public boolean setIfAbsent(String key, String value, long ttl) {
+        throw new ReadOnlyReplica();
+    }
+
+    @Override
+    public Optional<String> deleteValueByKey(String key) {
+        throw new ReadOnlyReplica();
+    }
+
+    @Override
+    public long setValueByKey(String key, String value, long ttl, boolean slidingExpiration,
+                              VersionPrecondition precondition) {
+        throw new ReadOnlyReplica();
+    }
+
+    @Override
+    public Optional<String> deleteValueByKey(String key, VersionPrecondition precondition) {
+        throw new ReadOnlyReplica();
+    }
+
+    @Override
+    public List<String> getKeysByPrefix(String prefix, int limit) {
+        return keyValueService.getKeysByPrefix(prefix, limit);
+    }
+
+    @Override
+    public List<String> getKeysInRange(String from, String to, int limit) {
+        return keyValueService.getKeysInRange(from, to, limit);
+    }
+
+    @Override
+    public ScanPage scan(String cursor, int count, String pattern) {
+        return keyValueService.scan(cursor, count, pattern);
+    }
+
+    @Override
+    public List<KvPair> getPairsAfter(String after, int limit) {
+        return keyValueService.getPairsAfter(after, limit);
+    }
+
+    @Override
+    public boolean supportsOrderedScan() {
+        return keyValueService.supportsOrderedScan();
+    }
+
+    @Override
+    public Map<String, ValueWithExpirationTime> getDump() {
+        return keyValueService.getDump();
+    }
+
+    @Override
+    public void restoreFromDump(Map<String, ValueWithExpirationTime> map) {
+        throw new ReadOnlyReplica();
+    }
+
+    @Override
+    public void loadPairs(Map<String, ValueWithExpirationTime> map) {
+        throw new ReadOnlyReplica();
+    }
+
+    @Override
+    public void deleteAllOutdatedPairs() {
+        keyValueService.deleteAllOutdatedPairs();
+    }
+
+    @Override
+    public int getExpirationSegmentCount() {
+        return keyValueService.getExpirationSegmentCount();
+    }
+
+    @Override
+    public OutdatedKeys deleteOutdatedPairs(int segment, String cursor, int limit) {
+        return keyValueService.deleteOutdatedPairs(segment, cursor, limit);
+    }
+
+    /**
+     * Transactions of GET and CHECK operations only are executed on the replica
+     */
+    @Override
+    public TransactionResult executeTransaction(List<TransactionOperation> operations) {
+        Transactions.validate(operations);
+        if (!Transactions.isReadOnly(operations)) {
+            throw new ReadOnlyReplica();
+        }
+        return keyValueService.executeTransaction(operations);
+    }
+}
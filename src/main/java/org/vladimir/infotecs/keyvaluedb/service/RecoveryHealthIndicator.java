@@ -0,0 +1,43 @@
+package org.vladimir.infotecs.keyvaluedb.service;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+import org.vladimir.infotecs.keyvaluedb.model.RestoreProgress;
+
+/**
+ * The {@code recovery} health component: out of service while a snapshot is being restored, down if the restore
+ * failed. It's a member of the readiness group, so the instance gets traffic only when the storage is loaded
+ */
+@Component
+public class RecoveryHealthIndicator implements HealthIndicator {
+
+    private final ObjectProvider<SnapshotManager> snapshotManagerProvider;
+
+    public RecoveryHealthIndicator(ObjectProvider<SnapshotManager> snapshotManagerProvider) {
+        this.snapshotManagerProvider = snapshotManagerProvider;
+    }
+
+    @Override
+    public Health health() {
+        SnapshotManager snapshotManager = snapshotManagerProvider.getIfAvailable();
+        if (snapshotManager == null) {
+            return Health.up().build();
+        }
+        RestoreProgress progress = snapshotManager.getRestoreProgress();
+        var builder = switch (progress.getState()) {
+            case IDLE -> Health.up();
+            case PENDING, RUNNING -> Health.outOfService();
+            case FAILED -> Health.down().withDetail("error", String.valueOf(progress.getError()));
+        };
+        builder.withDetail("state", progress.getState());
+        if (progress.getSnapshotId() != null) {
+            builder.withDetail("snapshot", progress.getSnapshotId())
+                    .withDetail("segments", progress.getSegments())
+                    .withDetail("loadedSegments", progress.getLoadedSegments())
+                    .withDetail("loadedPairs", progress.getLoadedPairs());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,140 @@
+package org.vladimir.infotecs.keyvaluedb.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.vladimir.infotecs.keyvaluedb.dto.ReplicationLogResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.ReplicationSnapshotResponse;
+import org.vladimir.infotecs.keyvaluedb.model.ReplicationOperation;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the replica's storage in sync with the primary.
+ * <p>
+ * On the first run (and whenever the primary reports that the log was truncated or restarted) the storage is
+ * replaced by the primary's snapshot, after that the tail of the replication log is pulled and applied
+ * through the local {@link KeyValueService}. Pairs keep the primary's expiration times and versions, so the replica
+ * serves the same ETags.
+ * </p>
+ * Replication lag is exposed as the {@code replication.lag.operations} and {@code replication.lag.seconds} gauges.
+ */
+public class ReplicaSynchronizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaSynchronizer.class);
+
+    private final RestClient primary;
+    private final KeyValueService keyValueService;
+    private final int batchSize;
+    // not synchronized: a virtual thread blocked on HTTP inside a monitor would pin its carrier
+    private final Lock lock = new ReentrantLock();
+
+    private String replicationId;
+    private volatile long appliedOffset;
+    private volatile long primaryOffset;
+    private volatile long caughtUpTimeMillis = System.currentTimeMillis();
+
+    public ReplicaSynchronizer(RestClient primary, KeyValueService keyValueService, int batchSize,
+                               MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.keyValueService = keyValueService;
+        this.batchSize = batchSize;
+        Gauge.builder("replication.lag.operations", this, ReplicaSynchronizer::getLagOperations)
+                .description("Number of primary operations not applied on the replica yet")
+                .register(meterRegistry);
+        Gauge.builder("replication.lag.seconds", this, ReplicaSynchronizer::getLagSeconds)
+                .description("Time since the replica was last fully caught up with the primary")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("replication.offset", this, ReplicaSynchronizer::getAppliedOffset)
+                .description("Offset of the last applied primary operation")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${replication.pollDelay:500}")
+    public void synchronize() {
+        lock.lock();
+        try {
+            if (replicationId == null) {
+                bootstrap();
+            }
+            pullLog();
+        } catch (RestClientException e) {
+            logger.warn("Primary is unavailable: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void bootstrap() {
+        var snapshot = primary.get()
+                .uri("/api/replication/snapshot")
+                .retrieve()
+                .body(ReplicationSnapshotResponse.class);
+        keyValueService.restoreFromDump(snapshot.getDump());
+        replicationId = snapshot.getReplicationId();
+        appliedOffset = snapshot.getOffset();
+        logger.info("Replica is bootstrapped from the snapshot. Replication id {}, offset {}, {} pairs",
+                replicationId, appliedOffset, snapshot.getDump().size());
+    }
+
+    private void pullLog() {
+        ReplicationLogResponse response;
+        do {
+            response = primary.get()
+                    .uri("/api/replication/log?after={after}&limit={limit}", appliedOffset, batchSize)
+                    .retrieve()
+                    .body(ReplicationLogResponse.class);
+            if (response.isFullResyncRequired() || !response.getReplicationId().equals(replicationId)) {
+                logger.warn("Replication log can't be continued from offset {}, full resync", appliedOffset);
+                bootstrap();
+                continue;
+            }
+            for (ReplicationOperation operation : response.getOperations()) {
+                apply(operation);
+                appliedOffset = operation.getOffset();
+            }
+            primaryOffset = response.getLastOffset();
+        } while (appliedOffset < response.getLastOffset());
+        caughtUpTimeMillis = System.currentTimeMillis();
+    }
+
+    private void apply(ReplicationOperation operation) {
+        switch (operation.getType()) {
+            case SET -> {
+                if (operation.getExpirationTime() >= currentTime()) {
+                    keyValueService.loadPairs(Map.of(operation.getKey(), new ValueWithExpirationTime(
+                            operation.getValue(), operation.getExpirationTime(), null, operation.getVersion())));
+                } else {
+                    keyValueService.deleteValueByKey(operation.getKey());
+                }
+            }
+            case DELETE -> keyValueService.deleteValueByKey(operation.getKey());
+            case EXPIRE -> keyValueService.deleteAllOutdatedPairs();
+            case CLEAR -> keyValueService.restoreFromDump(Map.of());
+        }
+    }
+
+    public long getAppliedOffset() {
+        return appliedOffset;
+    }
+
+    public long getLagOperations() {
+        return Math.max(0, primaryOffset - appliedOffset);
+    }
+
+    public double getLagSeconds() {
+        return (System.currentTimeMillis() - caughtUpTimeMillis) / 1000.0;
+    }
+
+    private long currentTime() {
+        return System.currentTimeMillis();
+    }
+}
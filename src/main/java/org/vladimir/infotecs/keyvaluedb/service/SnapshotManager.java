@@ -0,0 +1,479 @@
+package org.vladimir.infotecs.keyvaluedb.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vladimir.infotecs.keyvaluedb.exception.SnapshotNotFound;
+import org.vladimir.infotecs.keyvaluedb.model.KvPair;
+import org.vladimir.infotecs.keyvaluedb.model.RestoreProgress;
+import org.vladimir.infotecs.keyvaluedb.model.SnapshotInfo;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Snapshots of the whole storage in the local directory.
+ * <p>
+ * A snapshot is read from the {@link KeyValueService} page by page with {@link KeyValueService#getPairsAfter},
+ * so writers are blocked for one page at a time, and the snapshot is fuzzy: a pair changed while the snapshot
+ * is taken may be saved in either state. The keys must be ordered, so every page seeks to the last key of
+ * the previous one. Pairs are written as JSON lines to segment files of at most {@code segmentPairs} pairs
+ * in the {@code <id>.tmp} directory, which is synced and renamed to {@code <id>} when the snapshot is complete,
+ * so incomplete snapshots are never restored. Only the newest {@code retention}
+ * snapshots are kept. Ids are the UTC start time, so they are ordered by time.
+ * </p>
+ * <p>
+ * Segments are parsed in parallel in a {@link ForkJoinPool} of {@code recoveryParallelism} threads. A restore
+ * parses and validates all segments first and then replaces the storage content with
+ * {@link KeyValueService#restoreFromDump} at once, so a corrupt snapshot leaves the storage unchanged; the whole
+ * snapshot is held in memory meanwhile. The startup restore runs before the storage is ready, so it clears
+ * the storage and loads every segment with {@link KeyValueService#loadPairs} as soon as it is parsed, the storage
+ * is partially restored if it fails, see {@link #getRestoreProgress()}.
+ * </p>
+ */
+public class SnapshotManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotManager.class);
+
+    static final String INFO_FILE = "snapshot.json";
+    static final String SEGMENT_PREFIX = "segment-";
+    static final String SEGMENT_SUFFIX = ".ndjson";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final DateTimeFormatter ID_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'").withZone(ZoneOffset.UTC);
+    private static final Pattern ID_PATTERN = Pattern.compile("\\d{8}T\\d{9}Z");
+
+    private final KeyValueService keyValueService;
+    private final ObjectWriter pairWriter;
+    private final ObjectReader pairReader;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int retention;
+    private final int pageSize;
+    private final int segmentPairs;
+    private final int recoveryParallelism;
+
+    private final Timer duration;
+    private final Timer restoreDuration;
+    private final DistributionSummary size;
+    private final Counter failures;
+    private final AtomicLong lastThroughput = new AtomicLong();
+
+    private final Object restoreLock = new Object();
+    private volatile RestoreProgress.State restoreState = RestoreProgress.State.IDLE;
+    private volatile String restoreId;
+    private volatile int restoreSegments;
+    private volatile String restoreError;
+    private final AtomicInteger loadedSegments = new AtomicInteger();
+    private final AtomicLong loadedPairs = new AtomicLong();
+
+    /**
+     * @param retention           number of snapshots to keep
+     * @param pageSize            number of pairs read from the service at once
+     * @param segmentPairs        max number of pairs in a segment file
+     * @param recoveryParallelism number of threads loading the segments on restore
+     */
+    public SnapshotManager(KeyValueService keyValueService, ObjectMapper objectMapper, Path directory,
+                           int retention, int pageSize, int segmentPairs, int recoveryParallelism,
+                           MeterRegistry meterRegistry) {
+        if (retention < 1 || pageSize < 1 || segmentPairs < 1 || recoveryParallelism < 1) {
+            throw new IllegalArgumentException("Snapshot retention, page size, segment size and recovery " +
+                    "parallelism must be positive");
+        }
+        if (!keyValueService.supportsOrderedScan()) {
+            // every page would be a full pass over the pairs
+            throw new IllegalArgumentException("Snapshots require ordered keys, enable the ordered index " +
+                    "(orderedIndex.enable=true)");
+        }
+        this.keyValueService = keyValueService;
+        this.objectMapper = objectMapper;
+        this.pairWriter = objectMapper.writerFor(KvPair.class);
+        this.pairReader = objectMapper.readerFor(KvPair.class);
+        this.directory = directory;
+        this.retention = retention;
+        this.pageSize = pageSize;
+        this.segmentPairs = segmentPairs;
+        this.recoveryParallelism = recoveryParallelism;
+        this.duration = Timer.builder("snapshot.duration")
+                .description("Time to take a snapshot")
+                .register(meterRegistry);
+        this.restoreDuration = Timer.builder("snapshot.restore.duration")
+                .description("Time to restore a snapshot")
+                .register(meterRegistry);
+        this.size = DistributionSummary.builder("snapshot.size")
+                .description("Size of the snapshot files")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.failures = Counter.builder("snapshot.failures")
+                .description("Number of failed snapshots")
+                .register(meterRegistry);
+        Gauge.builder("snapshot.throughput", lastThroughput, AtomicLong::get)
+                .description("Write throughput of the last snapshot")
+                .baseUnit("bytes/s")
+                .register(meterRegistry);
+        deleteIncompleteSnapshots();
+    }
+
+    /**
+     * Takes a snapshot and removes the snapshots exceeding the retention. Snapshots are taken one at a time
+     */
+    public synchronized SnapshotInfo takeSnapshot() {
+        long start = System.nanoTime();
+        long createdAt = System.currentTimeMillis();
+        String id = ID_FORMAT.format(Instant.ofEpochMilli(createdAt));
+        while (Files.exists(directory.resolve(id))) {
+            createdAt++;
+            id = ID_FORMAT.format(Instant.ofEpochMilli(createdAt));
+        }
+        Path temp = directory.resolve(id + TEMP_SUFFIX);
+        try {
+            Files.createDirectories(temp);
+            var info = writeSegments(id, createdAt, temp, start);
+            writeInfo(temp.resolve(INFO_FILE), info);
+            syncDirectory(temp);
+            Files.move(temp, directory.resolve(id), StandardCopyOption.ATOMIC_MOVE);
+            // the rename is durable only when the parent directory is synced
+            syncDirectory(directory);
+            duration.record(info.getDurationMillis(), TimeUnit.MILLISECONDS);
+            size.record(info.getBytes());
+            lastThroughput.set(info.getBytes() * 1000 / Math.max(1, info.getDurationMillis()));
+            logger.info("Snapshot {} is taken: {} pairs, {} bytes in {} ms", id, info.getPairs(), info.getBytes(),
+                    info.getDurationMillis());
+            applyRetention();
+            return info;
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            deleteRecursively(temp);
+            throw e instanceof IOException io ? new UncheckedIOException("Can't take a snapshot", io)
+                    : (RuntimeException) e;
+        }
+    }
+
+    /**
+     * @return completed snapshots, the newest first
+     */
+    public List<SnapshotInfo> listSnapshots() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<SnapshotInfo> snapshots = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (ID_PATTERN.matcher(name).matches()) {
+                    snapshots.add(objectMapper.readValue(path.resolve(INFO_FILE).toFile(), SnapshotInfo.class));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't list the snapshots in " + directory, e);
+        }
+        snapshots.sort(Comparator.comparing(SnapshotInfo::getId).reversed());
+        return snapshots;
+    }
+
+    public Optional<SnapshotInfo> getLatestSnapshot() {
+        return listSnapshots().stream().findFirst();
+    }
+
+    /**
+     * Atomically replaces the storage content with the snapshot, pairs expired since the snapshot are skipped.
+     * If a segment can't be read the storage is unchanged
+     *
+     * @throws SnapshotNotFound if there is no completed snapshot with the id
+     */
+    public SnapshotInfo restore(String id) {
+        return restore(id, false);
+    }
+
+    /**
+     * Restores the snapshot before the storage is ready: the storage is cleared and the segments are loaded
+     * while they are parsed, without holding the whole snapshot in memory. The storage is partially restored
+     * if it fails
+     *
+     * @throws SnapshotNotFound if there is no completed snapshot with the id
+     */
+    public SnapshotInfo restoreOnStartup(String id) {
+        return restore(id, true);
+    }
+
+    private SnapshotInfo restore(String id, boolean streaming) {
+        synchronized (restoreLock) {
+            long start = System.nanoTime();
+            try {
+                Path snapshot = snapshotPath(id);
+                var info = objectMapper.readValue(snapshot.resolve(INFO_FILE).toFile(), SnapshotInfo.class);
+                List<Path> segments = segments(snapshot);
+                restoreId = id;
+                restoreSegments = segments.size();
+                restoreError = null;
+                loadedSegments.set(0);
+                loadedPairs.set(0);
+                restoreState = RestoreProgress.State.RUNNING;
+                if (streaming) {
+                    keyValueService.restoreFromDump(Map.of());
+                    inParallel(segments, segment -> {
+                        var pairs = parseSegment(segment);
+                        keyValueService.loadPairs(pairs);
+                        return countLoaded(pairs);
+                    });
+                } else {
+                    var parsed = inParallel(segments, segment -> countLoaded(parseSegment(segment)));
+                    Map<String, ValueWithExpirationTime> pairs = new HashMap<>();
+                    parsed.forEach(pairs::putAll);
+                    keyValueService.restoreFromDump(pairs);
+                }
+                restoreState = RestoreProgress.State.IDLE;
+                long durationNanos = System.nanoTime() - start;
+                restoreDuration.record(durationNanos, TimeUnit.NANOSECONDS);
+                logger.info("Snapshot {} is restored: {} pairs from {} segments in {} ms", id, loadedPairs.get(),
+                        segments.size(), TimeUnit.NANOSECONDS.toMillis(durationNanos));
+                return info;
+            } catch (IOException e) {
+                failRestore(e);
+                throw new UncheckedIOException("Can't restore the snapshot " + id, e);
+            } catch (RuntimeException e) {
+                failRestore(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Marks the storage as not ready until the next restore or {@link #cancelPendingRestore()}
+     */
+    public void markRestorePending() {
+        restoreState = RestoreProgress.State.PENDING;
+    }
+
+    public void cancelPendingRestore() {
+        if (restoreState == RestoreProgress.State.PENDING) {
+            restoreState = RestoreProgress.State.IDLE;
+        }
+    }
+
+    public RestoreProgress getRestoreProgress() {
+        return new RestoreProgress(restoreState, restoreId, restoreSegments, loadedSegments.get(), loadedPairs.get(),
+                restoreError);
+    }
+
+    /**
+     * Applies the task to the segments in parallel
+     *
+     * @return results in the order of the segments
+     */
+    private <T> List<T> inParallel(List<Path> segments, Function<Path, T> task) throws IOException {
+        var pool = new ForkJoinPool(recoveryParallelism);
+        try {
+            return pool.submit(() -> segments.parallelStream().map(task).toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Restore is interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Map<String, ValueWithExpirationTime> parseSegment(Path segment) {
+        Map<String, ValueWithExpirationTime> pairs = new HashMap<>();
+        try {
+            readSegment(segment, pairs);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't read " + segment, e);
+        }
+        return pairs;
+    }
+
+    private Map<String, ValueWithExpirationTime> countLoaded(Map<String, ValueWithExpirationTime> pairs) {
+        loadedPairs.addAndGet(pairs.size());
+        loadedSegments.incrementAndGet();
+        return pairs;
+    }
+
+    private void failRestore(Exception e) {
+        if (restoreState == RestoreProgress.State.RUNNING || restoreState == RestoreProgress.State.PENDING) {
+            restoreError = e.getMessage();
+            restoreState = RestoreProgress.State.FAILED;
+        }
+    }
+
+    /**
+     * @throws SnapshotNotFound if there is no completed snapshot with the id
+     */
+    Path snapshotPath(String id) {
+        if (id == null || !ID_PATTERN.matcher(id).matches() || !Files.isDirectory(directory.resolve(id))) {
+            throw new SnapshotNotFound("Snapshot " + id + " not found");
+        }
+        return directory.resolve(id);
+    }
+
+    /**
+     * @return segment files of the snapshot in the order they were written
+     */
+    static List<Path> segments(Path snapshot) throws IOException {
+        try (Stream<Path> files = Files.list(snapshot)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    void readSegment(Path segment, Map<String, ValueWithExpirationTime> pairs) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    KvPair pair = pairReader.readValue(line);
+                    pairs.put(pair.getKey(), pair.getValue());
+                }
+            }
+        }
+    }
+
+    private SnapshotInfo writeSegments(String id, long createdAt, Path temp, long start) throws IOException {
+        long pairs = 0;
+        long bytes = 0;
+        int segments = 0;
+        int segmentSize = 0;
+        FileOutputStream file = null;
+        OutputStream out = null;
+        String after = null;
+        try {
+            List<KvPair> page;
+            do {
+                page = keyValueService.getPairsAfter(after, pageSize);
+                for (KvPair pair : page) {
+                    if (out == null || segmentSize == segmentPairs) {
+                        bytes += closeSegment(file, out);
+                        file = new FileOutputStream(temp.resolve(segmentName(segments++)).toFile());
+                        out = new BufferedOutputStream(file, 64 * 1024);
+                        segmentSize = 0;
+                    }
+                    out.write(pairWriter.writeValueAsBytes(pair));
+                    out.write('\n');
+                    segmentSize++;
+                    pairs++;
+                }
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1).getKey();
+                }
+            } while (page.size() == pageSize);
+            bytes += closeSegment(file, out);
+            file = null;
+        } finally {
+            if (file != null) {
+                file.close();
+            }
+        }
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new SnapshotInfo(id, createdAt, pairs, segments, bytes, durationMillis);
+    }
+
+    /**
+     * Flushes and syncs the segment
+     *
+     * @return size of the segment file
+     */
+    private static long closeSegment(FileOutputStream file, OutputStream out) throws IOException {
+        if (file == null) {
+            return 0;
+        }
+        try (file) {
+            out.flush();
+            file.getFD().sync();
+            return file.getChannel().size();
+        }
+    }
+
+    private void writeInfo(Path path, SnapshotInfo info) throws IOException {
+        try (var file = new FileOutputStream(path.toFile())) {
+            file.write(objectMapper.writeValueAsBytes(info));
+            file.getFD().sync();
+        }
+    }
+
+    /**
+     * Syncs the directory entries (created and renamed files)
+     */
+    private static void syncDirectory(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    static String segmentName(int index) {
+        return SEGMENT_PREFIX + String.format("%06d", index) + SEGMENT_SUFFIX;
+    }
+
+    private void applyRetention() {
+        var snapshots = listSnapshots();
+        for (SnapshotInfo snapshot : snapshots.subList(Math.min(retention, snapshots.size()), snapshots.size())) {
+            deleteRecursively(directory.resolve(snapshot.getId()));
+            logger.info("Snapshot {} is removed by the retention policy", snapshot.getId());
+        }
+    }
+
+    private void deleteIncompleteSnapshots() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> path.getFileName().toString().endsWith(TEMP_SUFFIX))
+                    .forEach(SnapshotManager::deleteRecursively);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't list the snapshots in " + directory, e);
+        }
+    }
+
+    private static void deleteRecursively(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            logger.warn("Can't delete {}", path, e);
+        }
+    }
+}
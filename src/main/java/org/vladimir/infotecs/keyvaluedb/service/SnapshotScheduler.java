@@ -0,0 +1,76 @@
+package org.vladimir.infotecs.keyvaluedb.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Takes a snapshot every {@code snapshot.interval} ms and restores the {@code snapshot.restoreOnStartup}
+ * snapshot on startup: {@code latest}, a snapshot id or {@code none}. The startup restore runs in the background,
+ * the storage is reported not ready by {@link RecoveryHealthIndicator} until it completes.
+ */
+@Component
+@ConditionalOnProperty(name = "snapshot.enable", havingValue = "true")
+@EnableScheduling
+public class SnapshotScheduler implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotScheduler.class);
+
+    private final SnapshotManager snapshotManager;
+    private final String restoreOnStartup;
+
+    public SnapshotScheduler(SnapshotManager snapshotManager,
+                             @Value("${snapshot.restoreOnStartup:none}") String restoreOnStartup) {
+        this.snapshotManager = snapshotManager;
+        this.restoreOnStartup = restoreOnStartup;
+        if (isRestoreOnStartup()) {
+            snapshotManager.markRestorePending();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${snapshot.interval:3600000}", initialDelayString = "${snapshot.interval:3600000}")
+    public void takeSnapshot() {
+        try {
+            snapshotManager.takeSnapshot();
+        } catch (RuntimeException e) {
+            logger.error("Scheduled snapshot failed", e);
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!isRestoreOnStartup()) {
+            return;
+        }
+        var thread = new Thread(this::restore, "snapshot-recovery");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void restore() {
+        try {
+            if (restoreOnStartup.equals("latest")) {
+                snapshotManager.getLatestSnapshot().ifPresentOrElse(
+                        snapshot -> snapshotManager.restoreOnStartup(snapshot.getId()),
+                        () -> {
+                            logger.info("No snapshots to restore");
+                            snapshotManager.cancelPendingRestore();
+                        });
+            } else {
+                snapshotManager.restoreOnStartup(restoreOnStartup);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Startup restore of the snapshot {} failed", restoreOnStartup, e);
+        }
+    }
+
+    private boolean isRestoreOnStartup() {
+        return !restoreOnStartup.isEmpty() && !restoreOnStartup.equals("none");
+    }
+}
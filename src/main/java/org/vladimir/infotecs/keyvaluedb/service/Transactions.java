@@ -0,0 +1,95 @@
+package org.vladimir.infotecs.keyvaluedb.service;
+
+import org.vladimir.infotecs.keyvaluedb.exception.IncorrectTransaction;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionOperation;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionResult;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.repository.KeyValueRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Execution of {@link KeyValueService#executeTransaction}. The caller holds the synchronization making
+ * the whole execution atomic: the write lock or the database transaction.
+ * <p>
+ * All the conditions are evaluated first against the state before the transaction, if one fails nothing is
+ * applied. Then the other operations run in the request order, a GET after a SET of the same key sees the new value.
+ * Conditions read through {@link KeyValueRepository#compute}, so in the database mode the checked rows stay
+ * locked until the commit.
+ * </p>
+ */
+final class Transactions {
+
+    private Transactions() {
+    }
+
+    /**
+     * @throws IncorrectTransaction if an operation misses its key or value
+     */
+    static void validate(List<TransactionOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IncorrectTransaction("Transaction must have operations");
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            var operation = operations.get(i);
+            if (operation.getType() == null || operation.getKey() == null) {
+                throw new IncorrectTransaction("Operation " + i + " must have type and key");
+            }
+            if ((operation.getType() == TransactionOperation.Type.SET
+                    || operation.getType() == TransactionOperation.Type.CHECK_VALUE) && operation.getValue() == null) {
+                throw new IncorrectTransaction("Operation " + i + " must have value");
+            }
+            if (operation.getTtl() < 0) {
+                throw new IncorrectTransaction("Operation " + i + " must have zero or positive ttl");
+            }
+        }
+    }
+
+    static boolean isReadOnly(List<TransactionOperation> operations) {
+        return operations.stream().noneMatch(TransactionOperation::isWrite);
+    }
+
+    /**
+     * @param expirationTime expiration time of a SET by its ttl, 0 ttl being the default one
+     */
+    static TransactionResult execute(KeyValueRepository repository, List<TransactionOperation> operations,
+                                     LongUnaryOperator expirationTime, long time) {
+        for (int i = 0; i < operations.size(); i++) {
+            var operation = operations.get(i);
+            if (operation.isCheck() && !holds(repository, operation, time)) {
+                return new TransactionResult(false, i, List.of());
+            }
+        }
+        List<String> results = new ArrayList<>(operations.size());
+        for (var operation : operations) {
+            results.add(switch (operation.getType()) {
+                case GET -> AtomicUpdates.touch(repository, operation.getKey(), time)
+                        .map(ValueWithExpirationTime::getValue)
+                        .orElse(null);
+                case SET -> {
+                    AtomicUpdates.getAndSet(repository, operation.getKey(), operation.getValue(),
+                            expirationTime.applyAsLong(operation.getTtl()), time);
+                    yield null;
+                }
+                case DELETE -> repository.removeAndReturnIfNotOutdated(operation.getKey(), time)
+                        .map(ValueWithExpirationTime::getValue)
+                        .orElse(null);
+                case CHECK_VALUE, CHECK_EXISTS, CHECK_ABSENT -> null;
+            });
+        }
+        return new TransactionResult(true, null, results);
+    }
+
+    private static boolean holds(KeyValueRepository repository, TransactionOperation check, long time) {
+        Optional<ValueWithExpirationTime> current = repository.compute(check.getKey(), time, value -> value);
+        return switch (check.getType()) {
+            case CHECK_VALUE -> current.isPresent() && current.get().getValue().equals(check.getValue());
+            case CHECK_EXISTS -> current.isPresent();
+            case CHECK_ABSENT -> current.isEmpty();
+            default -> throw new IllegalArgumentException(check.getType() + " is not a condition");
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package org.vladimir.infotecs.keyvaluedb.validation;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+import org.vladimir.infotecs.keyvaluedb.validator.ExpirationTimesInMillisValidator;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Expiration times of the pairs of a dump must be in milliseconds since epoch. Dumps taken before the expiration
+ * times became milliseconds have them in seconds, such times are earlier than 1973 as milliseconds
+ */
+@Constraint(validatedBy = ExpirationTimesInMillisValidator.class)
+@Target({ ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER, ElementType.ANNOTATION_TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ExpirationTimesInMillis {
+    String message() default "Expiration times must be in milliseconds since epoch";
+    Class<?>[] groups() default {};
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,31 @@
+package org.vladimir.infotecs.keyvaluedb.validator;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.validation.ExpirationTimesInMillis;
+
+import java.util.Map;
+
+public class ExpirationTimesInMillisValidator
+        implements ConstraintValidator<ExpirationTimesInMillis, Map<String, ValueWithExpirationTime>> {
+
+    /**
+     * 1973-03-03 in milliseconds, year 5138 in seconds
+     */
+    static final long MIN_EXPIRATION_TIME = 100_000_000_000L;
+
+    @Override
+    public boolean isValid(Map<String, ValueWithExpirationTime> map, ConstraintValidatorContext context) {
+        if (map == null) {
+            return true;
+        }
+        for (ValueWithExpirationTime value : map.values()) {
+            if (value != null && value.getExpirationTime() != null
+                    && value.getExpirationTime() < MIN_EXPIRATION_TIME) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,67 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import org.junit.jupiter.api.Test;
+import org.vladimir.infotecs.keyvaluedb.service.AdaptiveConcurrencyLimiter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void testRequestsOverLimitAreRejected() {
+        var limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 100, 0.5, clock::get);
+        var first = limiter.tryAcquire().orElseThrow();
+        limiter.tryAcquire().orElseThrow();
+
+        assertTrue(limiter.tryAcquire().isEmpty());
+        assertEquals(1, limiter.getRejected());
+        first.release();
+        first.release();
+        assertEquals(1, limiter.getInFlight());
+        assertTrue(limiter.tryAcquire().isPresent());
+    }
+
+    @Test
+    void testSlowRequestsDecreaseLimitOncePerRequestLifetime() {
+        var limiter = new AdaptiveConcurrencyLimiter(8, 1, 10, 100, 0.5, clock::get);
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            permits.add(limiter.tryAcquire().orElseThrow());
+        }
+        clock.addAndGet(200 * MILLIS);
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::release);
+        assertEquals(4, limiter.getLimit());
+
+        var permit = limiter.tryAcquire().orElseThrow();
+        clock.addAndGet(200 * MILLIS);
+        permit.release();
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void testFastRequestsIncreaseUsedLimit() {
+        var limiter = new AdaptiveConcurrencyLimiter(2, 1, 3, 100, 0.5, clock::get);
+        for (int i = 0; i < 100; i++) {
+            var first = limiter.tryAcquire().orElseThrow();
+            var second = limiter.tryAcquire().orElseThrow();
+            clock.addAndGet(MILLIS);
+            first.release();
+            second.release();
+        }
+        assertEquals(3, limiter.getLimit());
+
+        limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, 100, 0.5, clock::get);
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire().orElseThrow().release();
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+}
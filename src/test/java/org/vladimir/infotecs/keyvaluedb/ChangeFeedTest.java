@@ -0,0 +1,117 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.vladimir.infotecs.keyvaluedb.model.ChangeEvent;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.repository.ChangeFeed;
+import org.vladimir.infotecs.keyvaluedb.repository.ChangeFeedKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.HashMapKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.service.RWLSyncKvService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeFeedTest {
+
+    private static final int HISTORY_CAPACITY = 4;
+    private static final int SUBSCRIBER_BUFFER = 8;
+
+    private ChangeFeed changeFeed;
+    private RWLSyncKvService service;
+
+    @BeforeEach
+    void setUp() {
+        changeFeed = new ChangeFeed(HISTORY_CAPACITY, SUBSCRIBER_BUFFER);
+        service = new RWLSyncKvService(new ChangeFeedKeyValueRepository(new HashMapKeyValueRepository(), changeFeed),
+                120);
+    }
+
+    @Test
+    void testWritesDeletesAndExpirationsArePublished() throws InterruptedException {
+        var subscription = changeFeed.subscribe(null).orElseThrow();
+        service.setValueByKey("key1", "value1", 60_000);
+        service.setValueByKey("key2", "value2", 1);
+        service.deleteValueByKey("key1");
+        service.deleteValueByKey("missing");
+        Thread.sleep(5);
+        service.deleteAllOutdatedPairs();
+
+        List<ChangeEvent> events = drain(subscription);
+
+        assertEquals(List.of(ChangeEvent.Type.SET, ChangeEvent.Type.SET, ChangeEvent.Type.DELETE,
+                ChangeEvent.Type.EXPIRE), events.stream().map(ChangeEvent::getType).toList());
+        assertEquals(List.of(1L, 2L, 3L, 4L), events.stream().map(ChangeEvent::getSequence).toList());
+        assertEquals("value1", events.get(0).getValue());
+        assertEquals("key2", events.get(3).getKey());
+    }
+
+    @Test
+    void testSubscriberResumesAfterSequence() throws InterruptedException {
+        for (int i = 1; i <= 6; i++) {
+            service.setValueByKey("key" + i, "value", 60_000);
+        }
+
+        var subscription = changeFeed.subscribe(3L).orElseThrow();
+        service.setValueByKey("key7", "value", 60_000);
+
+        assertEquals(List.of("key4", "key5", "key6", "key7"),
+                drain(subscription).stream().map(ChangeEvent::getKey).toList());
+        assertEquals(Optional.empty(), changeFeed.subscribe(2L));
+        assertEquals(Optional.empty(), changeFeed.subscribe(8L));
+        assertTrue(changeFeed.subscribe(7L).isPresent());
+    }
+
+    @Test
+    void testSlowSubscriberOverflows() throws InterruptedException {
+        changeFeed = new ChangeFeed(HISTORY_CAPACITY, 2);
+        service = new RWLSyncKvService(new ChangeFeedKeyValueRepository(new HashMapKeyValueRepository(), changeFeed),
+                120);
+        var subscription = changeFeed.subscribe(null).orElseThrow();
+        for (int i = 1; i <= 3; i++) {
+            service.setValueByKey("key" + i, "value", 60_000);
+        }
+
+        assertTrue(subscription.isOverflowed());
+        assertEquals(0, changeFeed.getSubscriberCount());
+        assertEquals(List.of(1L, 2L), drain(subscription).stream().map(ChangeEvent::getSequence).toList());
+        assertEquals(List.of("key3"),
+                drain(changeFeed.subscribe(2L).orElseThrow()).stream().map(ChangeEvent::getKey).toList());
+    }
+
+    @Test
+    void testEventsArePublishedAfterCommit() throws InterruptedException {
+        var repository = new ChangeFeedKeyValueRepository(new HashMapKeyValueRepository(), changeFeed);
+        var transactions = new TransactionTemplate(new DataSourceTransactionManager(
+                new DriverManagerDataSource("jdbc:h2:mem:change-feed-test")));
+        var subscription = changeFeed.subscribe(null).orElseThrow();
+
+        transactions.executeWithoutResult(status -> {
+            repository.put("key1", "value1", ValueWithExpirationTime.NEVER_EXPIRES);
+            status.setRollbackOnly();
+        });
+        transactions.executeWithoutResult(status -> {
+            repository.put("key2", "value2", ValueWithExpirationTime.NEVER_EXPIRES);
+            assertEquals(0, changeFeed.getLastSequence());
+        });
+
+        List<ChangeEvent> events = drain(subscription);
+        assertEquals(List.of("key2"), events.stream().map(ChangeEvent::getKey).toList());
+        assertEquals(1, events.get(0).getSequence());
+    }
+
+    private List<ChangeEvent> drain(ChangeFeed.Subscription subscription) throws InterruptedException {
+        List<ChangeEvent> events = new ArrayList<>();
+        ChangeEvent event;
+        while ((event = subscription.poll(10)) != null) {
+            events.add(event);
+        }
+        return events;
+    }
+}
@@ -0,0 +1,108 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.repository.CoalescingKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.HashMapKeyValueRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoalescingKeyValueRepositoryTest {
+
+    private final CountDownLatch queryStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseQuery = new CountDownLatch(1);
+    private final AtomicInteger queries = new AtomicInteger();
+
+    private HashMapKeyValueRepository storage;
+    private CoalescingKeyValueRepository repository;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        // the first lookup blocks until it is released, the following ones don't
+        storage = new HashMapKeyValueRepository() {
+            @Override
+            public Optional<ValueWithExpirationTime> get(String key) {
+                if (queries.incrementAndGet() == 1) {
+                    queryStarted.countDown();
+                    try {
+                        releaseQuery.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.get(key);
+            }
+        };
+        repository = new CoalescingKeyValueRepository(storage, new SimpleMeterRegistry());
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentLookupsShareQuery() throws Exception {
+        storage.put("key1", "value1", currentTime() + 60_000);
+        var leader = executor.submit(() -> repository.getIfNotOutdated("key1", currentTime()));
+        assertTrue(queryStarted.await(1, TimeUnit.SECONDS));
+        List<Future<Optional<ValueWithExpirationTime>>> followers = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            followers.add(executor.submit(() -> repository.getIfNotOutdated("key1", currentTime())));
+        }
+        while (repository.getCoalesced() < 7) {
+            Thread.onSpinWait();
+        }
+        releaseQuery.countDown();
+
+        assertEquals("value1", leader.get().orElseThrow().getValue());
+        for (var follower : followers) {
+            assertEquals("value1", follower.get().orElseThrow().getValue());
+        }
+        assertEquals(1, queries.get());
+        assertEquals(1, repository.getQueries());
+    }
+
+    @Test
+    void testLookupAfterWriteDoesNotShareEarlierQuery() throws Exception {
+        storage.put("key1", "value1", currentTime() + 60_000);
+        var leader = executor.submit(() -> repository.get("key1"));
+        assertTrue(queryStarted.await(1, TimeUnit.SECONDS));
+        repository.put("key1", "value2", currentTime() + 60_000);
+
+        assertEquals("value2", repository.get("key1").orElseThrow().getValue());
+        releaseQuery.countDown();
+        leader.get();
+        assertEquals(2, queries.get());
+        assertEquals(0, repository.getCoalesced());
+    }
+
+    @Test
+    void testExpirationIsCheckedByEveryCaller() {
+        releaseQuery.countDown();
+        storage.put("key1", "value1", 1000);
+
+        assertTrue(repository.getIfNotOutdated("key1", 999).isPresent());
+        assertTrue(repository.getIfNotOutdated("key1", 1001).isEmpty());
+        assertTrue(repository.get("key1").isPresent());
+    }
+
+    private long currentTime() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,71 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.repository.CompressingKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.HashMapKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.service.RWLSyncKvService;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressingKeyValueRepositoryTest {
+
+    private HashMapKeyValueRepository storage;
+    private CompressingKeyValueRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        storage = new HashMapKeyValueRepository();
+        repository = new CompressingKeyValueRepository(storage, 100, 1, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testLargeValuesAreStoredCompressed() {
+        String value = "{\"name\":\"значение\",\"items\":[1,2,3]}".repeat(100);
+        repository.put("large", value, currentTime() + 86_400_000L);
+        repository.put("small", "value", currentTime() + 86_400_000L);
+
+        assertTrue(storage.get("large").orElseThrow().getValue().length() < value.length() / 4);
+        assertEquals("value", storage.get("small").orElseThrow().getValue());
+        assertEquals(value, repository.get("large").orElseThrow().getValue());
+        assertEquals("value", repository.get("small").orElseThrow().getValue());
+        assertEquals(Map.of("large", value, "small", "value"),
+                Map.of("large", repository.getAll().get("large").getValue(),
+                        "small", repository.getAll().get("small").getValue()));
+        assertTrue(repository.getCompressionRatio() > 4);
+    }
+
+    @Test
+    void testValuesStartingWithMarkerAreEscaped() {
+        String value = "\0z not compressed";
+        repository.put("key1", value, currentTime() + 86_400_000L);
+        repository.addAll(Map.of("key2", new ValueWithExpirationTime("\0", currentTime() + 86_400_000L)));
+
+        assertEquals(value, repository.get("key1").orElseThrow().getValue());
+        assertEquals("\0", repository.get("key2").orElseThrow().getValue());
+    }
+
+    @Test
+    void testExpirationChangeKeepsCompressedValue() {
+        var service = new RWLSyncKvService(repository, 120);
+        String value = "a".repeat(10_000);
+        service.setValueByKey("key1", value, 60_000);
+        String stored = storage.get("key1").orElseThrow().getValue();
+
+        assertTrue(service.persist("key1"));
+        assertSame(stored, storage.get("key1").orElseThrow().getValue());
+        assertEquals(Optional.of(-1L), service.getTtl("key1"));
+        assertEquals(Optional.of(value), service.getValueByKey("key1"));
+        assertEquals(Optional.of(value), service.getAndSet("key1", "b", 0));
+        assertEquals(Optional.of("b"), service.getValueByKey("key1"));
+    }
+
+    private long currentTime() {
+        return System.currentTimeMillis();
+    }
+}
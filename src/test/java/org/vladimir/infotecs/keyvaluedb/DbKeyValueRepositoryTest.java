@@ -0,0 +1,196 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionOperation;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionResult;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.model.VersionPrecondition;
+import org.vladimir.infotecs.keyvaluedb.repository.DbKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.mapper.KvPairRowMapper;
+import org.vladimir.infotecs.keyvaluedb.repository.mapper.ValueWithExpirationTimeRowMapper;
+import org.vladimir.infotecs.keyvaluedb.service.DbKVService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class DbKeyValueRepositoryTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private DbKeyValueRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:db-repository-test;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        jdbcTemplate = spy(new JdbcTemplate(dataSource));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS KEY_VALUE_TABLE (" +
+                "\"KEY\" TEXT PRIMARY KEY, " +
+                "\"VALUE\" TEXT NOT NULL, " +
+                "EXPIRATION_TIME TIMESTAMP NOT NULL, " +
+                "SLIDING_TTL BIGINT, " +
+                "VERSION BIGINT)");
+        repository = new DbKeyValueRepository(jdbcTemplate, new ValueWithExpirationTimeRowMapper(),
+                new KvPairRowMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE KEY_VALUE_TABLE");
+    }
+
+    @Test
+    void testComputeIsRepeatedOnceIfPairIsInsertedConcurrently() {
+        doThrow(new DuplicateKeyException("inserted concurrently")).doCallRealMethod()
+                .when(jdbcTemplate).update(startsWith("INSERT"), any(Object[].class));
+
+        var result = repository.compute("key", currentTime(),
+                current -> Optional.of(new ValueWithExpirationTime("value", currentTime() + 60_000)));
+
+        assertEquals("value", result.orElseThrow().getValue());
+        assertEquals("value", repository.get("key").orElseThrow().getValue());
+        verify(jdbcTemplate, times(2)).query(contains("FOR UPDATE"), any(ValueWithExpirationTimeRowMapper.class),
+                any(Object[].class));
+    }
+
+    @Test
+    void testComputeFailsOnRepeatedConflict() {
+        doThrow(new DuplicateKeyException("inserted concurrently"))
+                .when(jdbcTemplate).update(startsWith("INSERT"), any(Object[].class));
+
+        assertThrows(DuplicateKeyException.class, () -> repository.compute("key", currentTime(),
+                current -> Optional.of(new ValueWithExpirationTime("value", currentTime() + 60_000))));
+        verify(jdbcTemplate, times(2)).query(contains("FOR UPDATE"), any(ValueWithExpirationTimeRowMapper.class),
+                any(Object[].class));
+    }
+
+    @Test
+    void testPutVersionedDoesNotLockRow() {
+        var service = new DbKVService(repository, 120);
+        long first = service.setValueByKey("key", "value1", 60_000, true, VersionPrecondition.none());
+        service.setValueByKey("key", "value2", 60_000);
+
+        var stored = repository.get("key").orElseThrow();
+        assertEquals("value2", stored.getValue());
+        assertNull(stored.getSlidingTtl());
+        assertTrue(stored.currentVersion() > first);
+        verify(jdbcTemplate, never()).query(contains("FOR UPDATE"), any(ValueWithExpirationTimeRowMapper.class),
+                any(Object[].class));
+    }
+
+    @Test
+    void testPutVersionedKeepsVersionGrowing() {
+        long expirationTime = currentTime() + 60_000;
+        var created = repository.putVersioned("key", new ValueWithExpirationTime("value1", expirationTime, null, 10L));
+        assertEquals(10, created.currentVersion());
+
+        var older = repository.putVersioned("key", new ValueWithExpirationTime("value2", expirationTime, 60_000L, 5L));
+        assertEquals(11, older.currentVersion());
+        assertEquals(new ValueWithExpirationTime("value2", expirationTime, 60_000L, 11L),
+                repository.get("key").orElseThrow());
+
+        var newer = repository.putVersioned("key", new ValueWithExpirationTime("value3", expirationTime, null, 20L));
+        assertEquals(20, newer.currentVersion());
+        assertEquals(20, repository.get("key").orElseThrow().currentVersion());
+    }
+
+    @Test
+    void testPairWithoutExpirationRoundTrips() {
+        repository.put("key", "value", ValueWithExpirationTime.NEVER_EXPIRES);
+
+        assertEquals(ValueWithExpirationTime.NEVER_EXPIRES, repository.get("key").orElseThrow().getExpirationTime());
+        assertTrue(repository.getIfNotOutdated("key", currentTime()).isPresent());
+        assertEquals(ValueWithExpirationTime.NEVER_EXPIRES,
+                repository.getAll().get("key").getExpirationTime());
+        assertEquals(List.of(), repository.removeAllOutdatedPairsAndReturnKeys(currentTime()));
+    }
+
+    @Test
+    void testTransactionCheckLocksRowUntilCommit() throws Exception {
+        var service = new DbKVService(repository, 120);
+        var transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        service.setValueByKey("counter", "0", 60_000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<TransactionResult> second = transactions.execute(status -> {
+                assertTrue(service.executeTransaction(increment("0")).isCommitted());
+                var pending = executor.submit(() -> transactions.execute(s -> service.executeTransaction(increment("0"))));
+                // the check of the second transaction waits for the row locked by the check of the first one
+                assertThrows(TimeoutException.class, () -> pending.get(300, TimeUnit.MILLISECONDS));
+                return pending;
+            });
+
+            var result = second.get(10, TimeUnit.SECONDS);
+            assertFalse(result.isCommitted());
+            assertEquals(0, result.getFailedCheck());
+            assertEquals(Optional.of("1"), service.getValueByKey("counter"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testConcurrentCheckedIncrementsAreNotLost() throws Exception {
+        var service = new DbKVService(repository, 120);
+        var transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        service.setValueByKey("counter", "0", 60_000);
+        var committed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        String current = service.getValueByKey("counter").orElseThrow();
+                        var result = transactions.execute(status -> service.executeTransaction(increment(current)));
+                        if (result.isCommitted()) {
+                            committed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(committed.get() > 0);
+        assertEquals(Optional.of(String.valueOf(committed.get())), service.getValueByKey("counter"));
+    }
+
+    private static List<TransactionOperation> increment(String expected) {
+        return List.of(
+                new TransactionOperation(TransactionOperation.Type.CHECK_VALUE, "counter", expected, 0),
+                new TransactionOperation(TransactionOperation.Type.SET, "counter",
+                        String.valueOf(Long.parseLong(expected) + 1), 60_000));
+    }
+
+    private long currentTime() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,81 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.h2.tools.Server;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.vladimir.infotecs.keyvaluedb.repository.DbKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.mapper.KvPairRowMapper;
+import org.vladimir.infotecs.keyvaluedb.repository.mapper.ValueWithExpirationTimeRowMapper;
+import org.vladimir.infotecs.keyvaluedb.service.DbKVService;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares get and set latency of {@link DbKVService} over the loopback H2 TCP server against the embedded
+ * in-process database (database.mode=tcp and embedded). Not a unit test, run the main method
+ * with the test classpath: [iterations]
+ */
+public class DbModeBenchmark {
+
+    private static final int KEYS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        Server server = Server.createTcpServer("-tcp", "-ifNotExists", "-tcpPort", "0").start();
+        try (var tcp = dataSource("jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:tcp;QUERY_CACHE_SIZE=64");
+             var embedded = dataSource("jdbc:h2:mem:embedded;QUERY_CACHE_SIZE=64;DB_CLOSE_DELAY=-1")) {
+            var tcpService = service(tcp);
+            var embeddedService = service(embedded);
+            for (int round = 0; round < 3; round++) {
+                measure("tcp", tcpService, iterations);
+                measure("embedded", embeddedService, iterations);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static HikariDataSource dataSource(String url) {
+        var hikariConfig = new HikariConfig();
+        hikariConfig.setJdbcUrl(url);
+        hikariConfig.setUsername("sa");
+        hikariConfig.setPassword("password");
+        return new HikariDataSource(hikariConfig);
+    }
+
+    private static DbKVService service(HikariDataSource dataSource) {
+        var jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS KEY_VALUE_TABLE (" +
+                "\"KEY\" TEXT PRIMARY KEY, \"VALUE\" TEXT NOT NULL, " +
+                "EXPIRATION_TIME TIMESTAMP NOT NULL, SLIDING_TTL BIGINT, VERSION BIGINT)");
+        var service = new DbKVService(new DbKeyValueRepository(jdbcTemplate,
+                new ValueWithExpirationTimeRowMapper(), new KvPairRowMapper()), 200);
+        for (int i = 0; i < KEYS; i++) {
+            service.setValueByKey("key" + i, "value" + i, 0);
+        }
+        return service;
+    }
+
+    private static void measure(String mode, DbKVService service, int iterations) {
+        long[] gets = new long[iterations];
+        long[] sets = new long[iterations / 10];
+        for (int i = 0; i < iterations; i++) {
+            String key = "key" + ThreadLocalRandom.current().nextInt(KEYS);
+            long start = System.nanoTime();
+            if (i % 10 == 0) {
+                service.setValueByKey(key, "value" + i, 0);
+                sets[i / 10] = System.nanoTime() - start;
+            } else {
+                service.getValueByKey(key);
+                gets[i] = System.nanoTime() - start;
+            }
+        }
+        gets = Arrays.stream(gets).filter(latency -> latency > 0).sorted().toArray();
+        Arrays.sort(sets);
+        System.out.printf("%-9s get p50 %6.1f us, p99 %6.1f us; set p50 %6.1f us, p99 %6.1f us%n", mode,
+                gets[gets.length / 2] / 1e3, gets[(int) (gets.length * 0.99)] / 1e3,
+                sets[sets.length / 2] / 1e3, sets[(int) (sets.length * 0.99)] / 1e3);
+    }
+}
@@ -0,0 +1,84 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import org.junit.jupiter.api.Test;
+import org.vladimir.infotecs.keyvaluedb.controller.ETags;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ETagsTest {
+
+    @Test
+    void testVersionIsStrongTag() {
+        assertEquals("\"5\"", ETags.of(5));
+    }
+
+    @Test
+    void testAbsentHeadersAreNoPrecondition() {
+        var precondition = ETags.precondition(null, null);
+
+        assertTrue(precondition.isNone());
+        assertTrue(precondition.test(Optional.empty()));
+        assertTrue(precondition.test(Optional.of(3L)));
+    }
+
+    @Test
+    void testTagLists() {
+        var precondition = ETags.precondition("\"1\", \"3\"", "\"4\",\"5\"");
+
+        assertEquals(Set.of(1L, 3L), precondition.getIfMatch());
+        assertEquals(Set.of(4L, 5L), precondition.getIfNoneMatch());
+        assertTrue(precondition.test(Optional.of(3L)));
+        assertFalse(precondition.test(Optional.of(2L)));
+        assertFalse(precondition.test(Optional.empty()));
+    }
+
+    @Test
+    void testWeakTagsMatchOnlyIfNoneMatch() {
+        var ifMatch = ETags.precondition("W/\"1\"", null);
+        var ifNoneMatch = ETags.precondition(null, "W/\"1\"");
+
+        assertEquals(Set.of(), ifMatch.getIfMatch());
+        assertFalse(ifMatch.test(Optional.of(1L)));
+        assertEquals(Set.of(1L), ifNoneMatch.getIfNoneMatch());
+        assertFalse(ifNoneMatch.test(Optional.of(1L)));
+        assertTrue(ifNoneMatch.test(Optional.of(2L)));
+    }
+
+    @Test
+    void testAnyTag() {
+        var ifMatchAny = ETags.precondition(" * ", null);
+        var ifNoneMatchAny = ETags.precondition(null, "*");
+
+        assertTrue(ifMatchAny.isIfMatchAny());
+        assertNull(ifMatchAny.getIfMatch());
+        assertTrue(ifMatchAny.test(Optional.of(1L)));
+        assertFalse(ifMatchAny.test(Optional.empty()));
+        assertTrue(ifNoneMatchAny.isIfNoneMatchAny());
+        assertNull(ifNoneMatchAny.getIfNoneMatch());
+        assertFalse(ifNoneMatchAny.test(Optional.of(1L)));
+        assertTrue(ifNoneMatchAny.test(Optional.empty()));
+    }
+
+    @Test
+    void testMalformedTagsAreSkipped() {
+        var precondition = ETags.precondition("abc, \"x\", \"\", 2, \"3, W/\"4\", \"5\"", "\"");
+
+        assertEquals(Set.of(5L), precondition.getIfMatch());
+        assertEquals(Set.of(), precondition.getIfNoneMatch());
+        assertFalse(ETags.precondition("abc", null).test(Optional.of(1L)));
+    }
+
+    @Test
+    void testNotModified() {
+        assertTrue(ETags.isNotModified("\"2\"", 2));
+        assertTrue(ETags.isNotModified("W/\"2\"", 2));
+        assertTrue(ETags.isNotModified("\"1\", \"2\"", 2));
+        assertTrue(ETags.isNotModified("*", 2));
+        assertFalse(ETags.isNotModified("\"1\"", 2));
+        assertFalse(ETags.isNotModified("malformed", 2));
+        assertFalse(ETags.isNotModified(null, 2));
+    }
+}
@@ -0,0 +1,71 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.vladimir.infotecs.keyvaluedb.exception.NotAnInteger;
+import org.vladimir.infotecs.keyvaluedb.exception.ServiceOverloaded;
+import org.vladimir.infotecs.keyvaluedb.repository.HashMapKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.service.ExecutorAsyncKvService;
+import org.vladimir.infotecs.keyvaluedb.service.RWLSyncKvService;
+
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExecutorAsyncKvServiceTest {
+
+    private ThreadPoolExecutor executor;
+    private ExecutorAsyncKvService service;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        service = new ExecutorAsyncKvService(new RWLSyncKvService(new HashMapKeyValueRepository(), 120), executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testOperationsComplete() throws ExecutionException, InterruptedException {
+        service.setValueByKey("key1", "value1", 60_000, false).get();
+
+        assertEquals(Optional.of("value1"), service.getValueByKey("key1").get());
+        assertEquals(5L, service.incrementBy("counter", 5, 0).get());
+        assertEquals(Optional.of("value1"), service.deleteValueByKey("key1").get());
+        assertEquals(Optional.empty(), service.getValueByKey("key1").get());
+
+        var exception = assertThrows(ExecutionException.class, () -> service.incrementBy("key2", 1, 0)
+                .thenCompose(ignored -> service.setValueByKey("key2", "text", 0, false))
+                .thenCompose(ignored -> service.incrementBy("key2", 1, 0))
+                .get());
+        assertInstanceOf(NotAnInteger.class, exception.getCause());
+    }
+
+    @Test
+    void testFullQueueIsRejected() throws InterruptedException {
+        var blocked = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        var queued = service.getValueByKey("key1");
+        var rejected = service.getValueByKey("key1");
+
+        var exception = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(ServiceOverloaded.class, exception.getCause());
+        blocked.countDown();
+        assertDoesNotThrow(() -> queued.get(1, TimeUnit.SECONDS));
+    }
+}
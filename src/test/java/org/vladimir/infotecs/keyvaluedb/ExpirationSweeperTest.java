@@ -0,0 +1,134 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.vladimir.infotecs.keyvaluedb.model.OutdatedKeys;
+import org.vladimir.infotecs.keyvaluedb.repository.HashMapKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.service.ExpirationSweeper;
+import org.vladimir.infotecs.keyvaluedb.service.RWLSyncKvService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpirationSweeperTest {
+
+    private HashMapKeyValueRepository repository;
+    private RWLSyncKvService service;
+    private ExpirationSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        repository = new HashMapKeyValueRepository(8);
+        service = new RWLSyncKvService(repository, 120);
+        sweeper = new ExpirationSweeper(service, 4, 10, 100, 1600, 0.25, new SimpleMeterRegistry(), Tags.empty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        sweeper.close();
+    }
+
+    @Test
+    void testSegmentsAreSweptInSteps() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            repository.put("key" + i, "value", i % 2 == 0 ? now - 1000 : now + 60_000);
+        }
+        OutdatedKeys step = service.deleteOutdatedPairs(3, null, 10);
+        assertEquals(10, step.getScanned());
+        assertTrue(step.getKeys().size() <= 10);
+        assertNotNull(step.getCursor());
+
+        double ratio = sweeper.sweep();
+        assertTrue(ratio > 0.25);
+        assertEquals(500, repository.getAll().size());
+        assertTrue(repository.getAll().keySet().stream()
+                .allMatch(key -> Integer.parseInt(key.substring(3)) % 2 == 1));
+        assertEquals(100, sweeper.getDelay());
+    }
+
+    @Test
+    void testSegmentScanResumesFromCursor() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            repository.put("key" + i, "value", i % 2 == 0 ? now - 1000 : now + 60_000);
+        }
+        int outdated = repository.findOutdatedKeys(0, null, Integer.MAX_VALUE, now).getKeys().size();
+        int segmentSize = repository.findOutdatedKeys(0, null, Integer.MAX_VALUE, now + 120_000).getKeys().size();
+        long scanned = 0;
+        int removed = 0;
+        int steps = 0;
+        String cursor = null;
+        do {
+            OutdatedKeys step = service.deleteOutdatedPairs(0, cursor, 10);
+            assertTrue(step.getScanned() <= 10);
+            scanned += step.getScanned();
+            removed += step.getKeys().size();
+            steps++;
+            // a pair added during the sweep doesn't break the iteration
+            repository.put("added" + steps, "value", now + 60_000);
+            cursor = step.getCursor();
+        } while (cursor != null);
+
+        assertEquals(outdated, removed);
+        // every pair is visited once, the added ones at most once
+        assertTrue(scanned >= segmentSize && scanned <= segmentSize + steps);
+        assertTrue(repository.findOutdatedKeys(0, null, Integer.MAX_VALUE, now).getKeys().isEmpty());
+    }
+
+    @Test
+    void testStaleCursorEndsSegment() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            repository.put("key" + i, "value", now - 1000);
+        }
+        OutdatedKeys first = repository.findOutdatedKeys(0, null, 10, now);
+        repository.findOutdatedKeys(0, null, 10, now);
+
+        OutdatedKeys stale = repository.findOutdatedKeys(0, first.getCursor(), 10, now);
+        assertEquals(List.of(), stale.getKeys());
+        assertEquals(0, stale.getScanned());
+        assertNull(stale.getCursor());
+    }
+
+    @Test
+    void testDelayGrowsWithoutExpiredPairs() {
+        service.setValueByKey("key", "value", 60_000);
+        assertEquals(0, sweeper.sweep());
+        assertEquals(200, sweeper.getDelay());
+        for (int i = 0; i < 5; i++) {
+            sweeper.sweep();
+        }
+        assertEquals(1600, sweeper.getDelay());
+
+        repository.put("expired", "value", System.currentTimeMillis() - 1);
+        sweeper.sweep();
+        assertEquals(800, sweeper.getDelay());
+        assertEquals(List.of("key"), List.copyOf(repository.getAll().keySet()));
+    }
+
+    @Test
+    void testChangedPairIsNotRemoved() {
+        long now = System.currentTimeMillis();
+        repository.put("key", "old", now - 1000);
+        var found = findInAnySegment(now);
+        assertEquals(List.of("key"), found);
+        repository.put("key", "new", now + 60_000);
+        assertEquals(List.of(), repository.removeOutdatedPairs(found, now));
+        assertEquals("new", repository.get("key").orElseThrow().getValue());
+    }
+
+    private List<String> findInAnySegment(long time) {
+        for (int segment = 0; segment < repository.getSegmentCount(); segment++) {
+            var keys = repository.findOutdatedKeys(segment, null, 10, time).getKeys();
+            if (!keys.isEmpty()) {
+                return keys;
+            }
+        }
+        return List.of();
+    }
+}
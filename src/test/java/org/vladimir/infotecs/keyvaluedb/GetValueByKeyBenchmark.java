@@ -0,0 +1,57 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.vladimir.infotecs.keyvaluedb.controller.PreEncodedJson;
+import org.vladimir.infotecs.keyvaluedb.dto.GetValueByKeyResponse;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Compares the GET value response through the whole MVC pipeline (dispatch, handler mapping, message converters):
+ * the Jackson serialized DTO against the pre-encoded bytes. Not a unit test, run the main method
+ * with the test classpath, e.g. from the IDE
+ */
+public class GetValueByKeyBenchmark {
+
+    private static final String VALUE = "{\"user\":42,\"roles\":[\"admin\",\"editor\"],\"active\":true}";
+
+    @RestController
+    static class BenchmarkController {
+
+        @GetMapping("/jackson/{key}")
+        ResponseEntity<GetValueByKeyResponse> jackson(@PathVariable String key) {
+            return ResponseEntity.ok(new GetValueByKeyResponse(VALUE));
+        }
+
+        @GetMapping("/encoded/{key}")
+        ResponseEntity<byte[]> encoded(@PathVariable String key) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(PreEncodedJson.valueResponse(VALUE));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new BenchmarkController()).build();
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        for (int round = 0; round < 5; round++) {
+            System.out.printf("round %d: jackson %.2f us/op, pre-encoded %.2f us/op%n", round,
+                    measure(mockMvc, "/jackson/key", iterations), measure(mockMvc, "/encoded/key", iterations));
+        }
+    }
+
+    private static double measure(MockMvc mockMvc, String path, int iterations) throws Exception {
+        var request = get(path).accept(MediaType.APPLICATION_JSON);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            mockMvc.perform(request).andReturn().getResponse().getContentAsByteArray();
+        }
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+}
@@ -28,7 +28,7 @@ public class HashMapKeyValueRepositoryTest {
 
     private long toUnixTime(LocalDateTime dateTime) {
         Instant instant = dateTime.atZone(ZoneId.systemDefault()).toInstant();
-        return instant.getEpochSecond();
+        return instant.toEpochMilli();
     }
 
     @Test
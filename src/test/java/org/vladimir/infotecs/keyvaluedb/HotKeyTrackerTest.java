@@ -0,0 +1,64 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import org.junit.jupiter.api.Test;
+import org.vladimir.infotecs.keyvaluedb.model.KeyAccessCount;
+import org.vladimir.infotecs.keyvaluedb.repository.HotKeyTracker;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HotKeyTrackerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void testHotKeysAreFoundAmongColdOnes() {
+        var tracker = new HotKeyTracker(60_000, 1024, 10, clock::get);
+        for (int i = 0; i < 10_000; i++) {
+            tracker.recordRead("cold:" + i);
+            if (i % 10 == 0) {
+                tracker.recordRead("hot:1");
+            }
+            if (i % 20 == 0) {
+                tracker.recordRead("hot:2");
+                tracker.recordWrite("hot:2");
+            }
+        }
+
+        List<KeyAccessCount> reads = tracker.getHotReads(2);
+        assertEquals(List.of("hot:1", "hot:2"), reads.stream().map(KeyAccessCount::getKey).toList());
+        assertTrue(reads.get(0).getCount() >= 1000);
+        assertTrue(reads.get(1).getCount() >= 500);
+        assertEquals("hot:2", tracker.getHotWrites(1).get(0).getKey());
+        assertEquals(500, tracker.getHotWrites(1).get(0).getCount());
+    }
+
+    @Test
+    void testCountsLeaveTheWindow() {
+        var tracker = new HotKeyTracker(1000, 1024, 10, clock::get);
+        tracker.recordRead("key1");
+        clock.set(600);
+        tracker.recordRead("key1");
+        tracker.recordRead("key2");
+
+        assertEquals(List.of(new KeyAccessCount("key1", 2), new KeyAccessCount("key2", 1)), tracker.getHotReads(10));
+        clock.set(1100);
+        assertEquals(List.of(new KeyAccessCount("key1", 1), new KeyAccessCount("key2", 1)), tracker.getHotReads(10));
+        clock.set(5000);
+        assertTrue(tracker.getHotReads(10).isEmpty());
+    }
+
+    @Test
+    void testKeysWithEqualHashCodesAreCountedApart() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        var tracker = new HotKeyTracker(60_000, 1024, 10, clock::get);
+        for (int i = 0; i < 100; i++) {
+            tracker.recordRead("Aa");
+        }
+        tracker.recordRead("BB");
+
+        assertEquals(List.of(new KeyAccessCount("Aa", 100), new KeyAccessCount("BB", 1)), tracker.getHotReads(10));
+    }
+}
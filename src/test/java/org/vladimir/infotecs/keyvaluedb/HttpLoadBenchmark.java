@@ -0,0 +1,303 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntSupplier;
+
+/**
+ * End-to-end load test of the HTTP API: requests pass through Tomcat, Jackson, validation and the storage,
+ * which micro-benchmarks of the services don't show.
+ * <p>
+ * Requests are sent open-loop at a fixed arrival rate and the latency is measured from the intended send time,
+ * so a stalled server isn't hidden by the generator waiting for it (coordinated omission). The service time
+ * from the actual send is recorded too, the difference between them shows the queueing.
+ * Keys are chosen uniformly or by a Zipfian distribution, key 0 being the hottest one.
+ * </p>
+ * Not a unit test, run the main method with the test classpath and name=value arguments:
+ * url (a running server, by default the application is started in this JVM with useDb=true and then useDb=false),
+ * rate [requests/s], duration [s], warmup [s], keys, distribution (uniform or zipfian), zipfExponent (0, 1),
+ * valueSize [chars], writeRatio, ttl [ms], maxInFlight.
+ * The in-process server shares the CPU with the generator, use url to measure a server alone
+ */
+public class HttpLoadBenchmark {
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("url", ""),
+            Map.entry("rate", "1000"),
+            Map.entry("duration", "30"),
+            Map.entry("warmup", "10"),
+            Map.entry("keys", "10000"),
+            Map.entry("distribution", "zipfian"),
+            Map.entry("zipfExponent", "0.99"),
+            Map.entry("valueSize", "100"),
+            Map.entry("writeRatio", "0.1"),
+            Map.entry("ttl", "600000"),
+            Map.entry("maxInFlight", "1000"));
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !DEFAULTS.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Unknown argument " + arg + ", expected one of " + DEFAULTS.keySet());
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        var workload = new Workload(options);
+        System.out.println(workload);
+
+        List<Result> results = new ArrayList<>();
+        if (!options.get("url").isEmpty()) {
+            results.add(new LoadRun(options.get("url"), workload).run(options.get("url")));
+        } else {
+            for (boolean useDb : new boolean[]{true, false}) {
+                var context = new SpringApplicationBuilder(KeyValueDbApplication.class)
+                        .logStartupInfo(false)
+                        .run("--server.port=0", "--useDb=" + useDb, "--logging.level.root=warn");
+                try {
+                    int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+                    results.add(new LoadRun("http://localhost:" + port, workload).run("useDb=" + useDb));
+                } finally {
+                    context.close();
+                }
+            }
+        }
+        System.out.println();
+        results.forEach(Result::print);
+    }
+
+    private record Workload(int rate, int durationSeconds, int warmupSeconds, int keys, String distribution,
+                            double zipfExponent, int valueSize, double writeRatio, long ttl, int maxInFlight) {
+
+        Workload(Map<String, String> options) {
+            this(Integer.parseInt(options.get("rate")),
+                    Integer.parseInt(options.get("duration")),
+                    Integer.parseInt(options.get("warmup")),
+                    Integer.parseInt(options.get("keys")),
+                    options.get("distribution"),
+                    Double.parseDouble(options.get("zipfExponent")),
+                    Integer.parseInt(options.get("valueSize")),
+                    Double.parseDouble(options.get("writeRatio")),
+                    Long.parseLong(options.get("ttl")),
+                    Integer.parseInt(options.get("maxInFlight")));
+        }
+
+        IntSupplier keyChooser() {
+            return switch (distribution) {
+                case "uniform" -> () -> ThreadLocalRandom.current().nextInt(keys);
+                case "zipfian" -> new ZipfianGenerator(keys, zipfExponent);
+                default -> throw new IllegalArgumentException("Unknown distribution " + distribution);
+            };
+        }
+    }
+
+    private static final class LoadRun {
+
+        private static final int VALUES = 64;
+        private static final int PRELOAD_IN_FLIGHT = 64;
+
+        private final String url;
+        private final Workload workload;
+        private final HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        private final List<String> bodies = new ArrayList<>();
+
+        LoadRun(String url, Workload workload) {
+            this.url = url;
+            this.workload = workload;
+            var random = new Random(42);
+            for (int i = 0; i < VALUES; i++) {
+                var value = new StringBuilder(workload.valueSize());
+                for (int j = 0; j < workload.valueSize(); j++) {
+                    value.append((char) ('a' + random.nextInt(26)));
+                }
+                bodies.add("{\"value\":\"" + value + "\",\"ttlMillis\":" + workload.ttl() + "}");
+            }
+        }
+
+        Result run(String label) throws InterruptedException {
+            System.out.printf("%s: preloading %d keys%n", label, workload.keys());
+            var inFlight = new Semaphore(PRELOAD_IN_FLIGHT);
+            for (int key = 0; key < workload.keys(); key++) {
+                inFlight.acquire();
+                client.sendAsync(write(key), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, error) -> inFlight.release());
+            }
+            inFlight.acquire(PRELOAD_IN_FLIGHT);
+
+            System.out.printf("%s: warming up for %d s%n", label, workload.warmupSeconds());
+            send(workload.warmupSeconds(), new Result(label));
+            System.out.printf("%s: measuring for %d s at %d requests/s%n", label, workload.durationSeconds(),
+                    workload.rate());
+            var result = new Result(label);
+            long start = System.nanoTime();
+            send(workload.durationSeconds(), result);
+            result.elapsedNanos = System.nanoTime() - start;
+            return result;
+        }
+
+        /**
+         * Sends requests at the intended times and waits for the responses. A request is sent late only when
+         * maxInFlight requests are pending, its latency still counts from the intended time
+         */
+        private void send(int seconds, Result result) throws InterruptedException {
+            var keys = workload.keyChooser();
+            var inFlight = new Semaphore(workload.maxInFlight());
+            double intervalNanos = 1e9 / workload.rate();
+            long start = System.nanoTime();
+            long end = start + TimeUnit.SECONDS.toNanos(seconds);
+            for (long i = 0; ; i++) {
+                long intended = start + (long) (i * intervalNanos);
+                if (intended >= end) {
+                    break;
+                }
+                long delay = intended - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                inFlight.acquire();
+                boolean isWrite = ThreadLocalRandom.current().nextDouble() < workload.writeRatio();
+                int key = keys.getAsInt();
+                var request = isWrite ? write(key) : read(key);
+                long sent = System.nanoTime();
+                client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                    long done = System.nanoTime();
+                    inFlight.release();
+                    if (error != null) {
+                        result.errors.incrementAndGet();
+                    } else if (response.statusCode() >= 300 && !(response.statusCode() == 404 && !isWrite)) {
+                        result.errors.incrementAndGet();
+                        result.statuses.computeIfAbsent(response.statusCode(), status -> new AtomicLong())
+                                .incrementAndGet();
+                    } else {
+                        (isWrite ? result.writes : result.reads).recordValue(done - intended);
+                        (isWrite ? result.writeServiceTimes : result.readServiceTimes).recordValue(done - sent);
+                    }
+                });
+            }
+            inFlight.acquire(workload.maxInFlight());
+        }
+
+        private HttpRequest read(int key) {
+            return HttpRequest.newBuilder(URI.create(url + "/api/keys/key" + key))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+        }
+
+        private HttpRequest write(int key) {
+            return HttpRequest.newBuilder(URI.create(url + "/api/keys/key" + key))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(bodies.get(key % VALUES)))
+                    .build();
+        }
+    }
+
+    private static final class Result {
+
+        private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+        private final String label;
+        private final Histogram reads = new ConcurrentHistogram(3);
+        private final Histogram writes = new ConcurrentHistogram(3);
+        private final Histogram readServiceTimes = new ConcurrentHistogram(3);
+        private final Histogram writeServiceTimes = new ConcurrentHistogram(3);
+        private final AtomicLong errors = new AtomicLong();
+        private final Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+        private long elapsedNanos;
+
+        Result(String label) {
+            this.label = label;
+        }
+
+        void print() {
+            long requests = reads.getTotalCount() + writes.getTotalCount() + errors.get();
+            System.out.printf("%s: %d requests in %.1f s (%.0f/s), %d errors %s%n", label, requests,
+                    elapsedNanos / 1e9, requests / (elapsedNanos / 1e9), errors.get(), statuses);
+            print("get", reads, readServiceTimes);
+            print("set", writes, writeServiceTimes);
+        }
+
+        private static void print(String operation, Histogram latencies, Histogram serviceTimes) {
+            if (latencies.getTotalCount() == 0) {
+                return;
+            }
+            var line = new StringBuilder(String.format("  %s %7d", operation, latencies.getTotalCount()));
+            for (double percentile : PERCENTILES) {
+                line.append(String.format("  p%-5s %8.2f ms", percentile == Math.rint(percentile)
+                        ? String.valueOf((int) percentile) : String.valueOf(percentile),
+                        latencies.getValueAtPercentile(percentile) / 1e6));
+            }
+            line.append(String.format("  max %8.2f ms  (service time p99 %.2f ms)",
+                    latencies.getMaxValue() / 1e6, serviceTimes.getValueAtPercentile(99) / 1e6));
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Zipfian distribution over [0, items) by Gray et al. "Quickly generating billion-record synthetic databases",
+     * as in YCSB. The exponent must be in (0, 1), the generator divides by 1 - exponent
+     */
+    private static final class ZipfianGenerator implements IntSupplier {
+
+        private final int items;
+        private final double theta;
+        private final double alpha;
+        private final double zetan;
+        private final double eta;
+
+        ZipfianGenerator(int items, double theta) {
+            if (!(theta > 0 && theta < 1)) {
+                throw new IllegalArgumentException("Zipf exponent must be in (0, 1), got " + theta);
+            }
+            this.items = items;
+            this.theta = theta;
+            this.alpha = 1 / (1 - theta);
+            this.zetan = zeta(items, theta);
+            this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta(2, theta) / zetan);
+        }
+
+        @Override
+        public int getAsInt() {
+            double u = ThreadLocalRandom.current().nextDouble();
+            double uz = u * zetan;
+            if (uz < 1) {
+                return 0;
+            }
+            if (uz < 1 + Math.pow(0.5, theta)) {
+                return 1;
+            }
+            return Math.min(items - 1, (int) (items * Math.pow(eta * u - eta + 1, alpha)));
+        }
+
+        private static double zeta(int n, double theta) {
+            double sum = 0;
+            for (int i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.vladimir.infotecs.keyvaluedb.controller.ETags;
+import org.vladimir.infotecs.keyvaluedb.controller.KeyValueDbControllerImpl;
+import org.vladimir.infotecs.keyvaluedb.repository.HashMapKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.service.KeyValueService;
+import org.vladimir.infotecs.keyvaluedb.service.RWLSyncKvService;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(KeyValueDbControllerImpl.class)
+@TestPropertySource(properties = "raw.maxBodySize=16")
+public class KeyValueDbControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private KeyValueService keyValueService;
+
+    @TestConfiguration
+    static class ServiceConfig {
+
+        @Bean
+        KeyValueService keyValueService() {
+            return new RWLSyncKvService(new HashMapKeyValueRepository(), 120);
+        }
+    }
+
+    @Test
+    void testRawValueRoundTrips() throws Exception {
+        byte[] value = "значение".getBytes(StandardCharsets.UTF_8);
+
+        mockMvc.perform(put("/api/keys/raw1/raw")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .header("X-Ttl-Millis", "60000")
+                        .content(value))
+                .andExpect(status().isOk());
+
+        assertEquals("значение", keyValueService.getValueByKey("raw1").orElseThrow());
+        mockMvc.perform(get("/api/keys/raw1/raw"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(content().bytes(value));
+    }
+
+    @Test
+    void testRawValueOfAbsentKeyIsNotFound() throws Exception {
+        mockMvc.perform(get("/api/keys/absent/raw"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void testMalformedUtf8IsRejected() throws Exception {
+        mockMvc.perform(put("/api/keys/raw2/raw")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(new byte[]{'a', (byte) 0xC3, 'b'}))
+                .andExpect(status().isBadRequest());
+
+        assertTrue(keyValueService.getValueByKey("raw2").isEmpty());
+    }
+
+    @Test
+    void testBodyLargerThanLimitIsRejected() throws Exception {
+        mockMvc.perform(put("/api/keys/raw3/raw")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content("0123456789abcdef".getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/api/keys/raw3/raw")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content("0123456789abcdefg".getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isPayloadTooLarge());
+
+        assertEquals("0123456789abcdef", keyValueService.getValueByKey("raw3").orElseThrow());
+    }
+
+    @Test
+    void testFailedTransactionConditionIsConflict() throws Exception {
+        keyValueService.setValueByKey("balance", "10", 60_000);
+
+        mockMvc.perform(post("/api/transaction")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"operations": [
+                                  {"type": "SET", "key": "audit", "value": "withdrawn"},
+                                  {"type": "CHECK_VALUE", "key": "balance", "value": "20"}
+                                ]}
+                                """))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.committed").value(false))
+                .andExpect(jsonPath("$.failedCheck").value(1));
+        assertTrue(keyValueService.getValueByKey("audit").isEmpty());
+
+        mockMvc.perform(post("/api/transaction")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"operations": [
+                                  {"type": "CHECK_VALUE", "key": "balance", "value": "10"},
+                                  {"type": "SET", "key": "balance", "value": "0"}
+                                ]}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.committed").value(true));
+        assertEquals("0", keyValueService.getValueByKey("balance").orElseThrow());
+    }
+
+    @Test
+    void testSetAndGetReturnVersionAsETag() throws Exception {
+        String first = set("etag1", "a", null, null);
+        String second = set("etag1", "b", null, null);
+        assertTrue(version(second) > version(first));
+
+        mockMvc.perform(get("/api/keys/etag1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", second))
+                .andExpect(jsonPath("$.value").value("b"));
+    }
+
+    @Test
+    void testGetWithMatchingIfNoneMatchIsNotModified() throws Exception {
+        String etag = set("etag2", "a", null, null);
+
+        mockMvc.perform(get("/api/keys/etag2").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().bytes(new byte[0]));
+        mockMvc.perform(get("/api/keys/etag2").header("If-None-Match", "W/" + etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/keys/etag2").header("If-None-Match", "\"7\", " + etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/keys/etag2").header("If-None-Match", "\"7\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.value").value("a"));
+    }
+
+    @Test
+    void testSetWithFailedPreconditionIsRejected() throws Exception {
+        String etag = set("etag3", "a", null, null);
+
+        setWithPrecondition("etag3", "If-Match", ETags.of(version(etag) + 1))
+                .andExpect(status().isPreconditionFailed());
+        setWithPrecondition("etag3", "If-Match", "W/" + etag)
+                .andExpect(status().isPreconditionFailed());
+        setWithPrecondition("etag3", "If-None-Match", "*")
+                .andExpect(status().isPreconditionFailed());
+        assertEquals("a", keyValueService.getValueByKey("etag3").orElseThrow());
+
+        String next = set("etag3", "b", "If-Match", etag);
+        assertTrue(version(next) > version(etag));
+        assertEquals("b", keyValueService.getValueByKey("etag3").orElseThrow());
+    }
+
+    @Test
+    void testDeleteWithFailedPreconditionIsRejected() throws Exception {
+        String etag = set("etag4", "a", null, null);
+
+        mockMvc.perform(delete("/api/keys/etag4").header("If-Match", ETags.of(version(etag) + 1)))
+                .andExpect(status().isPreconditionFailed());
+        assertEquals("a", keyValueService.getValueByKey("etag4").orElseThrow());
+
+        mockMvc.perform(delete("/api/keys/etag4").header("If-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.value").value("a"));
+        assertTrue(keyValueService.getValueByKey("etag4").isEmpty());
+    }
+
+    @Test
+    void testStaleETagDoesNotMatchRecreatedPair() throws Exception {
+        String stale = set("etag5", "a", null, null);
+        mockMvc.perform(delete("/api/keys/etag5"))
+                .andExpect(status().isOk());
+        String current = set("etag5", "b", null, null);
+        assertNotEquals(stale, current);
+
+        setWithPrecondition("etag5", "If-Match", stale)
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete("/api/keys/etag5").header("If-Match", stale))
+                .andExpect(status().isPreconditionFailed());
+        assertEquals("b", keyValueService.getValueByKey("etag5").orElseThrow());
+    }
+
+    @Test
+    void testDumpWithExpirationTimesInSecondsIsRejected() throws Exception {
+        keyValueService.setValueByKey("kept", "a", 60_000);
+        long seconds = System.currentTimeMillis() / 1000 + 60;
+
+        mockMvc.perform(post("/api/dump")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"dump\": {\"old\": {\"value\": \"b\", \"expirationTime\": " + seconds + "}}}"))
+                .andExpect(status().isBadRequest());
+        assertEquals("a", keyValueService.getValueByKey("kept").orElseThrow());
+
+        mockMvc.perform(post("/api/dump")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"dump\": {\"new\": {\"value\": \"b\", \"expirationTime\": "
+                                + seconds * 1000 + "}}}"))
+                .andExpect(status().isOk());
+        assertEquals("b", keyValueService.getValueByKey("new").orElseThrow());
+        assertTrue(keyValueService.getValueByKey("kept").isEmpty());
+    }
+
+    /**
+     * @return the ETag of the new version
+     */
+    private String set(String key, String value, String header, String etag) throws Exception {
+        var request = post("/api/keys/" + key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"value\": \"" + value + "\", \"ttl\": 60}");
+        if (header != null) {
+            request.header(header, etag);
+        }
+        return mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+    }
+
+    private ResultActions setWithPrecondition(String key, String header, String etag) throws Exception {
+        return mockMvc.perform(post("/api/keys/" + key)
+                .header(header, etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"value\": \"c\", \"ttl\": 60}"));
+    }
+
+    private static long version(String etag) {
+        return Long.parseLong(etag.substring(1, etag.length() - 1));
+    }
+}
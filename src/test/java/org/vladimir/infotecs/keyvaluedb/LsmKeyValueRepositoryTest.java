@@ -0,0 +1,102 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.repository.lsm.LsmKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.service.RWLSyncKvService;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LsmKeyValueRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testPairsSurviveReopenFromTablesAndLog() {
+        try (var repository = new LsmKeyValueRepository(directory, 1 << 20, 4, false)) {
+            var service = new RWLSyncKvService(repository, 120);
+            service.setValueByKey("key1", "значение", 60_000);
+            service.setValueByKey("key2", "value2", 60_000, true);
+            repository.flush();
+            service.setValueByKey("key3", "value3", 60_000);
+            assertTrue(service.persist("key3"));
+            service.deleteValueByKey("key1");
+            assertEquals(1, repository.getTableCount());
+        }
+        try (var repository = new LsmKeyValueRepository(directory, 1 << 20, 4, false)) {
+            assertEquals(Optional.empty(), repository.get("key1"));
+            assertEquals(60_000L, repository.get("key2").orElseThrow().getSlidingTtl());
+            assertEquals(ValueWithExpirationTime.NEVER_EXPIRES, repository.get("key3").orElseThrow().getExpirationTime());
+            assertEquals(2, repository.getAll().size());
+            assertEquals(2, repository.getTableCount());
+        }
+    }
+
+    @Test
+    void testNewerTablesShadowOlderOnes() {
+        try (var repository = new LsmKeyValueRepository(directory, 1 << 20, 10, false)) {
+            for (int i = 0; i < 100; i++) {
+                repository.put("key" + i, "old", ValueWithExpirationTime.NEVER_EXPIRES);
+            }
+            repository.flush();
+            repository.put("key1", "new", ValueWithExpirationTime.NEVER_EXPIRES);
+            assertTrue(repository.remove("key2"));
+            repository.flush();
+
+            assertEquals("new", repository.get("key1").orElseThrow().getValue());
+            assertEquals(Optional.empty(), repository.get("key2"));
+            assertFalse(repository.contains("key2"));
+            assertEquals("old", repository.get("key99").orElseThrow().getValue());
+            assertEquals(Optional.empty(), repository.get("missing"));
+            assertEquals(99, repository.getAll().size());
+            assertEquals(List.of("key1", "key10", "key11"), repository.getKeysByPrefix("key1", 3, 0));
+        }
+    }
+
+    @Test
+    void testCompactionDropsRemovedAndOutdatedPairs() {
+        try (var repository = new LsmKeyValueRepository(directory, 1 << 20, 3, false)) {
+            repository.put("key1", "value1", 1000);
+            repository.put("key2", "value2", ValueWithExpirationTime.NEVER_EXPIRES);
+            repository.flush();
+            repository.addAll(Map.of("key3", new ValueWithExpirationTime("value3", ValueWithExpirationTime.NEVER_EXPIRES)));
+            repository.flush();
+            repository.remove("key2");
+            repository.flush();
+            repository.compact();
+
+            assertEquals(1, repository.getTableCount());
+            assertEquals(Map.of("key3", "value3"), Map.of("key3", repository.getAll().get("key3").getValue()));
+            assertEquals(1, repository.getAll().size());
+        }
+    }
+
+    @Test
+    void testOutdatedPairsAreRemovedAndRangesAreRead() {
+        try (var repository = new LsmKeyValueRepository(directory, 256, 4, false)) {
+            for (String key : List.of("user:3", "order:1", "user:1", "user:2", "users", "zebra")) {
+                repository.put(key, "value", 3000);
+            }
+            repository.put("user:0", "value", 1000);
+            repository.put("user:4", "value", ValueWithExpirationTime.NEVER_EXPIRES);
+            repository.flush();
+
+            assertEquals(List.of("user:0"), repository.removeAllOutdatedPairsAndReturnKeys(2000));
+            assertEquals(List.of(), repository.removeAllOutdatedPairsAndReturnKeys(2000));
+            assertEquals(List.of("user:1", "user:2"), repository.getKeysByPrefix("user:", 2, 2000));
+            assertEquals(List.of("user:1", "user:2", "user:3", "user:4"),
+                    repository.getKeysInRange("user:", "users", 10, 2000));
+            assertEquals(List.of("user:4"), repository.getKeysInRange("user:", "users", 10, 5000));
+            repository.clear();
+            assertEquals(0, repository.getTableCount());
+            assertEquals(Map.of(), repository.getAll());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.repository.MvStoreKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.service.RWLSyncKvService;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MvStoreKeyValueRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testPairsSurviveReopen() {
+        String fileName = directory.resolve("kvdb.mv").toString();
+        try (var repository = new MvStoreKeyValueRepository(fileName, 1000, 16)) {
+            var service = new RWLSyncKvService(repository, 120);
+            service.setValueByKey("key1", "значение", 60_000);
+            service.setValueByKey("key2", "value2", 60_000, true);
+            service.setValueByKey("key3", "value3", 60_000);
+            assertTrue(service.persist("key3"));
+            service.deleteValueByKey("key1");
+            service.setValueByKey("key1", "value1", 60_000);
+        }
+        try (var repository = new MvStoreKeyValueRepository(fileName, 1000, 16)) {
+            assertEquals("value1", repository.get("key1").orElseThrow().getValue());
+            assertEquals(60_000L, repository.get("key2").orElseThrow().getSlidingTtl());
+            assertNull(repository.get("key1").orElseThrow().getSlidingTtl());
+            assertEquals(ValueWithExpirationTime.NEVER_EXPIRES, repository.get("key3").orElseThrow().getExpirationTime());
+            assertEquals(3, repository.getAll().size());
+        }
+    }
+
+    @Test
+    void testOutdatedPairsAreRemovedByExpirationIndex() {
+        try (var repository = new MvStoreKeyValueRepository(null, 1000, 16)) {
+            repository.put("key1", "value1", 1000);
+            repository.put("key2", "value2", 2000);
+            repository.put("key3", "value3", ValueWithExpirationTime.NEVER_EXPIRES);
+            repository.put("key2", "value2", 500);
+            repository.addAll(Map.of("key4", new ValueWithExpirationTime("value4", 3000L)));
+
+            assertEquals(List.of("key2", "key1"), repository.removeAllOutdatedPairsAndReturnKeys(1500));
+            assertEquals(List.of(), repository.removeAllOutdatedPairsAndReturnKeys(1500));
+            assertEquals(Optional.empty(), repository.get("key1"));
+            assertEquals(List.of("key3", "key4"), repository.getKeysInRange(null, null, 10, 1500));
+            assertEquals(List.of("key3"), repository.getKeysInRange(null, null, 10, 5000));
+        }
+    }
+
+    @Test
+    void testKeyRangesAreReadInOrder() {
+        try (var repository = new MvStoreKeyValueRepository(null, 1000, 16)) {
+            long expirationTime = System.currentTimeMillis() + 60_000;
+            for (String key : List.of("user:3", "order:1", "user:1", "user:2", "users", "zebra")) {
+                repository.put(key, "value", expirationTime);
+            }
+            repository.put("user:0", "value", 0);
+
+            assertEquals(List.of("user:1", "user:2"), repository.getKeysByPrefix("user:", 2, System.currentTimeMillis()));
+            assertEquals(List.of("user:1", "user:2", "user:3"),
+                    repository.getKeysInRange("user:", "users", 10, System.currentTimeMillis()));
+            assertEquals(List.of("users", "zebra"), repository.getKeysInRange("user:4", null, 10, System.currentTimeMillis()));
+        }
+    }
+}
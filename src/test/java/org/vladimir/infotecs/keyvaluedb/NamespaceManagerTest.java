@@ -0,0 +1,177 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.vladimir.infotecs.keyvaluedb.exception.IncorrectExpirationInterval;
+import org.vladimir.infotecs.keyvaluedb.exception.MemoryLimitExceeded;
+import org.vladimir.infotecs.keyvaluedb.exception.NamespaceAlreadyExists;
+import org.vladimir.infotecs.keyvaluedb.exception.NamespaceLimitExceeded;
+import org.vladimir.infotecs.keyvaluedb.exception.NamespaceNotFound;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.model.VersionPrecondition;
+import org.vladimir.infotecs.keyvaluedb.repository.MemoryLimitedKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.service.NamespaceManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NamespaceManagerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private NamespaceManager manager;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        manager = new NamespaceManager(120, 0, 20_000, 4, 100, 100, 0.25, 2, 50, 1000, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    void testNamespacesAreIsolated() {
+        manager.create("a", 0, 0, 0);
+        manager.create("b", 60, 0, 0);
+        assertThrows(NamespaceAlreadyExists.class, () -> manager.create("a", 0, 0, 0));
+
+        manager.getService("a").setValueByKey("key", "a", 0);
+        manager.getService("b").setValueByKey("key", "b", 0);
+        assertEquals(Optional.of("a"), manager.getService("a").getValueByKey("key"));
+        assertTrue(manager.getService("b").getTtl("key").orElseThrow() <= 60_000);
+
+        manager.flush("a");
+        assertEquals(Optional.empty(), manager.getService("a").getValueByKey("key"));
+        assertEquals(Optional.of("b"), manager.getService("b").getValueByKey("key"));
+        assertEquals(0, manager.getInfo("a").getUsedMemory());
+
+        manager.drop("b");
+        assertThrows(NamespaceNotFound.class, () -> manager.getService("b"));
+        assertNull(meterRegistry.find("namespace.memory").tag("namespace", "b").gauge());
+        assertEquals(1, manager.list().size());
+    }
+
+    @Test
+    void testMemoryLimit() {
+        long pairSize = 2 * ("key0".length() + 10) + MemoryLimitedKeyValueRepository.PAIR_OVERHEAD;
+        manager.create("limited", 0, pairSize * 3, 0);
+        var service = manager.getService("limited");
+        for (int i = 0; i < 3; i++) {
+            service.setValueByKey("key" + i, "0123456789", 0);
+        }
+        assertEquals(pairSize * 3, manager.getInfo("limited").getUsedMemory());
+        assertThrows(MemoryLimitExceeded.class, () -> service.setValueByKey("key3", "0123456789", 0));
+        // overwriting with a value of the same size fits
+        service.setValueByKey("key0", "9876543210", 0);
+
+        service.deleteValueByKey("key1");
+        assertEquals(pairSize * 2, manager.getInfo("limited").getUsedMemory());
+        service.setValueByKey("key3", "0123456789", 0);
+
+        long expirationTime = System.currentTimeMillis() + 60_000;
+        var tooLarge = Map.of(
+                "key4", new ValueWithExpirationTime("0123456789", expirationTime),
+                "key5", new ValueWithExpirationTime("0123456789", expirationTime),
+                "key6", new ValueWithExpirationTime("0123456789", expirationTime),
+                "key7", new ValueWithExpirationTime("0123456789", expirationTime));
+        assertThrows(MemoryLimitExceeded.class, () -> manager.restore("limited", tooLarge));
+        assertEquals(3, manager.getDump("limited").size());
+
+        // outdated pairs of the dump are skipped and don't count against the limit
+        var withOutdated = new HashMap<>(tooLarge);
+        withOutdated.put("key4", new ValueWithExpirationTime("0123456789", System.currentTimeMillis() - 1000));
+        manager.restore("limited", withOutdated);
+        assertEquals(Set.of("key5", "key6", "key7"), manager.getDump("limited").keySet());
+    }
+
+    @Test
+    void testConcurrentConditionalWritesAreAccounted() throws Exception {
+        manager.create("concurrent", 0, 0, 0);
+        var service = manager.getService("concurrent");
+        // If-None-Match of a version that never exists always passes, the writes still take the conditional path
+        var precondition = new VersionPrecondition(false, null, false, Set.of(-1L));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                int seed = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        String key = "key" + (i % 50);
+                        if ((i + seed) % 3 == 0) {
+                            service.deleteValueByKey(key, precondition);
+                        } else {
+                            service.setValueByKey(key, "v".repeat(i % 7), 0, false, precondition);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(MemoryLimitedKeyValueRepository.estimateSize(manager.getDump("concurrent")),
+                manager.getInfo("concurrent").getUsedMemory());
+    }
+
+    @Test
+    void testSweepersShareThreads() {
+        long threads = sweeperThreads();
+        for (int i = 0; i < 50; i++) {
+            manager.create("namespace" + i, 0, 0, 1000);
+        }
+        // the threads of the managers of the other tests may still be terminating
+        assertTrue(sweeperThreads() - threads <= 2);
+    }
+
+    @Test
+    void testNamespaceSettingsAreLimited() {
+        assertThrows(IncorrectExpirationInterval.class, () -> manager.create("frequent", 0, 0, 1));
+        for (int i = 0; i < 50; i++) {
+            manager.create("namespace" + i, 0, 0, 0);
+        }
+        assertThrows(NamespaceLimitExceeded.class, () -> manager.create("extra", 0, 0, 0));
+        manager.drop("namespace0");
+        manager.create("extra", 0, 0, 0);
+        assertEquals(50, manager.list().size());
+    }
+
+    @Test
+    void testOutdatedPairsAreSweptOnSharedThreads() throws InterruptedException {
+        manager.create("a", 0, 0, 1000);
+        manager.create("b", 0, 0, 1000);
+        manager.getService("a").setValueByKey("key", "a", 1);
+        manager.getService("b").setValueByKey("key", "b", 1);
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((manager.getInfo("a").getUsedMemory() > 0 || manager.getInfo("b").getUsedMemory() > 0)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, manager.getInfo("a").getUsedMemory());
+        assertEquals(0, manager.getInfo("b").getUsedMemory());
+    }
+
+    private static long sweeperThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("namespace-sweeper")
+                        || thread.getName().startsWith("expiration-sweeper"))
+                .count();
+    }
+}
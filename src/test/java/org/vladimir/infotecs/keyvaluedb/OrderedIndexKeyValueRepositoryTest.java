@@ -0,0 +1,116 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.repository.CompressingKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.HashMapKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.HotKeyTracker;
+import org.vladimir.infotecs.keyvaluedb.repository.HotKeyTrackingKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.OrderedIndexKeyValueRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderedIndexKeyValueRepositoryTest {
+
+    private OrderedIndexKeyValueRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new OrderedIndexKeyValueRepository(new HashMapKeyValueRepository());
+        long expirationTime = currentTime() + 86_400_000L;
+        repository.put("user:2:prefs", "value", expirationTime);
+        repository.put("session:b", "value", expirationTime);
+        repository.put("session:a", "value", expirationTime);
+        repository.put("user:1:prefs", "value", expirationTime);
+        repository.put("session:c", "value", currentTime() - 86_400_000L); // Expired
+    }
+
+    @Test
+    void testGetKeysByPrefix() {
+        assertEquals(List.of("session:a", "session:b"), repository.getKeysByPrefix("session:", 10, currentTime()));
+        assertEquals(List.of("user:1:prefs"), repository.getKeysByPrefix("user:", 1, currentTime()));
+        assertTrue(repository.getKeysByPrefix("absent:", 10, currentTime()).isEmpty());
+    }
+
+    @Test
+    void testGetKeysInRange() {
+        assertEquals(List.of("session:b", "user:1:prefs"),
+                repository.getKeysInRange("session:b", "user:2", 10, currentTime()));
+        assertEquals(List.of("session:a", "session:b"), repository.getKeysInRange(null, "user:", 10, currentTime()));
+        assertEquals(List.of("user:2:prefs"), repository.getKeysInRange("user:2", null, 10, currentTime()));
+        assertTrue(repository.getKeysInRange("user:", "session:", 10, currentTime()).isEmpty());
+    }
+
+    @Test
+    void testIndexFollowsModifications() {
+        repository.remove("session:a");
+        repository.removeAllOutdatedPairs(currentTime() + 2 * 86_400_000L);
+        repository.put("session:d", "value", currentTime() + 3 * 86_400_000L);
+
+        assertEquals(List.of("session:d"), repository.getKeysByPrefix("session:", 10, currentTime()));
+
+        repository.clear();
+
+        assertTrue(repository.getKeysInRange(null, null, 10, currentTime()).isEmpty());
+    }
+
+    @Test
+    void testIndexMatchesFullScan() {
+        var plainRepository = new HashMapKeyValueRepository();
+        plainRepository.addAll(repository.getAll());
+
+        assertEquals(plainRepository.getKeysByPrefix("s", 10, currentTime()),
+                repository.getKeysByPrefix("s", 10, currentTime()));
+        assertEquals(plainRepository.getKeysInRange("session:b", null, 10, currentTime()),
+                repository.getKeysInRange("session:b", null, 10, currentTime()));
+    }
+
+    @Test
+    void testConcurrentComputesKeepIndexConsistent() throws Exception {
+        var hashMapRepository = new HashMapKeyValueRepository();
+        var indexed = new OrderedIndexKeyValueRepository(new CompressingKeyValueRepository(hashMapRepository,
+                16, 1, new SimpleMeterRegistry()));
+        assertTrue(indexed.supportsConcurrentCompute());
+        assertTrue(new HotKeyTrackingKeyValueRepository(indexed, new HotKeyTracker(60_000, 1024, 10))
+                .supportsConcurrentCompute());
+
+        long expirationTime = currentTime() + 60_000;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                int seed = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        boolean remove = (i + seed) % 3 == 0;
+                        indexed.compute("key" + (i % 8), currentTime(), current -> remove ? Optional.empty()
+                                : Optional.of(new ValueWithExpirationTime("value", expirationTime)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(hashMapRepository.getAll().keySet(),
+                Set.copyOf(indexed.getKeysInRange(null, null, 100, currentTime())));
+    }
+
+    private long currentTime() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,23 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.vladimir.infotecs.keyvaluedb.controller.PreEncodedJson;
+import org.vladimir.infotecs.keyvaluedb.dto.GetValueByKeyResponse;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class PreEncodedJsonTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testValueResponseMatchesJackson() throws Exception {
+        String[] values = {"", "value", "значение 😀", "quote \" backslash \\ slash /",
+                "line\nbreak\r\ttab\b\f", "\0\u0001\u001f\u007f", "lone \ud83d surrogate", "{\"json\":[1,2]}"};
+        for (String value : values) {
+            assertArrayEquals(objectMapper.writeValueAsBytes(new GetValueByKeyResponse(value)),
+                    PreEncodedJson.valueResponse(value), value);
+        }
+    }
+}
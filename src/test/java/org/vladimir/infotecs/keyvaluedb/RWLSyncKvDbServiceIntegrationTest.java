@@ -3,13 +3,28 @@ package org.vladimir.infotecs.keyvaluedb;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.vladimir.infotecs.keyvaluedb.exception.IncorrectTransaction;
+import org.vladimir.infotecs.keyvaluedb.exception.NotAnInteger;
+import org.vladimir.infotecs.keyvaluedb.exception.OrderedScanNotSupported;
+import org.vladimir.infotecs.keyvaluedb.exception.PreconditionFailed;
+import org.vladimir.infotecs.keyvaluedb.model.ScanPage;
+import org.vladimir.infotecs.keyvaluedb.model.TransactionOperation;
 import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.model.VersionPrecondition;
 import org.vladimir.infotecs.keyvaluedb.repository.HashMapKeyValueRepository;
 import org.vladimir.infotecs.keyvaluedb.repository.KeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.OrderedIndexKeyValueRepository;
 import org.vladimir.infotecs.keyvaluedb.service.RWLSyncKvService;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,7 +45,7 @@ public class RWLSyncKvDbServiceIntegrationTest {
     void testSetValueByKey() {
         String key = "key1";
         String value = "value1";
-        long ttl = 60L;
+        long ttl = 60_000L;
         service.setValueByKey(key, value, ttl);
 
         Optional<ValueWithExpirationTime> result = repository.getIfNotOutdated(key);
@@ -42,7 +57,7 @@ public class RWLSyncKvDbServiceIntegrationTest {
     void testGetValueByKey() {
         String key = "key1";
         String value = "value1";
-        long expirationTime = currentTime() + 86400;
+        long expirationTime = currentTime() + 86_400_000L;
         repository.put(key, value, expirationTime);
 
         Optional<String> result = service.getValueByKey(key);
@@ -55,7 +70,7 @@ public class RWLSyncKvDbServiceIntegrationTest {
     void testGetValueByKeyExpired() {
         String key = "key1";
         String value = "value1";
-        long expirationTime = currentTime() - 86400;
+        long expirationTime = currentTime() - 86_400_000L;
         repository.put(key, value, expirationTime);
 
         Optional<String> result = service.getValueByKey(key);
@@ -67,7 +82,7 @@ public class RWLSyncKvDbServiceIntegrationTest {
     void testDeleteValueByKey() {
         String key = "key1";
         String value = "value1";
-        long expirationTime = currentTime() + 86400;
+        long expirationTime = currentTime() + 86_400_000L;
         repository.put(key, value, expirationTime);
 
         Optional<String> result = service.deleteValueByKey(key);
@@ -80,7 +95,7 @@ public class RWLSyncKvDbServiceIntegrationTest {
     void testDeleteValueByKeyExpired() {
         String key = "key1";
         String value = "value1";
-        long expirationTime = currentTime() - 86400;
+        long expirationTime = currentTime() - 86_400_000L;
         repository.put(key, value, expirationTime);
 
         Optional<String> result = service.deleteValueByKey(key);
@@ -92,11 +107,11 @@ public class RWLSyncKvDbServiceIntegrationTest {
     void testGetAllValues() {
         String key1 = "key1";
         String value1 = "value1";
-        long expirationTime1 = currentTime() + 86400;
+        long expirationTime1 = currentTime() + 86_400_000L;
 
         String key2 = "key2";
         String value2 = "value2";
-        long expirationTime2 = currentTime() - 86400;
+        long expirationTime2 = currentTime() - 86_400_000L;
 
         repository.put(key1, value1, expirationTime1);
         repository.put(key2, value2, expirationTime2);
@@ -111,9 +126,9 @@ public class RWLSyncKvDbServiceIntegrationTest {
     @Test
     void testLoadAllValuesByKey() {
         Map<String, ValueWithExpirationTime> inputMap = Map.of(
-                "key1", new ValueWithExpirationTime("value1", currentTime() + 60),
-                "key2", new ValueWithExpirationTime("value2", currentTime() + 120),
-                "key3", new ValueWithExpirationTime("value3", currentTime() - 120)
+                "key1", new ValueWithExpirationTime("value1", currentTime() + 60_000),
+                "key2", new ValueWithExpirationTime("value2", currentTime() + 120_000),
+                "key3", new ValueWithExpirationTime("value3", currentTime() - 120_000)
         );
 
         service.restoreFromDump(inputMap);
@@ -127,8 +142,8 @@ public class RWLSyncKvDbServiceIntegrationTest {
 
     @Test
     void testDeleteAllOutdatedPairs() {
-        repository.put("key1", "value1", currentTime() - 86400);
-        repository.put("key2", "value2", currentTime() + 86400);
+        repository.put("key1", "value1", currentTime() - 86_400_000L);
+        repository.put("key2", "value2", currentTime() + 86_400_000L);
 
         service.deleteAllOutdatedPairs();
 
@@ -137,8 +152,248 @@ public class RWLSyncKvDbServiceIntegrationTest {
         assertTrue(result.containsKey("key2"));
     }
 
+    @Test
+    void testScanVisitsAllKeysOnce() {
+        useOrderedIndex();
+        for (int i = 0; i < 25; i++) {
+            repository.put(String.format("key%02d", i), "value", currentTime() + 86_400_000L);
+        }
+        repository.put("key99", "value", currentTime() - 86_400_000L);
+
+        List<String> keys = new ArrayList<>();
+        String cursor = "0";
+        int pages = 0;
+        do {
+            ScanPage page = service.scan(cursor, 10, null);
+            keys.addAll(page.getKeys());
+            cursor = page.getCursor();
+            pages++;
+        } while (!cursor.equals("0"));
+
+        assertEquals(3, pages);
+        assertEquals(25, keys.size());
+        assertEquals("key00", keys.get(0));
+        assertEquals("key24", keys.get(24));
+    }
+
+    @Test
+    void testScanWithPattern() {
+        useOrderedIndex();
+        repository.put("session:1", "value", currentTime() + 86_400_000L);
+        repository.put("session:2", "value", currentTime() + 86_400_000L);
+        repository.put("user:1:prefs", "value", currentTime() + 86_400_000L);
+        repository.put("user:2:name", "value", currentTime() + 86_400_000L);
+
+        ScanPage sessions = service.scan("0", 10, "session:*");
+        assertEquals(List.of("session:1", "session:2"), sessions.getKeys());
+        assertEquals("0", sessions.getCursor());
+
+        ScanPage prefs = service.scan("0", 10, "user:?:pref[st]");
+        assertEquals(List.of("user:1:prefs"), prefs.getKeys());
+
+        ScanPage firstPage = service.scan("0", 1, "*:1*");
+        assertEquals(List.of("session:1"), firstPage.getKeys());
+        ScanPage secondPage = service.scan(firstPage.getCursor(), 1, "*:1*");
+        assertTrue(secondPage.getKeys().isEmpty());
+        assertNotEquals("0", secondPage.getCursor());
+    }
+
+    @Test
+    void testScanRequiresOrderedRepository() {
+        repository.put("key", "value", currentTime() + 86_400_000L);
+
+        assertThrows(OrderedScanNotSupported.class, () -> service.scan("0", 10, null));
+    }
+
+    private void useOrderedIndex() {
+        repository = new OrderedIndexKeyValueRepository(new HashMapKeyValueRepository());
+        service = new RWLSyncKvService(repository, DEFAULT_TTL);
+    }
+
+    @Test
+    void testIncrementBy() {
+        assertEquals(5, service.incrementBy("counter", 5, 0));
+        assertEquals(3, service.incrementBy("counter", -2, 0));
+
+        repository.put("expiring", "10", currentTime() + 30_000);
+        assertEquals(11, service.incrementBy("expiring", 1, 0));
+        assertEquals(currentTime() + 30_000, repository.get("expiring").orElseThrow().getExpirationTime(), 1000);
+
+        repository.put("text", "value1", currentTime() + 86_400_000L);
+        assertThrows(NotAnInteger.class, () -> service.incrementBy("text", 1, 0));
+        repository.put("max", Long.toString(Long.MAX_VALUE), currentTime() + 86_400_000L);
+        assertThrows(NotAnInteger.class, () -> service.incrementBy("max", 1, 0));
+    }
+
+    @Test
+    void testConcurrentIncrementsAreNotLost() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> service.incrementBy("counter", 1, 0));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(Optional.of("1000"), service.getValueByKey("counter"));
+    }
+
+    @Test
+    void testCompareAndSet() {
+        repository.put("key1", "value1", currentTime() + 86_400_000L);
+
+        assertFalse(service.compareAndSet("key1", "value2", "value3", 0));
+        assertTrue(service.compareAndSet("key1", "value1", "value3", 0));
+        assertEquals(Optional.of("value3"), service.getValueByKey("key1"));
+        assertFalse(service.compareAndSet("key2", "value1", "value3", 0));
+    }
+
+    @Test
+    void testGetAndSet() {
+        assertEquals(Optional.empty(), service.getAndSet("key1", "value1", 0));
+        assertEquals(Optional.of("value1"), service.getAndSet("key1", "value2", 0));
+        assertEquals(Optional.of("value2"), service.getValueByKey("key1"));
+    }
+
+    @Test
+    void testSetIfAbsent() {
+        repository.put("expired", "value1", currentTime() - 86_400_000L);
+
+        assertTrue(service.setIfAbsent("key1", "value1", 0));
+        assertFalse(service.setIfAbsent("key1", "value2", 0));
+        assertTrue(service.setIfAbsent("expired", "value2", 0));
+        assertEquals(Optional.of("value1"), service.getValueByKey("key1"));
+        assertEquals(Optional.of("value2"), service.getValueByKey("expired"));
+    }
+
+    @Test
+    void testTtlOperations() {
+        service.setValueByKey("key1", "value1", 60_000);
+
+        long ttl = service.getTtl("key1").orElseThrow();
+        assertTrue(ttl > 59_000 && ttl <= 60_000);
+        assertTrue(service.expire("key1", 500));
+        assertTrue(service.getTtl("key1").orElseThrow() <= 500);
+        assertTrue(service.persist("key1"));
+        assertEquals(Optional.of(-1L), service.getTtl("key1"));
+        assertEquals(ValueWithExpirationTime.NEVER_EXPIRES, repository.get("key1").orElseThrow().getExpirationTime());
+
+        assertFalse(service.expire("key2", 500));
+        assertFalse(service.persist("key2"));
+        assertFalse(service.touch("key2"));
+        assertEquals(Optional.empty(), service.getTtl("key2"));
+    }
+
+    @Test
+    void testSlidingExpiration() throws InterruptedException {
+        service.setValueByKey("sliding", "value1", 300, true);
+        service.setValueByKey("fixed", "value1", 300);
+
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(100);
+            assertEquals(Optional.of("value1"), service.getValueByKey("sliding"));
+        }
+        assertEquals(Optional.empty(), service.getValueByKey("fixed"));
+        assertTrue(service.getTtl("sliding").orElseThrow() > 100);
+
+        assertTrue(service.expire("sliding", 60_000));
+        assertEquals(60_000L, repository.get("sliding").orElseThrow().getSlidingTtl());
+        assertTrue(service.touch("sliding"));
+        assertTrue(service.persist("sliding"));
+        assertNull(repository.get("sliding").orElseThrow().getSlidingTtl());
+    }
+
+    @Test
+    void testHugeTtlNeverExpires() {
+        service.setValueByKey("key1", "value1", Long.MAX_VALUE);
+
+        assertEquals(Optional.of(-1L), service.getTtl("key1"));
+    }
+
+    @Test
+    void testTransactionAppliesAllOperations() {
+        service.setValueByKey("from", "10", 60_000);
+        var result = service.executeTransaction(List.of(
+                new TransactionOperation(TransactionOperation.Type.CHECK_VALUE, "from", "10", 0),
+                new TransactionOperation(TransactionOperation.Type.CHECK_ABSENT, "to", null, 0),
+                new TransactionOperation(TransactionOperation.Type.SET, "to", "10", 60_000),
+                new TransactionOperation(TransactionOperation.Type.DELETE, "from", null, 0),
+                new TransactionOperation(TransactionOperation.Type.GET, "to", null, 0),
+                new TransactionOperation(TransactionOperation.Type.GET, "from", null, 0)));
+
+        assertTrue(result.isCommitted());
+        assertNull(result.getFailedCheck());
+        assertEquals(Arrays.asList(null, null, null, "10", "10", null), result.getResults());
+        assertEquals(Optional.of("10"), service.getValueByKey("to"));
+        assertEquals(Optional.empty(), service.getValueByKey("from"));
+    }
+
+    @Test
+    void testFailedCheckAppliesNothing() {
+        service.setValueByKey("key1", "value1", 60_000);
+        var result = service.executeTransaction(List.of(
+                new TransactionOperation(TransactionOperation.Type.SET, "key2", "value2", 0),
+                new TransactionOperation(TransactionOperation.Type.CHECK_EXISTS, "key1", null, 0),
+                new TransactionOperation(TransactionOperation.Type.CHECK_VALUE, "key1", "other", 0)));
+
+        assertFalse(result.isCommitted());
+        assertEquals(2, result.getFailedCheck());
+        assertEquals(Optional.empty(), service.getValueByKey("key2"));
+        assertThrows(IncorrectTransaction.class, () -> service.executeTransaction(List.of(
+                new TransactionOperation(TransactionOperation.Type.SET, "key2", null, 0))));
+    }
+
+    @Test
+    void testVersionIsIncrementedByWrites() {
+        long first = service.setValueByKey("key", "value1", 60_000, false, VersionPrecondition.none());
+        service.setValueByKey("key", "value2", 60_000);
+        long second = service.getVersionedValue("key").orElseThrow().getVersion();
+        assertTrue(second > first);
+        assertEquals("value2", service.getVersionedValue("key").orElseThrow().getValue());
+        service.deleteValueByKey("key");
+        assertTrue(service.setValueByKey("key", "value3", 60_000, false, VersionPrecondition.none()) > second);
+        service.setValueByKey("other", "value", 60_000);
+        assertTrue(service.getVersionedValue("other").orElseThrow().getVersion() > second);
+    }
+
+    @Test
+    void testPreconditionIsCheckedWithWrite() {
+        var ifAbsent = new VersionPrecondition(false, null, true, null);
+        long first = service.setValueByKey("key", "value1", 60_000, false, ifAbsent);
+        assertThrows(PreconditionFailed.class,
+                () -> service.setValueByKey("key", "value2", 60_000, false, ifAbsent));
+
+        var ifFirst = new VersionPrecondition(false, Set.of(first), false, null);
+        long second = service.setValueByKey("key", "value2", 60_000, false, ifFirst);
+        assertThrows(PreconditionFailed.class, () -> service.deleteValueByKey("key", ifFirst));
+        assertEquals(Optional.of("value2"), service.getValueByKey("key"));
+
+        var ifSecond = new VersionPrecondition(false, Set.of(second), false, null);
+        assertEquals(Optional.of("value2"), service.deleteValueByKey("key", ifSecond));
+        assertThrows(PreconditionFailed.class, () -> service.deleteValueByKey("key", ifSecond));
+    }
+
+    @Test
+    void testStaleVersionDoesNotMatchRecreatedPair() throws InterruptedException {
+        long deletedVersion = service.setValueByKey("key", "value1", 60_000, false, VersionPrecondition.none());
+        service.deleteValueByKey("key");
+        service.setValueByKey("key", "value2", 60_000);
+
+        var ifDeletedVersion = new VersionPrecondition(false, Set.of(deletedVersion), false, null);
+        assertThrows(PreconditionFailed.class,
+                () -> service.setValueByKey("key", "value3", 60_000, false, ifDeletedVersion));
+        assertEquals(Optional.of("value2"), service.getValueByKey("key"));
+
+        long expiredVersion = service.setValueByKey("expiring", "value1", 1, false, VersionPrecondition.none());
+        Thread.sleep(10);
+        service.setValueByKey("expiring", "value2", 60_000);
+
+        var ifExpiredVersion = new VersionPrecondition(false, Set.of(expiredVersion), false, null);
+        assertThrows(PreconditionFailed.class, () -> service.deleteValueByKey("expiring", ifExpiredVersion));
+        assertEquals(Optional.of("value2"), service.getValueByKey("expiring"));
+    }
+
     private long currentTime() {
-        return System.currentTimeMillis() / 1000L;
+        return System.currentTimeMillis();
     }
 }
 
@@ -5,14 +5,19 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.exceptions.base.MockitoAssertionError;
 import org.vladimir.infotecs.keyvaluedb.exception.IncorrectTtlValue;
+import org.vladimir.infotecs.keyvaluedb.exception.PreconditionFailed;
 import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.model.VersionPrecondition;
 import org.vladimir.infotecs.keyvaluedb.repository.KeyValueRepository;
 import org.vladimir.infotecs.keyvaluedb.service.RWLSyncKvService;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.UnaryOperator;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.returnsSecondArg;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -32,19 +37,45 @@ public class RWLSyncKvDbServiceTest {
     void testSetValueByKey() {
         String key = "key1";
         String value = "value1";
-        long ttl = 60L;
+        long ttl = 60_000L;
+        when(repository.putVersioned(eq(key), any())).then(returnsSecondArg());
+        long first = service.setValueByKey(key, value, ttl, false, VersionPrecondition.none());
         service.setValueByKey(key, value, ttl);
-        ArgumentCaptor<Long> captor = ArgumentCaptor.forClass(Long.class);
-        verify(repository, times(1)).put(eq(key), eq(value), captor.capture());
-        long expirationTime = captor.getValue();
-        assertTrue(expirationTime > currentTime());
+        ArgumentCaptor<ValueWithExpirationTime> captor = ArgumentCaptor.forClass(ValueWithExpirationTime.class);
+        verify(repository, times(2)).putVersioned(eq(key), captor.capture());
+        verify(repository, never()).compute(any(), anyLong(), any());
+        verify(repository, never()).put(any(), any(), anyLong());
+        var put = captor.getAllValues().get(1);
+        assertEquals(value, put.getValue());
+        assertTrue(put.getExpirationTime() > currentTime());
+        assertNull(put.getSlidingTtl());
+        assertEquals(first, captor.getAllValues().get(0).currentVersion());
+        assertTrue(put.currentVersion() > first);
+    }
+
+    @Test
+    void testSetValueByKeyWithPrecondition() {
+        String key = "key1";
+        var current = new ValueWithExpirationTime("old", currentTime() + 60_000, null, 2L);
+        when(repository.compute(eq(key), anyLong(), any()))
+                .thenAnswer(invocation -> invocation.<UnaryOperator<Optional<ValueWithExpirationTime>>>getArgument(2)
+                        .apply(Optional.of(current)));
+
+        var ifMatch = new VersionPrecondition(false, Set.of(2L), false, null);
+        assertTrue(service.setValueByKey(key, "new", 60_000L, false, ifMatch) > 2);
+
+        var ifMatchOther = new VersionPrecondition(false, Set.of(1L), false, null);
+        assertThrows(PreconditionFailed.class, () -> service.setValueByKey(key, "new", 60_000L, false, ifMatchOther));
+        var ifNoneMatchAny = new VersionPrecondition(false, null, true, null);
+        assertThrows(PreconditionFailed.class, () -> service.setValueByKey(key, "new", 60_000L, false, ifNoneMatchAny));
+        verify(repository, never()).put(any(), any(), anyLong());
     }
 
     @Test
     void testGetValueByKey() {
         String key = "key1";
         String value = "value1";
-        long expirationTime = currentTime() + 86400;
+        long expirationTime = currentTime() + 86_400_000L;
 
         when(repository.getIfNotOutdated(eq(key), longThat(currTime -> currTime <= expirationTime)))
                 .thenReturn(Optional.of(new ValueWithExpirationTime(value, expirationTime)));
@@ -63,7 +94,7 @@ public class RWLSyncKvDbServiceTest {
     void testGetValueByKeyExpired() {
         String key = "key1";
         String value = "value1";
-        long expirationTime = currentTime() - 86400;
+        long expirationTime = currentTime() - 86_400_000L;
 
         when(repository.getIfNotOutdated(eq(key)))
                 .thenReturn(Optional.empty());
@@ -81,7 +112,7 @@ public class RWLSyncKvDbServiceTest {
     void testDeleteValueByKey() {
         String key = "key1";
         String value = "value1";
-        long expirationTime = currentTime() + 86400;
+        long expirationTime = currentTime() + 86_400_000L;
 
         when(repository.removeAndReturnIfNotOutdated(eq(key), longThat(currTime -> currTime <= expirationTime)))
                 .thenReturn(Optional.of(new ValueWithExpirationTime(value, expirationTime)));
@@ -105,7 +136,7 @@ public class RWLSyncKvDbServiceTest {
     void testDeleteValueByKeyExpired() {
         String key = "key1";
         String value = "value1";
-        long expirationTime = currentTime() - 86400;
+        long expirationTime = currentTime() - 86_400_000L;
 
         when(repository.getIfNotOutdated(eq(key), longThat(currTime -> currTime <= expirationTime)))
                 .thenReturn(Optional.of(new ValueWithExpirationTime(value, expirationTime)));
@@ -121,11 +152,11 @@ public class RWLSyncKvDbServiceTest {
     void testGetAllValues() {
         String key1 = "key1";
         String value1 = "value1";
-        long expirationTime1 = currentTime() + 86400;
+        long expirationTime1 = currentTime() + 86_400_000L;
 
         String key2 = "key2";
         String value2 = "value2";
-        long expirationTime2 = currentTime() - 86400;
+        long expirationTime2 = currentTime() - 86_400_000L;
 
         when(repository.getAll()).thenReturn(Map.of(
                 key1, new ValueWithExpirationTime(value1, expirationTime1),
@@ -142,9 +173,9 @@ public class RWLSyncKvDbServiceTest {
     @Test
     void testLoadAllValuesByKey() {
         Map<String, ValueWithExpirationTime> inputMap = Map.of(
-                "key1", new ValueWithExpirationTime("value1", currentTime() + 60),
-                "key2", new ValueWithExpirationTime("value2", currentTime() + 120),
-                "key3", new ValueWithExpirationTime("value2", currentTime() + -120)
+                "key1", new ValueWithExpirationTime("value1", currentTime() + 60_000),
+                "key2", new ValueWithExpirationTime("value2", currentTime() + 120_000),
+                "key3", new ValueWithExpirationTime("value2", currentTime() - 120_000)
         );
 
         service.restoreFromDump(inputMap);
@@ -170,6 +201,6 @@ public class RWLSyncKvDbServiceTest {
 
 
     private long currentTime() {
-        return System.currentTimeMillis() / 1000L;
+        return System.currentTimeMillis();
     }
 }
@@ -0,0 +1,145 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+import org.vladimir.infotecs.keyvaluedb.dto.ReplicationLogResponse;
+import org.vladimir.infotecs.keyvaluedb.dto.ReplicationSnapshotResponse;
+import org.vladimir.infotecs.keyvaluedb.model.ReplicationOperation;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.repository.HashMapKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.service.RWLSyncKvService;
+import org.vladimir.infotecs.keyvaluedb.service.ReplicaSynchronizer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class ReplicaSynchronizerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MockRestServiceServer primary;
+    private RWLSyncKvService service;
+    private ReplicaSynchronizer synchronizer;
+
+    @BeforeEach
+    void setUp() {
+        var builder = RestClient.builder().baseUrl("http://primary");
+        primary = MockRestServiceServer.bindTo(builder).build();
+        service = new RWLSyncKvService(new HashMapKeyValueRepository(), 120);
+        synchronizer = new ReplicaSynchronizer(builder.build(), service, 2, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testBootstrapThenApplyLog() throws Exception {
+        long expirationTime = System.currentTimeMillis() + 60_000;
+        expectSnapshot(new ReplicationSnapshotResponse("id1", 3, Map.of(
+                "key1", new ValueWithExpirationTime("value1", expirationTime),
+                "key2", new ValueWithExpirationTime("value2", expirationTime))));
+        expectLog(3, new ReplicationLogResponse("id1", 6, false, List.of(
+                set(4, "key3", "value3", expirationTime),
+                delete(5, "key1"))));
+        expectLog(5, new ReplicationLogResponse("id1", 6, false, List.of(
+                set(6, "key2", "expired", System.currentTimeMillis() - 1))));
+
+        synchronizer.synchronize();
+
+        primary.verify();
+        assertEquals(Optional.empty(), service.getValueByKey("key1"));
+        assertEquals(Optional.empty(), service.getValueByKey("key2"));
+        assertEquals(Optional.of("value3"), service.getValueByKey("key3"));
+        assertEquals(6, synchronizer.getAppliedOffset());
+        assertEquals(0, synchronizer.getLagOperations());
+    }
+
+    @Test
+    void testResyncWhenLogCantBeContinued() throws Exception {
+        long expirationTime = System.currentTimeMillis() + 60_000;
+        expectSnapshot(new ReplicationSnapshotResponse("id1", 0, Map.of()));
+        expectLog(0, new ReplicationLogResponse("id1", 1, false, List.of(set(1, "key1", "value1", expirationTime))));
+        synchronizer.synchronize();
+        primary.verify();
+        primary.reset();
+        assertEquals(Optional.of("value1"), service.getValueByKey("key1"));
+
+        // the operations after offset 1 were evicted from the log
+        expectLog(1, new ReplicationLogResponse("id1", 10, true, List.of()));
+        expectSnapshot(new ReplicationSnapshotResponse("id1", 10, Map.of(
+                "key2", new ValueWithExpirationTime("value2", expirationTime))));
+        synchronizer.synchronize();
+        primary.verify();
+        primary.reset();
+        assertEquals(Optional.empty(), service.getValueByKey("key1"));
+        assertEquals(Optional.of("value2"), service.getValueByKey("key2"));
+        assertEquals(10, synchronizer.getAppliedOffset());
+
+        // the primary restarted
+        expectLog(10, new ReplicationLogResponse("id2", 1, false, List.of()));
+        expectSnapshot(new ReplicationSnapshotResponse("id2", 1, Map.of(
+                "key3", new ValueWithExpirationTime("value3", expirationTime))));
+        synchronizer.synchronize();
+
+        primary.verify();
+        assertEquals(Optional.of("value3"), service.getValueByKey("key3"));
+        assertEquals(1, service.getDump().size());
+        assertEquals(1, synchronizer.getAppliedOffset());
+    }
+
+    @Test
+    void testReplicaKeepsVersionsOfPrimary() throws Exception {
+        long expirationTime = System.currentTimeMillis() + 60_000;
+        expectSnapshot(new ReplicationSnapshotResponse("id1", 1, Map.of(
+                "key1", new ValueWithExpirationTime("value1", expirationTime, null, 3L),
+                "key2", new ValueWithExpirationTime("value2", expirationTime, null, 7L))));
+        var renewed = set(2, "key2", "value2", expirationTime + 1000);
+        renewed.setVersion(7L);
+        var changed = set(3, "key1", "changed", expirationTime);
+        changed.setVersion(4L);
+        expectLog(1, new ReplicationLogResponse("id1", 3, false, List.of(renewed, changed)));
+
+        synchronizer.synchronize();
+
+        primary.verify();
+        assertEquals(4, service.getVersionedValue("key1").orElseThrow().getVersion());
+        assertEquals("changed", service.getVersionedValue("key1").orElseThrow().getValue());
+        // a renewal of the expiration doesn't change the version
+        assertEquals(7, service.getVersionedValue("key2").orElseThrow().getVersion());
+        assertEquals(expirationTime + 1000, service.getDump().get("key2").getExpirationTime());
+    }
+
+    private void expectSnapshot(ReplicationSnapshotResponse response) throws Exception {
+        primary.expect(requestTo("http://primary/api/replication/snapshot"))
+                .andRespond(withSuccess(objectMapper.writeValueAsString(response), MediaType.APPLICATION_JSON));
+    }
+
+    private void expectLog(long after, ReplicationLogResponse response) throws Exception {
+        primary.expect(requestTo("http://primary/api/replication/log?after=" + after + "&limit=2"))
+                .andRespond(withSuccess(objectMapper.writeValueAsString(response), MediaType.APPLICATION_JSON));
+    }
+
+    private static ReplicationOperation set(long offset, String key, String value, long expirationTime) {
+        return ReplicationOperation.builder()
+                .offset(offset)
+                .type(ReplicationOperation.Type.SET)
+                .key(key)
+                .value(value)
+                .expirationTime(expirationTime)
+                .build();
+    }
+
+    private static ReplicationOperation delete(long offset, String key) {
+        return ReplicationOperation.builder()
+                .offset(offset)
+                .type(ReplicationOperation.Type.DELETE)
+                .key(key)
+                .build();
+    }
+}
@@ -0,0 +1,161 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.vladimir.infotecs.keyvaluedb.model.ReplicationOperation;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.repository.HashMapKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.ReplicatingKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.ReplicationLog;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicationLogTest {
+
+    private static final int CAPACITY = 4;
+
+    private ReplicationLog replicationLog;
+    private ReplicatingKeyValueRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        replicationLog = new ReplicationLog(CAPACITY);
+        repository = new ReplicatingKeyValueRepository(new HashMapKeyValueRepository(), replicationLog);
+    }
+
+    @Test
+    void testOperationsAreLoggedInOrder() {
+        repository.put("key1", "value1", currentTime() + 60);
+        repository.removeAndReturnIfNotOutdated("key1", currentTime());
+        repository.removeAllOutdatedPairs(currentTime());
+
+        List<ReplicationOperation> operations = replicationLog.readAfter(0, 10).orElseThrow();
+
+        assertEquals(3, operations.size());
+        assertEquals(ReplicationOperation.Type.SET, operations.get(0).getType());
+        assertEquals("value1", operations.get(0).getValue());
+        assertEquals(ReplicationOperation.Type.DELETE, operations.get(1).getType());
+        assertEquals(ReplicationOperation.Type.EXPIRE, operations.get(2).getType());
+        assertEquals(3, operations.get(2).getOffset());
+        assertEquals(3, replicationLog.getLastOffset());
+    }
+
+    @Test
+    void testSetIsLoggedWithVersion() {
+        repository.compute("key1", currentTime(), current ->
+                Optional.of(new ValueWithExpirationTime("value1", currentTime() + 60_000, null, 5L)));
+
+        List<ReplicationOperation> operations = replicationLog.readAfter(0, 10).orElseThrow();
+
+        assertEquals(5L, operations.get(0).getVersion());
+    }
+
+    @Test
+    void testPutVersionedIsLoggedWithStoredVersion() {
+        repository.putVersioned("key1", new ValueWithExpirationTime("value1", currentTime() + 60_000, null, 5L));
+        repository.putVersioned("key1", new ValueWithExpirationTime("value2", currentTime() + 60_000, null, 3L));
+
+        List<ReplicationOperation> operations = replicationLog.readAfter(0, 10).orElseThrow();
+
+        assertEquals(2, operations.size());
+        assertEquals(5L, operations.get(0).getVersion());
+        assertEquals("value2", operations.get(1).getValue());
+        assertEquals(6L, operations.get(1).getVersion());
+    }
+
+    @Test
+    void testReadAfterRespectsLimit() {
+        for (int i = 0; i < 3; i++) {
+            repository.put("key" + i, "value" + i, currentTime() + 60);
+        }
+
+        List<ReplicationOperation> operations = replicationLog.readAfter(1, 1).orElseThrow();
+
+        assertEquals(1, operations.size());
+        assertEquals(2, operations.get(0).getOffset());
+        assertTrue(replicationLog.readAfter(3, 10).orElseThrow().isEmpty());
+    }
+
+    @Test
+    void testRemoveOfAbsentKeyIsNotLogged() {
+        assertFalse(repository.remove("key1"));
+        assertEquals(0, replicationLog.getLastOffset());
+    }
+
+    @Test
+    void testEvictedOperationsRequireResync() {
+        for (int i = 0; i < CAPACITY + 2; i++) {
+            repository.put("key" + i, "value" + i, currentTime() + 60);
+        }
+
+        assertEquals(Optional.empty(), replicationLog.readAfter(1, 10));
+        assertEquals(CAPACITY, replicationLog.readAfter(2, 10).orElseThrow().size());
+        assertEquals(Optional.empty(), replicationLog.readAfter(CAPACITY + 3, 10));
+    }
+
+    @Test
+    void testRemovalOfOutdatedPairIsLoggedOnlyIfPairExisted() {
+        repository.put("key1", "value1", 1);
+        assertEquals(Optional.empty(), repository.removeAndReturnIfNotOutdated("key1", 2));
+        assertEquals(Optional.empty(), repository.removeAndReturnIfNotOutdated("key1", 2));
+
+        List<ReplicationOperation> operations = replicationLog.readAfter(0, 10).orElseThrow();
+        assertEquals(List.of(ReplicationOperation.Type.SET, ReplicationOperation.Type.DELETE),
+                operations.stream().map(ReplicationOperation::getType).toList());
+    }
+
+    @Test
+    void testOperationsAreLoggedAfterCommit() {
+        var transactions = new TransactionTemplate(new DataSourceTransactionManager(
+                new DriverManagerDataSource("jdbc:h2:mem:replication-log-test")));
+
+        transactions.executeWithoutResult(status -> {
+            repository.put("key1", "value1", currentTime() + 60);
+            status.setRollbackOnly();
+        });
+        assertEquals(0, replicationLog.getLastOffset());
+
+        transactions.executeWithoutResult(status -> {
+            repository.put("key2", "value2", currentTime() + 60);
+            repository.remove("key2");
+            assertEquals(0, replicationLog.getLastOffset());
+        });
+        List<ReplicationOperation> operations = replicationLog.readAfter(0, 10).orElseThrow();
+        assertEquals(List.of(ReplicationOperation.Type.SET, ReplicationOperation.Type.DELETE),
+                operations.stream().map(ReplicationOperation::getType).toList());
+    }
+
+    @Test
+    void testRenewalsOfSlidingPairAreCoalesced() {
+        long expirationTime = 1_800_000_000_000L;
+        long slidingTtl = 60_000;
+        repository.compute("key1", 0, current ->
+                Optional.of(new ValueWithExpirationTime("value1", expirationTime, slidingTtl, 1L)));
+
+        for (long shift = 1_000; shift < slidingTtl / 2; shift += 1_000) {
+            long renewed = expirationTime + shift;
+            repository.compute("key1", 0, current -> current.map(v -> v.withExpiration(renewed, slidingTtl)));
+        }
+        assertEquals(1, replicationLog.getLastOffset());
+
+        repository.compute("key1", 0, current ->
+                current.map(v -> v.withExpiration(expirationTime + slidingTtl / 2, slidingTtl)));
+        repository.compute("key1", 0, current ->
+                Optional.of(new ValueWithExpirationTime("value2", expirationTime + slidingTtl / 2, slidingTtl, 2L)));
+
+        List<ReplicationOperation> operations = replicationLog.readAfter(0, 10).orElseThrow();
+        assertEquals(3, operations.size());
+        assertEquals(expirationTime + slidingTtl / 2, operations.get(1).getExpirationTime());
+        assertEquals("value2", operations.get(2).getValue());
+    }
+
+    private long currentTime() {
+        return System.currentTimeMillis() / 1000L;
+    }
+}
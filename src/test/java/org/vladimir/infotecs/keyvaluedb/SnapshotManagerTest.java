@@ -0,0 +1,135 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vladimir.infotecs.keyvaluedb.exception.SnapshotNotFound;
+import org.vladimir.infotecs.keyvaluedb.model.RestoreProgress;
+import org.vladimir.infotecs.keyvaluedb.model.SnapshotInfo;
+import org.vladimir.infotecs.keyvaluedb.repository.HashMapKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.OrderedIndexKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.service.RWLSyncKvService;
+import org.vladimir.infotecs.keyvaluedb.service.SnapshotManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotManagerTest {
+
+    @TempDir
+    Path directory;
+
+    private RWLSyncKvService service;
+    private SnapshotManager snapshotManager;
+
+    @BeforeEach
+    void setUp() {
+        service = new RWLSyncKvService(new OrderedIndexKeyValueRepository(new HashMapKeyValueRepository()), 120);
+        snapshotManager = new SnapshotManager(service, new ObjectMapper(), directory, 2, 3, 4, 4, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testSnapshotsRequireOrderedKeys() {
+        var unordered = new RWLSyncKvService(new HashMapKeyValueRepository(), 120);
+
+        assertThrows(IllegalArgumentException.class, () -> new SnapshotManager(unordered, new ObjectMapper(),
+                directory, 2, 3, 4, 4, new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void testSnapshotIsWrittenInSegmentsAndRestored() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            service.setValueByKey("key" + i, "значение" + i, 60_000);
+        }
+        service.setValueByKey("sliding", "value", 60_000, true);
+
+        SnapshotInfo snapshot = snapshotManager.takeSnapshot();
+        assertEquals(11, snapshot.getPairs());
+        assertEquals(3, snapshot.getSegments());
+        assertTrue(snapshot.getBytes() > 0);
+        try (var files = Files.list(directory.resolve(snapshot.getId()))) {
+            assertEquals(4, files.count());
+        }
+
+        service.setValueByKey("key0", "changed", 60_000);
+        service.deleteValueByKey("key1");
+        service.setValueByKey("new", "value", 60_000);
+        assertEquals(snapshot, snapshotManager.restore(snapshot.getId()));
+
+        assertEquals(Optional.of("значение0"), service.getValueByKey("key0"));
+        assertEquals(Optional.of("значение1"), service.getValueByKey("key1"));
+        assertEquals(Optional.empty(), service.getValueByKey("new"));
+        assertEquals(60_000L, service.getDump().get("sliding").getSlidingTtl());
+        assertEquals(11, service.getDump().size());
+    }
+
+    @Test
+    void testOldSnapshotsAreRemovedByRetention() {
+        service.setValueByKey("key", "value1", 60_000);
+        String first = snapshotManager.takeSnapshot().getId();
+        service.setValueByKey("key", "value2", 60_000);
+        String second = snapshotManager.takeSnapshot().getId();
+        service.setValueByKey("key", "value3", 60_000);
+        String third = snapshotManager.takeSnapshot().getId();
+
+        assertEquals(List.of(third, second), snapshotManager.listSnapshots().stream().map(SnapshotInfo::getId).toList());
+        assertThrows(SnapshotNotFound.class, () -> snapshotManager.restore(first));
+        snapshotManager.restore(second);
+        assertEquals(Optional.of("value2"), service.getValueByKey("key"));
+    }
+
+    @Test
+    void testUnknownAndIncompleteSnapshotsAreNotRestored() throws Exception {
+        Files.createDirectories(directory.resolve("20240101T000000000Z.tmp"));
+        snapshotManager = new SnapshotManager(service, new ObjectMapper(), directory, 2, 3, 4, 4, new SimpleMeterRegistry());
+
+        assertFalse(Files.exists(directory.resolve("20240101T000000000Z.tmp")));
+        assertEquals(List.of(), snapshotManager.listSnapshots());
+        assertThrows(SnapshotNotFound.class, () -> snapshotManager.restore("20240101T000000000Z"));
+        assertThrows(SnapshotNotFound.class, () -> snapshotManager.restore("../data"));
+        assertEquals(0, snapshotManager.takeSnapshot().getPairs());
+    }
+
+    @Test
+    void testSegmentsAreLoadedInParallelOnStartupAndProgressIsReported() {
+        for (int i = 0; i < 50; i++) {
+            service.setValueByKey("key" + i, "value" + i, 60_000);
+        }
+        String id = snapshotManager.takeSnapshot().getId();
+        service.setValueByKey("extra", "value", 60_000);
+        snapshotManager.markRestorePending();
+        assertEquals(RestoreProgress.State.PENDING, snapshotManager.getRestoreProgress().getState());
+
+        snapshotManager.restoreOnStartup(id);
+        var progress = snapshotManager.getRestoreProgress();
+        assertEquals(RestoreProgress.State.IDLE, progress.getState());
+        assertEquals(13, progress.getSegments());
+        assertEquals(13, progress.getLoadedSegments());
+        assertEquals(50, progress.getLoadedPairs());
+        assertEquals(50, service.getDump().size());
+        assertEquals(Optional.of("value42"), service.getValueByKey("key42"));
+    }
+
+    @Test
+    void testCorruptSnapshotLeavesStorageUnchanged() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            service.setValueByKey("key" + i, "value" + i, 60_000);
+        }
+        String id = snapshotManager.takeSnapshot().getId();
+        service.setValueByKey("key0", "changed", 60_000);
+        service.setValueByKey("extra", "value", 60_000);
+        Files.writeString(directory.resolve(id).resolve("segment-000005.ndjson"), "{not json\n");
+
+        assertThrows(RuntimeException.class, () -> snapshotManager.restore(id));
+        assertEquals(RestoreProgress.State.FAILED, snapshotManager.getRestoreProgress().getState());
+        assertEquals(51, service.getDump().size());
+        assertEquals(Optional.of("changed"), service.getValueByKey("key0"));
+        assertEquals(Optional.of("value"), service.getValueByKey("extra"));
+    }
+}
@@ -0,0 +1,117 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.h2.tools.Server;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.vladimir.infotecs.keyvaluedb.repository.DbKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.repository.mapper.KvPairRowMapper;
+import org.vladimir.infotecs.keyvaluedb.repository.mapper.ValueWithExpirationTimeRowMapper;
+import org.vladimir.infotecs.keyvaluedb.service.DbKVService;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares DB mode request handling on a Tomcat-sized pool of platform threads against a virtual thread per request
+ * at high concurrency. Every request reads or writes a key through {@link DbKVService} over H2 TCP
+ * and optionally blocks for --think ms outside the database (e.g. a downstream call).
+ * Not a unit test, run the main method with the test classpath: [requests] [poolSize] [thinkMillis].
+ * <p>
+ * Virtual threads require Java 21+. The project targets Java 17, where {@link VirtualThreadTaskExecutor}
+ * is unavailable and only the platform pool is measured, so the virtual thread numbers exist only when
+ * the benchmark is run on a Java 21+ runtime. spring.threads.virtual.enabled is ignored on Java 17 as well.
+ * </p>
+ */
+public class ThreadModeBenchmark {
+
+    private static final int KEYS = 10_000;
+    private static final int PLATFORM_THREADS = 200;
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int poolSize = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long thinkMillis = args.length > 2 ? Long.parseLong(args[2]) : 5;
+
+        Server server = Server.createTcpServer("-tcp", "-ifNotExists", "-tcpPort", "0").start();
+        var hikariConfig = new HikariConfig();
+        hikariConfig.setJdbcUrl("jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:benchmark");
+        hikariConfig.setUsername("sa");
+        hikariConfig.setPassword("password");
+        hikariConfig.setMaximumPoolSize(poolSize);
+        try (var dataSource = new HikariDataSource(hikariConfig)) {
+            var jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS KEY_VALUE_TABLE (" +
+                    "\"KEY\" TEXT PRIMARY KEY, \"VALUE\" TEXT NOT NULL, " +
+                    "EXPIRATION_TIME TIMESTAMP NOT NULL, SLIDING_TTL BIGINT, VERSION BIGINT)");
+            var service = new DbKVService(new DbKeyValueRepository(jdbcTemplate,
+                    new ValueWithExpirationTimeRowMapper(), new KvPairRowMapper()), 200);
+            for (int i = 0; i < KEYS; i++) {
+                service.setValueByKey("key" + i, "value" + i, 0);
+            }
+
+            ExecutorService platform = Executors.newFixedThreadPool(PLATFORM_THREADS);
+            Executor virtual = virtualExecutor();
+            for (int round = 0; round < 3; round++) {
+                run("platform(" + PLATFORM_THREADS + ")", platform, service, requests, thinkMillis);
+                if (virtual != null) {
+                    run("virtual", virtual, service, requests, thinkMillis);
+                }
+            }
+            platform.shutdown();
+            if (virtual == null) {
+                System.out.println("virtual: skipped, requires Java 21, running on Java "
+                        + Runtime.version().feature());
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static Executor virtualExecutor() {
+        try {
+            return new VirtualThreadTaskExecutor("benchmark-");
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static void run(String mode, Executor executor, DbKVService service, int requests, long thinkMillis)
+            throws InterruptedException {
+        long[] latencies = new long[requests];
+        var done = new CountDownLatch(requests);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            int request = i;
+            long submitted = System.nanoTime();
+            executor.execute(() -> {
+                try {
+                    String key = "key" + ThreadLocalRandom.current().nextInt(KEYS);
+                    if (request % 10 == 0) {
+                        service.setValueByKey(key, "value" + request, 0);
+                    } else {
+                        service.getValueByKey(key);
+                    }
+                    if (thinkMillis > 0) {
+                        Thread.sleep(thinkMillis);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latencies[request] = System.nanoTime() - submitted;
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+        System.out.printf("%-14s %8.0f req/s, p50 %7.1f ms, p99 %7.1f ms%n", mode, requests / seconds,
+                latencies[requests / 2] / 1e6, latencies[(int) (requests * 0.99)] / 1e6);
+    }
+}
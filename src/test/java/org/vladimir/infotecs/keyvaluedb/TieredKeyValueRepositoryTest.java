@@ -0,0 +1,91 @@
+package org.vladimir.infotecs.keyvaluedb;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vladimir.infotecs.keyvaluedb.model.ValueWithExpirationTime;
+import org.vladimir.infotecs.keyvaluedb.repository.TieredKeyValueRepository;
+import org.vladimir.infotecs.keyvaluedb.service.RWLSyncKvService;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredKeyValueRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testColdPairsAreSpilledAndPromotedOnRepeatedReads() {
+        try (var repository = new TieredKeyValueRepository(2, 2, directory, 1024)) {
+            repository.put("key1", "значение1", ValueWithExpirationTime.NEVER_EXPIRES);
+            repository.put("key2", "value2", ValueWithExpirationTime.NEVER_EXPIRES);
+            repository.put("key3", "value3", ValueWithExpirationTime.NEVER_EXPIRES);
+            assertEquals(2, repository.getHotSize());
+            assertEquals(1, repository.getColdSize());
+
+            assertEquals("значение1", repository.get("key1").orElseThrow().getValue());
+            assertEquals("значение1", repository.getIfNotOutdated("key1").orElseThrow().getValue());
+            assertEquals(1, repository.getColdSize());
+            assertEquals(0, repository.getPromotions());
+            assertEquals("значение1", repository.getIfNotOutdated("key1").orElseThrow().getValue());
+            assertEquals(1, repository.getPromotions());
+            // key2, the least recently used pair, was spilled for key1
+            assertEquals(2, repository.getSpills());
+            assertEquals(1, repository.getColdSize());
+            assertEquals(Map.of("key1", "значение1", "key2", "value2", "key3", "value3"), values(repository));
+        }
+    }
+
+    @Test
+    void testColdPairsAreRemovedAndOverwritten() {
+        try (var repository = new TieredKeyValueRepository(1, 3, directory, 1024)) {
+            var service = new RWLSyncKvService(repository, 120);
+            service.setValueByKey("key1", "value1", 60_000, true);
+            service.setValueByKey("key2", "value2", 60_000);
+            service.setValueByKey("key3", "value3", 60_000);
+            repository.put("outdated", "value", 1000);
+            repository.put("key4", "value4", ValueWithExpirationTime.NEVER_EXPIRES);
+
+            assertEquals(4, repository.getColdSize());
+            assertEquals(60_000L, repository.get("key1").orElseThrow().getSlidingTtl());
+            assertEquals(Optional.of("value2"), service.getAndSet("key2", "new", 0));
+            assertEquals(Optional.of("new"), service.getValueByKey("key2"));
+            assertEquals(Optional.of("value3"), service.deleteValueByKey("key3"));
+            assertFalse(repository.contains("key3"));
+            assertEquals(List.of("outdated"), repository.removeAllOutdatedPairsAndReturnKeys(2000));
+            assertEquals(List.of("key1", "key2", "key4"), repository.getKeysByPrefix("key", 10, 2000));
+            assertEquals(List.of("key1", "key2"), repository.getKeysInRange("key", "key3", 10, 2000));
+        }
+    }
+
+    @Test
+    void testFileIsCompactedWhenMostOfItIsGarbage() {
+        try (var repository = new TieredKeyValueRepository(1, 1, directory, 64)) {
+            String value = "v".repeat(40);
+            for (int i = 0; i < 10; i++) {
+                repository.put("key" + i, value + i, ValueWithExpirationTime.NEVER_EXPIRES);
+            }
+            long fileSize = repository.getFileSize();
+            for (int i = 0; i < 8; i++) {
+                assertTrue(repository.remove("key" + i));
+            }
+
+            assertTrue(repository.getFileSize() < fileSize);
+            assertEquals(value + 8, repository.get("key8").orElseThrow().getValue());
+            assertEquals(value + 9, repository.get("key9").orElseThrow().getValue());
+            repository.clear();
+            assertEquals(0, repository.getColdBytes());
+            assertEquals(Map.of(), repository.getAll());
+        }
+    }
+
+    private static Map<String, String> values(TieredKeyValueRepository repository) {
+        return Map.of("key1", repository.getAll().get("key1").getValue(),
+                "key2", repository.getAll().get("key2").getValue(),
+                "key3", repository.getAll().get("key3").getValue());
+    }
+}